@@ -0,0 +1,182 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.configuration;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.onap.dcaegen2.collectors.datafile.service.FileLeaseMembershipProvider;
+import org.onap.dcaegen2.collectors.datafile.service.MembershipProvider;
+import org.onap.dcaegen2.collectors.datafile.service.StaticMembershipProvider;
+import org.onap.dcaegen2.collectors.datafile.service.XnfOwnership;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Parameters for sharing the xNFs between several DFC instances, bound from the <code>app.cluster</code>
+ * properties.
+ */
+@Component
+@ConfigurationProperties("app.cluster")
+public class ClusterConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterConfig.class);
+
+    /**
+     * When set, each instance collects the files of the xNFs that it owns only. Each instance must then consume with
+     * its own consumer group, so that every instance sees every file, as the files are not forwarded between the
+     * instances. The lease directory or the members must be set.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The id of this instance. The host name when not set.
+     */
+    private String instanceId = "";
+
+    /**
+     * The ids of all instances, when the members are not found by leases. The members never expire, so the files of
+     * a stopped member are not collected until it is removed from the members of all instances.
+     */
+    private List<String> members = new ArrayList<>();
+
+    /**
+     * A directory shared by all instances, where each instance holds a lease while it runs. When set, the members
+     * are the instances holding a lease, and the configured members are not used.
+     */
+    private String leaseDirectory = "";
+
+    /**
+     * How long the lease of a stopped instance lasts. The files of its xNFs are collected by the others after this.
+     */
+    private Duration leaseDuration = Duration.ofSeconds(30);
+
+    /**
+     * The number of virtual nodes of each instance on the hash ring. More nodes share the xNFs more evenly.
+     */
+    private int virtualNodes = 100;
+
+    /**
+     * The most files of xNFs owned by other instances that wait for the handover delay, to be collected if their
+     * owner has stopped. A file of another owner is left to it without waiting when this many files wait.
+     */
+    private int maxFilesAwaitingHandover = 10000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public List<String> getMembers() {
+        return members;
+    }
+
+    public void setMembers(List<String> members) {
+        this.members = members;
+    }
+
+    public String getLeaseDirectory() {
+        return leaseDirectory;
+    }
+
+    public void setLeaseDirectory(String leaseDirectory) {
+        this.leaseDirectory = leaseDirectory;
+    }
+
+    public Duration getLeaseDuration() {
+        return leaseDuration;
+    }
+
+    public void setLeaseDuration(Duration leaseDuration) {
+        this.leaseDuration = leaseDuration;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public int getMaxFilesAwaitingHandover() {
+        return maxFilesAwaitingHandover;
+    }
+
+    public void setMaxFilesAwaitingHandover(int maxFilesAwaitingHandover) {
+        this.maxFilesAwaitingHandover = maxFilesAwaitingHandover;
+    }
+
+    /**
+     * The sharing of the xNFs with the other instances. When the lease directory is set, the members are found by
+     * their leases, so that the files of an instance that stops are collected by the others. Otherwise the members are
+     * the configured ones.
+     *
+     * @param consumerGroup - the consumer group that this instance consumes with
+     * @return the sharing of the xNFs
+     * @throws IllegalStateException if the sharing is enabled without a lease directory or members
+     */
+    public XnfOwnership getXnfOwnership(Supplier<String> consumerGroup) {
+        if (!enabled) {
+            return XnfOwnership.ownsAll();
+        }
+        String id = instanceId.isEmpty() ? getHostName() : instanceId;
+        MembershipProvider membershipProvider;
+        if (!leaseDirectory.isEmpty()) {
+            membershipProvider =
+                    new FileLeaseMembershipProvider(Paths.get(leaseDirectory), id, leaseDuration, consumerGroup);
+        } else if (!members.isEmpty()) {
+            if (!members.contains(id)) {
+                logger.warn("Instance {} is not one of the configured members {}", id, members);
+            }
+            membershipProvider = new StaticMembershipProvider(members);
+        } else {
+            throw new IllegalStateException(
+                    "app.cluster.lease-directory or app.cluster.members must be set when app.cluster.enabled is set");
+        }
+        return new XnfOwnership(id, membershipProvider, virtualNodes);
+    }
+
+    private static String getHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            String id = UUID.randomUUID().toString();
+            logger.warn("Unable to get the host name, the instance id is {}", id);
+            return id;
+        }
+    }
+}
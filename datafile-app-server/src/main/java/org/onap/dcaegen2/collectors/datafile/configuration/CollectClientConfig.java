@@ -0,0 +1,42 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+
+package org.onap.dcaegen2.collectors.datafile.configuration;
+
+import org.onap.dcaegen2.collectors.datafile.ftp.FtpsConnectionPool;
+import org.onap.dcaegen2.collectors.datafile.ftp.SftpSessionCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The clients that collect the files from the xNFs, tuned by the <code>app.collector</code> properties.
+ */
+@Configuration
+public class CollectClientConfig {
+
+    @Bean
+    public FtpsConnectionPool ftpsConnectionPool(CollectorConfig collectorConfig) {
+        return new FtpsConnectionPool(collectorConfig.getFtpsMaxIdleSessionsPerHost(),
+                collectorConfig.getFtpsMaxIdleTime());
+    }
+
+    @Bean
+    public SftpSessionCache sftpSessionCache(CollectorConfig collectorConfig) {
+        return new SftpSessionCache(collectorConfig.getSftpMaxChannelsPerSession(),
+                collectorConfig.getSftpMaxSessionsPerHost(), collectorConfig.getSftpMaxIdleTime());
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.onap.dcaegen2.collectors.datafile.tasks.HostCircuitBreakers;
+import org.onap.dcaegen2.collectors.datafile.tasks.RetryPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tuning parameters for the collection part of the Datafile workflow, bound from the
+ * <code>app.collector</code> properties.
+ */
+@Component
+@ConfigurationProperties("app.collector")
+public class CollectorConfig {
+
+    /**
+     * Number of files that are downloaded from the xNFs at the same time.
+     */
+    private int maxConcurrentCollections = 10;
+
+    /**
+     * The most files that are being collected at a time, including the files that wait for a retry of their
+     * download. No more files are taken from the consumer while this many are in collection.
+     */
+    private int maxFilesInCollection = 50;
+
+    /**
+     * Number of files that are downloaded from one xNF at the same time, unless a limit is set for the vendor or the
+     * product of the xNF.
+     */
+    private int maxConcurrentCollectionsPerHost = 2;
+
+    /**
+     * Number of files that are downloaded from one xNF at the same time, by the vendor name of the xNF.
+     */
+    private Map<String, Integer> maxConcurrentCollectionsPerVendor = new HashMap<>();
+
+    /**
+     * Number of files that are downloaded from one xNF at the same time, by the product name of the xNF. Used before
+     * the limit of the vendor.
+     */
+    private Map<String, Integer> maxConcurrentCollectionsPerProduct = new HashMap<>();
+
+    /**
+     * Number of failed connections in a row to an xNF, after which no files are collected from it for a while.
+     */
+    private int hostFailureThreshold = 3;
+
+    /**
+     * How long no files are collected from an xNF that cannot be connected to. Then one file is tried, and if that
+     * connects, the files from the xNF are collected again.
+     */
+    private Duration hostOpenDuration = Duration.ofMinutes(1);
+
+    /**
+     * The most files that wait for xNFs that cannot be connected to. These files wait outside of the collection, so
+     * that they do not keep the files from other xNFs from being collected. When this many are waiting, a file from
+     * an xNF that cannot be connected to is given up.
+     */
+    private int maxFilesWaitingForUnreachableHosts = 1000;
+
+    /**
+     * The most files that wait for a free download from their xNF, when the xNF already has as many downloads as it
+     * is allowed. These files wait before the collection, so that they do not keep the files from other xNFs from
+     * being collected.
+     */
+    private int maxFilesWaitingForBusyHosts = 500;
+
+    /**
+     * Number of logged in FTPES sessions to one xNF that are kept for the following files from the xNF.
+     */
+    private int ftpsMaxIdleSessionsPerHost = 4;
+
+    /**
+     * How long a logged in FTPES session is kept when no file is collected on it.
+     */
+    private Duration ftpsMaxIdleTime = Duration.ofMinutes(1);
+
+    /**
+     * Number of files that are collected over one SSH session to an xNF at the same time, each over its own SFTP
+     * channel.
+     */
+    private int sftpMaxChannelsPerSession = 5;
+
+    /**
+     * Number of SSH sessions that are connected to one xNF. When they are all fully used, a download waits for a
+     * channel.
+     */
+    private int sftpMaxSessionsPerHost = 4;
+
+    /**
+     * How long an SSH session is kept when no file is collected over it.
+     */
+    private Duration sftpMaxIdleTime = Duration.ofMinutes(1);
+
+    /**
+     * Number of times a failed download is retried before the file is given up.
+     */
+    private int maxRetries = 2;
+
+    /**
+     * The wait before the first retry of a failed download. Doubled for each following retry.
+     */
+    private Duration firstRetryBackoff = Duration.ofSeconds(30);
+
+    private Duration maxRetryBackoff = Duration.ofMinutes(5);
+
+    /**
+     * Random variation of the retry waits, as a fraction of the wait, so that files failing together are not
+     * retried together.
+     */
+    private double retryJitter = 0.5;
+
+    /**
+     * When set, the files are passed from the xNFs directly to DataRouter instead of being stored on disk in
+     * between. A file is still stored on disk when DataRouter does not take it fast enough.
+     */
+    private boolean passThrough = false;
+
+    /**
+     * Number of 64 KiB chunks of each file that are buffered in pass-through mode while DataRouter is behind the xNF.
+     */
+    private int passThroughBufferChunks = 16;
+
+    /**
+     * How long the download waits for DataRouter when the pass-through buffer is full, before the file is stored on
+     * disk instead.
+     */
+    private Duration passThroughWriteTimeout = Duration.ofSeconds(10);
+
+    public int getMaxConcurrentCollections() {
+        return maxConcurrentCollections;
+    }
+
+    public void setMaxConcurrentCollections(int maxConcurrentCollections) {
+        this.maxConcurrentCollections = maxConcurrentCollections;
+    }
+
+    public int getMaxFilesInCollection() {
+        return maxFilesInCollection;
+    }
+
+    public void setMaxFilesInCollection(int maxFilesInCollection) {
+        this.maxFilesInCollection = maxFilesInCollection;
+    }
+
+    public int getMaxConcurrentCollectionsPerHost() {
+        return maxConcurrentCollectionsPerHost;
+    }
+
+    public void setMaxConcurrentCollectionsPerHost(int maxConcurrentCollectionsPerHost) {
+        this.maxConcurrentCollectionsPerHost = maxConcurrentCollectionsPerHost;
+    }
+
+    public Map<String, Integer> getMaxConcurrentCollectionsPerVendor() {
+        return maxConcurrentCollectionsPerVendor;
+    }
+
+    public void setMaxConcurrentCollectionsPerVendor(Map<String, Integer> maxConcurrentCollectionsPerVendor) {
+        this.maxConcurrentCollectionsPerVendor = maxConcurrentCollectionsPerVendor;
+    }
+
+    public Map<String, Integer> getMaxConcurrentCollectionsPerProduct() {
+        return maxConcurrentCollectionsPerProduct;
+    }
+
+    public void setMaxConcurrentCollectionsPerProduct(Map<String, Integer> maxConcurrentCollectionsPerProduct) {
+        this.maxConcurrentCollectionsPerProduct = maxConcurrentCollectionsPerProduct;
+    }
+
+    public int getHostFailureThreshold() {
+        return hostFailureThreshold;
+    }
+
+    public void setHostFailureThreshold(int hostFailureThreshold) {
+        this.hostFailureThreshold = hostFailureThreshold;
+    }
+
+    public Duration getHostOpenDuration() {
+        return hostOpenDuration;
+    }
+
+    public void setHostOpenDuration(Duration hostOpenDuration) {
+        this.hostOpenDuration = hostOpenDuration;
+    }
+
+    public int getMaxFilesWaitingForUnreachableHosts() {
+        return maxFilesWaitingForUnreachableHosts;
+    }
+
+    public void setMaxFilesWaitingForUnreachableHosts(int maxFilesWaitingForUnreachableHosts) {
+        this.maxFilesWaitingForUnreachableHosts = maxFilesWaitingForUnreachableHosts;
+    }
+
+    public int getMaxFilesWaitingForBusyHosts() {
+        return maxFilesWaitingForBusyHosts;
+    }
+
+    public void setMaxFilesWaitingForBusyHosts(int maxFilesWaitingForBusyHosts) {
+        this.maxFilesWaitingForBusyHosts = maxFilesWaitingForBusyHosts;
+    }
+
+    /**
+     * The number of files that are downloaded from one xNF at the same time. The names are matched ignoring case,
+     * since property names are not case sensitive.
+     */
+    public int getHostLimit(String vendorName, String productName) {
+        Integer limit = findIgnoringCase(maxConcurrentCollectionsPerProduct, productName);
+        if (limit == null) {
+            limit = findIgnoringCase(maxConcurrentCollectionsPerVendor, vendorName);
+        }
+        return limit == null ? maxConcurrentCollectionsPerHost : limit;
+    }
+
+    private static Integer findIgnoringCase(Map<String, Integer> limits, String name) {
+        for (Map.Entry<String, Integer> limit : limits.entrySet()) {
+            if (limit.getKey().equalsIgnoreCase(name)) {
+                return limit.getValue();
+            }
+        }
+        return null;
+    }
+
+    public int getFtpsMaxIdleSessionsPerHost() {
+        return ftpsMaxIdleSessionsPerHost;
+    }
+
+    public void setFtpsMaxIdleSessionsPerHost(int ftpsMaxIdleSessionsPerHost) {
+        this.ftpsMaxIdleSessionsPerHost = ftpsMaxIdleSessionsPerHost;
+    }
+
+    public Duration getFtpsMaxIdleTime() {
+        return ftpsMaxIdleTime;
+    }
+
+    public void setFtpsMaxIdleTime(Duration ftpsMaxIdleTime) {
+        this.ftpsMaxIdleTime = ftpsMaxIdleTime;
+    }
+
+    public int getSftpMaxChannelsPerSession() {
+        return sftpMaxChannelsPerSession;
+    }
+
+    public void setSftpMaxChannelsPerSession(int sftpMaxChannelsPerSession) {
+        this.sftpMaxChannelsPerSession = sftpMaxChannelsPerSession;
+    }
+
+    public int getSftpMaxSessionsPerHost() {
+        return sftpMaxSessionsPerHost;
+    }
+
+    public void setSftpMaxSessionsPerHost(int sftpMaxSessionsPerHost) {
+        this.sftpMaxSessionsPerHost = sftpMaxSessionsPerHost;
+    }
+
+    public Duration getSftpMaxIdleTime() {
+        return sftpMaxIdleTime;
+    }
+
+    public void setSftpMaxIdleTime(Duration sftpMaxIdleTime) {
+        this.sftpMaxIdleTime = sftpMaxIdleTime;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public Duration getFirstRetryBackoff() {
+        return firstRetryBackoff;
+    }
+
+    public void setFirstRetryBackoff(Duration firstRetryBackoff) {
+        this.firstRetryBackoff = firstRetryBackoff;
+    }
+
+    public Duration getMaxRetryBackoff() {
+        return maxRetryBackoff;
+    }
+
+    public void setMaxRetryBackoff(Duration maxRetryBackoff) {
+        this.maxRetryBackoff = maxRetryBackoff;
+    }
+
+    public double getRetryJitter() {
+        return retryJitter;
+    }
+
+    public void setRetryJitter(double retryJitter) {
+        this.retryJitter = retryJitter;
+    }
+
+    public boolean isPassThrough() {
+        return passThrough;
+    }
+
+    public void setPassThrough(boolean passThrough) {
+        this.passThrough = passThrough;
+    }
+
+    public int getPassThroughBufferChunks() {
+        return passThroughBufferChunks;
+    }
+
+    public void setPassThroughBufferChunks(int passThroughBufferChunks) {
+        this.passThroughBufferChunks = passThroughBufferChunks;
+    }
+
+    public Duration getPassThroughWriteTimeout() {
+        return passThroughWriteTimeout;
+    }
+
+    public void setPassThroughWriteTimeout(Duration passThroughWriteTimeout) {
+        this.passThroughWriteTimeout = passThroughWriteTimeout;
+    }
+
+    public HostCircuitBreakers getHostCircuitBreakers() {
+        return new HostCircuitBreakers(hostFailureThreshold, hostOpenDuration);
+    }
+
+    public RetryPolicy getCollectRetryPolicy() {
+        return new RetryPolicy(maxRetries, firstRetryBackoff, maxRetryBackoff, retryJitter);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.configuration;
+
+import java.time.Duration;
+
+import org.onap.dcaegen2.collectors.datafile.service.DuplicateFileCache;
+import org.onap.dcaegen2.collectors.datafile.tasks.RetryPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tuning parameters for the consuming part of the Datafile workflow, bound from the <code>app.consumer</code>
+ * properties.
+ */
+@Component
+@ConfigurationProperties("app.consumer")
+public class ConsumerConfig {
+
+    /**
+     * The wait before polling Message Router again after a poll that gave no files. Doubled for each following empty
+     * poll.
+     */
+    private Duration firstEmptyPollBackoff = Duration.ofSeconds(1);
+
+    private Duration maxEmptyPollBackoff = Duration.ofSeconds(15);
+
+    /**
+     * The most consumed files that wait to be collected. Message Router is not polled while this many files wait.
+     */
+    private int maxBufferedFiles = 100;
+
+    /**
+     * How long a received file is remembered, so that the file is skipped if it is announced again.
+     */
+    private Duration duplicateWindow = Duration.ofHours(1);
+
+    /**
+     * The most files that are remembered for the duplicate check. Each file takes 32 bytes of memory.
+     */
+    private int maxRememberedFiles = 500000;
+
+    public Duration getFirstEmptyPollBackoff() {
+        return firstEmptyPollBackoff;
+    }
+
+    public void setFirstEmptyPollBackoff(Duration firstEmptyPollBackoff) {
+        this.firstEmptyPollBackoff = firstEmptyPollBackoff;
+    }
+
+    public Duration getMaxEmptyPollBackoff() {
+        return maxEmptyPollBackoff;
+    }
+
+    public void setMaxEmptyPollBackoff(Duration maxEmptyPollBackoff) {
+        this.maxEmptyPollBackoff = maxEmptyPollBackoff;
+    }
+
+    public int getMaxBufferedFiles() {
+        return maxBufferedFiles;
+    }
+
+    public void setMaxBufferedFiles(int maxBufferedFiles) {
+        this.maxBufferedFiles = maxBufferedFiles;
+    }
+
+    public RetryPolicy getEmptyPollBackoffPolicy() {
+        return new RetryPolicy(Integer.MAX_VALUE, firstEmptyPollBackoff, maxEmptyPollBackoff, 0);
+    }
+
+    public Duration getDuplicateWindow() {
+        return duplicateWindow;
+    }
+
+    public void setDuplicateWindow(Duration duplicateWindow) {
+        this.duplicateWindow = duplicateWindow;
+    }
+
+    public int getMaxRememberedFiles() {
+        return maxRememberedFiles;
+    }
+
+    public void setMaxRememberedFiles(int maxRememberedFiles) {
+        this.maxRememberedFiles = maxRememberedFiles;
+    }
+
+    public DuplicateFileCache getDuplicateFileCache() {
+        return new DuplicateFileCache(maxRememberedFiles, duplicateWindow);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import org.onap.dcaegen2.collectors.datafile.service.FileJournal;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Parameters for the journal of the files in progress, bound from the <code>app.journal</code> properties.
+ */
+@Component
+@ConfigurationProperties("app.journal")
+public class JournalConfig {
+
+    /**
+     * When set, the files in progress are journaled, and the files that were in progress when the process stopped
+     * are handled when it starts again.
+     */
+    private boolean enabled = true;
+
+    private String path = "journal/datafile.journal";
+
+    /**
+     * The size of the journal file. The journal is compacted when it is full.
+     */
+    private DataSize capacity = DataSize.ofMegabytes(64);
+
+    /**
+     * Number of journal records after which they are forced to the disk.
+     */
+    private int syncBatchSize = 1000;
+
+    /**
+     * The longest time before a journal record is forced to the disk.
+     */
+    private Duration syncInterval = Duration.ofMillis(200);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public DataSize getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(DataSize capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getSyncBatchSize() {
+        return syncBatchSize;
+    }
+
+    public void setSyncBatchSize(int syncBatchSize) {
+        this.syncBatchSize = syncBatchSize;
+    }
+
+    public Duration getSyncInterval() {
+        return syncInterval;
+    }
+
+    public void setSyncInterval(Duration syncInterval) {
+        this.syncInterval = syncInterval;
+    }
+
+    public FileJournal openJournal() throws IOException {
+        if (!enabled) {
+            return FileJournal.disabled();
+        }
+        return FileJournal.open(Paths.get(path), Math.toIntExact(capacity.toBytes()), syncBatchSize, syncInterval);
+    }
+}
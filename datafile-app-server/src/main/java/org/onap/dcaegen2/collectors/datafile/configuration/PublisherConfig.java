@@ -0,0 +1,137 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.configuration;
+
+import java.time.Duration;
+
+import org.onap.dcaegen2.collectors.datafile.tasks.RetryPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tuning parameters for the publishing part of the Datafile workflow, bound from the
+ * <code>app.publisher</code> properties.
+ */
+@Component
+@ConfigurationProperties("app.publisher")
+public class PublisherConfig {
+
+
+    /**
+     * The most connections to one DataRouter node.
+     */
+    private int maxConnectionsPerRoute = 20;
+
+    private int maxConnectionsTotal = 50;
+
+    /**
+     * The most files that are being published at a time. No more collected files are taken while this many are
+     * being published.
+     */
+    private int maxConcurrentPublishes = 20;
+
+    /**
+     * The most collected files that wait to be published. No more files are collected while this many are waiting.
+     */
+    private int maxFilesWaitingForPublish = 50;
+
+    /**
+     * Number of times a failed publish is retried before the file is given up. Only the publish is retried, the file
+     * is not collected again.
+     */
+    private int maxRetries = 3;
+
+    /**
+     * The wait before the first retry of a failed publish. Doubled for each following retry.
+     */
+    private Duration firstRetryBackoff = Duration.ofSeconds(5);
+
+    private Duration maxRetryBackoff = Duration.ofMinutes(1);
+
+    /**
+     * Random variation of the retry waits, as a fraction of the wait.
+     */
+    private double retryJitter = 0.5;
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+    }
+
+    public int getMaxConcurrentPublishes() {
+        return maxConcurrentPublishes;
+    }
+
+    public void setMaxConcurrentPublishes(int maxConcurrentPublishes) {
+        this.maxConcurrentPublishes = maxConcurrentPublishes;
+    }
+
+    public int getMaxFilesWaitingForPublish() {
+        return maxFilesWaitingForPublish;
+    }
+
+    public void setMaxFilesWaitingForPublish(int maxFilesWaitingForPublish) {
+        this.maxFilesWaitingForPublish = maxFilesWaitingForPublish;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public Duration getFirstRetryBackoff() {
+        return firstRetryBackoff;
+    }
+
+    public void setFirstRetryBackoff(Duration firstRetryBackoff) {
+        this.firstRetryBackoff = firstRetryBackoff;
+    }
+
+    public Duration getMaxRetryBackoff() {
+        return maxRetryBackoff;
+    }
+
+    public void setMaxRetryBackoff(Duration maxRetryBackoff) {
+        this.maxRetryBackoff = maxRetryBackoff;
+    }
+
+    public double getRetryJitter() {
+        return retryJitter;
+    }
+
+    public void setRetryJitter(double retryJitter) {
+        this.retryJitter = retryJitter;
+    }
+
+    public RetryPolicy getPublishRetryPolicy() {
+        return new RetryPolicy(maxRetries, firstRetryBackoff, maxRetryBackoff, retryJitter);
+    }
+}
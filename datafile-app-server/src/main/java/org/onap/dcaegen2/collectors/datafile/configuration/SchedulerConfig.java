@@ -42,7 +42,6 @@ import reactor.core.publisher.Mono;
 @EnableScheduling
 public class SchedulerConfig extends DatafileAppConfig {
 
-    private static final int SCHEDULING_DELAY_FOR_DATAFILE_COLLECTOR_TASKS = 15;
     private static final int SCHEDULING_REQUEST_FOR_CONFIGURATION_DELAY = 5;
     private static volatile List<ScheduledFuture> scheduledFutureList = new ArrayList<>();
 
@@ -67,12 +66,14 @@ public class SchedulerConfig extends DatafileAppConfig {
     public synchronized Mono<ResponseEntity<String>> getResponseFromCancellationOfTasks() {
         scheduledFutureList.forEach(x -> x.cancel(false));
         scheduledFutureList.clear();
+        scheduledTask.stopMainDatafileEventTask();
         return Mono.defer(() -> Mono
             .just(new ResponseEntity<>("Datafile Service has already been stopped!", HttpStatus.CREATED)));
     }
 
     /**
-     * Function for starting scheduling Datafile workflow.
+     * Function for starting scheduling Datafile workflow. The workflow is started once and then polls DMaaP
+     * continuously until it is stopped.
      *
      * @return status of operation execution: true - started, false - not started
      */
@@ -83,8 +84,7 @@ public class SchedulerConfig extends DatafileAppConfig {
             scheduledFutureList.add(taskScheduler
                 .scheduleAtFixedRate(cloudConfiguration::runTask, Instant.now(),
                     Duration.ofMinutes(SCHEDULING_REQUEST_FOR_CONFIGURATION_DELAY)));
-            scheduledFutureList.add(taskScheduler.scheduleWithFixedDelay(scheduledTask::scheduleMainDatafileEventTask,
-                Duration.ofSeconds(SCHEDULING_DELAY_FOR_DATAFILE_COLLECTOR_TASKS)));
+            scheduledTask.scheduleMainDatafileEventTask();
             return true;
         } else {
             return false;
@@ -0,0 +1,61 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+
+package org.onap.dcaegen2.collectors.datafile.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import reactor.core.publisher.Mono;
+
+/**
+ * The scrape endpoint for Prometheus.
+ */
+@RestController
+@Api(value = "MetricsController")
+public class MetricsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsController.class);
+
+    private final PrometheusMeterRegistry registry;
+
+    @Autowired
+    public MetricsController(PrometheusMeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @RequestMapping(value = "metrics", method = RequestMethod.GET)
+    @ApiOperation(value = "Returns the metrics of DATAFILE service in the Prometheus text format")
+    public Mono<ResponseEntity<String>> getMetrics() {
+        logger.trace("Receiving metrics request");
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, TextFormat.CONTENT_TYPE_004);
+        return Mono.fromSupplier(registry::scrape)
+                .map(metrics -> new ResponseEntity<>(metrics, headers, HttpStatus.OK));
+    }
+}
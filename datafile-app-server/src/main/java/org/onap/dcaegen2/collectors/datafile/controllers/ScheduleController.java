@@ -18,7 +18,12 @@
 
 package org.onap.dcaegen2.collectors.datafile.controllers;
 
+import java.util.stream.Collectors;
+
 import org.onap.dcaegen2.collectors.datafile.configuration.SchedulerConfig;
+import org.onap.dcaegen2.collectors.datafile.tasks.ScheduledTasks;
+import org.onap.dcaegen2.collectors.datafile.tasks.StageQueue;
+import org.onap.dcaegen2.collectors.datafile.tasks.StageThroughput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,10 +49,12 @@ public class ScheduleController {
     private static final Logger logger = LoggerFactory.getLogger(ScheduleController.class);
 
     private final SchedulerConfig schedulerConfig;
+    private final ScheduledTasks scheduledTasks;
 
     @Autowired
-    public ScheduleController(SchedulerConfig schedulerConfig) {
+    public ScheduleController(SchedulerConfig schedulerConfig, ScheduledTasks scheduledTasks) {
         this.schedulerConfig = schedulerConfig;
+        this.scheduledTasks = scheduledTasks;
     }
 
     @RequestMapping(value = "start", method = RequestMethod.GET)
@@ -64,6 +71,25 @@ public class ScheduleController {
         return schedulerConfig.getResponseFromCancellationOfTasks();
     }
 
+    @RequestMapping(value = "stages", method = RequestMethod.GET)
+    @ApiOperation(value = "Returns the files in each stage of the Datafile workflow, the throughput of the stages, "
+            + "and the duplicates skipped")
+    public Mono<ResponseEntity<String>> getStages() {
+        logger.trace("Receiving stages request");
+        return Mono.fromSupplier(this::createStagesReport)
+                .map(stages -> new ResponseEntity<>(stages, HttpStatus.OK));
+    }
+
+    private String createStagesReport() {
+        String stages = scheduledTasks.getStageQueues().stream().map(StageQueue::toString)
+                .collect(Collectors.joining("\n"));
+        String throughputs = scheduledTasks.getStageThroughputs().stream().map(StageThroughput::toString)
+                .collect(Collectors.joining(", "));
+        return stages + "\nthroughput: " + throughputs + "\nhosts: " + scheduledTasks.getHostPermits() + ", "
+                + scheduledTasks.getHostCircuitBreakers() + "\nduplicates: " + scheduledTasks.getDuplicateFileCache()
+                + "\ncluster: " + scheduledTasks.getXnfOwnership();
+    }
+
     @ApiOperation(value = "Sends success or error response on starting task execution")
     private ResponseEntity<String> createStartTaskResponse(boolean wasScheduled) {
         if (wasScheduled) {
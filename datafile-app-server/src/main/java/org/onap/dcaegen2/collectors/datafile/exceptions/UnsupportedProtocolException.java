@@ -0,0 +1,31 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END========================================================================
+ */
+
+
+/**
+ * Signals that the file is at a location with a protocol that DFC cannot collect from. The file is not retried, as a
+ * retry would fail the same way.
+ */
+public class UnsupportedProtocolException extends DatafileTaskException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UnsupportedProtocolException(String message) {
+        super(message);
+    }
+}
@@ -22,36 +22,55 @@ import org.immutables.gson.Gson;
 import org.immutables.value.Value;
 
 /**
- * Contains data, from the fileReady event, about the file to collect from the xNF.
+ * Contains data, from the fileReady event, about the file to collect from the xNF. The data from the header of the
+ * event is shared with the other files of the event, see {@link EventHeader}.
  *
  * @author <a href="mailto:henrik.b.andersson@est.tech">Henrik Andersson</a>
  */
 @Value.Immutable
 @Gson.TypeAdapters
 public interface FileData {
-    String productName();
+    EventHeader eventHeader();
 
-    String vendorName();
+    String name();
 
-    String lastEpochMicrosec();
+    String location();
 
-    String sourceName();
+    String compression();
 
-    String startEpochMicrosec();
+    String fileFormatType();
 
-    String timeZoneOffset();
+    String fileFormatVersion();
 
-    String changeIdentifier();
+    default String productName() {
+        return eventHeader().productName();
+    }
 
-    String changeType();
+    default String vendorName() {
+        return eventHeader().vendorName();
+    }
 
-    String name();
+    default String lastEpochMicrosec() {
+        return eventHeader().lastEpochMicrosec();
+    }
 
-    String location();
+    default String sourceName() {
+        return eventHeader().sourceName();
+    }
 
-    String compression();
+    default String startEpochMicrosec() {
+        return eventHeader().startEpochMicrosec();
+    }
 
-    String fileFormatType();
+    default String timeZoneOffset() {
+        return eventHeader().timeZoneOffset();
+    }
 
-    String fileFormatVersion();
+    default String changeIdentifier() {
+        return eventHeader().changeIdentifier();
+    }
+
+    default String changeType() {
+        return eventHeader().changeType();
+    }
 }
@@ -20,25 +20,43 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.StreamSupport;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.onap.dcaegen2.collectors.datafile.exceptions.DmaapEmptyResponseException;
 import org.onap.dcaegen2.collectors.datafile.exceptions.DmaapNotFoundException;
+import org.onap.dcaegen2.collectors.datafile.model.EventHeader;
 import org.onap.dcaegen2.collectors.datafile.model.FileData;
+import org.onap.dcaegen2.collectors.datafile.model.ImmutableEventHeader;
 import org.onap.dcaegen2.collectors.datafile.model.ImmutableFileData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.StringUtils;
 
+import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Schedulers;
 
 /**
- * Parses the fileReady event and creates an array of FileData containing the information.
+ * Parses the fileReady event and creates an array of FileData containing the information. The parser holds no state
+ * of the events it parses, so the events of a batch are parsed in parallel.
  *
  * @author <a href="mailto:przemyslaw.wasala@nokia.com">Przemysław Wąsala</a> on 5/8/18
  * @author <a href="mailto:henrik.b.andersson@est.tech">Henrik Andersson</a>
@@ -70,78 +88,151 @@ public class DmaapConsumerJsonParser {
     private static final String FILE_READY_CHANGE_TYPE = "FileReady";
     private static final String FILE_READY_CHANGE_IDENTIFIER = "PM_MEAS_FILES";
 
-    private String productName;
-    private String vendorName;
-    private String lastEpochMicrosec;
-    private String sourceName;
-    private String startEpochMicrosec;
-    private String timeZoneOffset;
-    private String changeIdentifier;
-    private String changeType;
+    private static final Pattern EVENT_NAME_SEPARATOR = Pattern.compile("[_-]");
+    private static final int PARALLEL_EVENTS = Runtime.getRuntime().availableProcessors();
+    private static final int BODY_PREFETCH = 4;
+
+    private final LongConsumer eventParseNanos;
+
+    public DmaapConsumerJsonParser() {
+        this(nanos -> {
+        });
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param eventParseNanos - is given how long the parsing of each event took
+     */
+    public DmaapConsumerJsonParser(LongConsumer eventParseNanos) {
+        this.eventParseNanos = eventParseNanos;
+    }
 
     /**
-     * Extract info from string and create @see {@link FileData}.
+     * Extract info from string and create @see {@link FileData}. The events of the batch are read one at a time, and
+     * the files of an event are emitted before the next event is read.
      *
      * @param rawMessage - results from DMaaP
-     * @return reactive Mono with an array of FileData
+     * @return reactive Flux with the FileData of all events
      */
     public Flux<FileData> getJsonObject(Mono<String> rawMessage) {
-        return rawMessage.flatMap(this::getJsonParserMessage).flatMapMany(this::createJsonConsumerModel);
+        return create(rawMessage.flatMapMany(this::getJsonParserMessage));
+    }
+
+    /**
+     * Extract info from the response body of DMaaP and create @see {@link FileData}. The events are read from the
+     * body as its chunks arrive, and no more chunks are requested than a few ahead of the event being read, so only
+     * one event at a time is held in memory, whatever the size of the batch. The body is read on an elastic thread,
+     * as the reader waits for the chunks.
+     *
+     * @param body - the chunks of the response body from DMaaP, in UTF-8
+     * @return reactive Flux with the FileData of all events
+     */
+    public Flux<FileData> getJsonObjectFromStream(Flux<byte[]> body) {
+        Flux<JsonElement> events = Flux
+                .generate(() -> openReader(new InputStreamReader(new BodyInputStream(body), StandardCharsets.UTF_8)),
+                        this::readNextEvent, this::closeReader)
+                .onErrorMap(Exceptions::unwrap).subscribeOn(Schedulers.elastic());
+        return create(events);
     }
 
-    private Mono<JsonElement> getJsonParserMessage(String message) {
+    private Flux<JsonElement> getJsonParserMessage(String message) {
         logger.trace("original message from message router: {}", message);
-        return StringUtils.isEmpty(message) ? Mono.error(new DmaapEmptyResponseException())
-                : Mono.fromSupplier(() -> new JsonParser().parse(message));
+        return StringUtils.isEmpty(message) ? Flux.error(new DmaapEmptyResponseException())
+                : Flux.generate(() -> openReader(new StringReader(message)), this::readNextEvent, this::closeReader);
     }
 
-    private Flux<FileData> createJsonConsumerModel(JsonElement jsonElement) {
-        logger.trace("after JsonParser: ", jsonElement.toString());
-        boolean flag = jsonElement.isJsonObject();
-        return jsonElement.isJsonObject() ? create(Flux.just(jsonElement.getAsJsonObject()))
-                : getFileDataFromJsonArray(jsonElement);
+    /**
+     * The message is either one event, or an array of events. Message Router sends each event in the array as a
+     * string, but events given as objects are read as well. An event given as a string is parsed later, in parallel
+     * with the other events.
+     */
+    private static JsonReader openReader(Reader message) throws IOException, DmaapEmptyResponseException {
+        JsonReader reader = new JsonReader(message);
+        reader.setLenient(true);
+        try {
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+            }
+        } catch (EOFException e) {
+            reader.close();
+            throw new DmaapEmptyResponseException();
+        }
+        return reader;
+    }
+
+    private JsonReader readNextEvent(JsonReader reader, SynchronousSink<JsonElement> sink) {
+        try {
+            if (!reader.hasNext()) {
+                sink.complete();
+                return reader;
+            }
+            JsonToken token = reader.peek();
+            if (token == JsonToken.STRING) {
+                sink.next(new JsonPrimitive(reader.nextString()));
+            } else if (token == JsonToken.BEGIN_OBJECT) {
+                sink.next(new JsonParser().parse(reader));
+            } else {
+                reader.skipValue();
+                sink.next(new JsonObject());
+            }
+        } catch (IOException | RuntimeException e) {
+            sink.error(e);
+        }
+        return reader;
     }
 
-    private Flux<FileData> getFileDataFromJsonArray(JsonElement jsonElement) {
-        return create(
-                Flux.defer(() -> Flux.fromStream(StreamSupport.stream(jsonElement.getAsJsonArray().spliterator(), false)
-                        .map(jsonElementFromArray -> getJsonObjectFromAnArray(jsonElementFromArray)
-                                .orElseGet(JsonObject::new)))));
+    private static JsonObject toJsonObject(JsonElement event) {
+        JsonElement element = event.isJsonPrimitive() ? new JsonParser().parse(event.getAsString()) : event;
+        return element.isJsonObject() ? element.getAsJsonObject() : new JsonObject();
     }
 
-    public Optional<JsonObject> getJsonObjectFromAnArray(JsonElement element) {
-        logger.trace("starting to getJsonObjectFromAnArray!");
-        return Optional.of(new JsonParser().parse(element.getAsString()).getAsJsonObject());
+    private void closeReader(JsonReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            logger.trace("Unable to close JSON reader", e);
+        }
     }
 
-    private Flux<FileData> create(Flux<JsonObject> flux) {
+    /**
+     * As many events as there are processors are parsed at the same time, and no more events are requested from the
+     * reader until one of them is done. The files are emitted in the order of the events.
+     */
+    private Flux<FileData> create(Flux<JsonElement> flux) {
         return flux
-                .flatMap(monoJsonP -> !containsHeader(monoJsonP)
-                        ? Flux.empty()
-                        : transform(monoJsonP))
+                .flatMapSequential(
+                        event -> Flux.defer(() -> parseEvent(event)).subscribeOn(Schedulers.parallel()),
+                        PARALLEL_EVENTS, 1)
                 .onErrorResume(exception -> exception instanceof DmaapNotFoundException, e -> Mono.empty());
     }
 
+    /**
+     * The files of the event are all created here, so the time taken is the parsing of the event, without the waiting
+     * for the response or for the following stages.
+     */
+    private Flux<FileData> parseEvent(JsonElement event) {
+        long startNanos = System.nanoTime();
+        JsonObject jsonObject = toJsonObject(event);
+        Flux<FileData> files = containsHeader(jsonObject) ? transform(jsonObject) : Flux.empty();
+        eventParseNanos.accept(System.nanoTime() - startNanos);
+        return files;
+    }
+
     private Flux<FileData> transform(JsonObject jsonObject) {
         if (containsHeader(jsonObject, EVENT, NOTIFICATION_FIELDS)) {
-            JsonObject commonEventHeader = jsonObject.getAsJsonObject(EVENT).getAsJsonObject(COMMON_EVENT_HEADER);
-            String eventName = getValueFromJson(commonEventHeader, EVENT_NAME);
-            productName = getProductNameFromEventName(eventName);
-            vendorName = getVendorNameFromEventName(eventName);
-            lastEpochMicrosec = getValueFromJson(commonEventHeader, LAST_EPOCH_MICROSEC);
-            sourceName = getValueFromJson(commonEventHeader, SOURCE_NAME);
-            startEpochMicrosec = getValueFromJson(commonEventHeader, START_EPOCH_MICROSEC);
-            timeZoneOffset = getValueFromJson(commonEventHeader, TIME_ZONE_OFFSET);
-
             JsonObject notificationFields = jsonObject.getAsJsonObject(EVENT).getAsJsonObject(NOTIFICATION_FIELDS);
-            changeIdentifier = getValueFromJson(notificationFields, CHANGE_IDENTIFIER);
-            changeType = getValueFromJson(notificationFields, CHANGE_TYPE);
+            String changeIdentifier = getValueFromJson(notificationFields, CHANGE_IDENTIFIER);
+            String changeType = getValueFromJson(notificationFields, CHANGE_TYPE);
             String notificationFieldsVersion = getValueFromJson(notificationFields, NOTIFICATION_FIELDS_VERSION);
             JsonArray arrayOfNamedHashMap = notificationFields.getAsJsonArray(ARRAY_OF_NAMED_HASH_MAP);
             if (isNotificationFieldsHeaderNotEmpty(changeIdentifier, changeType, notificationFieldsVersion)
                     && arrayOfNamedHashMap != null && isChangeIdentifierCorrect(changeIdentifier)
                     && isChangeTypeCorrect(changeType)) {
-                return getAllFileDataFromJson(arrayOfNamedHashMap);
+                JsonObject commonEventHeader =
+                        jsonObject.getAsJsonObject(EVENT).getAsJsonObject(COMMON_EVENT_HEADER);
+                EventHeader eventHeader = createEventHeader(commonEventHeader);
+                return getAllFileDataFromJson(eventHeader, arrayOfNamedHashMap);
             }
 
             return handleJsonError(changeIdentifier, changeType, notificationFieldsVersion, arrayOfNamedHashMap,
@@ -159,12 +250,12 @@ public class DmaapConsumerJsonParser {
         return FILE_READY_CHANGE_IDENTIFIER.equals(changeIdentifier);
     }
 
-    private Flux<FileData> getAllFileDataFromJson(JsonArray arrayOfAdditionalFields) {
+    private Flux<FileData> getAllFileDataFromJson(EventHeader eventHeader, JsonArray arrayOfAdditionalFields) {
         List<FileData> res = new ArrayList<>();
         for (int i = 0; i < arrayOfAdditionalFields.size(); i++) {
             if (arrayOfAdditionalFields.get(i) != null) {
                 JsonObject fileInfo = (JsonObject) arrayOfAdditionalFields.get(i);
-                FileData fileData = getFileDataFromJson(fileInfo);
+                FileData fileData = getFileDataFromJson(eventHeader, fileInfo);
 
                 if (fileData != null) {
                     res.add(fileData);
@@ -176,7 +267,7 @@ public class DmaapConsumerJsonParser {
         return Flux.fromIterable(res);
     }
 
-    private FileData getFileDataFromJson(JsonObject fileInfo) {
+    private FileData getFileDataFromJson(EventHeader eventHeader, JsonObject fileInfo) {
         logger.trace("starting to getFileDataFromJson!");
 
         FileData fileData = null;
@@ -192,19 +283,12 @@ public class DmaapConsumerJsonParser {
                 && isNameAndLocationAndCompressionNotEmpty(name, location, compression)) {
             // @formatter:off
             fileData = ImmutableFileData.builder()
-                    .productName(productName)
-                    .vendorName(vendorName)
-                    .lastEpochMicrosec(lastEpochMicrosec)
-                    .sourceName(sourceName)
-                    .startEpochMicrosec(startEpochMicrosec)
-                    .timeZoneOffset(timeZoneOffset)
+                    .eventHeader(eventHeader)
                     .name(name)
-                    .changeIdentifier(changeIdentifier)
-                    .changeType(changeType)
                     .location(location)
-                    .compression(compression)
-                    .fileFormatType(fileFormatType)
-                    .fileFormatVersion(fileFormatVersion)
+                    .compression(compression.intern())
+                    .fileFormatType(fileFormatType.intern())
+                    .fileFormatVersion(fileFormatVersion.intern())
                     .build();
             // @formatter:on
         }
@@ -212,36 +296,43 @@ public class DmaapConsumerJsonParser {
     }
 
     /**
-     * @param eventName
-     * @return String of vendorName eventName is defined as:
-     *         {DomainAbbreviation}_{productName}-{vendorName}_{Description}, example:
-     *         Noti_RnNode-Ericsson_FileReady
+     * The header is shared by all files of the event. The values that repeat across the events are interned, as are
+     * the compression and file format of each file, so that the queued files share one copy of each value instead of
+     * holding one copy each. The change identifier and type have been checked to be the expected ones.
      */
-    private String getVendorNameFromEventName(String eventName) {
-        String[] eventArray = eventName.split("_|-");
-        if (eventArray.length >= 4) {
-            return eventArray[2];
-        } else {
-            logger.trace("Can not get vendorName from eventName, eventName is not in correct format: " + eventName);
-        }
-        return "";
+    private static EventHeader createEventHeader(JsonObject commonEventHeader) {
+        String[] eventNameParts = splitEventName(getValueFromJson(commonEventHeader, EVENT_NAME));
+        // @formatter:off
+        return ImmutableEventHeader.builder()
+                .productName(eventNameParts[0].intern())
+                .vendorName(eventNameParts[1].intern())
+                .lastEpochMicrosec(getValueFromJson(commonEventHeader, LAST_EPOCH_MICROSEC))
+                .sourceName(getValueFromJson(commonEventHeader, SOURCE_NAME))
+                .startEpochMicrosec(getValueFromJson(commonEventHeader, START_EPOCH_MICROSEC))
+                .timeZoneOffset(getValueFromJson(commonEventHeader, TIME_ZONE_OFFSET).intern())
+                .changeIdentifier(FILE_READY_CHANGE_IDENTIFIER)
+                .changeType(FILE_READY_CHANGE_TYPE)
+                .build();
+        // @formatter:on
     }
 
     /**
      * @param eventName
-     * @return String of productName
+     * @return the productName and the vendorName, empty if not found. eventName is defined as:
+     *         {DomainAbbreviation}_{productName}-{vendorName}_{Description}, example:
+     *         Noti_RnNode-Ericsson_FileReady
      */
-    private String getProductNameFromEventName(String eventName) {
-        String[] eventArray = eventName.split("_|-");
+    private static String[] splitEventName(String eventName) {
+        String[] eventArray = EVENT_NAME_SEPARATOR.split(eventName);
         if (eventArray.length >= 4) {
-            return eventArray[1];
-        } else {
-            logger.trace("Can not get productName from eventName, eventName is not in correct format: " + eventName);
+            return new String[] {eventArray[1], eventArray[2]};
         }
-        return "";
+        logger.trace("Can not get productName and vendorName from eventName, eventName is not in correct format: {}",
+                eventName);
+        return new String[] {"", ""};
     }
 
-    private String getValueFromJson(JsonObject jsonObject, String jsonKey) {
+    private static String getValueFromJson(JsonObject jsonObject, String jsonKey) {
         return jsonObject.has(jsonKey) ? jsonObject.get(jsonKey).getAsString() : "";
     }
 
@@ -289,4 +380,55 @@ public class DmaapConsumerJsonParser {
         }
         return Flux.error(new DmaapNotFoundException(errorMessage + jsonObject));
     }
+
+    /**
+     * The response body as a stream of bytes. Reading waits for the next chunk of the body, and closing cancels the
+     * rest of the body.
+     */
+    private static final class BodyInputStream extends InputStream {
+        private final Stream<byte[]> chunks;
+        private final Iterator<byte[]> iterator;
+        private byte[] chunk = new byte[0];
+        private int position;
+
+        BodyInputStream(Flux<byte[]> body) {
+            this.chunks = body.toStream(BODY_PREFETCH);
+            this.iterator = chunks.iterator();
+        }
+
+        @Override
+        public int read() {
+            return nextChunk() ? chunk[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!nextChunk()) {
+                return -1;
+            }
+            int count = Math.min(length, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        private boolean nextChunk() {
+            while (position == chunk.length) {
+                if (!iterator.hasNext()) {
+                    return false;
+                }
+                chunk = iterator.next();
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            chunks.close();
+        }
+    }
 }
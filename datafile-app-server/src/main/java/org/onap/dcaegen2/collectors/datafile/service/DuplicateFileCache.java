@@ -0,0 +1,206 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+import org.onap.dcaegen2.collectors.datafile.model.FileData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the files that have been received during a time window, so that a file that is announced again, by the
+ * xNF or by a redelivery from Message Router, is not collected and published once more. A file is identified by its
+ * source name, name and location.
+ *
+ * <p>
+ * The files are kept as 64-bit hashes in an open addressing table of two primitive arrays, which takes 16 bytes per
+ * slot whatever the length of the file names. The table has twice as many slots as the most files it remembers. When
+ * it is full, the files that are older than the window are removed, and if that is not enough, all files are
+ * forgotten.
+ */
+public class DuplicateFileCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DuplicateFileCache.class);
+
+    private static final long EMPTY = 0;
+    private static final long FORGOTTEN = 0;
+
+    private final long windowMillis;
+    private final int maxFiles;
+    private final LongSupplier clock;
+    private final long[] hashes;
+    private final long[] receivedMillis;
+    private final int mask;
+    private int usedSlots;
+    private long lookups;
+    private long duplicates;
+
+    /**
+     * Constructor.
+     *
+     * @param maxFiles - the most files that are remembered
+     * @param window - how long a file is remembered
+     */
+    public DuplicateFileCache(int maxFiles, Duration window) {
+        this(maxFiles, window, System::currentTimeMillis);
+    }
+
+    DuplicateFileCache(int maxFiles, Duration window, LongSupplier clock) {
+        int slots = Integer.highestOneBit(Math.max(maxFiles, 1) * 2 - 1) << 1;
+        this.windowMillis = window.toMillis();
+        this.maxFiles = maxFiles;
+        this.clock = clock;
+        this.hashes = new long[slots];
+        this.receivedMillis = new long[slots];
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Checks if a file has been received during the window, and remembers it if it has not.
+     *
+     * @return true if the file is a duplicate
+     */
+    public synchronized boolean isDuplicate(FileData fileData) {
+        long hash = hash(fileData);
+        long now = clock.getAsLong();
+        lookups++;
+        int reusableSlot = -1;
+        int slot = slot(hash);
+        while (hashes[slot] != EMPTY) {
+            boolean expired = isExpired(slot, now);
+            if (hashes[slot] == hash) {
+                if (!expired) {
+                    duplicates++;
+                    return true;
+                }
+                receivedMillis[slot] = now;
+                return false;
+            }
+            if (expired && reusableSlot < 0) {
+                reusableSlot = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (reusableSlot >= 0) {
+            hashes[reusableSlot] = hash;
+            receivedMillis[reusableSlot] = now;
+            return false;
+        }
+        if (usedSlots >= maxFiles) {
+            removeExpired(now);
+            slot = slot(hash);
+            while (hashes[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+        }
+        hashes[slot] = hash;
+        receivedMillis[slot] = now;
+        usedSlots++;
+        return false;
+    }
+
+    /**
+     * Forgets a file, so that it is collected again if it is announced again. Used for the files that are given up.
+     */
+    public synchronized void forget(FileData fileData) {
+        long hash = hash(fileData);
+        for (int slot = slot(hash); hashes[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash) {
+                receivedMillis[slot] = FORGOTTEN;
+                return;
+            }
+        }
+    }
+
+    public synchronized long getLookups() {
+        return lookups;
+    }
+
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    public synchronized double getHitRate() {
+        return lookups == 0 ? 0 : (double) duplicates / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d files checked, %d duplicates (%.1f%%)", lookups, duplicates, getHitRate() * 100);
+    }
+
+    private boolean isExpired(int slot, long now) {
+        return receivedMillis[slot] == FORGOTTEN || now - receivedMillis[slot] >= windowMillis;
+    }
+
+    /**
+     * Rebuilds the table with only the files that are within the window. A removed file cannot just be emptied,
+     * since that would break the probe sequences of the files after it.
+     */
+    private void removeExpired(long now) {
+        long[] oldHashes = hashes.clone();
+        long[] oldReceivedMillis = receivedMillis.clone();
+        Arrays.fill(hashes, EMPTY);
+        Arrays.fill(receivedMillis, FORGOTTEN);
+        usedSlots = 0;
+        for (int oldSlot = 0; oldSlot < oldHashes.length; oldSlot++) {
+            if (oldHashes[oldSlot] != EMPTY && oldReceivedMillis[oldSlot] != FORGOTTEN
+                    && now - oldReceivedMillis[oldSlot] < windowMillis) {
+                int slot = slot(oldHashes[oldSlot]);
+                while (hashes[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                hashes[slot] = oldHashes[oldSlot];
+                receivedMillis[slot] = oldReceivedMillis[oldSlot];
+                usedSlots++;
+            }
+        }
+        if (usedSlots >= maxFiles) {
+            logger.warn("More than {} files received within {} ms, duplicates of earlier files are not detected",
+                    maxFiles, windowMillis);
+            Arrays.fill(hashes, EMPTY);
+            Arrays.fill(receivedMillis, FORGOTTEN);
+            usedSlots = 0;
+        }
+    }
+
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the identity of the file. The hash is never {@link #EMPTY}.
+     */
+    private static long hash(FileData fileData) {
+        long hash = 0xcbf29ce484222325L;
+        hash = hash(hash, fileData.sourceName());
+        hash = hash(hash, fileData.name());
+        hash = hash(hash, fileData.location());
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        // a separator, so that moving characters between the values gives another hash
+        return (hash ^ 0xffff) * 0x100000001b3L;
+    }
+}
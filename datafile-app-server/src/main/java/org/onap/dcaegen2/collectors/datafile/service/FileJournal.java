@@ -0,0 +1,577 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.onap.dcaegen2.collectors.datafile.model.FileData;
+import org.onap.dcaegen2.collectors.datafile.model.ImmutableEventHeader;
+import org.onap.dcaegen2.collectors.datafile.model.ImmutableFileData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Append-only journal of the files that are handled by the Datafile workflow. Each file is journaled when it is
+ * received from Message Router, when it is collected and when it is published or given up. The files that were
+ * received but not published when the process stopped are read back when the journal is opened, see
+ * {@link #getUnfinished()}.
+ *
+ * <p>
+ * The journal file is memory mapped, so a record is in the page cache of the operating system, and survives a crash
+ * of the process, as soon as it is appended. The records are forced to the disk in batches, when a number of records
+ * is pending or at a fixed interval, so that a crash of the host loses at most the last batch. The forcing is done by
+ * the journal's own thread, so the threads that append records do not wait for the disk.
+ *
+ * <p>
+ * Only the files that are not finished are kept in memory. When the journal file is three quarters full it is
+ * compacted by the journal's own thread, by writing the unfinished files to a new journal file that replaces the old
+ * one. Only when the journal file fills up before that is done, it is compacted by the thread that appends.
+ *
+ * <p>
+ * The locations of the files can hold the user and password of their xNFs, so the journal file is secret. Where the
+ * file system supports it, only the owner of the process may read or write the journal file.
+ */
+public class FileJournal implements Closeable {
+
+    /**
+     * The states of a journaled file.
+     */
+    public enum State {
+        RECEIVED, COLLECTED, PUBLISHED, ABANDONED
+    }
+
+    /**
+     * A file that is not finished.
+     */
+    public static final class Entry {
+        private final long id;
+        private final State state;
+        private final FileData fileData;
+
+        private Entry(long id, State state, FileData fileData) {
+            this.id = id;
+            this.state = state;
+            this.fileData = fileData;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public FileData getFileData() {
+            return fileData;
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(FileJournal.class);
+
+    private static final int MAGIC = 0x44464a31; // "DFJ1"
+    private static final int HEADER_SIZE = 4;
+    // length, then state and id, then data, then checksum
+    private static final int RECORD_OVERHEAD = 4 + 1 + 8 + 4;
+    private static final byte[] NO_DATA = new byte[0];
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final Path path;
+    private final int syncBatchSize;
+    private final Map<Long, LiveFile> liveFiles = new LinkedHashMap<>();
+    private final ScheduledExecutorService syncExecutor;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long nextId = 1;
+    private int unsyncedRecords;
+    private boolean syncRequested;
+    private boolean compactionRequested;
+
+    private static final class LiveFile {
+        private State state;
+        private final byte[] data;
+
+        private LiveFile(State state, byte[] data) {
+            this.state = state;
+            this.data = data;
+        }
+    }
+
+    private FileJournal(Path path, int syncBatchSize, Duration syncInterval) {
+        this.path = path;
+        this.syncBatchSize = syncBatchSize;
+        if (path == null) {
+            this.syncExecutor = null;
+        } else {
+            this.syncExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("journal-"));
+            long intervalMillis = syncInterval.toMillis();
+            this.syncExecutor.scheduleWithFixedDelay(this::sync, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Opens the journal, and reads back the files that were not finished. A record that was only partly written when
+     * the process stopped is discarded.
+     *
+     * @param path - the journal file, created if it does not exist
+     * @param capacity - the size of the journal file in bytes, before it is compacted
+     * @param syncBatchSize - the number of records that are appended before they are forced to the disk
+     * @param syncInterval - the longest time an appended record waits before it is forced to the disk
+     * @return the opened journal
+     * @throws IOException if the journal file cannot be read or written
+     */
+    public static FileJournal open(Path path, int capacity, int syncBatchSize, Duration syncInterval)
+            throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileJournal journal = new FileJournal(path, syncBatchSize, syncInterval);
+        try {
+            journal.replay(capacity);
+        } catch (IOException e) {
+            journal.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    /**
+     * A journal that records nothing, for when journaling is turned off.
+     */
+    public static FileJournal disabled() {
+        return new FileJournal(null, 0, Duration.ZERO);
+    }
+
+    /**
+     * Journals a file received from Message Router.
+     *
+     * @return the journaled file, whose id is used for the following states of the file
+     */
+    public synchronized Entry received(FileData fileData) {
+        long id = nextId++;
+        if (isEnabled()) {
+            byte[] data = encode(fileData);
+            liveFiles.put(id, new LiveFile(State.RECEIVED, data));
+            append(State.RECEIVED, id, data);
+        }
+        return new Entry(id, State.RECEIVED, fileData);
+    }
+
+    public synchronized void collected(long id) {
+        LiveFile file = liveFiles.get(id);
+        if (file != null) {
+            file.state = State.COLLECTED;
+            append(State.COLLECTED, id, NO_DATA);
+        }
+    }
+
+    public synchronized void published(long id) {
+        finish(id, State.PUBLISHED);
+    }
+
+    public synchronized void abandoned(long id) {
+        finish(id, State.ABANDONED);
+    }
+
+    /**
+     * The files that are received but not published or given up, in the order they were received. Called when the
+     * workflow starts, these are the files that were in progress when the workflow, or the process, stopped.
+     */
+    public synchronized List<Entry> getUnfinished() {
+        List<Entry> unfinished = new ArrayList<>(liveFiles.size());
+        for (Map.Entry<Long, LiveFile> file : liveFiles.entrySet()) {
+            try {
+                unfinished.add(new Entry(file.getKey(), file.getValue().state, decode(file.getValue().data)));
+            } catch (IOException e) {
+                logger.error("Unable to read journaled file {}, it is dropped.", file.getKey(), e);
+            }
+        }
+        return unfinished;
+    }
+
+    /**
+     * Forces the appended records to the disk. The journal is not locked meanwhile, so records can be appended while
+     * the disk is written.
+     */
+    public void sync() {
+        MappedByteBuffer unsynced;
+        synchronized (this) {
+            syncRequested = false;
+            if (buffer == null || unsyncedRecords == 0) {
+                return;
+            }
+            unsynced = buffer;
+            unsyncedRecords = 0;
+        }
+        unsynced.force();
+    }
+
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    /**
+     * Closes the journal, when a pending sync or compaction is done.
+     */
+    @Override
+    public void close() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdown();
+            try {
+                syncExecutor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (buffer != null && unsyncedRecords > 0) {
+                buffer.force();
+                unsyncedRecords = 0;
+            }
+            buffer = null;
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.warn("Unable to close the journal {}.", path, e);
+                }
+                channel = null;
+            }
+        }
+    }
+
+    private void finish(long id, State state) {
+        if (liveFiles.remove(id) != null) {
+            append(state, id, NO_DATA);
+        }
+    }
+
+    private void append(State state, long id, byte[] data) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            int recordSize = RECORD_OVERHEAD + data.length;
+            // a zero length after the record marks the end of the journal
+            if (buffer.remaining() < recordSize + 4) {
+                logger.debug("Journal {} full before it was compacted in the background", path);
+                compact(recordSize);
+            }
+            writeRecord(buffer, state, id, data);
+            if (++unsyncedRecords >= syncBatchSize && !syncRequested) {
+                syncRequested = true;
+                syncExecutor.execute(this::sync);
+            }
+            if (buffer.position() > buffer.capacity() / 4 * 3 && !compactionRequested) {
+                compactionRequested = true;
+                syncExecutor.execute(this::compactInBackground);
+            }
+        } catch (IOException e) {
+            logger.error("Unable to write to the journal {}, the state of file {} is not journaled.", path, id, e);
+        }
+    }
+
+    private static void writeRecord(ByteBuffer target, State state, long id, byte[] data) {
+        int start = target.position();
+        target.putInt(1 + 8 + data.length);
+        target.put((byte) state.ordinal());
+        target.putLong(id);
+        target.put(data);
+        target.putInt(checksum(target, start + 4, 1 + 8 + data.length));
+    }
+
+    private static int checksum(ByteBuffer source, int offset, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer record = source.duplicate();
+        record.limit(offset + length).position(offset);
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    private void replay(int capacity) throws IOException {
+        boolean exists = Files.exists(path);
+        channel = openSecret(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, channel.size()));
+        if (exists && buffer.getInt(0) == MAGIC) {
+            buffer.position(HEADER_SIZE);
+            readRecords();
+            logger.info("Journal {} opened, {} files unfinished", path, liveFiles.size());
+        }
+        // start from a journal with only the unfinished files, which also drops any partly written record
+        compact(0);
+    }
+
+    private void readRecords() {
+        while (buffer.remaining() >= RECORD_OVERHEAD) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length < 1 + 8 || length + 4 > buffer.remaining()) {
+                return;
+            }
+            if (checksum(buffer, start + 4, length) != buffer.getInt(start + 4 + length)) {
+                logger.warn("Journal {} ends with a partly written record at {}", path, start);
+                return;
+            }
+            State state = State.values()[buffer.get()];
+            long id = buffer.getLong();
+            byte[] data = new byte[length - 1 - 8];
+            buffer.get(data);
+            buffer.getInt();
+            apply(state, id, data);
+            nextId = Math.max(nextId, id + 1);
+        }
+    }
+
+    private void apply(State state, long id, byte[] data) {
+        if (state == State.RECEIVED) {
+            liveFiles.put(id, new LiveFile(state, data));
+        } else if (state == State.COLLECTED) {
+            LiveFile file = liveFiles.get(id);
+            if (file != null) {
+                file.state = state;
+            }
+        } else {
+            liveFiles.remove(id);
+        }
+    }
+
+    /**
+     * Writes the unfinished files to a new journal file, which then replaces the current one.
+     */
+    private void compact(int recordSize) throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        FileChannel newChannel = openCompacted(compacted);
+        try {
+            MappedByteBuffer newBuffer = writeUnfinished(newChannel, liveFiles, buffer.capacity(), recordSize);
+            newBuffer.force();
+            replaceJournalFile(compacted, newChannel, newBuffer);
+        } catch (IOException e) {
+            newChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Compacts the journal on the journal's own thread. The unfinished files are written to the new journal file
+     * without locking the journal, and the records appended meanwhile are then copied after them.
+     */
+    private void compactInBackground() {
+        Map<Long, LiveFile> unfinished = new LinkedHashMap<>();
+        MappedByteBuffer current;
+        int appendedFrom;
+        synchronized (this) {
+            if (buffer == null) {
+                compactionRequested = false;
+                return;
+            }
+            liveFiles.forEach((id, file) -> unfinished.put(id, new LiveFile(file.state, file.data)));
+            current = buffer;
+            appendedFrom = buffer.position();
+        }
+        Path compacted = path.resolveSibling(path.getFileName() + ".compacting");
+        FileChannel newChannel = null;
+        try {
+            newChannel = openCompacted(compacted);
+            MappedByteBuffer newBuffer = writeUnfinished(newChannel, unfinished, current.capacity(), 0);
+            newBuffer.force();
+            synchronized (this) {
+                if (buffer == current && copyAppended(current, appendedFrom, newBuffer)) {
+                    newBuffer.force();
+                    replaceJournalFile(compacted, newChannel, newBuffer);
+                    newChannel = null;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to compact the journal {}, it is compacted when it is full.", path, e);
+        } finally {
+            synchronized (this) {
+                compactionRequested = false;
+                if (newChannel != null) {
+                    discardCompacted(compacted, newChannel);
+                }
+            }
+        }
+    }
+
+    private static FileChannel openCompacted(Path compacted) throws IOException {
+        Files.deleteIfExists(compacted);
+        return openSecret(compacted, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Writes the unfinished files to a new journal file. The new file is made larger than the current one when the
+     * unfinished files, and the record that is to be appended, fill more than half of it.
+     */
+    private static MappedByteBuffer writeUnfinished(FileChannel newChannel, Map<Long, LiveFile> unfinished,
+            int currentCapacity, int recordSize) throws IOException {
+        int liveSize = HEADER_SIZE + recordSize + 4;
+        for (LiveFile file : unfinished.values()) {
+            liveSize += RECORD_OVERHEAD + file.data.length;
+            if (file.state == State.COLLECTED) {
+                liveSize += RECORD_OVERHEAD;
+            }
+        }
+        int capacity = currentCapacity;
+        while (liveSize > capacity / 2) {
+            capacity *= 2;
+        }
+
+        MappedByteBuffer newBuffer = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        newBuffer.putInt(MAGIC);
+        for (Map.Entry<Long, LiveFile> file : unfinished.entrySet()) {
+            writeRecord(newBuffer, State.RECEIVED, file.getKey(), file.getValue().data);
+            if (file.getValue().state == State.COLLECTED) {
+                writeRecord(newBuffer, State.COLLECTED, file.getKey(), NO_DATA);
+            }
+        }
+        return newBuffer;
+    }
+
+    /**
+     * Copies the records appended to the current journal file since the given position to the new journal file.
+     * Replayed after the unfinished files, they give the same files as the current journal file.
+     *
+     * @return false if the new journal file has no room for the records
+     */
+    private static boolean copyAppended(MappedByteBuffer current, int appendedFrom, MappedByteBuffer newBuffer) {
+        ByteBuffer appended = current.duplicate();
+        appended.limit(current.position()).position(appendedFrom);
+        if (newBuffer.remaining() < appended.remaining() + 4) {
+            return false;
+        }
+        newBuffer.put(appended);
+        return true;
+    }
+
+    private void replaceJournalFile(Path compacted, FileChannel newChannel, MappedByteBuffer newBuffer)
+            throws IOException {
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel.close();
+        channel = newChannel;
+        buffer = newBuffer;
+        unsyncedRecords = 0;
+        logger.debug("Journal {} compacted, {} files unfinished", path, liveFiles.size());
+    }
+
+    private void discardCompacted(Path compacted, FileChannel newChannel) {
+        try {
+            newChannel.close();
+            Files.deleteIfExists(compacted);
+        } catch (IOException e) {
+            logger.warn("Unable to delete {}.", compacted, e);
+        }
+    }
+
+    /**
+     * Opens a journal file so that only the owner of the process may read or write it, where the file system
+     * supports that. A journal file created by an earlier version is made secret too.
+     */
+    private static FileChannel openSecret(Path file, OpenOption... options) throws IOException {
+        Set<OpenOption> openOptions = new HashSet<>(Arrays.asList(options));
+        if (!file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return FileChannel.open(file, openOptions);
+        }
+        FileChannel fileChannel = FileChannel.open(file, openOptions, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+        try {
+            Files.setPosixFilePermissions(file, OWNER_ONLY);
+        } catch (IOException e) {
+            fileChannel.close();
+            throw e;
+        }
+        return fileChannel;
+    }
+
+    private static byte[] encode(FileData fileData) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(fileData.productName());
+            out.writeUTF(fileData.vendorName());
+            out.writeUTF(fileData.lastEpochMicrosec());
+            out.writeUTF(fileData.sourceName());
+            out.writeUTF(fileData.startEpochMicrosec());
+            out.writeUTF(fileData.timeZoneOffset());
+            out.writeUTF(fileData.changeIdentifier());
+            out.writeUTF(fileData.changeType());
+            out.writeUTF(fileData.name());
+            out.writeUTF(fileData.location());
+            out.writeUTF(fileData.compression());
+            out.writeUTF(fileData.fileFormatType());
+            out.writeUTF(fileData.fileFormatVersion());
+        } catch (IOException e) {
+            // not thrown when writing to memory
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The values that repeat across the files are interned, as when the files were received from Message Router.
+     */
+    private static FileData decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            // @formatter:off
+            return ImmutableFileData.builder()
+                    .eventHeader(ImmutableEventHeader.builder()
+                        .productName(in.readUTF().intern())
+                        .vendorName(in.readUTF().intern())
+                        .lastEpochMicrosec(in.readUTF())
+                        .sourceName(in.readUTF())
+                        .startEpochMicrosec(in.readUTF())
+                        .timeZoneOffset(in.readUTF().intern())
+                        .changeIdentifier(in.readUTF().intern())
+                        .changeType(in.readUTF().intern())
+                        .build())
+                    .name(in.readUTF())
+                    .location(in.readUTF())
+                    .compression(in.readUTF().intern())
+                    .fileFormatType(in.readUTF().intern())
+                    .fileFormatVersion(in.readUTF().intern())
+                    .build();
+            // @formatter:on
+        }
+    }
+}
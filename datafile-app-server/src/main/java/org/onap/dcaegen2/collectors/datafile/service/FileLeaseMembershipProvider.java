@@ -0,0 +1,220 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+package org.onap.dcaegen2.collectors.datafile.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The instances hold leases in a directory that they all share. Each instance has a lease file named by its id, and
+ * renews it by setting its modification time. An instance whose lease has not been renewed for the lease duration is
+ * no longer a member. The lease is renewed, and the members are read from the directory, three times per lease
+ * duration, see {@link #refresh()}.
+ *
+ * <p>
+ * The lease file holds the consumer group of the instance, so that an instance that consumes with the same consumer
+ * group as another one is found.
+ *
+ * <p>
+ * The clocks of the instances must agree to well within the lease duration.
+ */
+public class FileLeaseMembershipProvider implements MembershipProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileLeaseMembershipProvider.class);
+
+    private final Path directory;
+    private final String instanceId;
+    private final long leaseMillis;
+    private final long refreshMillis;
+    private final LongSupplier clock;
+    private final Supplier<String> consumerGroup;
+    private List<String> members;
+    private boolean left = false;
+    private String leaseConsumerGroup;
+    private List<String> sharingConsumerGroup = Collections.emptyList();
+
+    /**
+     * Constructor.
+     *
+     * @param directory - the directory of the lease files
+     * @param instanceId - the id of this instance, and the name of its lease file
+     * @param leaseDuration - how long a lease lasts when it is not renewed
+     * @param consumerGroup - the consumer group that this instance consumes with
+     */
+    public FileLeaseMembershipProvider(Path directory, String instanceId, Duration leaseDuration,
+            Supplier<String> consumerGroup) {
+        this(directory, instanceId, leaseDuration, consumerGroup, System::currentTimeMillis);
+    }
+
+    FileLeaseMembershipProvider(Path directory, String instanceId, Duration leaseDuration,
+            Supplier<String> consumerGroup, LongSupplier clock) {
+        this.directory = directory;
+        this.instanceId = instanceId;
+        this.leaseMillis = leaseDuration.toMillis();
+        this.refreshMillis = Math.max(1, leaseMillis / 3);
+        this.consumerGroup = consumerGroup;
+        this.clock = clock;
+        this.members = Collections.singletonList(instanceId);
+    }
+
+    /**
+     * The members read by the last {@link #refresh()}.
+     */
+    @Override
+    public synchronized List<String> getMembers() {
+        return members;
+    }
+
+    /**
+     * Renews the lease of this instance, and reads the members from the directory. Does nothing when this instance
+     * has left, so that its lease is not created again.
+     */
+    @Override
+    public synchronized void refresh() {
+        if (left) {
+            return;
+        }
+        long now = clock.getAsLong();
+        try {
+            renewLease(now);
+            members = readMembers(now);
+        } catch (IOException e) {
+            logger.warn("Unable to renew the lease in {}, members are not updated. {}", directory, e.toString());
+        }
+    }
+
+    @Override
+    public Duration getRefreshInterval() {
+        return Duration.ofMillis(refreshMillis);
+    }
+
+    /**
+     * A lease expires the lease duration after it was last renewed, and the other instances read the leases within a
+     * third of the lease duration after that.
+     */
+    @Override
+    public Duration getHandoverDelay() {
+        return Duration.ofMillis(leaseMillis + refreshMillis);
+    }
+
+    @Override
+    public synchronized boolean isConsumerGroupShared() {
+        return !sharingConsumerGroup.isEmpty();
+    }
+
+    @Override
+    public synchronized void leave() {
+        left = true;
+        try {
+            Files.deleteIfExists(directory.resolve(instanceId));
+        } catch (IOException e) {
+            logger.warn("Unable to remove the lease of {} in {}", instanceId, directory, e);
+        }
+    }
+
+    private void renewLease(long now) throws IOException {
+        Path lease = directory.resolve(instanceId);
+        String group = getConsumerGroup();
+        boolean joining = !Files.exists(lease);
+        if (joining || !group.equals(leaseConsumerGroup)) {
+            Files.createDirectories(directory);
+            Files.write(lease, group.getBytes(StandardCharsets.UTF_8));
+            leaseConsumerGroup = group;
+        }
+        if (joining) {
+            logger.info("Joined the members in {} as {}", directory, instanceId);
+        }
+        Files.setLastModifiedTime(lease, FileTime.fromMillis(now));
+    }
+
+    private List<String> readMembers(long now) throws IOException {
+        List<String> leaseHolders = new ArrayList<>();
+        List<String> sharing = new ArrayList<>();
+        try (DirectoryStream<Path> leases = Files.newDirectoryStream(directory)) {
+            for (Path lease : leases) {
+                if (isValid(lease, now)) {
+                    String leaseHolder = lease.getFileName().toString();
+                    leaseHolders.add(leaseHolder);
+                    if (!leaseHolder.equals(instanceId) && !leaseConsumerGroup.isEmpty()
+                            && leaseConsumerGroup.equals(readConsumerGroup(lease))) {
+                        sharing.add(leaseHolder);
+                    }
+                }
+            }
+        }
+        Collections.sort(leaseHolders);
+        if (!leaseHolders.equals(members)) {
+            logger.info("Members are now {}", leaseHolders);
+        }
+        updateSharingConsumerGroup(sharing);
+        return Collections.unmodifiableList(leaseHolders);
+    }
+
+    private void updateSharingConsumerGroup(List<String> sharing) {
+        Collections.sort(sharing);
+        if (sharing.equals(sharingConsumerGroup)) {
+            return;
+        }
+        if (!sharing.isEmpty()) {
+            logger.error("Instances {} consume with the same consumer group {} as {}. Each instance must consume with "
+                    + "its own consumer group, until then the sharing of the xNFs is suspended and each instance "
+                    + "collects every file that it consumes", sharing, leaseConsumerGroup, instanceId);
+        } else {
+            logger.info("No other instance consumes with the consumer group {}", leaseConsumerGroup);
+        }
+        sharingConsumerGroup = sharing;
+    }
+
+    private String getConsumerGroup() {
+        try {
+            String group = consumerGroup.get();
+            return group != null ? group : "";
+        } catch (RuntimeException e) {
+            logger.debug("The consumer group is not known yet. {}", e.toString());
+            return "";
+        }
+    }
+
+    private static String readConsumerGroup(Path lease) throws IOException {
+        try {
+            return new String(Files.readAllBytes(lease), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return "";
+        }
+    }
+
+    private boolean isValid(Path lease, long now) throws IOException {
+        try {
+            return Files.isRegularFile(lease) && now - Files.getLastModifiedTime(lease).toMillis() < leaseMillis;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+package org.onap.dcaegen2.collectors.datafile.service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Tells which DFC instances are running, so that the xNFs can be shared between them, see {@link XnfOwnership}.
+ */
+public interface MembershipProvider {
+
+    /**
+     * The ids of the running instances. All instances must get the same ids, in any order.
+     */
+    List<String> getMembers();
+
+    /**
+     * Renews the membership of this instance and reads the members. Called every refresh interval while this instance
+     * runs, so that the members are kept up to date whether or not files are collected.
+     */
+    default void refresh() {
+    }
+
+    /**
+     * How often {@link #refresh()} is to be called, zero when the members do not change.
+     */
+    default Duration getRefreshInterval() {
+        return Duration.ZERO;
+    }
+
+    /**
+     * Tells the other instances that this instance stops.
+     */
+    default void leave() {
+    }
+
+    /**
+     * How long it takes, at most, until all running instances know that an instance has stopped, or that an instance
+     * has joined.
+     */
+    default Duration getHandoverDelay() {
+        return Duration.ZERO;
+    }
+
+    /**
+     * Whether another running instance consumes with the same consumer group as this instance, so that the two get
+     * different files.
+     */
+    default boolean isConsumerGroupShared() {
+        return false;
+    }
+}
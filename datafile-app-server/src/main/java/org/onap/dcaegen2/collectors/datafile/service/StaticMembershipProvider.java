@@ -0,0 +1,42 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+package org.onap.dcaegen2.collectors.datafile.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The instances are given by the configuration. All instances must be configured with the same list.
+ *
+ * <p>
+ * The members never expire. When a member stops, the files of its xNFs are not collected by the others until it is
+ * removed from the list of all instances. The handover delay is zero, so a file of another owner is skipped at once.
+ * Whether another instance consumes with the same consumer group is not found.
+ */
+public class StaticMembershipProvider implements MembershipProvider {
+
+    private final List<String> members;
+
+    public StaticMembershipProvider(List<String> members) {
+        this.members = Collections.unmodifiableList(new ArrayList<>(members));
+    }
+
+    @Override
+    public List<String> getMembers() {
+        return members;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Shares the xNFs between the running DFC instances, so that the files of an xNF are collected by one instance, which
+ * keeps its sessions to the xNF in use. Each xNF, by its source name, is owned by one of the instances given by a
+ * {@link MembershipProvider}.
+ *
+ * <p>
+ * The owner is found on a consistent hash ring, where each instance has a number of virtual nodes. When an instance
+ * joins or leaves, only the xNFs on its part of the ring change owner. All instances compute the same owners from the
+ * same members, without talking to each other.
+ *
+ * <p>
+ * Every instance must see all the files, so that the owner gets them, as the files are not forwarded between the
+ * instances. So each instance consumes with its own consumer group, and leaves the files of the xNFs that it does not
+ * own to their owners. While an instance finds that another instance consumes with the same consumer group, each file
+ * reaches only one of them, so the sharing is suspended: the instance collects every file that it consumes, whoever
+ * owns its xNF. This is logged as an error, and shown by {@link #isSuspended()}, until the consumer groups are
+ * fixed.
+ *
+ * <p>
+ * The instances learn that an instance has joined or stopped within the handover delay. An instance that joins
+ * owns xNFs in the view of the others only when it has been a member for the handover delay, so that it consumes by
+ * then. Until then both collect the files of its xNFs. A file that is left to another owner is to be checked again
+ * when the handover delay has passed, as the owner may have stopped without collecting it.
+ *
+ * <p>
+ * The members, and the ring, are refreshed on a timer from when this instance joins until it leaves.
+ */
+public class XnfOwnership {
+
+    private static final Logger logger = LoggerFactory.getLogger(XnfOwnership.class);
+
+    private final String instanceId;
+    private final MembershipProvider membershipProvider;
+    private final int virtualNodes;
+    private final LongSupplier clock;
+    private final Map<String, Long> firstSeenMillis = new HashMap<>();
+    private boolean membersSeen = false;
+    private List<String> ringMembers = Collections.emptyList();
+    private TreeMap<Long, String> ring = new TreeMap<>();
+    private ScheduledExecutorService refreshTimer;
+
+    /**
+     * Constructor.
+     *
+     * @param instanceId - the id of this instance, as known by the membership provider
+     * @param membershipProvider - tells the running instances
+     * @param virtualNodes - the number of virtual nodes of each instance on the ring
+     */
+    public XnfOwnership(String instanceId, MembershipProvider membershipProvider, int virtualNodes) {
+        this(instanceId, membershipProvider, virtualNodes, System::currentTimeMillis);
+    }
+
+    XnfOwnership(String instanceId, MembershipProvider membershipProvider, int virtualNodes, LongSupplier clock) {
+        this.instanceId = instanceId;
+        this.membershipProvider = membershipProvider;
+        this.virtualNodes = Math.max(1, virtualNodes);
+        this.clock = clock;
+    }
+
+    /**
+     * An ownership where this instance owns all xNFs, for when DFC runs as a single instance.
+     */
+    public static XnfOwnership ownsAll() {
+        return new XnfOwnership(null, null, 0);
+    }
+
+    public synchronized boolean isOwned(String sourceName) {
+        return membershipProvider == null || isSuspended() || instanceId.equals(getOwner(sourceName));
+    }
+
+    /**
+     * Whether the sharing is suspended, as another instance consumes with the same consumer group as this instance.
+     * This instance then owns all xNFs.
+     */
+    public boolean isSuspended() {
+        return membershipProvider != null && membershipProvider.isConsumerGroupShared();
+    }
+
+    /**
+     * How long a file left to another owner is kept before it is checked again, see {@link #isOwned(String)}.
+     */
+    public Duration getHandoverDelay() {
+        return membershipProvider != null ? membershipProvider.getHandoverDelay() : Duration.ZERO;
+    }
+
+    /**
+     * The id of the instance that owns the xNF.
+     */
+    public synchronized String getOwner(String sourceName) {
+        if (membershipProvider == null) {
+            return instanceId;
+        }
+        updateRing();
+        Map.Entry<Long, String> node = ring.ceilingEntry(hash(sourceName));
+        return node != null ? node.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Tells the other instances that this instance runs, and refreshes the members and the ring every refresh
+     * interval of the membership provider until {@link #leave()}. The members are read once before this returns.
+     */
+    public void join() {
+        if (membershipProvider == null) {
+            return;
+        }
+        long intervalMillis = membershipProvider.getRefreshInterval().toMillis();
+        ScheduledExecutorService timer;
+        synchronized (this) {
+            if (refreshTimer != null || intervalMillis <= 0) {
+                return;
+            }
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("xnf-ownership-");
+            threadFactory.setDaemon(true);
+            timer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            refreshTimer = timer;
+        }
+        refresh();
+        timer.scheduleWithFixedDelay(this::refresh, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tells the other instances that this instance stops, so that they take over its xNFs.
+     */
+    public void leave() {
+        if (membershipProvider == null) {
+            return;
+        }
+        synchronized (this) {
+            if (refreshTimer != null) {
+                refreshTimer.shutdownNow();
+                refreshTimer = null;
+            }
+        }
+        membershipProvider.leave();
+    }
+
+    /**
+     * The membership provider is refreshed outside of the lock, so that the owners are found meanwhile from the
+     * members read before.
+     */
+    private void refresh() {
+        try {
+            membershipProvider.refresh();
+            synchronized (this) {
+                updateRing();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Unable to refresh the members, the xNFs are shared as before", e);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (membershipProvider == null) {
+            return "single instance";
+        }
+        String sharing = isSuspended() ? ", sharing suspended as the consumer group is shared, owns all xNFs" : "";
+        return instanceId + " of " + ringMembers + sharing;
+    }
+
+    private void updateRing() {
+        List<String> members = getSettledMembers(membershipProvider.getMembers());
+        if (!members.contains(instanceId)) {
+            members.add(instanceId);
+        }
+        Collections.sort(members);
+        if (members.equals(ringMembers)) {
+            return;
+        }
+        TreeMap<Long, String> newRing = new TreeMap<>();
+        for (String member : members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                newRing.put(hash(member + "#" + i), member);
+            }
+        }
+        logger.info("xNFs are shared between {}", members);
+        ring = newRing;
+        ringMembers = members;
+    }
+
+    /**
+     * The members that have been members for the handover delay. The members found first are taken as settled.
+     */
+    private List<String> getSettledMembers(List<String> members) {
+        long now = clock.getAsLong();
+        long handoverMillis = membershipProvider.getHandoverDelay().toMillis();
+        long firstSeen = membersSeen ? now : now - handoverMillis;
+        membersSeen = true;
+        firstSeenMillis.keySet().retainAll(members);
+        List<String> settled = new ArrayList<>();
+        for (String member : members) {
+            if (member.equals(instanceId)
+                    || now - firstSeenMillis.computeIfAbsent(member, m -> firstSeen) >= handoverMillis) {
+                settled.add(member);
+            }
+        }
+        return settled;
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not supported", e);
+        }
+    }
+}
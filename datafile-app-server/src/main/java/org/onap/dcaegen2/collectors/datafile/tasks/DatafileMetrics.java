@@ -0,0 +1,200 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.onap.dcaegen2.collectors.datafile.ftp.FileCollectResult;
+import org.onap.dcaegen2.collectors.datafile.service.XnfOwnership;
+import org.onap.dcaegen2.collectors.datafile.service.producer.DataRouterStatusException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The metrics of each stage of the Datafile workflow: the polls of Message Router and the parsing of their events, the
+ * downloads per protocol and xNF, the publishes per DataRouter status code, the retries, and the files in each stage.
+ * The latencies are published as histograms, so that percentiles can be computed over all DFC instances.
+ */
+@Component
+public class DatafileMetrics {
+
+    private static final String RESULT_TAG = "result";
+    private static final String STAGE_TAG = "stage";
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+    private static final String UNREACHABLE = "unreachable";
+    private static final String NO_STATUS = "none";
+
+    private final MeterRegistry registry;
+    private final Timer successfulPolls;
+    private final Timer failedPolls;
+    private final Timer parses;
+    private final DistributionSummary filesPerPoll;
+
+    @Autowired
+    public DatafileMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.successfulPolls = createPollTimer(SUCCESS);
+        this.failedPolls = createPollTimer(FAILURE);
+        this.parses = Timer.builder("dfc.consumer.parse").description("Parsing of one event")
+                .publishPercentileHistogram().register(registry);
+        this.filesPerPoll = DistributionSummary.builder("dfc.consumer.batch.files")
+                .description("Files announced by the events of one poll").register(registry);
+    }
+
+    /**
+     * Metrics that are not kept anywhere.
+     */
+    public static DatafileMetrics disabled() {
+        return new DatafileMetrics(new CompositeMeterRegistry());
+    }
+
+    /**
+     * Times a poll of Message Router until its response has been received. The files announced by the events in the
+     * response are counted. The parsing of the events is timed by {@link #recordEventParse(long)}.
+     *
+     * @param poll - the response of Message Router
+     * @param parser - parses the response into files
+     * @return the files
+     */
+    public <R, T> Flux<T> timePoll(Flux<R> poll, Function<Flux<R>, Flux<T>> parser) {
+        return Flux.defer(() -> {
+            long startNanos = System.nanoTime();
+            AtomicBoolean responded = new AtomicBoolean();
+            AtomicLong files = new AtomicLong();
+            Flux<R> timedPoll = poll.doOnComplete(() -> {
+                responded.set(true);
+                record(successfulPolls, startNanos);
+            }).doOnError(error -> record(failedPolls, startNanos));
+            return parser.apply(timedPoll).doOnNext(file -> files.incrementAndGet()).doOnComplete(() -> {
+                if (responded.get()) {
+                    filesPerPoll.record(files.get());
+                }
+            });
+        });
+    }
+
+    /**
+     * Records the parsing of one event, from its text to its files.
+     *
+     * @param nanos - how long the parsing took
+     */
+    public void recordEventParse(long nanos) {
+        parses.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records one download attempt.
+     *
+     * @param protocol - the scheme of the location of the file
+     * @param host - the xNF the file is downloaded from
+     * @param result - the result of the download
+     * @param nanos - how long the download took
+     * @param downloadedBytes - the size of the file, only asked for when the download succeeded
+     */
+    public void recordDownload(String protocol, String host, FileCollectResult result, long nanos,
+            LongSupplier downloadedBytes) {
+        String outcome = result.downloadSuccessful() ? SUCCESS : result.isConnectionFailure() ? UNREACHABLE : FAILURE;
+        Timer.builder("dfc.collector.download").description("Downloads of files from the xNFs")
+                .tags("protocol", protocol, "host", host, RESULT_TAG, outcome).register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (result.downloadSuccessful()) {
+            DistributionSummary.builder("dfc.collector.download.bytes").description("Sizes of the downloaded files")
+                    .baseUnit("bytes").tags("protocol", protocol, "host", host).register(registry)
+                    .record(downloadedBytes.getAsLong());
+        }
+    }
+
+    /**
+     * Times a publish to DataRouter, by the status code DataRouter answered with.
+     */
+    public Mono<String> timePublish(Mono<String> publish) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return publish
+                    .doOnSuccess(statusCode -> recordPublish(startNanos, statusCode != null ? statusCode : NO_STATUS))
+                    .doOnError(error -> recordPublish(startNanos, getStatusCode(error)));
+        });
+    }
+
+    /**
+     * Counts the files that have passed a stage of the workflow.
+     */
+    public Counter createFileCounter(String stage) {
+        return Counter.builder("dfc.files").description("Files that have passed the stage").tag(STAGE_TAG, stage)
+                .register(registry);
+    }
+
+    public void registerStage(StageQueue stage) {
+        Gauge.builder("dfc.files.in.stage", stage, StageQueue::getDepth).description("Files in the stage")
+                .tag(STAGE_TAG, stage.getStageName()).register(registry);
+    }
+
+    public void registerRetries(String stage, RetryPolicy retryPolicy) {
+        FunctionCounter.builder("dfc.retries", retryPolicy, RetryPolicy::getRetries).description("Retries made")
+                .tag(STAGE_TAG, stage).register(registry);
+        FunctionCounter.builder("dfc.retries.given.up", retryPolicy, RetryPolicy::getGivenUp)
+                .description("Files given up after the last retry").tag(STAGE_TAG, stage).register(registry);
+    }
+
+    public void registerHostCircuitBreakers(HostCircuitBreakers hostCircuitBreakers) {
+        Gauge.builder("dfc.hosts.unreachable", hostCircuitBreakers, HostCircuitBreakers::getOpenCircuits)
+                .description("xNFs that are not tried, as connections to them are failing").register(registry);
+    }
+
+    public void registerXnfOwnership(XnfOwnership xnfOwnership) {
+        Gauge.builder("dfc.cluster.sharing.suspended", xnfOwnership, ownership -> ownership.isSuspended() ? 1 : 0)
+                .description("1 while the sharing of the xNFs is suspended, as another instance consumes with the "
+                        + "same consumer group")
+                .register(registry);
+    }
+
+    private Timer createPollTimer(String result) {
+        return Timer.builder("dfc.consumer.poll").description("Polls of Message Router")
+                .tag(RESULT_TAG, result).publishPercentileHistogram().register(registry);
+    }
+
+    private void recordPublish(long startNanos, String statusCode) {
+        Timer timer = Timer.builder("dfc.publisher.publish").description("Publishes of files to DataRouter")
+                .tag("status", statusCode).publishPercentileHistogram().register(registry);
+        record(timer, startNanos);
+    }
+
+    private static String getStatusCode(Throwable error) {
+        return error instanceof DataRouterStatusException
+                ? Integer.toString(((DataRouterStatusException) error).getStatusCode())
+                : NO_STATUS;
+    }
+
+    private static void record(Timer timer, long startNanos) {
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
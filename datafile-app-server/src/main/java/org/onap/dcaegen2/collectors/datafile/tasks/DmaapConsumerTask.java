@@ -26,7 +26,6 @@ import org.onap.dcaegen2.collectors.datafile.service.consumer.DmaapConsumerReact
 import org.springframework.web.reactive.function.client.WebClient;
 
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
 /**
  * @author <a href="mailto:przemyslaw.wasala@nokia.com">Przemysław Wąsala</a> on 4/13/18
@@ -34,7 +33,7 @@ import reactor.core.publisher.Mono;
  */
 abstract class DmaapConsumerTask {
 
-    abstract Flux<FileData> consume(Mono<String> message) throws DmaapNotFoundException;
+    abstract Flux<FileData> consume(Flux<byte[]> body) throws DmaapNotFoundException;
 
     abstract DmaapConsumerReactiveHttpClient resolveClient();
 
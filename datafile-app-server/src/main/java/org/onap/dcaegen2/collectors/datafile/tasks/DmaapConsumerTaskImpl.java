@@ -28,7 +28,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
 /**
  * @author <a href="mailto:przemyslaw.wasala@nokia.com">Przemysław Wąsala</a> on 3/23/18
@@ -42,32 +41,36 @@ public class DmaapConsumerTaskImpl extends DmaapConsumerTask {
     private Config datafileAppConfig;
     private DmaapConsumerJsonParser dmaapConsumerJsonParser;
     private DmaapConsumerReactiveHttpClient dmaaPConsumerReactiveHttpClient;
+    private DmaapConsumerConfiguration clientConfiguration;
+    private final DatafileMetrics metrics;
 
     @Autowired
-    public DmaapConsumerTaskImpl(AppConfig datafileAppConfig) {
+    public DmaapConsumerTaskImpl(AppConfig datafileAppConfig, DatafileMetrics metrics) {
         this.datafileAppConfig = datafileAppConfig;
-        this.dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
+        this.dmaapConsumerJsonParser = new DmaapConsumerJsonParser(metrics::recordEventParse);
+        this.metrics = metrics;
     }
 
     protected DmaapConsumerTaskImpl(AppConfig datafileAppConfig,
             DmaapConsumerReactiveHttpClient dmaaPConsumerReactiveHttpClient,
-            DmaapConsumerJsonParser dmaapConsumerJsonParser) {
+            DmaapConsumerJsonParser dmaapConsumerJsonParser, DatafileMetrics metrics) {
         this.datafileAppConfig = datafileAppConfig;
         this.dmaaPConsumerReactiveHttpClient = dmaaPConsumerReactiveHttpClient;
         this.dmaapConsumerJsonParser = dmaapConsumerJsonParser;
+        this.metrics = metrics;
     }
 
     @Override
-    Flux<FileData> consume(Mono<String> message) {
-        logger.trace("consume called with arg {}", message);
-        return dmaapConsumerJsonParser.getJsonObject(message);
+    Flux<FileData> consume(Flux<byte[]> body) {
+        logger.trace("consume called with arg {}", body);
+        return dmaapConsumerJsonParser.getJsonObjectFromStream(body);
     }
 
     @Override
     protected Flux<FileData> execute(String object) {
-        dmaaPConsumerReactiveHttpClient = resolveClient();
+        DmaapConsumerReactiveHttpClient consumerClient = resolveClient();
         logger.trace("execute called with arg {}", object);
-        return consume((dmaaPConsumerReactiveHttpClient.getDmaapConsumerResponse()));
+        return metrics.timePoll(consumerClient.getDmaapConsumerResponseBody(), this::consume);
     }
 
     @Override
@@ -80,8 +83,18 @@ public class DmaapConsumerTaskImpl extends DmaapConsumerTask {
         return datafileAppConfig.getDmaapConsumerConfiguration();
     }
 
+    /**
+     * The client, and its connections to Message Router, are kept between the polls. A new client is only created
+     * when the DMaaP consumer configuration changes.
+     */
     @Override
-    protected DmaapConsumerReactiveHttpClient resolveClient() {
-        return new DmaapConsumerReactiveHttpClient(resolveConfiguration()).createDmaapWebClient(buildWebClient());
+    protected synchronized DmaapConsumerReactiveHttpClient resolveClient() {
+        DmaapConsumerConfiguration configuration = resolveConfiguration();
+        if (dmaaPConsumerReactiveHttpClient == null || !configuration.equals(clientConfiguration)) {
+            dmaaPConsumerReactiveHttpClient =
+                    new DmaapConsumerReactiveHttpClient(configuration).createDmaapWebClient(buildWebClient());
+            clientConfiguration = configuration;
+        }
+        return dmaaPConsumerReactiveHttpClient;
     }
 }
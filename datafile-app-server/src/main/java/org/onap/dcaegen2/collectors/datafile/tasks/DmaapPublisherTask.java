@@ -19,8 +19,9 @@ package org.onap.dcaegen2.collectors.datafile.tasks;
 import org.onap.dcaegen2.collectors.datafile.config.DmaapPublisherConfiguration;
 import org.onap.dcaegen2.collectors.datafile.model.ConsumerDmaapModel;
 import org.onap.dcaegen2.collectors.datafile.service.producer.DmaapProducerReactiveHttpClient;
+import org.onap.dcaegen2.collectors.datafile.service.producer.StreamingFileEntity;
 
-import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * @author <a href="mailto:przemyslaw.wasala@nokia.com">Przemysław Wąsala</a> on 3/23/18
@@ -32,5 +33,7 @@ abstract class DmaapPublisherTask {
 
     protected abstract DmaapProducerReactiveHttpClient resolveClient();
 
-    protected abstract Flux<String> execute(ConsumerDmaapModel consumerDmaapModel);
+    protected abstract Mono<String> execute(ConsumerDmaapModel consumerDmaapModel);
+
+    protected abstract Mono<String> execute(ConsumerDmaapModel consumerDmaapModel, StreamingFileEntity body);
 }
@@ -16,17 +16,24 @@
 
 package org.onap.dcaegen2.collectors.datafile.tasks;
 
+import java.io.IOException;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.onap.dcaegen2.collectors.datafile.config.DmaapPublisherConfiguration;
 import org.onap.dcaegen2.collectors.datafile.configuration.AppConfig;
 import org.onap.dcaegen2.collectors.datafile.configuration.Config;
+import org.onap.dcaegen2.collectors.datafile.configuration.PublisherConfig;
 import org.onap.dcaegen2.collectors.datafile.model.ConsumerDmaapModel;
 import org.onap.dcaegen2.collectors.datafile.service.producer.DmaapProducerReactiveHttpClient;
+import org.onap.dcaegen2.collectors.datafile.service.producer.StreamingFileEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * @author <a href="mailto:przemyslaw.wasala@nokia.com">Przemysław Wąsala</a> on 4/13/18
@@ -37,17 +44,35 @@ public class DmaapPublisherTaskImpl extends DmaapPublisherTask {
 
     private static final Logger logger = LoggerFactory.getLogger(DmaapPublisherTaskImpl.class);
     private final Config datafileAppConfig;
+    private final PublisherConfig publisherConfig;
+    private final DatafileMetrics metrics;
+
+    private CloseableHttpAsyncClient webClient;
+    private DmaapProducerReactiveHttpClient dmaapProducerReactiveHttpClient;
+    private DmaapPublisherConfiguration clientConfiguration;
 
     @Autowired
-    public DmaapPublisherTaskImpl(AppConfig datafileAppConfig) {
+    public DmaapPublisherTaskImpl(AppConfig datafileAppConfig, PublisherConfig publisherConfig,
+            DatafileMetrics metrics) {
         this.datafileAppConfig = datafileAppConfig;
+        this.publisherConfig = publisherConfig;
+        this.metrics = metrics;
     }
 
     @Override
-    public Flux<String> execute(ConsumerDmaapModel consumerDmaapModel) {
+    public Mono<String> execute(ConsumerDmaapModel consumerDmaapModel) {
         logger.trace("Method called with arg {}", consumerDmaapModel);
         DmaapProducerReactiveHttpClient dmaapProducerReactiveHttpClient = resolveClient();
-        return dmaapProducerReactiveHttpClient.getDmaapProducerResponse(consumerDmaapModel);
+        return metrics.timePublish(dmaapProducerReactiveHttpClient.getDmaapProducerResponse(consumerDmaapModel));
+    }
+
+    /**
+     * Publishes a file that is written to the body while it is sent. A failed publish is signalled as an error.
+     */
+    @Override
+    public Mono<String> execute(ConsumerDmaapModel consumerDmaapModel, StreamingFileEntity body) {
+        logger.trace("Method called with arg {} and streaming body", consumerDmaapModel);
+        return metrics.timePublish(resolveClient().getDmaapProducerResponse(consumerDmaapModel, body));
     }
 
     @Override
@@ -55,9 +80,34 @@ public class DmaapPublisherTaskImpl extends DmaapPublisherTask {
         return datafileAppConfig.getDmaapPublisherConfiguration();
     }
 
+    /**
+     * All publishing is done with one HTTP client, so that the connections to DataRouter are reused. A new producer
+     * client is only created when the DMaaP publisher configuration changes.
+     */
     @Override
-    protected DmaapProducerReactiveHttpClient resolveClient() {
-        return new DmaapProducerReactiveHttpClient(resolveConfiguration());
+    protected synchronized DmaapProducerReactiveHttpClient resolveClient() {
+        DmaapPublisherConfiguration configuration = resolveConfiguration();
+        if (dmaapProducerReactiveHttpClient == null || !configuration.equals(clientConfiguration)) {
+            if (webClient == null) {
+                webClient = DmaapProducerReactiveHttpClient.createWebClient(
+                        publisherConfig.getMaxConnectionsPerRoute(), publisherConfig.getMaxConnectionsTotal());
+            }
+            dmaapProducerReactiveHttpClient = new DmaapProducerReactiveHttpClient(configuration, webClient);
+            clientConfiguration = configuration;
+        }
+        return dmaapProducerReactiveHttpClient;
     }
 
+    @PreDestroy
+    public synchronized void close() {
+        if (webClient != null) {
+            try {
+                webClient.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close the DataRouter client.", e);
+            }
+            webClient = null;
+            dmaapProducerReactiveHttpClient = null;
+        }
+    }
 }
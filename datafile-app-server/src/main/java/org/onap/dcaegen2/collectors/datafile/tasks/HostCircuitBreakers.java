@@ -0,0 +1,209 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.onap.dcaegen2.collectors.datafile.exceptions.XnfCircuitOpenException;
+import org.onap.dcaegen2.collectors.datafile.exceptions.XnfUnreachableException;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Stops trying hosts that cannot be connected to. After a number of connection failures in a row the circuit of the
+ * host opens, and the downloads from it fail at once with a {@link XnfCircuitOpenException}, without waiting for
+ * the connection timeout. When the circuit has been open for a while, one download is let through as a probe. If
+ * the probe connects the circuit closes, otherwise it stays open for another while.
+ */
+public class HostCircuitBreakers {
+
+    private static final Logger logger = LoggerFactory.getLogger(HostCircuitBreakers.class);
+
+    private static final long PROBE_CHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final class Circuit {
+        private State state = State.CLOSED;
+        private int failures;
+        private long openedNanos;
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+    private final Map<String, Circuit> circuits = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param failureThreshold - number of connection failures in a row that opens the circuit of a host
+     * @param openDuration - how long a circuit stays open before a probe is let through
+     */
+    public HostCircuitBreakers(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    HostCircuitBreakers(int failureThreshold, Duration openDuration, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Runs the download, unless the circuit of the host is open. A {@link XnfUnreachableException} from the download
+     * counts as a connection failure, any other outcome means that the host could be connected to.
+     *
+     * @param host - the host the download is from
+     * @param download - creates the download
+     * @return the result of the download
+     */
+    public <T> Flux<T> protect(String host, Supplier<? extends Publisher<T>> download) {
+        return Flux.defer(() -> {
+            if (!tryAcquire(host)) {
+                return Flux.error(new XnfCircuitOpenException("Connections to " + host + " are failing, not tried"));
+            }
+            //@formatter:off
+            return Flux.<T>from(download.get())
+                    .doOnComplete(() -> onConnected(host))
+                    .doOnError(error -> {
+                        if (error instanceof XnfUnreachableException) {
+                            onConnectionFailure(host);
+                        } else {
+                            onConnected(host);
+                        }
+                    })
+                    .doOnCancel(() -> onCancel(host));
+            //@formatter:on
+        });
+    }
+
+    /**
+     * Completes when downloads from the host may be tried again: at once when its circuit is closed, otherwise when
+     * its circuit has been open long enough for a probe, or when the probe has connected. The wait is done with a
+     * timer, so no thread is blocked.
+     *
+     * @param host - the host to wait for
+     */
+    public Mono<Void> whenAvailable(String host) {
+        //@formatter:off
+        return Mono.defer(() -> {
+                    long waitNanos = getWaitNanos(host);
+                    return waitNanos <= 0 ? Mono.just(host)
+                            : Mono.delay(Duration.ofNanos(waitNanos)).then(Mono.<String>empty());
+                })
+                .repeatWhenEmpty(repeats -> repeats)
+                .then();
+        //@formatter:on
+    }
+
+    /**
+     * Whether the circuit of the host is open or half open, so that downloads from it are not tried.
+     */
+    public synchronized boolean isOpen(String host) {
+        Circuit circuit = circuits.get(host);
+        return circuit != null && circuit.state != State.CLOSED;
+    }
+
+    /**
+     * The number of hosts whose circuits are open or half open.
+     */
+    public synchronized int getOpenCircuits() {
+        int open = 0;
+        for (Circuit circuit : circuits.values()) {
+            if (circuit.state != State.CLOSED) {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    @Override
+    public String toString() {
+        return getOpenCircuits() + " hosts unreachable";
+    }
+
+    /**
+     * While a probe is running, its result is checked for every second, or as often as the circuit opens if that is
+     * more often.
+     */
+    private synchronized long getWaitNanos(String host) {
+        Circuit circuit = circuits.get(host);
+        if (circuit == null || circuit.state == State.CLOSED) {
+            return 0;
+        }
+        if (circuit.state == State.HALF_OPEN) {
+            return Math.min(openNanos, PROBE_CHECK_NANOS);
+        }
+        return circuit.openedNanos + openNanos - clock.getAsLong();
+    }
+
+    private synchronized boolean tryAcquire(String host) {
+        Circuit circuit = circuits.get(host);
+        if (circuit == null || circuit.state == State.CLOSED) {
+            return true;
+        }
+        if (circuit.state == State.OPEN && clock.getAsLong() - circuit.openedNanos >= openNanos) {
+            circuit.state = State.HALF_OPEN;
+            logger.debug("Probing {}", host);
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void onConnected(String host) {
+        Circuit circuit = circuits.remove(host);
+        if (circuit != null && circuit.state != State.CLOSED) {
+            logger.info("Connected to {} again, files are collected from it", host);
+        }
+    }
+
+    private synchronized void onConnectionFailure(String host) {
+        Circuit circuit = circuits.computeIfAbsent(host, name -> new Circuit());
+        circuit.failures++;
+        if (circuit.state == State.HALF_OPEN || circuit.failures >= failureThreshold) {
+            if (circuit.state == State.CLOSED) {
+                logger.warn("Unable to connect to {} {} times in a row, files are not collected from it for {} ms",
+                        host, circuit.failures, Duration.ofNanos(openNanos).toMillis());
+            }
+            circuit.state = State.OPEN;
+            circuit.openedNanos = clock.getAsLong();
+        }
+    }
+
+    /**
+     * A cancelled probe gives no answer, so the next download is let through as a probe instead.
+     */
+    private synchronized void onCancel(String host) {
+        Circuit circuit = circuits.get(host);
+        if (circuit != null && circuit.state == State.HALF_OPEN) {
+            circuit.state = State.OPEN;
+            circuit.openedNanos = clock.getAsLong() - openNanos;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Publisher;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Limits how many files are collected from one host at a time. A file that has to wait for a permit is queued
+ * without holding a thread, and is started when a file from the same host is finished. Hosts are served in the
+ * order the files arrive.
+ */
+public class HostPermits {
+
+    private final Map<String, Host> hosts = new HashMap<>();
+
+    private static final class Host {
+        private int inUse;
+        private final Queue<Waiter> waiters = new ArrayDeque<>();
+    }
+
+    private static final class Waiter {
+        private MonoSink<Void> sink;
+        private boolean granted;
+    }
+
+    /**
+     * Runs the work when a permit for the host is available. The permit is returned when the work terminates or is
+     * cancelled.
+     *
+     * @param host - the host the work is for
+     * @param maxPermits - the most works that may run for the host at the same time
+     * @param work - creates the work
+     * @return the result of the work
+     */
+    public <T> Flux<T> withPermit(String host, int maxPermits, Supplier<? extends Publisher<T>> work) {
+        return Flux.defer(() -> {
+            Waiter waiter = new Waiter();
+            //@formatter:off
+            return Mono.<Void>create(sink -> {
+                        waiter.sink = sink;
+                        if (acquire(host, maxPermits, waiter)) {
+                            sink.success();
+                        }
+                    })
+                    .thenMany(Flux.defer(work))
+                    .doFinally(signal -> release(host, waiter));
+            //@formatter:on
+        });
+    }
+
+    /**
+     * The number of files that wait for a permit, for all hosts.
+     */
+    public synchronized int getWaiting() {
+        int waiting = 0;
+        for (Host host : hosts.values()) {
+            waiting += host.waiters.size();
+        }
+        return waiting;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d hosts, %d files waiting for a host", hosts.size(), getWaiting());
+    }
+
+    private synchronized boolean acquire(String hostName, int maxPermits, Waiter waiter) {
+        Host host = hosts.computeIfAbsent(hostName, name -> new Host());
+        if (host.inUse < maxPermits) {
+            host.inUse++;
+            waiter.granted = true;
+            return true;
+        }
+        host.waiters.add(waiter);
+        return false;
+    }
+
+    /**
+     * Returns the permit of a finished work to the next waiting work for the host. A work that is cancelled while
+     * it waits only leaves the queue.
+     */
+    private void release(String hostName, Waiter waiter) {
+        Waiter next;
+        synchronized (this) {
+            Host host = hosts.get(hostName);
+            if (host == null) {
+                return;
+            }
+            if (!waiter.granted) {
+                host.waiters.remove(waiter);
+                removeIfUnused(hostName, host);
+                return;
+            }
+            waiter.granted = false;
+            next = host.waiters.poll();
+            if (next == null) {
+                host.inUse--;
+                removeIfUnused(hostName, host);
+                return;
+            }
+            next.granted = true;
+        }
+        next.sink.success();
+    }
+
+    private void removeIfUnused(String hostName, Host host) {
+        if (host.inUse == 0 && host.waiters.isEmpty()) {
+            hosts.remove(hostName);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import java.io.IOException;
+
+import org.onap.dcaegen2.collectors.datafile.configuration.CollectorConfig;
+import org.onap.dcaegen2.collectors.datafile.exceptions.DataRouterUnavailableException;
+import org.onap.dcaegen2.collectors.datafile.model.ConsumerDmaapModel;
+import org.onap.dcaegen2.collectors.datafile.model.FileData;
+import org.onap.dcaegen2.collectors.datafile.service.producer.StreamingFileEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Passes a file from the xNF to DataRouter without storing it on disk. The file is published while it is downloaded,
+ * with a bounded buffer in between, see {@link StreamingFileEntity}.
+ */
+@Component
+public class PassThroughTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(PassThroughTask.class);
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final XnfCollectorTask xnfCollectorTask;
+    private final DmaapPublisherTask dmaapPublisherTask;
+    private final CollectorConfig collectorConfig;
+
+    @Autowired
+    public PassThroughTask(XnfCollectorTask xnfCollectorTask, DmaapPublisherTask dmaapPublisherTask,
+            CollectorConfig collectorConfig) {
+        this.xnfCollectorTask = xnfCollectorTask;
+        this.dmaapPublisherTask = dmaapPublisherTask;
+        this.collectorConfig = collectorConfig;
+    }
+
+    /**
+     * Makes one attempt to pass the file when the returned mono is subscribed to. A failure of the xNF is signalled
+     * as a {@link org.onap.dcaegen2.collectors.datafile.exceptions.DatafileTaskException}, so that the caller can
+     * retry. When DataRouter does not take the file in time, or fails, a {@link DataRouterUnavailableException} is
+     * signalled, so that the caller can collect the file to disk instead.
+     *
+     * @param fileData - the file to pass
+     * @param collectScheduler - the scheduler to download the file on
+     * @return the response from DataRouter
+     */
+    public Mono<String> execute(FileData fileData, Scheduler collectScheduler) {
+        return Mono.defer(() -> {
+            StreamingFileEntity body = new StreamingFileEntity(collectorConfig.getPassThroughBufferChunks(),
+                    CHUNK_SIZE, collectorConfig.getPassThroughWriteTimeout());
+            ConsumerDmaapModel consumerDmaapModel = xnfCollectorTask.getConsumerDmaapModel(fileData);
+
+            Mono<String> published = dmaapPublisherTask.execute(consumerDmaapModel, body).doOnError(body::abort);
+            Mono<Void> collected = xnfCollectorTask.execute(fileData, body.getOutputStream())
+                    .then(Mono.defer(() -> endOfFile(body)))
+                    .doOnError(body::abort)
+                    .subscribeOn(collectScheduler);
+
+            return Mono.zip(published.materialize(), collected.materialize())
+                    .flatMap(signals -> getResult(fileData, body, signals.getT1(), signals.getT2()));
+        });
+    }
+
+    private static Mono<Void> endOfFile(StreamingFileEntity body) {
+        try {
+            body.getOutputStream().close();
+            return Mono.empty();
+        } catch (IOException e) {
+            return Mono.error(e);
+        }
+    }
+
+    /**
+     * The side that failed first aborts the transfer, which makes the other side fail too. So the failure of
+     * DataRouter is told apart from the failure of the xNF by what the transfer was aborted with.
+     */
+    private Mono<String> getResult(FileData fileData, StreamingFileEntity body, Signal<String> published,
+            Signal<Void> collected) {
+        boolean dataRouterFailed =
+                body.isStalled() || published.isOnError() && published.getThrowable() == body.getAbortCause();
+        if (dataRouterFailed) {
+            Throwable cause = body.isStalled() ? body.getAbortCause() : published.getThrowable();
+            logger.warn("Unable to pass file {} directly to DataRouter, {}", fileData.name(), cause.getMessage());
+            return Mono.error(new DataRouterUnavailableException(
+                    "Unable to pass file " + fileData.name() + " directly to DataRouter", cause));
+        }
+        if (collected.isOnError()) {
+            return Mono.error(collected.getThrowable());
+        }
+        return Mono.justOrEmpty(published.get());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Retries a failed publisher with exponential backoff and jitter. The waiting is done with a timer, so no thread
+ * is blocked while a retry is pending. The policy counts the retries it has made and the publishers it has given
+ * up, so each stage that retries should have a policy of its own.
+ *
+ * <p>
+ * Usage: <code>flux.retryWhen(retryPolicy::backoff)</code>
+ */
+public class RetryPolicy {
+
+    private final int maxRetries;
+    private final Duration firstBackoff;
+    private final Duration maxBackoff;
+    private final double jitterFactor;
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong givenUp = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param maxRetries - number of retries after the first attempt
+     * @param firstBackoff - the wait before the first retry, doubled for each following retry
+     * @param maxBackoff - the longest wait before a retry
+     * @param jitterFactor - how much, as a fraction between 0 and 1, the wait is randomly varied
+     */
+    public RetryPolicy(int maxRetries, Duration firstBackoff, Duration maxBackoff, double jitterFactor) {
+        if (jitterFactor < 0 || jitterFactor > 1) {
+            throw new IllegalArgumentException("jitterFactor must be between 0 and 1, was " + jitterFactor);
+        }
+        this.maxRetries = maxRetries;
+        this.firstBackoff = firstBackoff;
+        this.maxBackoff = maxBackoff;
+        this.jitterFactor = jitterFactor;
+    }
+
+    /**
+     * The companion function for {@link Flux#retryWhen}. Emits after the backoff of each retry and propagates the
+     * last error when all retries are used.
+     *
+     * @param errors - the errors of the failed attempts
+     * @return the retry signals
+     */
+    public Publisher<Long> backoff(Flux<Throwable> errors) {
+        return errors.zipWith(Flux.range(1, maxRetries + 1)).concatMap(errorAndRetry -> {
+            Throwable error = errorAndRetry.getT1();
+            int retry = errorAndRetry.getT2();
+            if (retry > maxRetries) {
+                givenUp.incrementAndGet();
+                return Mono.error(error);
+            }
+            retries.incrementAndGet();
+            return Mono.delay(getBackoff(retry));
+        });
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getGivenUp() {
+        return givenUp.get();
+    }
+
+    Duration getBackoff(int retry) {
+        long maxMillis = maxBackoff.toMillis();
+        long backoffMillis = Math.min(firstBackoff.toMillis() << Math.min(retry - 1, 30), maxMillis);
+        if (backoffMillis < 0) {
+            backoffMillis = maxMillis;
+        }
+        if (jitterFactor > 0 && backoffMillis > 0) {
+            long jitter = (long) (backoffMillis * jitterFactor);
+            backoffMillis += ThreadLocalRandom.current().nextLong(-jitter, jitter + 1);
+        }
+        return Duration.ofMillis(Math.min(backoffMillis, maxMillis));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d retries, %d given up", getRetries(), getGivenUp());
+    }
+}
@@ -16,16 +16,55 @@
 
 package org.onap.dcaegen2.collectors.datafile.tasks;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.onap.dcaegen2.collectors.datafile.configuration.ClusterConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.CollectorConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.ConsumerConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.JournalConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.PublisherConfig;
+import org.onap.dcaegen2.collectors.datafile.exceptions.DataRouterUnavailableException;
 import org.onap.dcaegen2.collectors.datafile.exceptions.DmaapEmptyResponseException;
+import org.onap.dcaegen2.collectors.datafile.exceptions.UnsupportedProtocolException;
+import org.onap.dcaegen2.collectors.datafile.exceptions.XnfCircuitOpenException;
+import org.onap.dcaegen2.collectors.datafile.exceptions.XnfUnreachableException;
 import org.onap.dcaegen2.collectors.datafile.model.ConsumerDmaapModel;
 import org.onap.dcaegen2.collectors.datafile.model.FileData;
+import org.onap.dcaegen2.collectors.datafile.service.DuplicateFileCache;
+import org.onap.dcaegen2.collectors.datafile.service.FileJournal;
+import org.onap.dcaegen2.collectors.datafile.service.XnfOwnership;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
+import io.micrometer.core.instrument.Counter;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.UnicastProcessor;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
 /**
  * @author <a href="mailto:przemyslaw.wasala@nokia.com">Przemysław Wąsala</a> on 3/23/18
@@ -35,10 +74,42 @@ import reactor.core.scheduler.Schedulers;
 public class ScheduledTasks {
 
     private static final Logger logger = LoggerFactory.getLogger(ScheduledTasks.class);
+    private static final Duration FIRST_RESTART_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_RESTART_BACKOFF = Duration.ofMinutes(1);
+    private static final String COLLECTION_SLOTS = "collection";
 
     private final DmaapConsumerTask dmaapConsumerTask;
     private final XnfCollectorTask xnfCollectorTask;
     private final DmaapPublisherTask dmaapProducerTask;
+    private final PassThroughTask passThroughTask;
+    private final boolean passThrough;
+    private final Scheduler collectScheduler;
+    private final RetryPolicy collectRetryPolicy;
+    private final RetryPolicy passThroughRetryPolicy;
+    private final RetryPolicy publishRetryPolicy;
+    private final RetryPolicy emptyPollBackoffPolicy;
+    private final RetryPolicy workflowRestartPolicy =
+            new RetryPolicy(Integer.MAX_VALUE, FIRST_RESTART_BACKOFF, MAX_RESTART_BACKOFF, 0);
+    private final StageQueue awaitingHandover;
+    private final StageQueue collectQueue;
+    private final StageQueue waitingForHost;
+    private final StageQueue waitingForPermit;
+    private final StageQueue collecting;
+    private final StageQueue publishQueue;
+    private final StageQueue publishing;
+    private final FileJournal journal;
+    private final DuplicateFileCache duplicateFileCache;
+    private final CollectorConfig collectorConfig;
+    private final HostPermits hostPermits = new HostPermits();
+    private final HostPermits collectionSlots = new HostPermits();
+    private final HostCircuitBreakers hostCircuitBreakers;
+    private final Map<Long, Integer> unreachableAttempts = new ConcurrentHashMap<>();
+    private final XnfOwnership xnfOwnership;
+    private final Counter consumedFiles;
+    private final Counter collectedFiles;
+    private final Counter publishedFiles;
+    private volatile List<StageThroughput> stageThroughputs = Collections.emptyList();
+    private Disposable mainTask;
 
     /**
      * Constructor for task registration in Datafile Workflow.
@@ -46,36 +117,244 @@ public class ScheduledTasks {
      * @param dmaapConsumerTask - fist task
      * @param xnfCollectorTask - second task
      * @param dmaapPublisherTask - third task
+     * @param passThroughTask - second and third task together, when the files are not stored on disk
+     * @param collectorConfig - tuning of the collection
+     * @param consumerConfig - tuning of the consuming
+     * @param publisherConfig - tuning of the publishing
+     * @param journalConfig - the journal of the files in progress
+     * @param clusterConfig - the sharing of the xNFs with other instances
+     * @param metrics - the metrics of the stages
      */
     @Autowired
     public ScheduledTasks(DmaapConsumerTask dmaapConsumerTask, XnfCollectorTask xnfCollectorTask,
-            DmaapPublisherTask dmaapPublisherTask) {
+            DmaapPublisherTask dmaapPublisherTask, PassThroughTask passThroughTask, CollectorConfig collectorConfig,
+            ConsumerConfig consumerConfig, PublisherConfig publisherConfig, JournalConfig journalConfig,
+            ClusterConfig clusterConfig, DatafileMetrics metrics) {
         this.dmaapConsumerTask = dmaapConsumerTask;
         this.xnfCollectorTask = xnfCollectorTask;
         this.dmaapProducerTask = dmaapPublisherTask;
+        this.passThroughTask = passThroughTask;
+        this.collectorConfig = collectorConfig;
+        this.passThrough = collectorConfig.isPassThrough();
+        this.collectScheduler = Schedulers.fromExecutorService(Executors.newFixedThreadPool(
+                collectorConfig.getMaxConcurrentCollections(), new CustomizableThreadFactory("xnf-collector-")));
+        this.collectRetryPolicy = collectorConfig.getCollectRetryPolicy();
+        this.passThroughRetryPolicy = collectorConfig.getCollectRetryPolicy();
+        this.publishRetryPolicy = publisherConfig.getPublishRetryPolicy();
+        this.emptyPollBackoffPolicy = consumerConfig.getEmptyPollBackoffPolicy();
+        this.awaitingHandover = new StageQueue("waiting for handover", clusterConfig.getMaxFilesAwaitingHandover());
+        this.collectQueue = new StageQueue("waiting for collection", consumerConfig.getMaxBufferedFiles());
+        this.waitingForHost =
+                new StageQueue("waiting for unreachable xNF", collectorConfig.getMaxFilesWaitingForUnreachableHosts());
+        this.waitingForPermit =
+                new StageQueue("waiting for busy xNF", collectorConfig.getMaxFilesWaitingForBusyHosts());
+        this.collecting = new StageQueue("in collection", collectorConfig.getMaxFilesInCollection());
+        this.publishQueue = new StageQueue("waiting for publishing", publisherConfig.getMaxFilesWaitingForPublish());
+        this.publishing = new StageQueue("in publishing", publisherConfig.getMaxConcurrentPublishes());
+        this.journal = openJournal(journalConfig);
+        this.duplicateFileCache = consumerConfig.getDuplicateFileCache();
+        this.hostCircuitBreakers = collectorConfig.getHostCircuitBreakers();
+        this.xnfOwnership =
+                clusterConfig.getXnfOwnership(() -> dmaapConsumerTask.resolveConfiguration().consumerGroup());
+        this.xnfOwnership.join();
+        this.consumedFiles = metrics.createFileCounter("consume");
+        this.collectedFiles = metrics.createFileCounter("collect");
+        this.publishedFiles = metrics.createFileCounter("publish");
+        getStageQueues().forEach(metrics::registerStage);
+        metrics.registerRetries("collect", collectRetryPolicy);
+        metrics.registerRetries("pass-through", passThroughRetryPolicy);
+        metrics.registerRetries("publish", publishRetryPolicy);
+        metrics.registerHostCircuitBreakers(hostCircuitBreakers);
+        metrics.registerXnfOwnership(xnfOwnership);
+    }
+
+    private static FileJournal openJournal(JournalConfig journalConfig) {
+        try {
+            return journalConfig.openJournal();
+        } catch (IOException e) {
+            logger.error("Unable to open the journal {}, the files in progress are not journaled.",
+                    journalConfig.getPath(), e);
+            return FileJournal.disabled();
+        }
     }
 
     /**
-     * Main function for scheduling Datafile Workflow.
+     * Main function for scheduling Datafile Workflow. The workflow polls Message Router continuously and runs until
+     * it is stopped, so calling this while it runs has no effect.
+     *
+     * <p>Each stage takes a bounded number of files at a time and asks the stage before it for more files only when
+     * it has room for them. When the xNFs or DataRouter slow down, the files stop at the stage before the slow one,
+     * and Message Router is not polled until the consumed files have room to wait for collection.
+     *
+     * <p>Failures are handled per file and per stage. A file that fails in a stage is retried in that stage only,
+     * without running the earlier stages again, and is dropped when its retries are used, without affecting the
+     * other files. A file from an xNF that cannot be connected to waits for the xNF before the collection, so that it
+     * does not keep the files from other xNFs from being collected. An unexpected error that aborts the whole
+     * workflow does not stop the collection for good, the workflow is restarted after a backoff.
+     *
+     * <p>Each file is journaled when it is consumed, collected, and published or given up. When the workflow starts,
+     * the files that were in progress when it, or the process, stopped are handled before new files are consumed.
+     * A consumed file that has already been received recently is skipped.
+     *
+     * <p>When the xNFs are shared with other instances, a consumed file from an xNF that another instance owns is
+     * left to that instance, which consumes the file too. The file is checked again when the owner would have been
+     * replaced, had it stopped, and is collected if this instance has taken over the xNF.
      */
-    public void scheduleMainDatafileEventTask() {
+    public synchronized void scheduleMainDatafileEventTask() {
+        if (mainTask != null && !mainTask.isDisposed()) {
+            return;
+        }
         logger.trace("Execution of tasks was registered");
+        StageThroughput consumed = new StageThroughput("consume");
+        StageThroughput collected = new StageThroughput("collect");
+        StageThroughput published = new StageThroughput("publish");
+        stageThroughputs = Arrays.asList(consumed, collected, published);
+        AtomicInteger restarts = new AtomicInteger();
         //@formatter:off
-        consumeFromDmaapMessage()
-                .publishOn(Schedulers.parallel())
-                .cache()
-                .doOnError(DmaapEmptyResponseException.class, error -> logger.info("Nothing to consume from DMaaP"))
-                .flatMap(this::collectFilesFromXnf)
-                .retry(3)
-                .cache()
-                .flatMap(this::publishToDmaapConfiguration)
-                .retry(3)
-                .subscribe(this::onSuccess, this::onError, this::onComplete);
+        mainTask = Flux.defer(() -> createWorkflow(consumed, collected))
+                .doOnNext(response -> {
+                    restarts.set(0);
+                    published.increment();
+                    publishedFiles.increment();
+                })
+                .retryWhen(errors -> errors.concatMap(error -> restartAfterBackoff(error, restarts.incrementAndGet())))
+                .doFinally(signal -> onComplete(consumed, collected, published))
+                .subscribe(this::onSuccess, this::onError);
         //@formatter:on
     }
 
-    private void onComplete() {
-        logger.info("Datafile tasks have been completed");
+    /**
+     * The stages of the Datafile workflow, from consuming the files to publishing them. Built anew each time the
+     * workflow is restarted.
+     */
+    private Flux<String> createWorkflow(StageThroughput consumed, StageThroughput collected) {
+        //@formatter:off
+        UnicastProcessor<Tuple2<FileData, Long>> filesOfOtherOwners = UnicastProcessor.create();
+        FluxSink<Tuple2<FileData, Long>> otherOwnersSink = filesOfOtherOwners.sink();
+        Flux<FileData> ownedFiles = consumeContinuously()
+                .doOnNext(fileData -> {
+                    consumed.increment();
+                    consumedFiles.increment();
+                })
+                .filter(fileData -> isOwnedFile(fileData, otherOwnersSink));
+        Flux<FileJournal.Entry> receivedFiles = Flux.merge(ownedFiles, awaitHandover(filesOfOtherOwners))
+                .filter(this::isNewFile)
+                .map(journal::received);
+        UnicastProcessor<FileJournal.Entry> unreachableFiles = UnicastProcessor.create();
+        FluxSink<FileJournal.Entry> unreachableSink = unreachableFiles.sink();
+        Flux<FileJournal.Entry> queuedFiles = Flux.concat(Flux.defer(this::getUnfinishedFiles), receivedFiles)
+                .doOnNext(file -> collectQueue.enter())
+                .publishOn(Schedulers.parallel(), collectQueue.getCapacity())
+                .doOnNext(file -> collectQueue.leave());
+        Flux<FileJournal.Entry> files = Flux.merge(queuedFiles, unreachableFiles)
+                .flatMap(this::awaitReachableHost, waitingForHost.getCapacity() + 1, 1);
+        Flux<String> responses;
+        if (passThrough) {
+            responses = files
+                    .flatMap(file -> inCollection(file, () -> passJournaledFile(file, unreachableSink)),
+                            waitingForPermit.getCapacity() + collecting.getCapacity(), 1)
+                    .doOnNext(response -> {
+                        collected.increment();
+                        collectedFiles.increment();
+                    });
+        } else {
+            responses = files
+                    .flatMap(file -> inCollection(file, () -> collectJournaledFile(file, unreachableSink))
+                            .doOnNext(collectedFile -> {
+                                collected.increment();
+                                collectedFiles.increment();
+                                publishQueue.enter();
+                            }), waitingForPermit.getCapacity() + collecting.getCapacity(), 1)
+                    .publishOn(Schedulers.parallel(), publishQueue.getCapacity())
+                    .flatMap(collectedFile -> {
+                        publishQueue.leave();
+                        return inStage(publishing, publishJournaledFile(collectedFile.getT1(), collectedFile.getT2()));
+                    }, publishing.getCapacity(), 1);
+        }
+        return responses
+                .doFinally(signal -> {
+                    awaitingHandover.clear();
+                    collectQueue.clear();
+                    publishQueue.clear();
+                });
+        //@formatter:on
+    }
+
+    /**
+     * An unexpected error aborts the whole workflow. It is restarted after a backoff that grows with each restart
+     * in a row, so that collection goes on, and the files that were in progress are resumed from the journal.
+     */
+    private Mono<Long> restartAfterBackoff(Throwable error, int restart) {
+        Duration backoff = workflowRestartPolicy.getBackoff(restart);
+        logger.error("Datafile workflow aborted due to an unexpected error, restarting it in {}", backoff, error);
+        return Mono.delay(backoff);
+    }
+
+    /**
+     * The number of files in each stage of the Datafile workflow, in the order of the stages.
+     */
+    public List<StageQueue> getStageQueues() {
+        return Arrays.asList(awaitingHandover, collectQueue, waitingForHost, waitingForPermit, collecting, publishQueue,
+                publishing);
+    }
+
+    /**
+     * The throughput of the consuming, the collecting and the publishing, since the Datafile workflow was last
+     * started.
+     */
+    public List<StageThroughput> getStageThroughputs() {
+        return stageThroughputs;
+    }
+
+    public DuplicateFileCache getDuplicateFileCache() {
+        return duplicateFileCache;
+    }
+
+    public HostPermits getHostPermits() {
+        return hostPermits;
+    }
+
+    public HostCircuitBreakers getHostCircuitBreakers() {
+        return hostCircuitBreakers;
+    }
+
+    public XnfOwnership getXnfOwnership() {
+        return xnfOwnership;
+    }
+
+    /**
+     * The number of files left to other owners that are to be checked again.
+     */
+    public int getFilesAwaitingHandover() {
+        return awaitingHandover.getDepth();
+    }
+
+    /**
+     * Stops the Datafile Workflow. Files that are being collected or published are abandoned.
+     */
+    public synchronized void stopMainDatafileEventTask() {
+        if (mainTask != null) {
+            mainTask.dispose();
+            mainTask = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopMainDatafileEventTask();
+        collectScheduler.dispose();
+        journal.close();
+        xnfOwnership.leave();
+    }
+
+    private void onComplete(StageThroughput... stages) {
+        logger.info("Datafile tasks have been stopped");
+        for (StageThroughput stage : stages) {
+            logger.info("Throughput {}", stage);
+        }
+        logger.info("Collect {}, pass-through {}, publish {}", collectRetryPolicy, passThroughRetryPolicy,
+                publishRetryPolicy);
+        logger.info("Duplicates {}", duplicateFileCache);
     }
 
     private void onSuccess(String responseCode) {
@@ -88,16 +367,310 @@ public class ScheduledTasks {
         }
     }
 
+    /**
+     * Polls Message Router back to back. Each poll is a long-poll, where Message Router holds the request until
+     * there are events or its timeout has passed. After a poll that gave files, Message Router is polled again at
+     * once. After an empty or failed poll, the wait before the next poll is doubled for each poll, up to a maximum.
+     */
+    private Flux<FileData> consumeContinuously() {
+        AtomicInteger emptyPolls = new AtomicInteger();
+        //@formatter:off
+        return Flux.defer(this::consumeFromDmaapMessage)
+                .onErrorResume(error -> {
+                    if (error instanceof DmaapEmptyResponseException) {
+                        logger.trace("Nothing to consume from DMaaP");
+                    } else {
+                        logger.warn("Unable to consume from DMaaP", error);
+                    }
+                    return Flux.empty();
+                })
+                .repeatWhen(filesPerPoll -> filesPerPoll
+                        .concatMap(files -> Mono.delay(getNextPollDelay(files, emptyPolls))));
+        //@formatter:on
+    }
+
+    private static <T> Flux<T> inStage(StageQueue stage, Publisher<T> files) {
+        stage.enter();
+        return Flux.from(files).doFinally(signal -> stage.leave());
+    }
+
+    private Duration getNextPollDelay(long files, AtomicInteger emptyPolls) {
+        if (files > 0) {
+            emptyPolls.set(0);
+            return Duration.ZERO;
+        }
+        return emptyPollBackoffPolicy.getBackoff(emptyPolls.incrementAndGet());
+    }
+
+    private Flux<FileJournal.Entry> getUnfinishedFiles() {
+        List<FileJournal.Entry> unfinished = journal.getUnfinished();
+        if (!unfinished.isEmpty()) {
+            logger.info("Resuming {} files that were in progress", unfinished.size());
+        }
+        return Flux.fromIterable(unfinished);
+    }
+
+    /**
+     * A file from a host whose circuit is open waits until the host may be tried again. The other files go on at
+     * once. When the stage of the waiting files is full, the file is given up at once, so that the files from
+     * unreachable hosts do not keep the files from other hosts from being collected.
+     */
+    private Flux<FileJournal.Entry> awaitReachableHost(FileJournal.Entry file) {
+        String host = getHost(file.getFileData().location());
+        if (!hostCircuitBreakers.isOpen(host)) {
+            return Flux.just(file);
+        }
+        if (waitingForHost.getDepth() >= waitingForHost.getCapacity()) {
+            logger.error("Too many files wait for unreachable xNFs, file given up. Data: {}",
+                    file.getFileData().name());
+            abandon(file);
+            return Flux.empty();
+        }
+        return inStage(waitingForHost, hostCircuitBreakers.whenAvailable(host).thenReturn(file));
+    }
+
+    /**
+     * A file takes a slot in the collection only when it has a permit for its host. The files of an xNF that already
+     * has as many downloads as it is allowed wait for a permit before the collection, so that they do not keep the
+     * files of other xNFs from being collected. The slots are kept as the permits of one host, so that they are given
+     * in the order the files got their host permits.
+     */
+    private <T> Flux<T> inCollection(FileJournal.Entry file, Supplier<? extends Publisher<T>> collection) {
+        FileData fileData = file.getFileData();
+        String host = getHost(fileData.location());
+        int maxPermits = collectorConfig.getHostLimit(fileData.vendorName(), fileData.productName());
+        AtomicBoolean waiting = new AtomicBoolean(true);
+        Runnable stopWaiting = () -> {
+            if (waiting.getAndSet(false)) {
+                waitingForPermit.leave();
+            }
+        };
+        waitingForPermit.enter();
+        //@formatter:off
+        return hostPermits.withPermit(host, maxPermits,
+                    () -> collectionSlots.withPermit(COLLECTION_SLOTS, collecting.getCapacity(), () -> {
+                        stopWaiting.run();
+                        return inStage(collecting, collection.get());
+                    }))
+                .doFinally(signal -> stopWaiting.run());
+        //@formatter:on
+    }
+
+    /**
+     * A file that was collected before the workflow stopped is published from disk, if it is still there. Otherwise
+     * the file is collected from the xNF.
+     */
+    private Flux<Tuple2<FileJournal.Entry, ConsumerDmaapModel>> collectJournaledFile(FileJournal.Entry file,
+            FluxSink<FileJournal.Entry> unreachableFiles) {
+        if (file.getState() == FileJournal.State.COLLECTED) {
+            ConsumerDmaapModel model = xnfCollectorTask.getConsumerDmaapModel(file.getFileData());
+            if (Files.isRegularFile(Paths.get(model.getInternalLocation()))) {
+                return Flux.just(Tuples.of(file, model));
+            }
+        }
+        //@formatter:off
+        return collectFilesFromXnf(file.getFileData())
+                .doOnNext(model -> {
+                    unreachableAttempts.remove(file.getId());
+                    journal.collected(file.getId());
+                })
+                .map(model -> Tuples.of(file, model))
+                .switchIfEmpty(Mono.fromRunnable(() -> abandon(file)))
+                .onErrorResume(XnfUnreachableException.class,
+                        error -> Mono.fromRunnable(() -> waitForHost(file, error, unreachableFiles)));
+        //@formatter:on
+    }
+
+    private Mono<String> publishJournaledFile(FileJournal.Entry file, ConsumerDmaapModel model) {
+        //@formatter:off
+        return publishToDmaapConfiguration(model)
+                .doOnNext(response -> journal.published(file.getId()))
+                .switchIfEmpty(Mono.fromRunnable(() -> abandon(file)));
+        //@formatter:on
+    }
+
+    private Mono<String> passJournaledFile(FileJournal.Entry file, FluxSink<FileJournal.Entry> unreachableFiles) {
+        //@formatter:off
+        return passFileToDataRouter(file.getFileData())
+                .doOnNext(response -> {
+                    unreachableAttempts.remove(file.getId());
+                    journal.published(file.getId());
+                })
+                .switchIfEmpty(Mono.fromRunnable(() -> abandon(file)))
+                .onErrorResume(XnfUnreachableException.class,
+                        error -> Mono.fromRunnable(() -> waitForHost(file, error, unreachableFiles)));
+        //@formatter:on
+    }
+
+    /**
+     * The file leaves the collection, and waits for its host with the other files from unreachable hosts. A file
+     * that was not tried, as the circuit of its host opened, keeps its attempts. The file is given up when the
+     * downloads from its host have failed more times than the retries allow.
+     */
+    private void waitForHost(FileJournal.Entry file, Throwable error, FluxSink<FileJournal.Entry> unreachableFiles) {
+        int attempts = error instanceof XnfCircuitOpenException ? unreachableAttempts.getOrDefault(file.getId(), 0)
+                : unreachableAttempts.merge(file.getId(), 1, Integer::sum);
+        if (attempts > collectRetryPolicy.getMaxRetries()) {
+            logger.error("Download of file aborted after maximum number of retries. Data: {} Error causes {}",
+                    file.getFileData().name(), error.getMessage());
+            abandon(file);
+            return;
+        }
+        logger.debug("xNF unreachable, file waits for it. Data: {}", file.getFileData().name());
+        unreachableFiles.next(file);
+    }
+
+    /**
+     * A file that is given up is forgotten by the duplicate check, so that it is handled if it is announced again.
+     */
+    private void abandon(FileJournal.Entry file) {
+        unreachableAttempts.remove(file.getId());
+        journal.abandoned(file.getId());
+        duplicateFileCache.forget(file.getFileData());
+    }
+
+    /**
+     * A file from an xNF that another instance owns is left to that instance, and is checked again after the handover
+     * delay. When the files waiting for the handover fill their stage, the file is left to its owner without being
+     * checked again, so that the files of other owners do not pile up while Message Router is polled.
+     */
+    private boolean isOwnedFile(FileData fileData, FluxSink<Tuple2<FileData, Long>> filesOfOtherOwners) {
+        if (xnfOwnership.isOwned(fileData.sourceName())) {
+            return true;
+        }
+        if (awaitingHandover.getDepth() >= awaitingHandover.getCapacity()) {
+            logger.debug("File from xNF {} owned by another instance, left to it without waiting for handover. "
+                    + "Data: {}", fileData.sourceName(), fileData.name());
+            return false;
+        }
+        logger.trace("File from xNF {} owned by another instance, left to it. Data: {}", fileData.sourceName(),
+                fileData.name());
+        awaitingHandover.enter();
+        filesOfOtherOwners.next(Tuples.of(fileData, System.nanoTime() + xnfOwnership.getHandoverDelay().toNanos()));
+        return false;
+    }
+
+    /**
+     * The files left to other owners, when the handover delay has passed since each was consumed, that this instance
+     * now owns. Their owner has stopped, and this instance has taken over their xNFs. The delay is the same for all
+     * files, so the files are due in the order they were left.
+     */
+    private Flux<FileData> awaitHandover(Flux<Tuple2<FileData, Long>> filesOfOtherOwners) {
+        //@formatter:off
+        return filesOfOtherOwners
+                .concatMap(file -> Mono.delay(Duration.ofNanos(Math.max(0, file.getT2() - System.nanoTime())))
+                        .thenReturn(file.getT1()))
+                .doOnNext(fileData -> awaitingHandover.leave())
+                .filter(fileData -> {
+                    if (!xnfOwnership.isOwned(fileData.sourceName())) {
+                        return false;
+                    }
+                    logger.debug("xNF {} taken over from a stopped instance, file collected. Data: {}",
+                            fileData.sourceName(), fileData.name());
+                    return true;
+                });
+        //@formatter:on
+    }
+
+    private boolean isNewFile(FileData fileData) {
+        if (duplicateFileCache.isDuplicate(fileData)) {
+            logger.debug("Duplicate of a file already received, skipped. Data: {}", fileData.name());
+            return false;
+        }
+        return true;
+    }
+
     private Flux<FileData> consumeFromDmaapMessage() {
         dmaapConsumerTask.initConfigs();
         return dmaapConsumerTask.execute("");
     }
 
+    /**
+     * The downloads run on the collector threads, which bound how many files are collected at a time, and each
+     * download holds a permit for its xNF, which bounds how many files are collected from one xNF. A failed download
+     * is resubscribed after its backoff, so the thread and the permit are free for other files while it waits. When
+     * the circuit of the xNF is open, the download is not retried here, and the error is passed on, so that the file
+     * waits for the xNF outside of the collection.
+     */
     private Flux<ConsumerDmaapModel> collectFilesFromXnf(FileData fileData) {
-        return xnfCollectorTask.execute(fileData);
+        String host = getHost(fileData.location());
+        //@formatter:off
+        return downloadFromXnf(fileData, () -> xnfCollectorTask.execute(fileData)
+                        .subscribeOn(collectScheduler))
+                .retryWhen(errors -> collectRetryPolicy.backoff(failOnUnreachableHost(errors, host)))
+                .onErrorResume(error -> !isUnreachableHost(error, host), error -> {
+                    logger.error("Download of file aborted after maximum number of retries. Data: {} Error causes {}",
+                            fileData.name(), error.getMessage());
+                    return Flux.empty();
+                });
+        //@formatter:on
+    }
+
+    /**
+     * Like {@link #collectFilesFromXnf}, but the file is published while it is downloaded. When DataRouter does not
+     * keep up, the file is collected to disk and published from there instead. A file that can not be collected is
+     * given up at once, as it is when collected to disk.
+     */
+    private Mono<String> passFileToDataRouter(FileData fileData) {
+        String host = getHost(fileData.location());
+        //@formatter:off
+        return downloadFromXnf(fileData, () -> passThroughTask.execute(fileData, collectScheduler))
+                .next()
+                .onErrorResume(DataRouterUnavailableException.class, error -> collectFilesFromXnf(fileData)
+                        .flatMap(this::publishToDmaapConfiguration)
+                        .next())
+                .retryWhen(errors -> passThroughRetryPolicy.backoff(failOnUnreachableHost(errors, host)))
+                .onErrorResume(UnsupportedProtocolException.class, error -> Mono.empty())
+                .onErrorResume(error -> !isUnreachableHost(error, host), error -> {
+                    logger.error("Download of file aborted after maximum number of retries. Data: {} Error causes {}",
+                            fileData.name(), error.getMessage());
+                    return Mono.empty();
+                });
+        //@formatter:on
     }
 
-    private Flux<String> publishToDmaapConfiguration(ConsumerDmaapModel monoModel) {
-        return dmaapProducerTask.execute(monoModel);
+    /**
+     * A download from a host that cannot be connected to fails at once. The file already has a permit for its host.
+     */
+    private <T> Flux<T> downloadFromXnf(FileData fileData, Supplier<? extends Publisher<T>> download) {
+        return hostCircuitBreakers.protect(getHost(fileData.location()), download);
+    }
+
+    private boolean isUnreachableHost(Throwable error, String host) {
+        return error instanceof XnfUnreachableException && hostCircuitBreakers.isOpen(host);
+    }
+
+    /**
+     * The errors that are not retried: the host is unreachable, or the file can not be collected at all.
+     */
+    private Flux<Throwable> failOnUnreachableHost(Flux<Throwable> errors, String host) {
+        return errors.concatMap(error -> isUnreachableHost(error, host) || error instanceof UnsupportedProtocolException
+                ? Mono.error(error)
+                : Mono.just(error));
+    }
+
+    private static String getHost(String location) {
+        try {
+            String host = URI.create(location).getHost();
+            return host != null ? host : location;
+        } catch (IllegalArgumentException e) {
+            return location;
+        }
+    }
+
+    /**
+     * A failed publish is retried for this file only. The collected file is published again from disk, so it is not
+     * collected again.
+     */
+    private Mono<String> publishToDmaapConfiguration(ConsumerDmaapModel model) {
+        //@formatter:off
+        return Mono.defer(() -> dmaapProducerTask.execute(model))
+                .retryWhen(publishRetryPolicy::backoff)
+                .onErrorResume(error -> {
+                    logger.error("Publish of file aborted after maximum number of retries. Data: {} Error causes {}",
+                            model.getName(), error.getMessage());
+                    return Mono.empty();
+                });
+        //@formatter:on
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the files that are in one stage of the Datafile workflow, either waiting for the stage or being handled by
+ * it.
+ */
+public class StageQueue {
+
+    private final String stageName;
+    private final int capacity;
+    private final AtomicInteger depth = new AtomicInteger();
+
+    public StageQueue(String stageName, int capacity) {
+        this.stageName = stageName;
+        this.capacity = capacity;
+    }
+
+    public void enter() {
+        depth.incrementAndGet();
+    }
+
+    public void leave() {
+        depth.decrementAndGet();
+    }
+
+    /**
+     * Empties the stage, when the files in it are dropped.
+     */
+    public void clear() {
+        depth.set(0);
+    }
+
+    public String getStageName() {
+        return stageName;
+    }
+
+    public int getDepth() {
+        return depth.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d/%d files", stageName, getDepth(), capacity);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the files that have passed one stage of the Datafile workflow during one run, and calculates the
+ * throughput of the stage from the start of the run until the last file passed it.
+ */
+public class StageThroughput {
+
+    private final String stageName;
+    private final long startNanos;
+    private final AtomicLong count = new AtomicLong();
+    private volatile long lastNanos;
+
+    public StageThroughput(String stageName) {
+        this.stageName = stageName;
+        this.startNanos = System.nanoTime();
+        this.lastNanos = startNanos;
+    }
+
+    public void increment() {
+        count.incrementAndGet();
+        lastNanos = System.nanoTime();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastNanos - startNanos);
+    }
+
+    public double getFilesPerSecond() {
+        long elapsedNanos = lastNanos - startNanos;
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return count.get() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d files in %d ms (%.1f files/s)", stageName, getCount(), getElapsedMillis(),
+                getFilesPerSecond());
+    }
+}
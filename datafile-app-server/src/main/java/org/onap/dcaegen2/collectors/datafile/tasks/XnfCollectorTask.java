@@ -18,11 +18,14 @@
 
 package org.onap.dcaegen2.collectors.datafile.tasks;
 
+import java.io.OutputStream;
+
 import org.onap.dcaegen2.collectors.datafile.configuration.FtpesConfig;
 import org.onap.dcaegen2.collectors.datafile.model.ConsumerDmaapModel;
 import org.onap.dcaegen2.collectors.datafile.model.FileData;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * @author <a href="mailto:henrik.b.andersson@est.tech">Henrik Andersson</a>
@@ -30,4 +33,6 @@ import reactor.core.publisher.Flux;
 public interface XnfCollectorTask {
     abstract FtpesConfig resolveConfiguration();
     Flux<ConsumerDmaapModel> execute(FileData fileData);
+    Mono<Void> execute(FileData fileData, OutputStream outputStream);
+    ConsumerDmaapModel getConsumerDmaapModel(FileData fileData);
 }
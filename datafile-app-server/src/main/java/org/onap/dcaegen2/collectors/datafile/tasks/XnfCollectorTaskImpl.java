@@ -17,11 +17,17 @@
 package org.onap.dcaegen2.collectors.datafile.tasks;
 
 import java.io.File;
+import java.io.OutputStream;
 import java.net.URI;
+import java.util.function.LongSupplier;
 
+import org.apache.commons.io.output.CountingOutputStream;
 import org.onap.dcaegen2.collectors.datafile.configuration.AppConfig;
 import org.onap.dcaegen2.collectors.datafile.configuration.Config;
 import org.onap.dcaegen2.collectors.datafile.configuration.FtpesConfig;
+import org.onap.dcaegen2.collectors.datafile.exceptions.DatafileTaskException;
+import org.onap.dcaegen2.collectors.datafile.exceptions.UnsupportedProtocolException;
+import org.onap.dcaegen2.collectors.datafile.exceptions.XnfUnreachableException;
 import org.onap.dcaegen2.collectors.datafile.ftp.FileCollectClient;
 import org.onap.dcaegen2.collectors.datafile.ftp.FileCollectResult;
 import org.onap.dcaegen2.collectors.datafile.ftp.FileServerData;
@@ -37,6 +43,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * @author <a href="mailto:henrik.b.andersson@est.tech">Henrik Andersson</a>
@@ -48,34 +55,54 @@ public class XnfCollectorTaskImpl implements XnfCollectorTask {
     private static final String FTPS = "ftps";
     private static final String SFTP = "sftp";
 
+    private interface Download {
+        FileCollectResult collectFile(FileCollectClient client, FileServerData fileServerData, String remoteFile);
+    }
+
     private static final Logger logger = LoggerFactory.getLogger(XnfCollectorTaskImpl.class);
     private Config datafileAppConfig;
 
     private final FtpsClient ftpsClient;
     private final SftpClient sftpClient;
-    private RetryTimer retryTimer;
+    private final DatafileMetrics metrics;
+    private volatile FtpesConfig appliedFtpesConfig;
 
     @Autowired
-    protected XnfCollectorTaskImpl(AppConfig datafileAppConfig, FtpsClient ftpsCleint, SftpClient sftpClient) {
+    protected XnfCollectorTaskImpl(AppConfig datafileAppConfig, FtpsClient ftpsCleint, SftpClient sftpClient,
+            DatafileMetrics metrics) {
         this.datafileAppConfig = datafileAppConfig;
         this.ftpsClient = ftpsCleint;
         this.sftpClient = sftpClient;
+        this.metrics = metrics;
     }
 
+    /**
+     * Makes one attempt to collect the file when the returned flux is subscribed to. A failed download is signalled
+     * as a {@link DatafileTaskException}, so that the caller can retry it without blocking. When no connection could
+     * be made to the xNF, the exception is a {@link XnfUnreachableException}.
+     */
     @Override
     public Flux<ConsumerDmaapModel> execute(FileData fileData) {
         logger.trace("Entering execute with {}", fileData);
-        resolveKeyStore();
-
-        String localFile = collectFile(fileData);
+        return Flux.defer(() -> collectFile(fileData));
+    }
 
-        if (localFile != null) {
-            ConsumerDmaapModel consumerDmaapModel = getConsumerDmaapModel(fileData, localFile);
-            logger.trace("Exiting execute with {}", consumerDmaapModel);
-            return Flux.just(consumerDmaapModel);
-        }
-        logger.trace("Exiting execute with empty");
-        return Flux.empty();
+    /**
+     * Makes one attempt to collect the file to the given stream when the returned mono is subscribed to. The stream
+     * is not closed. A failed download is signalled as a {@link DatafileTaskException}, and a file at a location
+     * that can not be collected from as a {@link UnsupportedProtocolException}, which is not to be retried.
+     */
+    @Override
+    public Mono<Void> execute(FileData fileData, OutputStream outputStream) {
+        logger.trace("Entering execute to stream with {}", fileData);
+        return Mono.defer(() -> {
+            CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+            return download(fileData,
+                    (client, fileServerData, remoteFile) -> client.collectFile(fileServerData, remoteFile,
+                            countingStream),
+                    countingStream::getByteCount);
+        }).switchIfEmpty(Mono.error(new UnsupportedProtocolException("Unable to collect file " + fileData.location())))
+                .then();
     }
 
     @Override
@@ -83,38 +110,76 @@ public class XnfCollectorTaskImpl implements XnfCollectorTask {
         return datafileAppConfig.getFtpesConfiguration();
     }
 
+    /**
+     * Gives the key stores of the FTPES configuration to the FTPS client. The client is shared by all downloads, so
+     * it is only updated when the configuration has changed since it was last given.
+     */
     private void resolveKeyStore() {
         FtpesConfig ftpesConfig = resolveConfiguration();
+        if (ftpesConfig.equals(appliedFtpesConfig)) {
+            return;
+        }
+        synchronized (ftpsClient) {
+            if (!ftpesConfig.equals(appliedFtpesConfig)) {
+                applyKeyStore(ftpesConfig);
+                appliedFtpesConfig = ftpesConfig;
+            }
+        }
+    }
+
+    private void applyKeyStore(FtpesConfig ftpesConfig) {
         ftpsClient.setKeyCertPath(ftpesConfig.keyCert());
         ftpsClient.setKeyCertPassword(ftpesConfig.keyPassword());
         ftpsClient.setTrustedCAPath(ftpesConfig.trustedCA());
         ftpsClient.setTrustedCAPassword(ftpesConfig.trustedCAPassword());
     }
 
-    private String collectFile(FileData fileData) {
+    private Flux<ConsumerDmaapModel> collectFile(FileData fileData) {
         logger.trace("starting to collectFile");
+        String localFile = getLocalFile(fileData);
+        return download(fileData,
+                (client, fileServerData, remoteFile) -> client.collectFile(fileServerData, remoteFile, localFile),
+                () -> new File(localFile).length())
+                .map(result -> getConsumerDmaapModel(fileData))
+                .doOnNext(consumerDmaapModel -> logger.trace("Exiting execute with {}", consumerDmaapModel))
+                .flux();
+    }
+
+    /**
+     * Makes one download attempt, which is timed per protocol and xNF.
+     */
+    private Mono<FileCollectResult> download(FileData fileData, Download download, LongSupplier downloadedBytes) {
         String location = fileData.location();
         URI uri = URI.create(location);
+        FileCollectClient currentClient = selectClient(fileData, uri);
+        if (currentClient == null) {
+            logger.trace("Exiting execute with empty");
+            return Mono.empty();
+        }
+
+        if (currentClient == ftpsClient) {
+            resolveKeyStore();
+        }
         FileServerData fileServerData = getFileServerData(uri);
         String remoteFile = uri.getPath();
-        String localFile = "target" + File.separator + fileData.name();
 
-        FileCollectClient currentClient = selectClient(fileData, uri);
-
-        if (currentClient != null) {
-            FileCollectResult fileCollectResult = currentClient.collectFile(fileServerData, remoteFile, localFile);
-            if (!fileCollectResult.downloadSuccessful()) {
-                fileCollectResult = retry(fileCollectResult, currentClient);
-            }
-            if (!fileCollectResult.downloadSuccessful()) {
-                localFile = null;
-                logger.error("Download of file aborted after maximum number of retries. Data: {} Error causes {}",
-                        fileServerData, fileCollectResult.getErrorData());
-            }
-        } else {
-            localFile = null;
+        long startNanos = System.nanoTime();
+        FileCollectResult fileCollectResult = download.collectFile(currentClient, fileServerData, remoteFile);
+        metrics.recordDownload(uri.getScheme(), fileServerData.serverAddress(), fileCollectResult,
+                System.nanoTime() - startNanos, downloadedBytes);
+        if (!fileCollectResult.downloadSuccessful()) {
+            logger.warn("Download of file failed. Data: {} Error causes {}", fileServerData,
+                    fileCollectResult.getErrorData());
+            String message = "Unable to collect file " + remoteFile + " from " + fileServerData.serverAddress() + ". "
+                    + fileCollectResult.getErrorData();
+            return Mono.error(fileCollectResult.isConnectionFailure() ? new XnfUnreachableException(message)
+                    : new DatafileTaskException(message));
         }
-        return localFile;
+        return Mono.just(fileCollectResult);
+    }
+
+    private static String getLocalFile(FileData fileData) {
+        return "target" + File.separator + fileData.name();
     }
 
     private FileServerData getFileServerData(URI uri) {
@@ -151,17 +216,12 @@ public class XnfCollectorTaskImpl implements XnfCollectorTask {
         return selectedClient;
     }
 
-    private FileCollectResult retry(FileCollectResult fileCollectResult, FileCollectClient fileCollectClient) {
-        int retryCount = 1;
-        FileCollectResult newResult = fileCollectResult;
-        while (!newResult.downloadSuccessful() && retryCount++ < 3) {
-            getRetryTimer().waitRetryTime();
-            newResult = fileCollectClient.retryCollectFile();
-        }
-        return newResult;
-    }
-
-    private ConsumerDmaapModel getConsumerDmaapModel(FileData fileData, String localFile) {
+    /**
+     * The description of the file to publish to DataRouter. The internal location is where the file is stored when
+     * it is collected to disk.
+     */
+    @Override
+    public ConsumerDmaapModel getConsumerDmaapModel(FileData fileData) {
         String productName = fileData.productName();
         String vendorName = fileData.vendorName();
         String lastEpochMicrosec = fileData.lastEpochMicrosec();
@@ -170,7 +230,7 @@ public class XnfCollectorTaskImpl implements XnfCollectorTask {
         String timeZoneOffset = fileData.timeZoneOffset();
         String name = fileData.name();
         String location = fileData.location();
-        String internalLocation = localFile;
+        String internalLocation = getLocalFile(fileData);
         String compression = fileData.compression();
         String fileFormatType = fileData.fileFormatType();
         String fileFormatVersion = fileData.fileFormatVersion();
@@ -192,15 +252,4 @@ public class XnfCollectorTaskImpl implements XnfCollectorTask {
                 .build();
         // @formatter:on
     }
-
-    private RetryTimer getRetryTimer() {
-        if (retryTimer == null) {
-            retryTimer = new RetryTimer();
-        }
-        return retryTimer;
-    }
-
-    protected void setRetryTimer(RetryTimer retryTimer) {
-        this.retryTimer = retryTimer;
-    }
 }
@@ -16,21 +16,29 @@
 
 package org.onap.dcaegen2.collectors.datafile.service;
 
-import static org.mockito.Mockito.spy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 
-import java.util.Optional;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
-import org.mockito.Mockito;
+import org.onap.dcaegen2.collectors.datafile.exceptions.DmaapEmptyResponseException;
 import org.onap.dcaegen2.collectors.datafile.exceptions.DmaapNotFoundException;
 import org.onap.dcaegen2.collectors.datafile.model.FileData;
+import org.onap.dcaegen2.collectors.datafile.model.ImmutableEventHeader;
 import org.onap.dcaegen2.collectors.datafile.model.ImmutableFileData;
 import org.onap.dcaegen2.collectors.datafile.utils.JsonMessage;
 import org.onap.dcaegen2.collectors.datafile.utils.JsonMessage.AdditionalField;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
@@ -74,14 +82,16 @@ class DmaapConsumerJsonParserTest {
                 .build();
 
         FileData expectedFileData = ImmutableFileData.builder()
-                .productName(PRODUCT_NAME)
-                .vendorName(VENDOR_NAME)
-                .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
-                .sourceName(SOURCE_NAME)
-                .startEpochMicrosec(START_EPOCH_MICROSEC)
-                .timeZoneOffset(TIME_ZONE_OFFSET)
-                .changeIdentifier(CHANGE_IDENTIFIER)
-                .changeType(CHANGE_TYPE)
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName(PRODUCT_NAME)
+                    .vendorName(VENDOR_NAME)
+                    .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
+                    .sourceName(SOURCE_NAME)
+                    .startEpochMicrosec(START_EPOCH_MICROSEC)
+                    .timeZoneOffset(TIME_ZONE_OFFSET)
+                    .changeIdentifier(CHANGE_IDENTIFIER)
+                    .changeType(CHANGE_TYPE)
+                    .build())
                 .name(PM_FILE_NAME)
                 .location(LOCATION)
                 .compression(GZIP_COMPRESSION)
@@ -90,11 +100,7 @@ class DmaapConsumerJsonParserTest {
                 .build();
         // @formatter:on
         String messageString = message.toString();
-        String parsedString = message.getParsed();
-        DmaapConsumerJsonParser dmaapConsumerJsonParser = spy(new DmaapConsumerJsonParser());
-        JsonElement jsonElement = new JsonParser().parse(parsedString);
-        Mockito.doReturn(Optional.of(jsonElement.getAsJsonObject())).when(dmaapConsumerJsonParser)
-                .getJsonObjectFromAnArray(jsonElement);
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
 
         StepVerifier.create(dmaapConsumerJsonParser.getJsonObject(Mono.just(messageString))).expectSubscription()
                 .expectNext(expectedFileData).verifyComplete();
@@ -117,11 +123,7 @@ class DmaapConsumerJsonParserTest {
                 .build();
         // @formatter:on
         String messageString = message.toString();
-        String parsedString = message.getParsed();
-        DmaapConsumerJsonParser dmaapConsumerJsonParser = spy(new DmaapConsumerJsonParser());
-        JsonElement jsonElement = new JsonParser().parse(parsedString);
-        Mockito.doReturn(Optional.of(jsonElement.getAsJsonObject())).when(dmaapConsumerJsonParser)
-                .getJsonObjectFromAnArray(jsonElement);
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
 
         StepVerifier.create(dmaapConsumerJsonParser.getJsonObject(Mono.just(messageString))).expectSubscription()
                 .expectNextCount(0).verifyComplete();
@@ -144,11 +146,7 @@ class DmaapConsumerJsonParserTest {
                 .build();
         // @formatter:on
         String messageString = message.toString();
-        String parsedString = message.getParsed();
-        DmaapConsumerJsonParser dmaapConsumerJsonParser = spy(new DmaapConsumerJsonParser());
-        JsonElement jsonElement = new JsonParser().parse(parsedString);
-        Mockito.doReturn(Optional.of(jsonElement.getAsJsonObject())).when(dmaapConsumerJsonParser)
-                .getJsonObjectFromAnArray(jsonElement);
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
 
         StepVerifier.create(dmaapConsumerJsonParser.getJsonObject(Mono.just(messageString))).expectSubscription()
                 .expectNextCount(0).verifyComplete();
@@ -171,11 +169,7 @@ class DmaapConsumerJsonParserTest {
                 .build();
         // @formatter:on
         String messageString = message.toString();
-        String parsedString = message.getParsed();
-        DmaapConsumerJsonParser dmaapConsumerJsonParser = spy(new DmaapConsumerJsonParser());
-        JsonElement jsonElement = new JsonParser().parse(parsedString);
-        Mockito.doReturn(Optional.of(jsonElement.getAsJsonObject())).when(dmaapConsumerJsonParser)
-                .getJsonObjectFromAnArray(jsonElement);
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
 
         StepVerifier.create(dmaapConsumerJsonParser.getJsonObject(Mono.just(messageString))).expectSubscription()
                 .expectNextCount(0).verifyComplete();
@@ -198,11 +192,7 @@ class DmaapConsumerJsonParserTest {
                 .build();
         // @formatter:on
         String messageString = message.toString();
-        String parsedString = message.getParsed();
-        DmaapConsumerJsonParser dmaapConsumerJsonParser = spy(new DmaapConsumerJsonParser());
-        JsonElement jsonElement = new JsonParser().parse(parsedString);
-        Mockito.doReturn(Optional.of(jsonElement.getAsJsonObject())).when(dmaapConsumerJsonParser)
-                .getJsonObjectFromAnArray(jsonElement);
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
 
         StepVerifier.create(dmaapConsumerJsonParser.getJsonObject(Mono.just(messageString))).expectSubscription()
                 .expectNextCount(0).verifyComplete();
@@ -233,14 +223,16 @@ class DmaapConsumerJsonParserTest {
                 .build();
 
         FileData expectedFileData = ImmutableFileData.builder()
-                .productName(PRODUCT_NAME)
-                .vendorName(VENDOR_NAME)
-                .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
-                .sourceName(SOURCE_NAME)
-                .startEpochMicrosec(START_EPOCH_MICROSEC)
-                .timeZoneOffset(TIME_ZONE_OFFSET)
-                .changeIdentifier(CHANGE_IDENTIFIER)
-                .changeType(CHANGE_TYPE)
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName(PRODUCT_NAME)
+                    .vendorName(VENDOR_NAME)
+                    .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
+                    .sourceName(SOURCE_NAME)
+                    .startEpochMicrosec(START_EPOCH_MICROSEC)
+                    .timeZoneOffset(TIME_ZONE_OFFSET)
+                    .changeIdentifier(CHANGE_IDENTIFIER)
+                    .changeType(CHANGE_TYPE)
+                    .build())
                 .name(PM_FILE_NAME)
                 .location(LOCATION)
                 .compression(GZIP_COMPRESSION)
@@ -249,11 +241,7 @@ class DmaapConsumerJsonParserTest {
                 .build();
         // @formatter:on
         String messageString = message.toString();
-        String parsedString = message.getParsed();
-        DmaapConsumerJsonParser dmaapConsumerJsonParser = spy(new DmaapConsumerJsonParser());
-        JsonElement jsonElement = new JsonParser().parse(parsedString);
-        Mockito.doReturn(Optional.of(jsonElement.getAsJsonObject())).when(dmaapConsumerJsonParser)
-                .getJsonObjectFromAnArray(jsonElement);
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
 
         StepVerifier.create(dmaapConsumerJsonParser.getJsonObject(Mono.just(messageString))).expectSubscription()
                 .expectNext(expectedFileData).verifyComplete();
@@ -269,11 +257,7 @@ class DmaapConsumerJsonParserTest {
                 .build();
         // @formatter:on
         String incorrectMessageString = message.toString();
-        String parsedString = message.getParsed();
-        DmaapConsumerJsonParser dmaapConsumerJsonParser = spy(new DmaapConsumerJsonParser());
-        JsonElement jsonElement = new JsonParser().parse(parsedString);
-        Mockito.doReturn(Optional.of(jsonElement.getAsJsonObject())).when(dmaapConsumerJsonParser)
-                .getJsonObjectFromAnArray(jsonElement);
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
 
         StepVerifier.create(dmaapConsumerJsonParser.getJsonObject(Mono.just(incorrectMessageString)))
                 .expectSubscription().expectError(DmaapNotFoundException.class).verify();
@@ -284,12 +268,7 @@ class DmaapConsumerJsonParserTest {
         JsonMessage message = new JsonMessage.JsonMessageBuilder().build();
 
         String incorrectMessageString = message.toString();
-        String parsedString = message.getParsed();
-        DmaapConsumerJsonParser dmaapConsumerJsonParser = spy(new DmaapConsumerJsonParser());
-        JsonElement jsonElement = new JsonParser().parse(parsedString);
-
-        Mockito.doReturn(Optional.of(jsonElement.getAsJsonObject())).when(dmaapConsumerJsonParser)
-                .getJsonObjectFromAnArray(jsonElement);
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
 
         StepVerifier.create(dmaapConsumerJsonParser.getJsonObject(Mono.just(incorrectMessageString)))
                 .expectSubscription().expectError(DmaapNotFoundException.class).verify();
@@ -312,11 +291,7 @@ class DmaapConsumerJsonParserTest {
                 .build();
         // @formatter:on
         String messageString = message.toString();
-        String parsedString = message.getParsed();
-        DmaapConsumerJsonParser dmaapConsumerJsonParser = spy(new DmaapConsumerJsonParser());
-        JsonElement jsonElement = new JsonParser().parse(parsedString);
-        Mockito.doReturn(Optional.of(jsonElement.getAsJsonObject())).when(dmaapConsumerJsonParser)
-                .getJsonObjectFromAnArray(jsonElement);
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
 
         StepVerifier.create(dmaapConsumerJsonParser.getJsonObject(Mono.just(messageString))).expectSubscription()
                 .expectNextCount(0).expectError(DmaapNotFoundException.class).verify();
@@ -339,13 +314,244 @@ class DmaapConsumerJsonParserTest {
                 .build();
         // @formatter:on
         String messageString = message.toString();
-        String parsedString = message.getParsed();
-        DmaapConsumerJsonParser dmaapConsumerJsonParser = spy(new DmaapConsumerJsonParser());
-        JsonElement jsonElement = new JsonParser().parse(parsedString);
-        Mockito.doReturn(Optional.of(jsonElement.getAsJsonObject())).when(dmaapConsumerJsonParser)
-                .getJsonObjectFromAnArray(jsonElement);
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
 
         StepVerifier.create(dmaapConsumerJsonParser.getJsonObject(Mono.just(messageString))).expectSubscription()
                 .expectNextCount(0).expectError(DmaapNotFoundException.class).verify();
     }
+
+    @Test
+    void whenPassingEventsAsStrings_fileDataOfAllEvents() {
+        // @formatter:off
+        JsonMessage firstMessage = new JsonMessage.JsonMessageBuilder()
+                .changeIdentifier(CHANGE_IDENTIFIER)
+                .changeType(CHANGE_TYPE)
+                .notificationFieldsVersion(NOTIFICATION_FIELDS_VERSION)
+                .addAdditionalField(new JsonMessage.AdditionalFieldBuilder()
+                        .name(PM_FILE_NAME)
+                        .location(LOCATION)
+                        .compression(GZIP_COMPRESSION)
+                        .fileFormatType(FILE_FORMAT_TYPE)
+                        .fileFormatVersion(FILE_FORMAT_VERSION)
+                        .build())
+                .build();
+        JsonMessage secondMessage = new JsonMessage.JsonMessageBuilder()
+                .changeIdentifier(CHANGE_IDENTIFIER)
+                .changeType(CHANGE_TYPE)
+                .notificationFieldsVersion(NOTIFICATION_FIELDS_VERSION)
+                .addAdditionalField(new JsonMessage.AdditionalFieldBuilder()
+                        .name("B" + PM_FILE_NAME)
+                        .location(LOCATION)
+                        .compression(GZIP_COMPRESSION)
+                        .fileFormatType(FILE_FORMAT_TYPE)
+                        .fileFormatVersion(FILE_FORMAT_VERSION)
+                        .build())
+                .build();
+        // @formatter:on
+        String messageString = "[" + new JsonPrimitive(firstMessage.getParsed()) + ","
+                + new JsonPrimitive(secondMessage.getParsed()) + "]";
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
+
+        StepVerifier.create(dmaapConsumerJsonParser.getJsonObject(Mono.just(messageString))).expectSubscription()
+                .expectNextMatches(fileData -> PM_FILE_NAME.equals(fileData.name()))
+                .expectNextMatches(fileData -> ("B" + PM_FILE_NAME).equals(fileData.name())).verifyComplete();
+    }
+
+    @Test
+    void whenPassingMalformedJson_error() {
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
+
+        StepVerifier.create(dmaapConsumerJsonParser.getJsonObject(Mono.just("[{\"event\": "))).expectSubscription()
+                .expectError().verify();
+    }
+
+    @Test
+    void whenPassingManyEvents_fileDataOfAllEventsInOrder() {
+        StringBuilder messageString = new StringBuilder("[");
+        List<String> expectedNames = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            // @formatter:off
+            JsonMessage message = new JsonMessage.JsonMessageBuilder()
+                    .changeIdentifier(CHANGE_IDENTIFIER)
+                    .changeType(CHANGE_TYPE)
+                    .notificationFieldsVersion(NOTIFICATION_FIELDS_VERSION)
+                    .addAdditionalField(new JsonMessage.AdditionalFieldBuilder()
+                            .name(i + PM_FILE_NAME)
+                            .location(LOCATION)
+                            .compression(GZIP_COMPRESSION)
+                            .fileFormatType(FILE_FORMAT_TYPE)
+                            .fileFormatVersion(FILE_FORMAT_VERSION)
+                            .build())
+                    .build();
+            // @formatter:on
+            messageString.append(i == 0 ? "" : ",").append(new JsonPrimitive(message.getParsed()));
+            expectedNames.add(i + PM_FILE_NAME);
+        }
+        messageString.append("]");
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
+
+        StepVerifier.create(dmaapConsumerJsonParser.getJsonObject(Mono.just(messageString.toString()))
+                .map(FileData::name).collectList()).expectNext(expectedNames).verifyComplete();
+    }
+
+    @Test
+    void whenPassingManyEvents_parsingOfEachEventTimed() {
+        // @formatter:off
+        JsonMessage message = new JsonMessage.JsonMessageBuilder()
+                .changeIdentifier(CHANGE_IDENTIFIER)
+                .changeType(CHANGE_TYPE)
+                .notificationFieldsVersion(NOTIFICATION_FIELDS_VERSION)
+                .addAdditionalField(new JsonMessage.AdditionalFieldBuilder()
+                        .name(PM_FILE_NAME)
+                        .location(LOCATION)
+                        .compression(GZIP_COMPRESSION)
+                        .fileFormatType(FILE_FORMAT_TYPE)
+                        .fileFormatVersion(FILE_FORMAT_VERSION)
+                        .build())
+                .build();
+        // @formatter:on
+        String event = new JsonPrimitive(message.getParsed()).toString();
+        AtomicInteger timedParses = new AtomicInteger();
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser(nanos -> {
+            assertTrue(nanos >= 0);
+            timedParses.incrementAndGet();
+        });
+
+        String messageString = "[" + event + "," + event + "," + event + "]";
+
+        StepVerifier.create(dmaapConsumerJsonParser.getJsonObject(Mono.just(messageString))).expectNextCount(3)
+                .verifyComplete();
+
+        assertEquals(3, timedParses.get());
+    }
+
+    @Test
+    void whenPassingEventsOfDifferentXnfs_eachFileHasTheHeaderOfItsEvent() {
+        // @formatter:off
+        AdditionalField additionalField = new JsonMessage.AdditionalFieldBuilder()
+                .name(PM_FILE_NAME)
+                .location(LOCATION)
+                .compression(GZIP_COMPRESSION)
+                .fileFormatType(FILE_FORMAT_TYPE)
+                .fileFormatVersion(FILE_FORMAT_VERSION)
+                .build();
+        JsonMessage firstMessage = new JsonMessage.JsonMessageBuilder()
+                .eventName("Noti_NrRadio-Ericsson_FileReady")
+                .sourceName("5GRAN_DU")
+                .changeIdentifier(CHANGE_IDENTIFIER)
+                .changeType(CHANGE_TYPE)
+                .notificationFieldsVersion(NOTIFICATION_FIELDS_VERSION)
+                .addAdditionalField(additionalField)
+                .build();
+        JsonMessage secondMessage = new JsonMessage.JsonMessageBuilder()
+                .eventName("Noti_LteRadio-Nokia_FileReady")
+                .sourceName("4GRAN_ENB")
+                .changeIdentifier(CHANGE_IDENTIFIER)
+                .changeType(CHANGE_TYPE)
+                .notificationFieldsVersion(NOTIFICATION_FIELDS_VERSION)
+                .addAdditionalField(additionalField)
+                .build();
+        // @formatter:on
+        String messageString = "[" + new JsonPrimitive(firstMessage.getParsed()) + ","
+                + new JsonPrimitive(secondMessage.getParsed()) + "]";
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
+
+        List<FileData> files = dmaapConsumerJsonParser.getJsonObject(Mono.just(messageString)).collectList().block();
+
+        assertEquals(2, files.size());
+        assertEquals("5GRAN_DU", files.get(0).sourceName());
+        assertEquals("NrRadio", files.get(0).productName());
+        assertEquals("Ericsson", files.get(0).vendorName());
+        assertEquals("4GRAN_ENB", files.get(1).sourceName());
+        assertEquals("LteRadio", files.get(1).productName());
+        assertEquals("Nokia", files.get(1).vendorName());
+        assertEquals(TIME_ZONE_OFFSET, files.get(1).timeZoneOffset());
+        assertEquals(START_EPOCH_MICROSEC, files.get(1).startEpochMicrosec());
+    }
+
+    @Test
+    void whenPassingManyEvents_repeatedValuesShared() {
+        // @formatter:off
+        AdditionalField additionalField = new JsonMessage.AdditionalFieldBuilder()
+                .name(PM_FILE_NAME)
+                .location(LOCATION)
+                .compression(GZIP_COMPRESSION)
+                .fileFormatType(FILE_FORMAT_TYPE)
+                .fileFormatVersion(FILE_FORMAT_VERSION)
+                .build();
+        JsonMessage message = new JsonMessage.JsonMessageBuilder()
+                .changeIdentifier(CHANGE_IDENTIFIER)
+                .changeType(CHANGE_TYPE)
+                .notificationFieldsVersion(NOTIFICATION_FIELDS_VERSION)
+                .addAdditionalField(additionalField)
+                .addAdditionalField(additionalField)
+                .build();
+        // @formatter:on
+        String messageString = "[" + message.getParsed() + "," + message.getParsed() + "]";
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
+
+        List<FileData> files = dmaapConsumerJsonParser.getJsonObject(Mono.just(messageString)).collectList().block();
+
+        assertEquals(4, files.size());
+        assertSame(files.get(0).eventHeader(), files.get(1).eventHeader());
+        assertNotSame(files.get(0).eventHeader(), files.get(2).eventHeader());
+        assertSame(files.get(0).productName(), files.get(2).productName());
+        assertSame(files.get(0).vendorName(), files.get(2).vendorName());
+        assertSame(files.get(0).compression(), files.get(2).compression());
+        assertSame(files.get(0).fileFormatType(), files.get(2).fileFormatType());
+    }
+
+    @Test
+    void whenEventsSplitOverChunksOfTheBody_fileDataOfAllEventsInOrder() {
+        StringBuilder messageString = new StringBuilder("[");
+        List<String> expectedNames = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // @formatter:off
+            JsonMessage message = new JsonMessage.JsonMessageBuilder()
+                    .changeIdentifier(CHANGE_IDENTIFIER)
+                    .changeType(CHANGE_TYPE)
+                    .notificationFieldsVersion(NOTIFICATION_FIELDS_VERSION)
+                    .addAdditionalField(new JsonMessage.AdditionalFieldBuilder()
+                            .name(i + PM_FILE_NAME)
+                            .location(LOCATION)
+                            .compression(GZIP_COMPRESSION)
+                            .fileFormatType(FILE_FORMAT_TYPE)
+                            .fileFormatVersion(FILE_FORMAT_VERSION)
+                            .build())
+                    .build();
+            // @formatter:on
+            messageString.append(i == 0 ? "" : ",").append(new JsonPrimitive(message.getParsed()));
+            expectedNames.add(i + PM_FILE_NAME);
+        }
+        messageString.append("]");
+        byte[] bytes = messageString.toString().getBytes(StandardCharsets.UTF_8);
+        List<byte[]> chunks = new ArrayList<>();
+        for (int start = 0; start < bytes.length; start += 100) {
+            byte[] chunk = new byte[Math.min(100, bytes.length - start)];
+            System.arraycopy(bytes, start, chunk, 0, chunk.length);
+            chunks.add(chunk);
+        }
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
+
+        StepVerifier.create(dmaapConsumerJsonParser.getJsonObjectFromStream(Flux.fromIterable(chunks))
+                .map(FileData::name).collectList()).expectNext(expectedNames).verifyComplete();
+    }
+
+    @Test
+    void whenBodyIsEmpty_emptyResponseError() {
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
+
+        StepVerifier.create(dmaapConsumerJsonParser.getJsonObjectFromStream(Flux.empty())).expectSubscription()
+                .expectError(DmaapEmptyResponseException.class).verify();
+    }
+
+    @Test
+    void whenBodyFails_errorOfTheBody() {
+        DmaapConsumerJsonParser dmaapConsumerJsonParser = new DmaapConsumerJsonParser();
+        Flux<byte[]> body = Flux.concat(Flux.just("[\"{}\",".getBytes(StandardCharsets.UTF_8)),
+                Flux.error(new IOException("Connection reset")));
+
+        StepVerifier.create(dmaapConsumerJsonParser.getJsonObjectFromStream(body)).expectSubscription()
+                .expectError(IOException.class).verify();
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.onap.dcaegen2.collectors.datafile.model.FileData;
+import org.onap.dcaegen2.collectors.datafile.model.ImmutableEventHeader;
+import org.onap.dcaegen2.collectors.datafile.model.ImmutableFileData;
+
+class DuplicateFileCacheTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(10);
+
+    private final AtomicLong now = new AtomicLong(1000);
+
+    @Test
+    void whenSameFileAgainWithinWindow_duplicate() {
+        DuplicateFileCache cacheUnderTest = new DuplicateFileCache(10, WINDOW, now::get);
+
+        assertFalse(cacheUnderTest.isDuplicate(fileData("node1", "A1.xml.gz")));
+        assertFalse(cacheUnderTest.isDuplicate(fileData("node2", "A1.xml.gz")));
+        assertTrue(cacheUnderTest.isDuplicate(fileData("node1", "A1.xml.gz")));
+
+        assertEquals(3, cacheUnderTest.getLookups());
+        assertEquals(1, cacheUnderTest.getDuplicates());
+        assertEquals("3 files checked, 1 duplicates (33.3%)", cacheUnderTest.toString());
+    }
+
+    @Test
+    void whenSameFileAfterWindow_notDuplicate() {
+        DuplicateFileCache cacheUnderTest = new DuplicateFileCache(10, WINDOW, now::get);
+
+        assertFalse(cacheUnderTest.isDuplicate(fileData("node1", "A1.xml.gz")));
+        now.addAndGet(WINDOW.toMillis());
+
+        assertFalse(cacheUnderTest.isDuplicate(fileData("node1", "A1.xml.gz")));
+        assertTrue(cacheUnderTest.isDuplicate(fileData("node1", "A1.xml.gz")));
+    }
+
+    @Test
+    void whenFileForgotten_notDuplicate() {
+        DuplicateFileCache cacheUnderTest = new DuplicateFileCache(10, WINDOW, now::get);
+        cacheUnderTest.isDuplicate(fileData("node1", "A1.xml.gz"));
+
+        cacheUnderTest.forget(fileData("node1", "A1.xml.gz"));
+
+        assertFalse(cacheUnderTest.isDuplicate(fileData("node1", "A1.xml.gz")));
+    }
+
+    @Test
+    void whenFull_expiredFilesRemovedAndRecentKept() {
+        DuplicateFileCache cacheUnderTest = new DuplicateFileCache(100, WINDOW, now::get);
+        for (int i = 0; i < 50; i++) {
+            cacheUnderTest.isDuplicate(fileData("node1", "old" + i));
+        }
+        now.addAndGet(WINDOW.toMillis());
+        for (int i = 0; i < 100; i++) {
+            assertFalse(cacheUnderTest.isDuplicate(fileData("node1", "new" + i)));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(cacheUnderTest.isDuplicate(fileData("node1", "new" + i)));
+        }
+    }
+
+    private static FileData fileData(String sourceName, String name) {
+        // @formatter:off
+        return ImmutableFileData.builder()
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName("NrRadio")
+                    .vendorName("Ericsson")
+                    .lastEpochMicrosec("8745745764578")
+                    .sourceName(sourceName)
+                    .startEpochMicrosec("8745745764578")
+                    .timeZoneOffset("UTC+05:00")
+                    .changeIdentifier("PM_MEAS_FILES")
+                    .changeType("FileReady")
+                    .build())
+                .name(name)
+                .location("ftpes://192.168.0.101:22/ftp/rop/" + name)
+                .compression("gzip")
+                .fileFormatType("org.3GPP.32.435#measCollec")
+                .fileFormatVersion("V10")
+                .build();
+        // @formatter:on
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.onap.dcaegen2.collectors.datafile.model.FileData;
+import org.onap.dcaegen2.collectors.datafile.model.ImmutableEventHeader;
+import org.onap.dcaegen2.collectors.datafile.model.ImmutableFileData;
+
+class FileJournalTest {
+
+    private static final int CAPACITY = 4096;
+    private static final Duration SYNC_INTERVAL = Duration.ofSeconds(1);
+
+    private Path directory;
+    private Path journalPath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal");
+        journalPath = directory.resolve("datafile.journal");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void whenReopened_unfinishedFilesReplayed() throws IOException {
+        FileJournal journal = FileJournal.open(journalPath, CAPACITY, 10, SYNC_INTERVAL);
+        long published = journal.received(fileData("A1.xml.gz")).getId();
+        long collected = journal.received(fileData("A2.xml.gz")).getId();
+        long received = journal.received(fileData("A3.xml.gz")).getId();
+        long abandoned = journal.received(fileData("A4.xml.gz")).getId();
+        journal.collected(published);
+        journal.published(published);
+        journal.collected(collected);
+        journal.abandoned(abandoned);
+        journal.close();
+
+        journal = FileJournal.open(journalPath, CAPACITY, 10, SYNC_INTERVAL);
+        List<FileJournal.Entry> unfinished = journal.getUnfinished();
+
+        assertEquals(2, unfinished.size());
+        assertEquals(collected, unfinished.get(0).getId());
+        assertEquals(FileJournal.State.COLLECTED, unfinished.get(0).getState());
+        assertEquals(fileData("A2.xml.gz"), unfinished.get(0).getFileData());
+        assertEquals(received, unfinished.get(1).getId());
+        assertEquals(FileJournal.State.RECEIVED, unfinished.get(1).getState());
+        assertTrue(journal.received(fileData("A5.xml.gz")).getId() > abandoned);
+        journal.close();
+    }
+
+    @Test
+    void whenManyFilesFinished_journalCompactedAndNotGrown() throws IOException {
+        FileJournal journal = FileJournal.open(journalPath, CAPACITY, 10, SYNC_INTERVAL);
+        long unfinished = journal.received(fileData("B0.xml.gz")).getId();
+        for (int i = 1; i <= 1000; i++) {
+            long id = journal.received(fileData("B" + i + ".xml.gz")).getId();
+            journal.collected(id);
+            journal.published(id);
+        }
+        journal.close();
+
+        assertEquals(CAPACITY, Files.size(journalPath));
+        journal = FileJournal.open(journalPath, CAPACITY, 10, SYNC_INTERVAL);
+        assertEquals(1, journal.getUnfinished().size());
+        assertEquals(unfinished, journal.getUnfinished().get(0).getId());
+        journal.close();
+    }
+
+    @Test
+    void whenPartlyWrittenRecord_recordDiscarded() throws IOException {
+        FileJournal journal = FileJournal.open(journalPath, CAPACITY, 10, SYNC_INTERVAL);
+        journal.received(fileData("C1.xml.gz"));
+        journal.close();
+        byte[] content = Files.readAllBytes(journalPath);
+        int end = 4 + 4 + ByteBuffer.wrap(content).getInt(4) + 4;
+        // a torn record: a length that promises more bytes than were written
+        content[end + 3] = 100;
+        content[end + 4] = 1;
+        Files.write(journalPath, content);
+
+        journal = FileJournal.open(journalPath, CAPACITY, 10, SYNC_INTERVAL);
+
+        assertEquals(1, journal.getUnfinished().size());
+        journal.close();
+    }
+
+    @Test
+    void whenOpened_journalReadableByOwnerOnly() throws IOException {
+        assumeTrue(journalPath.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        FileJournal journal = FileJournal.open(journalPath, CAPACITY, 10, SYNC_INTERVAL);
+        journal.received(fileData("E1.xml.gz"));
+        journal.close();
+        Files.setPosixFilePermissions(journalPath, PosixFilePermissions.fromString("rw-r--r--"));
+
+        journal = FileJournal.open(journalPath, CAPACITY, 10, SYNC_INTERVAL);
+        journal.close();
+
+        assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(journalPath));
+    }
+
+    @Test
+    void whenDisabled_nothingJournaled() {
+        FileJournal journal = FileJournal.disabled();
+        journal.received(fileData("D1.xml.gz"));
+
+        assertTrue(journal.getUnfinished().isEmpty());
+        journal.close();
+    }
+
+    private static FileData fileData(String name) {
+        // @formatter:off
+        return ImmutableFileData.builder()
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName("NrRadio")
+                    .vendorName("Ericsson")
+                    .lastEpochMicrosec("8745745764578")
+                    .sourceName("oteNB5309")
+                    .startEpochMicrosec("8745745764578")
+                    .timeZoneOffset("UTC+05:00")
+                    .changeIdentifier("PM_MEAS_FILES")
+                    .changeType("FileReady")
+                    .build())
+                .name(name)
+                .location("ftpes://192.168.0.101:22/ftp/rop/" + name)
+                .compression("gzip")
+                .fileFormatType("org.3GPP.32.435#measCollec")
+                .fileFormatVersion("V10")
+                .build();
+        // @formatter:on
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FileLeaseMembershipProviderTest {
+
+    private static final Duration LEASE_DURATION = Duration.ofSeconds(30);
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("leases");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void whenInstancesHoldLeases_allAreMembers() {
+        FileLeaseMembershipProvider first = createProvider("dfc-1");
+        FileLeaseMembershipProvider second = createProvider("dfc-2");
+
+        first.refresh();
+        second.refresh();
+        assertEquals(Arrays.asList("dfc-1", "dfc-2"), second.getMembers());
+
+        now.addAndGet(LEASE_DURATION.toMillis() / 3);
+        first.refresh();
+        assertEquals(Arrays.asList("dfc-1", "dfc-2"), first.getMembers());
+    }
+
+    @Test
+    void whenLeaseNotRenewed_instanceNoLongerMember() {
+        FileLeaseMembershipProvider first = createProvider("dfc-1");
+        FileLeaseMembershipProvider second = createProvider("dfc-2");
+        first.refresh();
+        second.refresh();
+
+        now.addAndGet(LEASE_DURATION.toMillis());
+        first.refresh();
+
+        assertEquals(Collections.singletonList("dfc-1"), first.getMembers());
+    }
+
+    @Test
+    void whenInstancesConsumeWithSameConsumerGroup_consumerGroupShared() {
+        FileLeaseMembershipProvider first = createProvider("dfc-1", "dfc");
+        FileLeaseMembershipProvider second = createProvider("dfc-2", "dfc");
+
+        first.refresh();
+        second.refresh();
+
+        assertTrue(second.isConsumerGroupShared());
+    }
+
+    @Test
+    void whenInstancesConsumeWithOwnConsumerGroups_consumerGroupNotShared() {
+        FileLeaseMembershipProvider first = createProvider("dfc-1");
+        FileLeaseMembershipProvider second = createProvider("dfc-2");
+
+        first.refresh();
+        second.refresh();
+
+        assertFalse(second.isConsumerGroupShared());
+    }
+
+    @Test
+    void whenInstanceStops_allInstancesKnowWithinHandoverDelay() {
+        FileLeaseMembershipProvider first = createProvider("dfc-1");
+        FileLeaseMembershipProvider second = createProvider("dfc-2");
+        first.refresh();
+        second.refresh();
+        long stoppedMillis = now.get();
+
+        now.set(stoppedMillis + LEASE_DURATION.toMillis() - 1);
+        first.refresh();
+        assertEquals(Arrays.asList("dfc-1", "dfc-2"), first.getMembers());
+
+        now.set(stoppedMillis + LEASE_DURATION.toMillis());
+        first.refresh();
+        assertEquals(Collections.singletonList("dfc-1"), first.getMembers());
+        assertEquals(first.getHandoverDelay(), LEASE_DURATION.plus(first.getRefreshInterval()));
+    }
+
+    @Test
+    void whenInstanceLeaves_leaseRemoved() {
+        FileLeaseMembershipProvider first = createProvider("dfc-1");
+        first.refresh();
+
+        first.leave();
+
+        assertFalse(Files.exists(directory.resolve("dfc-1")));
+    }
+
+    @Test
+    void whenLeft_leaseNotRenewedAgain() {
+        FileLeaseMembershipProvider first = createProvider("dfc-1");
+        first.refresh();
+
+        first.leave();
+        first.refresh();
+
+        assertFalse(Files.exists(directory.resolve("dfc-1")));
+    }
+
+    @Test
+    void whenJoined_leaseRenewedWithoutMembersBeingAsked() throws InterruptedException {
+        Duration leaseDuration = Duration.ofMillis(300);
+        FileLeaseMembershipProvider first =
+                new FileLeaseMembershipProvider(directory, "dfc-1", leaseDuration, () -> "dfc-1");
+        FileLeaseMembershipProvider second =
+                new FileLeaseMembershipProvider(directory, "dfc-2", leaseDuration, () -> "dfc-2");
+        XnfOwnership ownership = new XnfOwnership("dfc-1", first, 100);
+
+        ownership.join();
+        Thread.sleep(leaseDuration.toMillis() * 3);
+        second.refresh();
+
+        assertEquals(Arrays.asList("dfc-1", "dfc-2"), second.getMembers());
+        ownership.leave();
+        assertFalse(Files.exists(directory.resolve("dfc-1")));
+    }
+
+    private FileLeaseMembershipProvider createProvider(String instanceId) {
+        return createProvider(instanceId, instanceId);
+    }
+
+    private FileLeaseMembershipProvider createProvider(String instanceId, String consumerGroup) {
+        return new FileLeaseMembershipProvider(directory, instanceId, LEASE_DURATION, () -> consumerGroup, now::get);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class XnfOwnershipTest {
+
+    private static final int XNFS = 3000;
+    private static final List<String> MEMBERS = Arrays.asList("dfc-1", "dfc-2", "dfc-3");
+    private static final Duration HANDOVER_DELAY = Duration.ofSeconds(40);
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void whenSameMembers_allInstancesAgreeOnOwners() {
+        XnfOwnership first = new XnfOwnership("dfc-1", () -> MEMBERS, 100);
+        XnfOwnership second = new XnfOwnership("dfc-2", () -> Arrays.asList("dfc-3", "dfc-2", "dfc-1"), 100);
+
+        for (int i = 0; i < XNFS; i++) {
+            String xnf = "PNF" + i;
+            assertEquals(first.getOwner(xnf), second.getOwner(xnf));
+            assertEquals(first.getOwner(xnf).equals("dfc-1"), first.isOwned(xnf));
+            assertEquals(second.getOwner(xnf).equals("dfc-2"), second.isOwned(xnf));
+        }
+    }
+
+    @Test
+    void xnfsSharedEvenly() {
+        XnfOwnership ownership = new XnfOwnership("dfc-1", () -> MEMBERS, 100);
+
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < XNFS; i++) {
+            owned.merge(ownership.getOwner("PNF" + i), 1, Integer::sum);
+        }
+
+        for (String member : MEMBERS) {
+            int share = owned.get(member);
+            assertTrue(share > XNFS / 3 * 0.8 && share < XNFS / 3 * 1.2, member + " owns " + share);
+        }
+    }
+
+    @Test
+    void whenMemberLeaves_onlyItsXnfsMoved() {
+        List<String> members = new ArrayList<>(MEMBERS);
+        XnfOwnership ownership = new XnfOwnership("dfc-1", () -> members, 100);
+        Map<String, String> ownersBefore = new HashMap<>();
+        for (int i = 0; i < XNFS; i++) {
+            ownersBefore.put("PNF" + i, ownership.getOwner("PNF" + i));
+        }
+
+        members.remove("dfc-3");
+
+        for (Map.Entry<String, String> before : ownersBefore.entrySet()) {
+            String ownerAfter = ownership.getOwner(before.getKey());
+            if (!before.getValue().equals("dfc-3")) {
+                assertEquals(before.getValue(), ownerAfter);
+            } else {
+                assertTrue(!ownerAfter.equals("dfc-3"));
+            }
+        }
+    }
+
+    @Test
+    void whenMemberJoins_itsXnfsKeptByOthersUntilHandoverDelayPassed() {
+        Members members = new Members("dfc-1", "dfc-2");
+        XnfOwnership ownership = new XnfOwnership("dfc-1", members, 100, now::get);
+        XnfOwnership joining = new XnfOwnership("dfc-3", new Members("dfc-1", "dfc-2", "dfc-3"), 100, now::get);
+        List<String> xnfsOfJoining = new ArrayList<>();
+        for (int i = 0; i < XNFS; i++) {
+            if (joining.isOwned("PNF" + i)) {
+                xnfsOfJoining.add("PNF" + i);
+            }
+        }
+        Map<String, String> ownersBefore = new HashMap<>();
+        for (String xnf : xnfsOfJoining) {
+            ownersBefore.put(xnf, ownership.getOwner(xnf));
+        }
+
+        members.set("dfc-1", "dfc-2", "dfc-3");
+
+        for (String xnf : xnfsOfJoining) {
+            assertEquals(ownersBefore.get(xnf), ownership.getOwner(xnf));
+        }
+
+        now.addAndGet(HANDOVER_DELAY.toMillis() - 1);
+
+        for (String xnf : xnfsOfJoining) {
+            assertEquals(ownersBefore.get(xnf), ownership.getOwner(xnf));
+        }
+
+        now.incrementAndGet();
+
+        for (String xnf : xnfsOfJoining) {
+            assertEquals("dfc-3", ownership.getOwner(xnf));
+        }
+    }
+
+    @Test
+    void whenMemberStops_othersTakeOverItsXnfs() {
+        Members members = new Members(MEMBERS.toArray(new String[0]));
+        XnfOwnership first = new XnfOwnership("dfc-1", members, 100, now::get);
+        XnfOwnership second = new XnfOwnership("dfc-2", members, 100, now::get);
+        List<String> xnfsOfStopped = new ArrayList<>();
+        for (int i = 0; i < XNFS; i++) {
+            if (first.getOwner("PNF" + i).equals("dfc-3")) {
+                xnfsOfStopped.add("PNF" + i);
+            }
+        }
+
+        members.set("dfc-1", "dfc-2");
+
+        for (String xnf : xnfsOfStopped) {
+            assertTrue(first.isOwned(xnf) != second.isOwned(xnf), xnf + " owned by one of the others");
+        }
+    }
+
+    @Test
+    void whenConsumerGroupShared_allXnfsOwned() {
+        Members members = new Members(MEMBERS.toArray(new String[0]));
+        members.consumerGroupShared = true;
+        XnfOwnership ownership = new XnfOwnership("dfc-1", members, 100, now::get);
+
+        for (int i = 0; i < XNFS; i++) {
+            assertTrue(ownership.isOwned("PNF" + i));
+        }
+        assertTrue(ownership.isSuspended());
+        assertTrue(ownership.toString().contains("sharing suspended"));
+
+        members.consumerGroupShared = false;
+
+        assertFalse(ownership.isSuspended());
+        assertEquals(ownership.getOwner("PNF1").equals("dfc-1"), ownership.isOwned("PNF1"));
+    }
+
+    @Test
+    void whenStaticMemberStops_itsXnfsStillItsOwn() {
+        XnfOwnership ownership = new XnfOwnership("dfc-1", new StaticMembershipProvider(MEMBERS), 100, now::get);
+        ownership.join();
+
+        now.addAndGet(HANDOVER_DELAY.toMillis());
+
+        int ownedByStopped = 0;
+        for (int i = 0; i < XNFS; i++) {
+            ownedByStopped += ownership.getOwner("PNF" + i).equals("dfc-3") ? 1 : 0;
+        }
+        assertTrue(ownedByStopped > 0);
+        assertEquals(Duration.ZERO, ownership.getHandoverDelay());
+        assertFalse(ownership.isSuspended());
+    }
+
+    @Test
+    void whenNotAmongMembers_instanceStillOwnsXnfs() {
+        XnfOwnership ownership = new XnfOwnership("dfc-4", () -> MEMBERS, 100);
+
+        int owned = 0;
+        for (int i = 0; i < XNFS; i++) {
+            owned += ownership.isOwned("PNF" + i) ? 1 : 0;
+        }
+
+        assertTrue(owned > 0);
+    }
+
+    @Test
+    void whenOwnsAll_allXnfsOwned() {
+        XnfOwnership ownership = XnfOwnership.ownsAll();
+
+        assertTrue(ownership.isOwned("PNF1"));
+        assertEquals("single instance", ownership.toString());
+    }
+
+    private static class Members implements MembershipProvider {
+        private List<String> members;
+        private boolean consumerGroupShared = false;
+
+        Members(String... members) {
+            set(members);
+        }
+
+        void set(String... members) {
+            this.members = Arrays.asList(members);
+        }
+
+        @Override
+        public List<String> getMembers() {
+            return members;
+        }
+
+        @Override
+        public Duration getHandoverDelay() {
+            return HANDOVER_DELAY;
+        }
+
+        @Override
+        public boolean isConsumerGroupShared() {
+            return consumerGroupShared;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.onap.dcaegen2.collectors.datafile.ftp.ErrorData;
+import org.onap.dcaegen2.collectors.datafile.ftp.FileCollectResult;
+import org.onap.dcaegen2.collectors.datafile.service.MembershipProvider;
+import org.onap.dcaegen2.collectors.datafile.service.XnfOwnership;
+import org.onap.dcaegen2.collectors.datafile.service.producer.DataRouterStatusException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class DatafileMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DatafileMetrics metricsUnderTest = new DatafileMetrics(registry);
+
+    @Test
+    public void whenPollParsed_pollAndFilesRecorded() {
+        Flux<String> files = metricsUnderTest.timePoll(Flux.just("A,B", ",C"),
+                response -> response.flatMap(chunk -> Flux.fromArray(chunk.split(","))).filter(s -> !s.isEmpty()));
+
+        StepVerifier.create(files).expectNext("A", "B", "C").verifyComplete();
+
+        assertEquals(1, registry.get("dfc.consumer.poll").tag("result", "success").timer().count());
+        assertEquals(3.0, registry.get("dfc.consumer.batch.files").summary().totalAmount());
+    }
+
+    @Test
+    public void whenEventsParsed_parseOfEachEventRecorded() {
+        metricsUnderTest.recordEventParse(1_000_000);
+        metricsUnderTest.recordEventParse(3_000_000);
+
+        assertEquals(2, registry.get("dfc.consumer.parse").timer().count());
+        assertEquals(4.0, registry.get("dfc.consumer.parse").timer().totalTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void whenPollFails_failureRecordedAndNothingParsed() {
+        Flux<String> files = metricsUnderTest.timePoll(Flux.error(new IOException("MR down")),
+                response -> response.flatMap(Flux::just));
+
+        StepVerifier.create(files).expectError(IOException.class).verify();
+
+        assertEquals(1, registry.get("dfc.consumer.poll").tag("result", "failure").timer().count());
+        assertEquals(0, registry.get("dfc.consumer.parse").timer().count());
+        assertEquals(0, registry.get("dfc.consumer.batch.files").summary().count());
+    }
+
+    @Test
+    public void whenPublished_statusCodeTagged() {
+        StepVerifier.create(metricsUnderTest.timePublish(Mono.just("200"))).expectNext("200").verifyComplete();
+        StepVerifier.create(metricsUnderTest.timePublish(Mono.error(new DataRouterStatusException(503))))
+                .expectError(DataRouterStatusException.class).verify();
+        StepVerifier.create(metricsUnderTest.timePublish(Mono.error(new IOException("Connection refused"))))
+                .expectError(IOException.class).verify();
+
+        assertEquals(1, registry.get("dfc.publisher.publish").tag("status", "200").timer().count());
+        assertEquals(1, registry.get("dfc.publisher.publish").tag("status", "503").timer().count());
+        assertEquals(1, registry.get("dfc.publisher.publish").tag("status", "none").timer().count());
+    }
+
+    @Test
+    public void whenDownloaded_resultAndBytesRecordedPerHost() {
+        metricsUnderTest.recordDownload("sftp", "node1", new FileCollectResult(), 1000, () -> 42);
+        metricsUnderTest.recordDownload("sftp", "node1", new FileCollectResult(new ErrorData(), true), 1000, () -> {
+            throw new AssertionError("Size asked for a failed download");
+        });
+        metricsUnderTest.recordDownload("ftpes", "node2", new FileCollectResult(new ErrorData()), 1000, () -> 0);
+
+        assertEquals(1, registry.get("dfc.collector.download").tags("host", "node1", "result", "success").timer()
+                .count());
+        assertEquals(1, registry.get("dfc.collector.download").tags("host", "node1", "result", "unreachable").timer()
+                .count());
+        assertEquals(1, registry.get("dfc.collector.download").tags("protocol", "ftpes", "result", "failure").timer()
+                .count());
+        assertEquals(42.0, registry.get("dfc.collector.download.bytes").tag("host", "node1").summary().totalAmount());
+        assertNull(registry.find("dfc.collector.download.bytes").tag("host", "node2").summary());
+    }
+
+    @Test
+    public void whenConsumerGroupShared_sharingSuspendedShown() {
+        AtomicBoolean consumerGroupShared = new AtomicBoolean(false);
+        metricsUnderTest.registerXnfOwnership(new XnfOwnership("dfc-1", new MembershipProvider() {
+            @Override
+            public List<String> getMembers() {
+                return Arrays.asList("dfc-1", "dfc-2");
+            }
+
+            @Override
+            public boolean isConsumerGroupShared() {
+                return consumerGroupShared.get();
+            }
+        }, 100));
+
+        assertEquals(0.0, registry.get("dfc.cluster.sharing.suspended").gauge().value());
+        consumerGroupShared.set(true);
+        assertEquals(1.0, registry.get("dfc.cluster.sharing.suspended").gauge().value());
+    }
+}
@@ -16,6 +16,9 @@
 
 package org.onap.dcaegen2.collectors.datafile.tasks;
 
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -24,6 +27,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,6 +41,7 @@ import org.onap.dcaegen2.collectors.datafile.exceptions.DmaapEmptyResponseExcept
 import org.onap.dcaegen2.collectors.datafile.model.ConsumerDmaapModel;
 import org.onap.dcaegen2.collectors.datafile.model.FileData;
 import org.onap.dcaegen2.collectors.datafile.model.ImmutableConsumerDmaapModel;
+import org.onap.dcaegen2.collectors.datafile.model.ImmutableEventHeader;
 import org.onap.dcaegen2.collectors.datafile.model.ImmutableFileData;
 import org.onap.dcaegen2.collectors.datafile.service.DmaapConsumerJsonParser;
 import org.onap.dcaegen2.collectors.datafile.service.consumer.DmaapConsumerReactiveHttpClient;
@@ -44,7 +49,6 @@ import org.onap.dcaegen2.collectors.datafile.utils.JsonMessage;
 import org.onap.dcaegen2.collectors.datafile.utils.JsonMessage.AdditionalField;
 
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 /**
@@ -120,14 +124,16 @@ class DmaapConsumerTaskImplTest {
 
         ftpesMessage = ftpesJsonMessage.toString();
         ftpesFileData = ImmutableFileData.builder()
-                .productName(PRODUCT_NAME)
-                .vendorName(VENDOR_NAME)
-                .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
-                .sourceName(SOURCE_NAME)
-                .startEpochMicrosec(START_EPOCH_MICROSEC)
-                .timeZoneOffset(TIME_ZONE_OFFSET)
-                .changeIdentifier(PM_MEAS_CHANGE_IDENTIFIER)
-                .changeType(FILE_READY_CHANGE_TYPE)
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName(PRODUCT_NAME)
+                    .vendorName(VENDOR_NAME)
+                    .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
+                    .sourceName(SOURCE_NAME)
+                    .startEpochMicrosec(START_EPOCH_MICROSEC)
+                    .timeZoneOffset(TIME_ZONE_OFFSET)
+                    .changeIdentifier(PM_MEAS_CHANGE_IDENTIFIER)
+                    .changeType(FILE_READY_CHANGE_TYPE)
+                    .build())
                 .name(PM_FILE_NAME)
                 .location(FTPES_LOCATION)
                 .compression(GZIP_COMPRESSION)
@@ -149,14 +155,16 @@ class DmaapConsumerTaskImplTest {
                 .build();
         sftpMessage = sftpJsonMessage.toString();
         sftpFileData = ImmutableFileData.builder()
-                .productName(PRODUCT_NAME)
-                .vendorName(VENDOR_NAME)
-                .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
-                .sourceName(SOURCE_NAME)
-                .startEpochMicrosec(START_EPOCH_MICROSEC)
-                .timeZoneOffset(TIME_ZONE_OFFSET)
-                .changeIdentifier(PM_MEAS_CHANGE_IDENTIFIER)
-                .changeType(FILE_READY_CHANGE_TYPE)
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName(PRODUCT_NAME)
+                    .vendorName(VENDOR_NAME)
+                    .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
+                    .sourceName(SOURCE_NAME)
+                    .startEpochMicrosec(START_EPOCH_MICROSEC)
+                    .timeZoneOffset(TIME_ZONE_OFFSET)
+                    .changeIdentifier(PM_MEAS_CHANGE_IDENTIFIER)
+                    .changeType(FILE_READY_CHANGE_TYPE)
+                    .build())
                 .name(PM_FILE_NAME)
                 .location(SFTP_LOCATION)
                 .compression(GZIP_COMPRESSION)
@@ -190,7 +198,7 @@ class DmaapConsumerTaskImplTest {
         StepVerifier.create(dmaapConsumerTask.execute("Sample input")).expectSubscription()
                 .expectError(DmaapEmptyResponseException.class).verify();
 
-        verify(dmaapConsumerReactiveHttpClient, times(1)).getDmaapConsumerResponse();
+        verify(dmaapConsumerReactiveHttpClient, times(1)).getDmaapConsumerResponseBody();
     }
 
     @Test
@@ -199,7 +207,7 @@ class DmaapConsumerTaskImplTest {
 
         StepVerifier.create(dmaapConsumerTask.execute(ftpesMessage)).expectNext(ftpesFileData).verifyComplete();
 
-        verify(dmaapConsumerReactiveHttpClient, times(1)).getDmaapConsumerResponse();
+        verify(dmaapConsumerReactiveHttpClient, times(1)).getDmaapConsumerResponseBody();
         verifyNoMoreInteractions(dmaapConsumerReactiveHttpClient);
     }
 
@@ -209,25 +217,40 @@ class DmaapConsumerTaskImplTest {
 
         StepVerifier.create(dmaapConsumerTask.execute(ftpesMessage)).expectNext(sftpFileData).verifyComplete();
 
-        verify(dmaapConsumerReactiveHttpClient, times(1)).getDmaapConsumerResponse();
+        verify(dmaapConsumerReactiveHttpClient, times(1)).getDmaapConsumerResponseBody();
         verifyNoMoreInteractions(dmaapConsumerReactiveHttpClient);
     }
 
+    @Test
+    public void whenConfigurationUnchanged_clientIsReused() {
+        DmaapConsumerTaskImpl consumerTask = new DmaapConsumerTaskImpl(appConfig, DatafileMetrics.disabled());
+        when(appConfig.getDmaapConsumerConfiguration()).thenReturn(dmaapConsumerConfiguration);
+
+        DmaapConsumerReactiveHttpClient firstClient = consumerTask.resolveClient();
+        assertSame(firstClient, consumerTask.resolveClient());
+
+        when(appConfig.getDmaapConsumerConfiguration()).thenReturn(
+                ImmutableDmaapConsumerConfiguration.copyOf(dmaapConsumerConfiguration).withDmaapHostName("54.45.33.3"));
+        assertNotSame(firstClient, consumerTask.resolveClient());
+    }
+
     private void prepareMocksForDmaapConsumer(String message, FileData fileDataAfterConsume) {
-        Mono<String> messageAsMono = Mono.just(message);
+        Flux<byte[]> messageAsBody = Flux.just(message.getBytes(StandardCharsets.UTF_8));
         DmaapConsumerJsonParser dmaapConsumerJsonParserMock = mock(DmaapConsumerJsonParser.class);
         dmaapConsumerReactiveHttpClient = mock(DmaapConsumerReactiveHttpClient.class);
-        when(dmaapConsumerReactiveHttpClient.getDmaapConsumerResponse()).thenReturn(messageAsMono);
+        when(dmaapConsumerReactiveHttpClient.getDmaapConsumerResponseBody()).thenReturn(messageAsBody);
 
         if (!message.isEmpty()) {
-            when(dmaapConsumerJsonParserMock.getJsonObject(messageAsMono)).thenReturn(Flux.just(fileDataAfterConsume));
+            when(dmaapConsumerJsonParserMock.getJsonObjectFromStream(any()))
+                    .thenReturn(Flux.just(fileDataAfterConsume));
         } else {
-            when(dmaapConsumerJsonParserMock.getJsonObject(messageAsMono))
+            when(dmaapConsumerJsonParserMock.getJsonObjectFromStream(any()))
                     .thenReturn(Flux.error(new DmaapEmptyResponseException()));
         }
 
         dmaapConsumerTask =
-                spy(new DmaapConsumerTaskImpl(appConfig, dmaapConsumerReactiveHttpClient, dmaapConsumerJsonParserMock));
+                spy(new DmaapConsumerTaskImpl(appConfig, dmaapConsumerReactiveHttpClient, dmaapConsumerJsonParserMock,
+                        DatafileMetrics.disabled()));
         when(dmaapConsumerTask.resolveConfiguration()).thenReturn(dmaapConsumerConfiguration);
         doReturn(dmaapConsumerReactiveHttpClient).when(dmaapConsumerTask).resolveClient();
     }
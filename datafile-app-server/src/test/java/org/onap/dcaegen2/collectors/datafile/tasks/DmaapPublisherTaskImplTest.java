@@ -16,6 +16,8 @@
 
 package org.onap.dcaegen2.collectors.datafile.tasks;
 
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -30,12 +32,13 @@ import org.junit.jupiter.api.Test;
 import org.onap.dcaegen2.collectors.datafile.config.DmaapPublisherConfiguration;
 import org.onap.dcaegen2.collectors.datafile.config.ImmutableDmaapPublisherConfiguration;
 import org.onap.dcaegen2.collectors.datafile.configuration.AppConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.PublisherConfig;
 import org.onap.dcaegen2.collectors.datafile.model.ConsumerDmaapModel;
 import org.onap.dcaegen2.collectors.datafile.model.ImmutableConsumerDmaapModel;
 import org.onap.dcaegen2.collectors.datafile.service.producer.DmaapProducerReactiveHttpClient;
 import org.springframework.http.HttpStatus;
 
-import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 /**
@@ -97,12 +100,31 @@ class DmaapPublisherTaskImplTest {
         verifyNoMoreInteractions(dMaaPProducerReactiveHttpClient);
     }
 
+    @Test
+    public void whenConfigurationUnchanged_sameClientReused() {
+        when(appConfig.getDmaapPublisherConfiguration()).thenReturn(dmaapPublisherConfiguration);
+        DmaapPublisherTaskImpl taskUnderTest =
+                new DmaapPublisherTaskImpl(appConfig, new PublisherConfig(), DatafileMetrics.disabled());
+
+        DmaapProducerReactiveHttpClient firstClient = taskUnderTest.resolveClient();
+        DmaapProducerReactiveHttpClient secondClient = taskUnderTest.resolveClient();
+        when(appConfig.getDmaapPublisherConfiguration())
+                .thenReturn(ImmutableDmaapPublisherConfiguration.copyOf(dmaapPublisherConfiguration)
+                        .withDmaapHostName("54.45.33.3"));
+        DmaapProducerReactiveHttpClient clientAfterChange = taskUnderTest.resolveClient();
+        taskUnderTest.close();
+
+        assertSame(firstClient, secondClient);
+        assertNotSame(firstClient, clientAfterChange);
+    }
+
     private void prepareMocksForTests(Integer httpResponseCode) {
         dMaaPProducerReactiveHttpClient = mock(DmaapProducerReactiveHttpClient.class);
         when(dMaaPProducerReactiveHttpClient.getDmaapProducerResponse(any()))
-                .thenReturn(Flux.just(httpResponseCode.toString()));
+                .thenReturn(Mono.just(httpResponseCode.toString()));
         when(appConfig.getDmaapPublisherConfiguration()).thenReturn(dmaapPublisherConfiguration);
-        dmaapPublisherTask = spy(new DmaapPublisherTaskImpl(appConfig));
+        dmaapPublisherTask =
+                spy(new DmaapPublisherTaskImpl(appConfig, new PublisherConfig(), DatafileMetrics.disabled()));
         when(dmaapPublisherTask.resolveConfiguration()).thenReturn(dmaapPublisherConfiguration);
         doReturn(dMaaPProducerReactiveHttpClient).when(dmaapPublisherTask).resolveClient();
     }
@@ -0,0 +1,110 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.onap.dcaegen2.collectors.datafile.exceptions.DatafileTaskException;
+import org.onap.dcaegen2.collectors.datafile.exceptions.XnfUnreachableException;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class HostCircuitBreakersTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofMinutes(1);
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final HostCircuitBreakers breakersUnderTest = new HostCircuitBreakers(2, OPEN_DURATION, now::get);
+
+    @Test
+    public void whenConnectionsFailRepeatedly_circuitOpensAndFailsFast() {
+        failToConnect("node1");
+        failToConnect("node1");
+        assertEquals(1, breakersUnderTest.getOpenCircuits());
+
+        StepVerifier.create(breakersUnderTest.protect("node1", this::connect))
+                .expectErrorMessage("Connections to node1 are failing, not tried").verify();
+        assertEquals(2, attempts.get());
+        StepVerifier.create(breakersUnderTest.protect("node2", this::connect)).expectNext("collected")
+                .verifyComplete();
+    }
+
+    @Test
+    public void whenOpenDurationPassed_probeClosesCircuit() {
+        failToConnect("node1");
+        failToConnect("node1");
+        now.addAndGet(OPEN_DURATION.toNanos());
+
+        StepVerifier.create(breakersUnderTest.protect("node1", this::connect)).expectNext("collected")
+                .verifyComplete();
+
+        assertEquals(0, breakersUnderTest.getOpenCircuits());
+    }
+
+    @Test
+    public void whenProbeFails_circuitOpenAgain() {
+        failToConnect("node1");
+        failToConnect("node1");
+        now.addAndGet(OPEN_DURATION.toNanos());
+
+        failToConnect("node1");
+
+        StepVerifier.create(breakersUnderTest.protect("node1", this::connect))
+                .expectErrorMessage("Connections to node1 are failing, not tried").verify();
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void whenOtherFailureThanConnection_circuitStaysClosed() {
+        failToConnect("node1");
+        StepVerifier.create(breakersUnderTest.protect("node1",
+                () -> Mono.error(new DatafileTaskException("File not found")))).expectError().verify();
+        failToConnect("node1");
+
+        assertEquals(0, breakersUnderTest.getOpenCircuits());
+    }
+
+    @Test
+    public void whenCircuitOpen_availableWhenOpenDurationPassed() {
+        StepVerifier.create(breakersUnderTest.whenAvailable("node1")).verifyComplete();
+        failToConnect("node1");
+        failToConnect("node1");
+
+        StepVerifier.withVirtualTime(() -> breakersUnderTest.whenAvailable("node1")).expectSubscription()
+                .expectNoEvent(Duration.ofSeconds(30)).then(() -> now.addAndGet(OPEN_DURATION.toNanos()))
+                .thenAwait(OPEN_DURATION).verifyComplete();
+    }
+
+    private Mono<String> connect() {
+        attempts.incrementAndGet();
+        return Mono.just("collected");
+    }
+
+    private void failToConnect(String host) {
+        StepVerifier.create(breakersUnderTest.protect(host, () -> {
+            attempts.incrementAndGet();
+            return Mono.error(new XnfUnreachableException("Unable to connect to " + host));
+        })).expectError(XnfUnreachableException.class).verify();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class HostPermitsTest {
+
+    @Test
+    public void whenHostAtLimit_workWaitsForPermit() {
+        HostPermits permitsUnderTest = new HostPermits();
+        Disposable firstWork = permitsUnderTest.withPermit("node1", 1, Mono::never).subscribe();
+        AtomicBoolean secondStarted = new AtomicBoolean();
+        permitsUnderTest.withPermit("node1", 1, () -> {
+            secondStarted.set(true);
+            return Mono.just("second");
+        }).subscribe();
+
+        assertFalse(secondStarted.get());
+        assertEquals(1, permitsUnderTest.getWaiting());
+        StepVerifier.create(permitsUnderTest.withPermit("node2", 1, () -> Mono.just("other host")))
+                .expectNext("other host").verifyComplete();
+
+        firstWork.dispose();
+
+        assertTrue(secondStarted.get());
+        assertEquals(0, permitsUnderTest.getWaiting());
+        assertEquals("0 hosts, 0 files waiting for a host", permitsUnderTest.toString());
+    }
+
+    @Test
+    public void whenCancelledWhileWaiting_queueLeftAndPermitNotTaken() {
+        HostPermits permitsUnderTest = new HostPermits();
+        Disposable firstWork = permitsUnderTest.withPermit("node1", 1, Mono::never).subscribe();
+        AtomicBoolean secondStarted = new AtomicBoolean();
+        Disposable secondWork = permitsUnderTest.withPermit("node1", 1, () -> {
+            secondStarted.set(true);
+            return Mono.just("second");
+        }).subscribe();
+
+        secondWork.dispose();
+        firstWork.dispose();
+
+        assertFalse(secondStarted.get());
+        assertEquals(0, permitsUnderTest.getWaiting());
+        StepVerifier.create(permitsUnderTest.withPermit("node1", 1, () -> Mono.just("third")))
+                .expectNext("third").verifyComplete();
+    }
+
+    @Test
+    public void whenWorkFails_permitReturned() {
+        HostPermits permitsUnderTest = new HostPermits();
+
+        StepVerifier.create(permitsUnderTest.withPermit("node1", 1, () -> Mono.error(new IllegalStateException())))
+                .expectError(IllegalStateException.class).verify();
+
+        StepVerifier.create(permitsUnderTest.withPermit("node1", 1, () -> Mono.just("next")))
+                .expectNext("next").verifyComplete();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.onap.dcaegen2.collectors.datafile.configuration.CollectorConfig;
+import org.onap.dcaegen2.collectors.datafile.exceptions.DataRouterUnavailableException;
+import org.onap.dcaegen2.collectors.datafile.exceptions.DatafileTaskException;
+import org.onap.dcaegen2.collectors.datafile.model.ConsumerDmaapModel;
+import org.onap.dcaegen2.collectors.datafile.model.FileData;
+import org.onap.dcaegen2.collectors.datafile.service.producer.StreamingFileEntity;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+public class PassThroughTaskTest {
+    private static final String RESPONSE = "HTTP/1.1 200 OK";
+
+    private XnfCollectorTask xnfCollectorTaskMock = mock(XnfCollectorTask.class);
+    private DmaapPublisherTask dmaapPublisherTaskMock = mock(DmaapPublisherTask.class);
+    private FileData fileDataMock = mock(FileData.class);
+    private CollectorConfig collectorConfig = new CollectorConfig();
+    private PassThroughTask taskUnderTest;
+
+    @BeforeEach
+    public void setUp() {
+        when(fileDataMock.name()).thenReturn("A20161224.1030-1045.bin.gz");
+        when(xnfCollectorTaskMock.getConsumerDmaapModel(fileDataMock)).thenReturn(mock(ConsumerDmaapModel.class));
+        taskUnderTest = new PassThroughTask(xnfCollectorTaskMock, dmaapPublisherTaskMock, collectorConfig);
+    }
+
+    @Test
+    public void whenFileCollectedAndPublished_returnResponse() {
+        when(xnfCollectorTaskMock.execute(any(FileData.class), any(OutputStream.class))).thenReturn(Mono.empty());
+        when(dmaapPublisherTaskMock.execute(any(ConsumerDmaapModel.class), any(StreamingFileEntity.class)))
+                .thenReturn(Mono.just(RESPONSE));
+
+        StepVerifier.create(taskUnderTest.execute(fileDataMock, Schedulers.immediate())).expectNext(RESPONSE)
+                .verifyComplete();
+    }
+
+    @Test
+    public void whenCollectFails_returnCollectError() {
+        DatafileTaskException collectError = new DatafileTaskException("Unable to collect file");
+        when(xnfCollectorTaskMock.execute(any(FileData.class), any(OutputStream.class)))
+                .thenReturn(Mono.error(collectError));
+        when(dmaapPublisherTaskMock.execute(any(ConsumerDmaapModel.class), any(StreamingFileEntity.class)))
+                .thenAnswer(invocation -> failWhenAborted(invocation.getArgument(1)));
+
+        StepVerifier.create(taskUnderTest.execute(fileDataMock, Schedulers.immediate()))
+                .expectErrorMatches(error -> error == collectError).verify();
+    }
+
+    @Test
+    public void whenDataRouterFails_returnDataRouterUnavailable() {
+        when(xnfCollectorTaskMock.execute(any(FileData.class), any(OutputStream.class))).thenReturn(Mono.empty());
+        when(dmaapPublisherTaskMock.execute(any(ConsumerDmaapModel.class), any(StreamingFileEntity.class)))
+                .thenReturn(Mono.error(new IOException("Publish to DR unsuccessful, response code: 503")));
+
+        StepVerifier.create(taskUnderTest.execute(fileDataMock, Schedulers.immediate()))
+                .expectError(DataRouterUnavailableException.class).verify();
+    }
+
+    @Test
+    public void whenDataRouterTooSlow_returnDataRouterUnavailable() {
+        collectorConfig.setPassThroughBufferChunks(1);
+        collectorConfig.setPassThroughWriteTimeout(Duration.ofMillis(10));
+        when(xnfCollectorTaskMock.execute(any(FileData.class), any(OutputStream.class)))
+                .thenAnswer(invocation -> writeFile(invocation.getArgument(1)));
+        when(dmaapPublisherTaskMock.execute(any(ConsumerDmaapModel.class), any(StreamingFileEntity.class)))
+                .thenAnswer(invocation -> failWhenAborted(invocation.getArgument(1)));
+
+        StepVerifier.create(taskUnderTest.execute(fileDataMock, Schedulers.immediate()))
+                .expectErrorSatisfies(error -> {
+                    assertTrue(error instanceof DataRouterUnavailableException);
+                    assertTrue(error.getCause().getMessage().contains("did not take the file in time"));
+                }).verify();
+    }
+
+    private static Mono<Void> writeFile(OutputStream output) {
+        return Mono.defer(() -> {
+            try {
+                output.write(new byte[1024 * 1024]);
+                return Mono.empty();
+            } catch (IOException e) {
+                return Mono.error(new DatafileTaskException("Unable to collect file"));
+            }
+        });
+    }
+
+    private static Mono<String> failWhenAborted(StreamingFileEntity body) {
+        return Mono.delay(Duration.ofMillis(100)).flatMap(tick -> body.getAbortCause() != null
+                ? Mono.<String>error(new IOException("Transfer of file aborted", body.getAbortCause()))
+                : Mono.just(RESPONSE));
+    }
+}
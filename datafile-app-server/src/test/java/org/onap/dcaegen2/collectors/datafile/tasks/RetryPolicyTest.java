@@ -0,0 +1,85 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void whenNoJitter_backoffDoubledUpToMax() {
+        RetryPolicy policyUnderTest = new RetryPolicy(5, Duration.ofSeconds(10), Duration.ofSeconds(30), 0);
+
+        assertEquals(Duration.ofSeconds(10), policyUnderTest.getBackoff(1));
+        assertEquals(Duration.ofSeconds(20), policyUnderTest.getBackoff(2));
+        assertEquals(Duration.ofSeconds(30), policyUnderTest.getBackoff(3));
+        assertEquals(Duration.ofSeconds(30), policyUnderTest.getBackoff(64));
+    }
+
+    @Test
+    public void whenJitter_backoffWithinJitterRange() {
+        RetryPolicy policyUnderTest = new RetryPolicy(5, Duration.ofSeconds(10), Duration.ofMinutes(5), 0.5);
+
+        for (int i = 0; i < 100; i++) {
+            long backoffMillis = policyUnderTest.getBackoff(2).toMillis();
+            assertTrue(backoffMillis >= 10000 && backoffMillis <= 30000, "backoff was " + backoffMillis);
+        }
+    }
+
+    @Test
+    public void whenJitterOutOfRange_throwException() {
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(1, Duration.ZERO, Duration.ZERO, 2));
+    }
+
+    @Test
+    public void whenFailingLessThanMaxRetries_succeed() {
+        RetryPolicy policyUnderTest = new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(10), 0.5);
+        AtomicInteger attempts = new AtomicInteger();
+        Flux<String> failingTwice = Flux.defer(() -> attempts.incrementAndGet() < 3
+                ? Flux.<String>error(new IllegalStateException("attempt " + attempts.get()))
+                : Flux.just("collected"));
+
+        StepVerifier.create(failingTwice.retryWhen(policyUnderTest::backoff)).expectNext("collected")
+                .verifyComplete();
+        assertEquals(3, attempts.get());
+        assertEquals(2, policyUnderTest.getRetries());
+        assertEquals(0, policyUnderTest.getGivenUp());
+    }
+
+    @Test
+    public void whenAlwaysFailing_lastErrorPropagated() {
+        RetryPolicy policyUnderTest = new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(10), 0);
+        AtomicInteger attempts = new AtomicInteger();
+        Flux<String> alwaysFailing =
+                Flux.defer(() -> Flux.<String>error(new IllegalStateException("attempt " + attempts.incrementAndGet())));
+
+        StepVerifier.create(alwaysFailing.retryWhen(policyUnderTest::backoff))
+                .expectErrorMessage("attempt 3").verify();
+        assertEquals(3, attempts.get());
+        assertEquals("2 retries, 1 given up", policyUnderTest.toString());
+    }
+}
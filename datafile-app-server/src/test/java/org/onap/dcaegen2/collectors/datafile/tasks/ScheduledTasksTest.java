@@ -0,0 +1,371 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.onap.dcaegen2.collectors.datafile.configuration.ClusterConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.CollectorConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.ConsumerConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.JournalConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.PublisherConfig;
+import org.onap.dcaegen2.collectors.datafile.exceptions.DmaapEmptyResponseException;
+import org.onap.dcaegen2.collectors.datafile.exceptions.UnsupportedProtocolException;
+import org.onap.dcaegen2.collectors.datafile.exceptions.XnfUnreachableException;
+import org.onap.dcaegen2.collectors.datafile.model.ConsumerDmaapModel;
+import org.onap.dcaegen2.collectors.datafile.model.FileData;
+import org.onap.dcaegen2.collectors.datafile.model.ImmutableEventHeader;
+import org.onap.dcaegen2.collectors.datafile.model.ImmutableFileData;
+import org.onap.dcaegen2.collectors.datafile.service.DuplicateFileCache;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ScheduledTasksTest {
+    private static final String DEAD_HOST = "192.168.0.101";
+    private static final String HEALTHY_HOST = "192.168.0.102";
+    private static final String BUSY_HOST = "192.168.0.103";
+    private static final int FILES_PER_HOST = 4;
+    private static final int XNFS = 10;
+    private static final Duration LEASE_DURATION = Duration.ofMillis(300);
+
+    private DmaapConsumerTask dmaapConsumerTaskMock = mock(DmaapConsumerTask.class);
+    private XnfCollectorTask xnfCollectorTaskMock = mock(XnfCollectorTask.class);
+    private DmaapPublisherTask dmaapPublisherTaskMock = mock(DmaapPublisherTask.class);
+    private PassThroughTask passThroughTaskMock = mock(PassThroughTask.class);
+    private ConsumerDmaapModel healthyModel = mock(ConsumerDmaapModel.class);
+    private CollectorConfig collectorConfig = new CollectorConfig();
+    private ConsumerConfig consumerConfig = new ConsumerConfig();
+    private JournalConfig journalConfig = new JournalConfig();
+    private ScheduledTasks tasksUnderTest;
+
+    @BeforeEach
+    public void setUp() {
+        collectorConfig.setMaxFilesInCollection(2);
+        collectorConfig.setHostFailureThreshold(1);
+        collectorConfig.setHostOpenDuration(Duration.ofMinutes(1));
+        collectorConfig.setFirstRetryBackoff(Duration.ofMinutes(1));
+        consumerConfig.setFirstEmptyPollBackoff(Duration.ofMillis(10));
+        consumerConfig.setMaxEmptyPollBackoff(Duration.ofMillis(10));
+        journalConfig.setEnabled(false);
+        tasksUnderTest = createScheduledTasks(new ClusterConfig());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        tasksUnderTest.shutdown();
+    }
+
+    @Test
+    public void whenHostUnreachable_filesFromOtherHostsStillCollected() throws InterruptedException {
+        List<FileData> files = new ArrayList<>();
+        for (int i = 0; i < FILES_PER_HOST; i++) {
+            files.add(createFileData(DEAD_HOST, "dead" + i));
+        }
+        for (int i = 0; i < FILES_PER_HOST; i++) {
+            files.add(createFileData(HEALTHY_HOST, "healthy" + i));
+        }
+        when(dmaapConsumerTaskMock.execute(anyString())).thenReturn(Flux.fromIterable(files),
+                Flux.error(new DmaapEmptyResponseException()));
+        when(xnfCollectorTaskMock.execute(any(FileData.class))).thenAnswer(invocation -> {
+            FileData fileData = invocation.getArgument(0);
+            return fileData.location().contains(DEAD_HOST)
+                    ? Flux.error(new XnfUnreachableException("Unable to connect to " + DEAD_HOST))
+                    : Flux.just(healthyModel);
+        });
+        when(dmaapPublisherTaskMock.execute(any(ConsumerDmaapModel.class))).thenReturn(Mono.just("200"));
+
+        tasksUnderTest.scheduleMainDatafileEventTask();
+
+        verify(dmaapPublisherTaskMock, timeout(10000).times(FILES_PER_HOST)).execute(healthyModel);
+        StageQueue waitingForHost = tasksUnderTest.getStageQueues().get(2);
+        for (int i = 0; i < 100 && waitingForHost.getDepth() < FILES_PER_HOST; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(FILES_PER_HOST, waitingForHost.getDepth());
+        assertEquals(0, tasksUnderTest.getStageQueues().get(4).getDepth());
+        assertEquals(2 * FILES_PER_HOST, tasksUnderTest.getStageThroughputs().get(0).getCount());
+    }
+
+    @Test
+    public void whenTooManyFilesWaitForUnreachableHost_extraFilesGivenUp() throws InterruptedException {
+        int maxWaitingFiles = 2;
+        collectorConfig.setMaxFilesWaitingForUnreachableHosts(maxWaitingFiles);
+        tasksUnderTest.shutdown();
+        tasksUnderTest = createScheduledTasks(new ClusterConfig());
+        List<FileData> deadFiles = new ArrayList<>();
+        for (int i = 0; i < FILES_PER_HOST; i++) {
+            deadFiles.add(createFileData(DEAD_HOST, "dead" + i));
+        }
+        List<FileData> files = new ArrayList<>(deadFiles);
+        for (int i = 0; i < FILES_PER_HOST; i++) {
+            files.add(createFileData(HEALTHY_HOST, "healthy" + i));
+        }
+        when(dmaapConsumerTaskMock.execute(anyString())).thenReturn(Flux.fromIterable(files),
+                Flux.error(new DmaapEmptyResponseException()));
+        when(xnfCollectorTaskMock.execute(any(FileData.class))).thenAnswer(invocation -> {
+            FileData fileData = invocation.getArgument(0);
+            return fileData.location().contains(DEAD_HOST)
+                    ? Flux.error(new XnfUnreachableException("Unable to connect to " + DEAD_HOST))
+                    : Flux.just(healthyModel);
+        });
+        when(dmaapPublisherTaskMock.execute(any(ConsumerDmaapModel.class))).thenReturn(Mono.just("200"));
+
+        tasksUnderTest.scheduleMainDatafileEventTask();
+
+        verify(dmaapPublisherTaskMock, timeout(10000).times(FILES_PER_HOST)).execute(healthyModel);
+        StageQueue waitingForHost = tasksUnderTest.getStageQueues().get(2);
+        for (int i = 0; i < 100 && waitingForHost.getDepth() < maxWaitingFiles; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(maxWaitingFiles, waitingForHost.getDepth());
+        DuplicateFileCache duplicateFileCache = tasksUnderTest.getDuplicateFileCache();
+        long forgottenFiles = deadFiles.stream().filter(fileData -> !duplicateFileCache.isDuplicate(fileData)).count();
+        assertEquals(FILES_PER_HOST - maxWaitingFiles, forgottenFiles);
+    }
+
+    @Test
+    public void whenHostHasAllItsDownloads_filesFromOtherHostsStillCollected() throws InterruptedException {
+        collectorConfig.setMaxConcurrentCollectionsPerHost(1);
+        tasksUnderTest.shutdown();
+        tasksUnderTest = createScheduledTasks(new ClusterConfig());
+        List<FileData> files = new ArrayList<>();
+        for (int i = 0; i < FILES_PER_HOST; i++) {
+            files.add(createFileData(BUSY_HOST, "busy" + i));
+        }
+        files.add(createFileData(HEALTHY_HOST, "healthy"));
+        when(dmaapConsumerTaskMock.execute(anyString())).thenReturn(Flux.fromIterable(files),
+                Flux.error(new DmaapEmptyResponseException()));
+        when(xnfCollectorTaskMock.execute(any(FileData.class))).thenAnswer(invocation -> {
+            FileData fileData = invocation.getArgument(0);
+            return fileData.location().contains(BUSY_HOST) ? Flux.never() : Flux.just(healthyModel);
+        });
+        when(dmaapPublisherTaskMock.execute(any(ConsumerDmaapModel.class))).thenReturn(Mono.just("200"));
+
+        tasksUnderTest.scheduleMainDatafileEventTask();
+
+        verify(dmaapPublisherTaskMock, timeout(10000)).execute(healthyModel);
+        StageQueue waitingForPermit = tasksUnderTest.getStageQueues().get(3);
+        for (int i = 0; i < 100 && waitingForPermit.getDepth() < FILES_PER_HOST - 1; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(FILES_PER_HOST - 1, waitingForPermit.getDepth());
+        verify(xnfCollectorTaskMock, times(1)).execute(files.get(0));
+        verify(xnfCollectorTaskMock, never()).execute(files.get(1));
+    }
+
+    @Test
+    public void whenPassedFileHasUnsupportedProtocol_fileGivenUpWithoutRetry() throws InterruptedException {
+        collectorConfig.setPassThrough(true);
+        tasksUnderTest.shutdown();
+        tasksUnderTest = createScheduledTasks(new ClusterConfig());
+        FileData fileData = createFileData(HEALTHY_HOST, "unsupported");
+        when(dmaapConsumerTaskMock.execute(anyString())).thenReturn(Flux.just(fileData),
+                Flux.error(new DmaapEmptyResponseException()));
+        when(passThroughTaskMock.execute(any(FileData.class), any()))
+                .thenReturn(Mono.error(new UnsupportedProtocolException("Unable to collect file")));
+
+        tasksUnderTest.scheduleMainDatafileEventTask();
+
+        verify(passThroughTaskMock, timeout(10000)).execute(any(FileData.class), any());
+        StageQueue collecting = tasksUnderTest.getStageQueues().get(4);
+        for (int i = 0; i < 100 && collecting.getDepth() > 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, collecting.getDepth());
+        verify(passThroughTaskMock, times(1)).execute(any(FileData.class), any());
+    }
+
+    @Test
+    public void whenWorkflowAbortedByUnexpectedError_consumptionResumed() {
+        FileData brokenFile = mock(FileData.class);
+        when(brokenFile.sourceName()).thenThrow(new IllegalStateException("Broken event"));
+        FileData file = createFileData(HEALTHY_HOST, "healthy");
+        when(dmaapConsumerTaskMock.execute(anyString())).thenReturn(Flux.just(brokenFile), Flux.just(file),
+                Flux.error(new DmaapEmptyResponseException()));
+        when(xnfCollectorTaskMock.execute(any(FileData.class))).thenReturn(Flux.just(healthyModel));
+        when(dmaapPublisherTaskMock.execute(any(ConsumerDmaapModel.class))).thenReturn(Mono.just("200"));
+
+        tasksUnderTest.scheduleMainDatafileEventTask();
+
+        verify(dmaapPublisherTaskMock, timeout(10000)).execute(healthyModel);
+        verify(xnfCollectorTaskMock).execute(file);
+    }
+
+    @Test
+    public void whenOwnerOfXnfsStops_itsFilesCollectedAfterHandover() throws IOException {
+        Path leaseDirectory = Files.createTempDirectory("leases");
+        try {
+            Files.write(leaseDirectory.resolve("dfc-2"), "dfc-2".getBytes(StandardCharsets.UTF_8));
+            tasksUnderTest.shutdown();
+            tasksUnderTest = createScheduledTasks(createClusterConfig(leaseDirectory));
+            List<FileData> files = createFilesOfXnfs();
+            assertTrue(files.stream().anyMatch(this::isOfOtherInstance));
+            setUpSuccessfulCollectAndPublish(files);
+
+            tasksUnderTest.scheduleMainDatafileEventTask();
+
+            verify(dmaapPublisherTaskMock, timeout(10000).times(XNFS)).execute(healthyModel);
+            assertEquals(0, tasksUnderTest.getFilesAwaitingHandover());
+        } finally {
+            deleteDirectory(leaseDirectory);
+        }
+    }
+
+    @Test
+    public void whenOwnerOfXnfsRuns_itsFilesLeftToIt() throws IOException, InterruptedException {
+        Path leaseDirectory = Files.createTempDirectory("leases");
+        try {
+            Path otherLease =
+                    Files.write(leaseDirectory.resolve("dfc-2"), "dfc-2".getBytes(StandardCharsets.UTF_8));
+            tasksUnderTest.shutdown();
+            tasksUnderTest = createScheduledTasks(createClusterConfig(leaseDirectory));
+            List<FileData> files = createFilesOfXnfs();
+            List<FileData> filesOfOther = files.stream().filter(this::isOfOtherInstance).collect(Collectors.toList());
+            assertTrue(!filesOfOther.isEmpty());
+            setUpSuccessfulCollectAndPublish(files);
+
+            tasksUnderTest.scheduleMainDatafileEventTask();
+            for (int i = 0; i < 20; i++) {
+                Files.setLastModifiedTime(otherLease, FileTime.fromMillis(System.currentTimeMillis()));
+                Thread.sleep(LEASE_DURATION.toMillis() / 3);
+            }
+
+            verify(dmaapPublisherTaskMock, timeout(10000).times(XNFS - filesOfOther.size())).execute(healthyModel);
+            for (FileData fileData : filesOfOther) {
+                verify(xnfCollectorTaskMock, never()).execute(fileData);
+            }
+            assertEquals(0, tasksUnderTest.getFilesAwaitingHandover());
+        } finally {
+            deleteDirectory(leaseDirectory);
+        }
+    }
+
+    @Test
+    public void whenTooManyFilesOfOtherOwners_extraFilesLeftWithoutWaiting() throws Exception {
+        Path leaseDirectory = Files.createTempDirectory("leases");
+        try {
+            Files.write(leaseDirectory.resolve("dfc-2"), "dfc-2".getBytes(StandardCharsets.UTF_8));
+            ClusterConfig clusterConfig = createClusterConfig(leaseDirectory);
+            clusterConfig.setMaxFilesAwaitingHandover(1);
+            tasksUnderTest.shutdown();
+            tasksUnderTest = createScheduledTasks(clusterConfig);
+            List<FileData> files = createFilesOfXnfs();
+            List<FileData> filesOfOther = files.stream().filter(this::isOfOtherInstance).collect(Collectors.toList());
+            assertTrue(filesOfOther.size() > 1);
+            setUpSuccessfulCollectAndPublish(files);
+
+            tasksUnderTest.scheduleMainDatafileEventTask();
+
+            int collectedFiles = XNFS - filesOfOther.size() + 1;
+            verify(dmaapPublisherTaskMock, timeout(10000).times(collectedFiles)).execute(healthyModel);
+            Thread.sleep(tasksUnderTest.getXnfOwnership().getHandoverDelay().toMillis() * 2);
+            verify(xnfCollectorTaskMock, times(collectedFiles)).execute(any(FileData.class));
+            verify(xnfCollectorTaskMock).execute(filesOfOther.get(0));
+            assertEquals(0, tasksUnderTest.getFilesAwaitingHandover());
+        } finally {
+            deleteDirectory(leaseDirectory);
+        }
+    }
+
+    private static ClusterConfig createClusterConfig(Path leaseDirectory) {
+        ClusterConfig clusterConfig = new ClusterConfig();
+        clusterConfig.setEnabled(true);
+        clusterConfig.setInstanceId("dfc-1");
+        clusterConfig.setLeaseDirectory(leaseDirectory.toString());
+        clusterConfig.setLeaseDuration(LEASE_DURATION);
+        return clusterConfig;
+    }
+
+    private static List<FileData> createFilesOfXnfs() {
+        List<FileData> files = new ArrayList<>();
+        for (int i = 1; i <= XNFS; i++) {
+            files.add(createFileData("192.168.1." + i, "file" + i));
+        }
+        return files;
+    }
+
+    private boolean isOfOtherInstance(FileData fileData) {
+        return !tasksUnderTest.getXnfOwnership().isOwned(fileData.sourceName());
+    }
+
+    private void setUpSuccessfulCollectAndPublish(List<FileData> files) {
+        when(dmaapConsumerTaskMock.execute(anyString())).thenReturn(Flux.fromIterable(files),
+                Flux.error(new DmaapEmptyResponseException()));
+        when(xnfCollectorTaskMock.execute(any(FileData.class))).thenReturn(Flux.just(healthyModel));
+        when(dmaapPublisherTaskMock.execute(any(ConsumerDmaapModel.class))).thenReturn(Mono.just("200"));
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private ScheduledTasks createScheduledTasks(ClusterConfig clusterConfig) {
+        return new ScheduledTasks(dmaapConsumerTaskMock, xnfCollectorTaskMock, dmaapPublisherTaskMock,
+                passThroughTaskMock, collectorConfig, consumerConfig, new PublisherConfig(), journalConfig,
+                clusterConfig, DatafileMetrics.disabled());
+    }
+
+    private static FileData createFileData(String host, String name) {
+        // @formatter:off
+        return ImmutableFileData.builder()
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName("NrRadio")
+                    .vendorName("Ericsson")
+                    .lastEpochMicrosec("8745745764578")
+                    .sourceName(host)
+                    .startEpochMicrosec("8745745764578")
+                    .timeZoneOffset("UTC+05:00")
+                    .changeIdentifier("PM_MEAS_FILES")
+                    .changeType("FileReady")
+                    .build())
+                .name(name)
+                .location("sftp://" + host + ":22/ftp/rop/" + name)
+                .compression("gzip")
+                .fileFormatType("org.3GPP.32.435#measCollec")
+                .fileFormatVersion("V10")
+                .build();
+        // @formatter:on
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class StageQueueTest {
+
+    @Test
+    public void whenFilesEnterAndLeave_depthFollows() {
+        StageQueue queueUnderTest = new StageQueue("collect", 10);
+
+        queueUnderTest.enter();
+        queueUnderTest.enter();
+        queueUnderTest.enter();
+        queueUnderTest.leave();
+
+        assertEquals(2, queueUnderTest.getDepth());
+        assertEquals("collect: 2/10 files", queueUnderTest.toString());
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class StageThroughputTest {
+
+    @Test
+    public void whenNothingPassed_zeroThroughput() {
+        StageThroughput stageUnderTest = new StageThroughput("collect");
+
+        assertEquals(0, stageUnderTest.getCount());
+        assertEquals(0, stageUnderTest.getFilesPerSecond(), 0);
+        assertTrue(stageUnderTest.toString().startsWith("collect: 0 files in 0 ms"));
+    }
+
+    @Test
+    public void whenFilesPassed_countAndThroughputCalculated() throws InterruptedException {
+        StageThroughput stageUnderTest = new StageThroughput("publish");
+
+        Thread.sleep(10);
+        stageUnderTest.increment();
+        stageUnderTest.increment();
+
+        assertEquals(2, stageUnderTest.getCount());
+        assertTrue(stageUnderTest.getElapsedMillis() >= 10);
+        assertTrue(stageUnderTest.getFilesPerSecond() > 0);
+        assertTrue(stageUnderTest.getFilesPerSecond() <= 200);
+    }
+}
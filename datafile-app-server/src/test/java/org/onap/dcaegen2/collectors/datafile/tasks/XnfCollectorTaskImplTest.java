@@ -16,19 +16,29 @@
 
 package org.onap.dcaegen2.collectors.datafile.tasks;
 
-import static org.mockito.Mockito.doReturn;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.onap.dcaegen2.collectors.datafile.configuration.AppConfig;
 import org.onap.dcaegen2.collectors.datafile.configuration.FtpesConfig;
+import org.onap.dcaegen2.collectors.datafile.exceptions.DatafileTaskException;
+import org.onap.dcaegen2.collectors.datafile.exceptions.UnsupportedProtocolException;
 import org.onap.dcaegen2.collectors.datafile.ftp.ErrorData;
 import org.onap.dcaegen2.collectors.datafile.ftp.FileCollectResult;
 import org.onap.dcaegen2.collectors.datafile.ftp.FileServerData;
@@ -38,8 +48,11 @@ import org.onap.dcaegen2.collectors.datafile.ftp.SftpClient;
 import org.onap.dcaegen2.collectors.datafile.model.ConsumerDmaapModel;
 import org.onap.dcaegen2.collectors.datafile.model.FileData;
 import org.onap.dcaegen2.collectors.datafile.model.ImmutableConsumerDmaapModel;
+import org.onap.dcaegen2.collectors.datafile.model.ImmutableEventHeader;
 import org.onap.dcaegen2.collectors.datafile.model.ImmutableFileData;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import reactor.test.StepVerifier;
 
 /**
@@ -70,6 +83,7 @@ public class XnfCollectorTaskImplTest {
     private static final String GZIP_COMPRESSION = "gzip";
     private static final String MEAS_COLLECT_FILE_FORMAT_TYPE = "org.3GPP.32.435#measCollec";
     private static final String FILE_FORMAT_VERSION = "V10";
+    private static final byte[] FILE_CONTENT = "the content of the file".getBytes(StandardCharsets.UTF_8);
 
     private static final String FTP_KEY_PATH = "ftpKeyPath";
     private static final String FTP_KEY_PASSWORD = "ftpKeyPassword";
@@ -82,7 +96,7 @@ public class XnfCollectorTaskImplTest {
     private FtpsClient ftpsClientMock = mock(FtpsClient.class);
 
     private SftpClient sftpClientMock = mock(SftpClient.class);
-    private RetryTimer retryTimerMock = mock(RetryTimer.class);
+    private RetryPolicy noWaitRetryPolicy = new RetryPolicy(2, Duration.ZERO, Duration.ZERO, 0);
 
 
     @BeforeAll
@@ -97,18 +111,20 @@ public class XnfCollectorTaskImplTest {
     @Test
     public void whenFtpesFile_returnCorrectResponse() {
         XnfCollectorTaskImpl collectorUndetTest =
-                new XnfCollectorTaskImpl(appConfigMock, ftpsClientMock, sftpClientMock);
+                new XnfCollectorTaskImpl(appConfigMock, ftpsClientMock, sftpClientMock, DatafileMetrics.disabled());
 
         // @formatter:off
         FileData fileData = ImmutableFileData.builder()
-                .productName(PRODUCT_NAME)
-                .vendorName(VENDOR_NAME)
-                .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
-                .sourceName(SOURCE_NAME)
-                .startEpochMicrosec(START_EPOCH_MICROSEC)
-                .timeZoneOffset(TIME_ZONE_OFFSET)
-                .changeIdentifier(PM_MEAS_CHANGE_IDINTIFIER)
-                .changeType(FILE_READY_CHANGE_TYPE)
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName(PRODUCT_NAME)
+                    .vendorName(VENDOR_NAME)
+                    .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
+                    .sourceName(SOURCE_NAME)
+                    .startEpochMicrosec(START_EPOCH_MICROSEC)
+                    .timeZoneOffset(TIME_ZONE_OFFSET)
+                    .changeIdentifier(PM_MEAS_CHANGE_IDINTIFIER)
+                    .changeType(FILE_READY_CHANGE_TYPE)
+                    .build())
                 .name(PM_FILE_NAME)
                 .location(FTPES_LOCATION)
                 .compression(GZIP_COMPRESSION)
@@ -157,17 +173,19 @@ public class XnfCollectorTaskImplTest {
     @Test
     public void whenSftpFile_returnCorrectResponse() {
         XnfCollectorTaskImpl collectorUndetTest =
-                new XnfCollectorTaskImpl(appConfigMock, ftpsClientMock, sftpClientMock);
+                new XnfCollectorTaskImpl(appConfigMock, ftpsClientMock, sftpClientMock, DatafileMetrics.disabled());
         // @formatter:off
         FileData fileData = ImmutableFileData.builder()
-                .productName(PRODUCT_NAME)
-                .vendorName(VENDOR_NAME)
-                .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
-                .sourceName(SOURCE_NAME)
-                .startEpochMicrosec(START_EPOCH_MICROSEC)
-                .timeZoneOffset(TIME_ZONE_OFFSET)
-                .changeIdentifier(PM_MEAS_CHANGE_IDINTIFIER)
-                .changeType(FILE_READY_CHANGE_TYPE)
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName(PRODUCT_NAME)
+                    .vendorName(VENDOR_NAME)
+                    .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
+                    .sourceName(SOURCE_NAME)
+                    .startEpochMicrosec(START_EPOCH_MICROSEC)
+                    .timeZoneOffset(TIME_ZONE_OFFSET)
+                    .changeIdentifier(PM_MEAS_CHANGE_IDINTIFIER)
+                    .changeType(FILE_READY_CHANGE_TYPE)
+                    .build())
                 .name(PM_FILE_NAME)
                 .location(SFTP_LOCATION)
                 .compression(GZIP_COMPRESSION)
@@ -206,23 +224,63 @@ public class XnfCollectorTaskImplTest {
 
         verify(sftpClientMock, times(1)).collectFile(fileServerData, REMOTE_FILE_LOCATION, LOCAL_FILE_LOCATION);
         verifyNoMoreInteractions(sftpClientMock);
+        verifyZeroInteractions(ftpsClientMock);
     }
 
     @Test
-    public void whenFtpesFileAlwaysFail_retryAndReturnEmpty() {
+    public void whenFtpesFilesCollectedWithSameConfiguration_keyStoresGivenToClientOnce() {
         XnfCollectorTaskImpl collectorUndetTest =
-                new XnfCollectorTaskImpl(appConfigMock, ftpsClientMock, sftpClientMock);
-        collectorUndetTest.setRetryTimer(retryTimerMock);
+                new XnfCollectorTaskImpl(appConfigMock, ftpsClientMock, sftpClientMock, DatafileMetrics.disabled());
         // @formatter:off
         FileData fileData = ImmutableFileData.builder()
-                .productName(PRODUCT_NAME)
-                .vendorName(VENDOR_NAME)
-                .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
-                .sourceName(SOURCE_NAME)
-                .startEpochMicrosec(START_EPOCH_MICROSEC)
-                .timeZoneOffset(TIME_ZONE_OFFSET)
-                .changeIdentifier(PM_MEAS_CHANGE_IDINTIFIER)
-                .changeType(FILE_READY_CHANGE_TYPE)
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName(PRODUCT_NAME)
+                    .vendorName(VENDOR_NAME)
+                    .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
+                    .sourceName(SOURCE_NAME)
+                    .startEpochMicrosec(START_EPOCH_MICROSEC)
+                    .timeZoneOffset(TIME_ZONE_OFFSET)
+                    .changeIdentifier(PM_MEAS_CHANGE_IDINTIFIER)
+                    .changeType(FILE_READY_CHANGE_TYPE)
+                    .build())
+                .name(PM_FILE_NAME)
+                .location(FTPES_LOCATION)
+                .compression(GZIP_COMPRESSION)
+                .fileFormatType(MEAS_COLLECT_FILE_FORMAT_TYPE)
+                .fileFormatVersion(FILE_FORMAT_VERSION)
+                .build();
+        // @formatter:on
+        when(ftpsClientMock.collectFile(any(FileServerData.class), eq(REMOTE_FILE_LOCATION), eq(LOCAL_FILE_LOCATION)))
+                .thenReturn(new FileCollectResult());
+
+        StepVerifier.create(collectorUndetTest.execute(fileData)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(collectorUndetTest.execute(fileData)).expectNextCount(1).verifyComplete();
+
+        verify(ftpsClientMock, times(2)).collectFile(any(FileServerData.class), eq(REMOTE_FILE_LOCATION),
+                eq(LOCAL_FILE_LOCATION));
+        verify(ftpsClientMock, times(1)).setKeyCertPath(FTP_KEY_PATH);
+        verify(ftpsClientMock, times(1)).setKeyCertPassword(FTP_KEY_PASSWORD);
+        verify(ftpsClientMock, times(1)).setTrustedCAPath(TRUSTED_CA_PATH);
+        verify(ftpsClientMock, times(1)).setTrustedCAPassword(TRUSTED_CA_PASSWORD);
+        verifyNoMoreInteractions(ftpsClientMock);
+    }
+
+    @Test
+    public void whenFtpesFileAlwaysFail_retryAndReturnError() {
+        XnfCollectorTaskImpl collectorUndetTest =
+                new XnfCollectorTaskImpl(appConfigMock, ftpsClientMock, sftpClientMock, DatafileMetrics.disabled());
+        // @formatter:off
+        FileData fileData = ImmutableFileData.builder()
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName(PRODUCT_NAME)
+                    .vendorName(VENDOR_NAME)
+                    .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
+                    .sourceName(SOURCE_NAME)
+                    .startEpochMicrosec(START_EPOCH_MICROSEC)
+                    .timeZoneOffset(TIME_ZONE_OFFSET)
+                    .changeIdentifier(PM_MEAS_CHANGE_IDINTIFIER)
+                    .changeType(FILE_READY_CHANGE_TYPE)
+                    .build())
                 .name(PM_FILE_NAME)
                 .location(FTPES_LOCATION)
                 .compression(GZIP_COMPRESSION)
@@ -241,29 +299,29 @@ public class XnfCollectorTaskImplTest {
         errorData.addError("Unable to collect file.", new Exception());
         when(ftpsClientMock.collectFile(fileServerData, REMOTE_FILE_LOCATION, LOCAL_FILE_LOCATION))
                 .thenReturn(new FileCollectResult(errorData));
-        doReturn(new FileCollectResult(errorData)).when(ftpsClientMock).retryCollectFile();
 
-        StepVerifier.create(collectorUndetTest.execute(fileData)).expectNextCount(0).verifyComplete();
+        StepVerifier.create(collectorUndetTest.execute(fileData).retryWhen(noWaitRetryPolicy::backoff))
+                .expectError(DatafileTaskException.class).verify();
 
-        verify(ftpsClientMock, times(1)).collectFile(fileServerData, REMOTE_FILE_LOCATION, LOCAL_FILE_LOCATION);
-        verify(ftpsClientMock, times(2)).retryCollectFile();
+        verify(ftpsClientMock, times(3)).collectFile(fileServerData, REMOTE_FILE_LOCATION, LOCAL_FILE_LOCATION);
     }
 
     @Test
     public void whenFtpesFileFailOnce_retryAndReturnCorrectResponse() {
         XnfCollectorTaskImpl collectorUndetTest =
-                new XnfCollectorTaskImpl(appConfigMock, ftpsClientMock, sftpClientMock);
-        collectorUndetTest.setRetryTimer(retryTimerMock);
+                new XnfCollectorTaskImpl(appConfigMock, ftpsClientMock, sftpClientMock, DatafileMetrics.disabled());
         // @formatter:off
         FileData fileData = ImmutableFileData.builder()
-                .productName(PRODUCT_NAME)
-                .vendorName(VENDOR_NAME)
-                .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
-                .sourceName(SOURCE_NAME)
-                .startEpochMicrosec(START_EPOCH_MICROSEC)
-                .timeZoneOffset(TIME_ZONE_OFFSET)
-                .changeIdentifier(PM_MEAS_CHANGE_IDINTIFIER)
-                .changeType(FILE_READY_CHANGE_TYPE)
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName(PRODUCT_NAME)
+                    .vendorName(VENDOR_NAME)
+                    .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
+                    .sourceName(SOURCE_NAME)
+                    .startEpochMicrosec(START_EPOCH_MICROSEC)
+                    .timeZoneOffset(TIME_ZONE_OFFSET)
+                    .changeIdentifier(PM_MEAS_CHANGE_IDINTIFIER)
+                    .changeType(FILE_READY_CHANGE_TYPE)
+                    .build())
                 .name(PM_FILE_NAME)
                 .location(FTPES_LOCATION)
                 .compression(GZIP_COMPRESSION)
@@ -281,8 +339,7 @@ public class XnfCollectorTaskImplTest {
         ErrorData errorData = new ErrorData();
         errorData.addError("Unable to collect file.", new Exception());
         when(ftpsClientMock.collectFile(fileServerData, REMOTE_FILE_LOCATION, LOCAL_FILE_LOCATION))
-                .thenReturn(new FileCollectResult(errorData));
-        doReturn(new FileCollectResult()).when(ftpsClientMock).retryCollectFile();
+                .thenReturn(new FileCollectResult(errorData), new FileCollectResult());
         // @formatter:off
         ConsumerDmaapModel expectedConsumerDmaapModel = ImmutableConsumerDmaapModel.builder()
                 .productName(PRODUCT_NAME)
@@ -299,28 +356,28 @@ public class XnfCollectorTaskImplTest {
                 .fileFormatVersion(FILE_FORMAT_VERSION)
                 .build();
         // @formatter:on
-        StepVerifier.create(collectorUndetTest.execute(fileData)).expectNext(expectedConsumerDmaapModel)
-                .verifyComplete();
+        StepVerifier.create(collectorUndetTest.execute(fileData).retryWhen(noWaitRetryPolicy::backoff))
+                .expectNext(expectedConsumerDmaapModel).verifyComplete();
 
-
-        verify(ftpsClientMock, times(1)).collectFile(fileServerData, REMOTE_FILE_LOCATION, LOCAL_FILE_LOCATION);
-        verify(ftpsClientMock, times(1)).retryCollectFile();
+        verify(ftpsClientMock, times(2)).collectFile(fileServerData, REMOTE_FILE_LOCATION, LOCAL_FILE_LOCATION);
     }
 
     @Test
     public void whenWrongScheme_returnEmpty() {
         XnfCollectorTaskImpl collectorUndetTest =
-                new XnfCollectorTaskImpl(appConfigMock, ftpsClientMock, sftpClientMock);
+                new XnfCollectorTaskImpl(appConfigMock, ftpsClientMock, sftpClientMock, DatafileMetrics.disabled());
         // @formatter:off
         FileData fileData = ImmutableFileData.builder()
-                .productName(PRODUCT_NAME)
-                .vendorName(VENDOR_NAME)
-                .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
-                .sourceName(SOURCE_NAME)
-                .startEpochMicrosec(START_EPOCH_MICROSEC)
-                .timeZoneOffset(TIME_ZONE_OFFSET)
-                .changeIdentifier(PM_MEAS_CHANGE_IDINTIFIER)
-                .changeType(FILE_READY_CHANGE_TYPE)
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName(PRODUCT_NAME)
+                    .vendorName(VENDOR_NAME)
+                    .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
+                    .sourceName(SOURCE_NAME)
+                    .startEpochMicrosec(START_EPOCH_MICROSEC)
+                    .timeZoneOffset(TIME_ZONE_OFFSET)
+                    .changeIdentifier(PM_MEAS_CHANGE_IDINTIFIER)
+                    .changeType(FILE_READY_CHANGE_TYPE)
+                    .build())
                 .name(PM_FILE_NAME)
                 .location("http://host.com/file.zip")
                 .compression(GZIP_COMPRESSION)
@@ -342,4 +399,82 @@ public class XnfCollectorTaskImplTest {
 
         verifyNoMoreInteractions(sftpClientMock);
     }
+
+    @Test
+    public void whenSftpFileToStream_collectToStream() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        XnfCollectorTaskImpl collectorUndetTest =
+                new XnfCollectorTaskImpl(appConfigMock, ftpsClientMock, sftpClientMock, new DatafileMetrics(registry));
+        // @formatter:off
+        FileData fileData = ImmutableFileData.builder()
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName(PRODUCT_NAME)
+                    .vendorName(VENDOR_NAME)
+                    .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
+                    .sourceName(SOURCE_NAME)
+                    .startEpochMicrosec(START_EPOCH_MICROSEC)
+                    .timeZoneOffset(TIME_ZONE_OFFSET)
+                    .changeIdentifier(PM_MEAS_CHANGE_IDINTIFIER)
+                    .changeType(FILE_READY_CHANGE_TYPE)
+                    .build())
+                .name(PM_FILE_NAME)
+                .location(SFTP_LOCATION)
+                .compression(GZIP_COMPRESSION)
+                .fileFormatType(MEAS_COLLECT_FILE_FORMAT_TYPE)
+                .fileFormatVersion(FILE_FORMAT_VERSION)
+                .build();
+
+        FileServerData fileServerData = ImmutableFileServerData.builder()
+                .serverAddress(SERVER_ADDRESS)
+                .userId("")
+                .password("")
+                .port(PORT_22)
+                .build();
+        // @formatter:on
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        when(sftpClientMock.collectFile(eq(fileServerData), eq(REMOTE_FILE_LOCATION), any(OutputStream.class)))
+                .thenAnswer(invocation -> {
+                    invocation.<OutputStream>getArgument(2).write(FILE_CONTENT);
+                    return new FileCollectResult();
+                });
+
+        StepVerifier.create(collectorUndetTest.execute(fileData, output)).verifyComplete();
+
+        assertArrayEquals(FILE_CONTENT, output.toByteArray());
+        assertEquals(FILE_CONTENT.length, registry.get("dfc.collector.download.bytes").tag("protocol", "sftp")
+                .tag("host", SERVER_ADDRESS).summary().totalAmount(), 0);
+        verify(sftpClientMock, times(1)).collectFile(eq(fileServerData), eq(REMOTE_FILE_LOCATION),
+                any(OutputStream.class));
+        verifyNoMoreInteractions(sftpClientMock);
+    }
+
+    @Test
+    public void whenWrongSchemeToStream_returnUnsupportedProtocolError() {
+        XnfCollectorTaskImpl collectorUndetTest =
+                new XnfCollectorTaskImpl(appConfigMock, ftpsClientMock, sftpClientMock, DatafileMetrics.disabled());
+        // @formatter:off
+        FileData fileData = ImmutableFileData.builder()
+                .eventHeader(ImmutableEventHeader.builder()
+                    .productName(PRODUCT_NAME)
+                    .vendorName(VENDOR_NAME)
+                    .lastEpochMicrosec(LAST_EPOCH_MICROSEC)
+                    .sourceName(SOURCE_NAME)
+                    .startEpochMicrosec(START_EPOCH_MICROSEC)
+                    .timeZoneOffset(TIME_ZONE_OFFSET)
+                    .changeIdentifier(PM_MEAS_CHANGE_IDINTIFIER)
+                    .changeType(FILE_READY_CHANGE_TYPE)
+                    .build())
+                .name(PM_FILE_NAME)
+                .location("http://host.com/file.zip")
+                .compression(GZIP_COMPRESSION)
+                .fileFormatType(MEAS_COLLECT_FILE_FORMAT_TYPE)
+                .fileFormatVersion(FILE_FORMAT_VERSION)
+                .build();
+        // @formatter:on
+
+        StepVerifier.create(collectorUndetTest.execute(fileData, new ByteArrayOutputStream()))
+                .expectError(UnsupportedProtocolException.class).verify();
+
+        verifyNoMoreInteractions(sftpClientMock);
+    }
 }
@@ -27,6 +27,8 @@ import java.util.List;
  *
  */
 public class JsonMessage {
+    private String eventName;
+    private String sourceName;
     private String changeIdentifier;
     private String changeType;
     private String notificationFieldsVersion;
@@ -61,7 +63,7 @@ public class JsonMessage {
                 + "\"commonEventHeader\":{"
                 + "\"domain\":\"notification\","
                 + "\"eventId\":\"<<SerialNumber>>-reg\","
-                + "\"eventName\":\"Noti_NrRadio-Ericsson_FileReady\","
+                + "\"eventName\":\"" + eventName + "\","
                 + "\"eventType\":\"fileReady\","
                 + "\"internalHeaderFields\":{},"
                 + "\"lastEpochMicrosec\":1519837825682,"
@@ -71,7 +73,7 @@ public class JsonMessage {
                 + "\"reportingEntityName\":\"5GRAN_DU\","
                 + "\"sequence\":0,"
                 + "\"sourceId\":\"<<SerialNumber>>\","
-                + "\"sourceName\":\"5GRAN_DU\","
+                + "\"sourceName\":\"" + sourceName + "\","
                 + "\"timeZoneOffset\":\"UTC+05:00\","
                 + "\"startEpochMicrosec\":\"1519837825682\","
                 + "\"version\":3"
@@ -88,6 +90,8 @@ public class JsonMessage {
     }
 
     private JsonMessage(final JsonMessageBuilder builder) {
+        this.eventName = builder.eventName;
+        this.sourceName = builder.sourceName;
         this.changeIdentifier = builder.changeIdentifier;
         this.changeType = builder.changeType;
         this.notificationFieldsVersion = builder.notificationFieldsVersion;
@@ -161,11 +165,23 @@ public class JsonMessage {
     }
 
     public static class JsonMessageBuilder {
+        private String eventName = "Noti_NrRadio-Ericsson_FileReady";
+        private String sourceName = "5GRAN_DU";
         private String changeIdentifier;
         private String changeType;
         private String notificationFieldsVersion;
         private List<AdditionalField> arrayOfAdditionalFields = new ArrayList<AdditionalField>();
 
+        public JsonMessageBuilder eventName(String eventName) {
+            this.eventName = eventName;
+            return this;
+        }
+
+        public JsonMessageBuilder sourceName(String sourceName) {
+            this.sourceName = sourceName;
+            return this;
+        }
+
         public JsonMessageBuilder changeIdentifier(String changeIdentifier) {
             this.changeIdentifier = changeIdentifier;
             return this;
@@ -0,0 +1,73 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+
+package org.onap.dcaegen2.collectors.datafile.service.producer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.methods.HttpPut;
+import org.onap.dcaegen2.collectors.datafile.config.DmaapPublisherConfiguration;
+import org.onap.dcaegen2.collectors.datafile.config.ImmutableDmaapPublisherConfiguration;
+import org.onap.dcaegen2.collectors.datafile.model.ConsumerDmaapModel;
+import org.onap.dcaegen2.collectors.datafile.utils.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building of the head of the request that publishes a file to DataRouter, with the X-ATT-DR-META header and the URI
+ * of the file. No request is sent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DmaapProducerReactiveHttpClientBenchmark {
+
+    private final ConsumerDmaapModel model = BenchmarkData.createConsumerDmaapModel();
+    private final DmaapProducerReactiveHttpClient client =
+            new DmaapProducerReactiveHttpClient(createConfiguration(), null);
+
+    @Benchmark
+    public HttpPut prepareHead() {
+        HttpPut put = new HttpPut();
+        client.prepareHead(model, put);
+        return put;
+    }
+
+    private static DmaapPublisherConfiguration createConfiguration() {
+        //@formatter:off
+        return new ImmutableDmaapPublisherConfiguration.Builder()
+                .dmaapContentType("application/octet-stream")
+                .dmaapHostName("dmaap-dr-prov")
+                .dmaapPortNumber(8443)
+                .dmaapProtocol("https")
+                .dmaapUserName("dradmin")
+                .dmaapUserPassword("dradmin")
+                .dmaapTopicName("/publish")
+                .build();
+        //@formatter:on
+    }
+}
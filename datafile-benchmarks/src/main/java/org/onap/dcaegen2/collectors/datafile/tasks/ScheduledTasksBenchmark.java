@@ -0,0 +1,237 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.onap.dcaegen2.collectors.datafile.config.DmaapConsumerConfiguration;
+import org.onap.dcaegen2.collectors.datafile.config.DmaapPublisherConfiguration;
+import org.onap.dcaegen2.collectors.datafile.configuration.AppConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.ClusterConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.CollectorConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.ConsumerConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.FtpesConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.ImmutableFtpesConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.JournalConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.PublisherConfig;
+import org.onap.dcaegen2.collectors.datafile.exceptions.DmaapEmptyResponseException;
+import org.onap.dcaegen2.collectors.datafile.ftp.FileCollectResult;
+import org.onap.dcaegen2.collectors.datafile.ftp.FileServerData;
+import org.onap.dcaegen2.collectors.datafile.ftp.FtpsClient;
+import org.onap.dcaegen2.collectors.datafile.ftp.SftpClient;
+import org.onap.dcaegen2.collectors.datafile.model.CommonFunctions;
+import org.onap.dcaegen2.collectors.datafile.model.ConsumerDmaapModel;
+import org.onap.dcaegen2.collectors.datafile.model.FileData;
+import org.onap.dcaegen2.collectors.datafile.service.DmaapConsumerJsonParser;
+import org.onap.dcaegen2.collectors.datafile.service.consumer.DmaapConsumerReactiveHttpClient;
+import org.onap.dcaegen2.collectors.datafile.service.producer.DmaapProducerReactiveHttpClient;
+import org.onap.dcaegen2.collectors.datafile.service.producer.StreamingFileEntity;
+import org.onap.dcaegen2.collectors.datafile.ssl.SslContextCache;
+import org.onap.dcaegen2.collectors.datafile.utils.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Throughput of the whole Datafile workflow, in files per second, from the poll of Message Router until the file is
+ * published. Message Router, the xNFs and DataRouter are stubbed in-process, so the result is the cost of DFC itself:
+ * parsing the events, the duplicate check, the stages and their bounds, the host permits and circuit breakers, and the
+ * selection of the FTPES or SFTP client for each file, and the metrics of the stages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ScheduledTasksBenchmark.FILES_PER_POLL)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScheduledTasksBenchmark {
+
+    private static final int EVENTS_PER_POLL = 100;
+    private static final int FILES_PER_EVENT = 10;
+    static final int FILES_PER_POLL = EVENTS_PER_POLL * FILES_PER_EVENT;
+
+    private final StubDmaapConsumerTask consumerTask = new StubDmaapConsumerTask();
+    private final StubDmaapPublisherTask publisherTask = new StubDmaapPublisherTask();
+    private ScheduledTasks scheduledTasks;
+    private int nextEvent;
+    private String batch;
+
+    @Setup(Level.Trial)
+    public void startWorkflow() {
+        DatafileMetrics metrics = new DatafileMetrics(new SimpleMeterRegistry());
+        XnfCollectorTask xnfCollectorTask =
+                new XnfCollectorTaskImpl(new StubAppConfig(), new StubFtpsClient(), new StubSftpClient(), metrics);
+        CollectorConfig collectorConfig = new CollectorConfig();
+        ConsumerConfig consumerConfig = new ConsumerConfig();
+        consumerConfig.setFirstEmptyPollBackoff(Duration.ofMillis(1));
+        consumerConfig.setMaxEmptyPollBackoff(Duration.ofMillis(1));
+        JournalConfig journalConfig = new JournalConfig();
+        journalConfig.setEnabled(false);
+        scheduledTasks = new ScheduledTasks(consumerTask, xnfCollectorTask, publisherTask,
+                new PassThroughTask(xnfCollectorTask, publisherTask, collectorConfig), collectorConfig, consumerConfig,
+                new PublisherConfig(), journalConfig, new ClusterConfig(), metrics);
+        scheduledTasks.scheduleMainDatafileEventTask();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopWorkflow() {
+        scheduledTasks.shutdown();
+    }
+
+    /**
+     * The files of each poll have their own names, so that they are not skipped as duplicates.
+     */
+    @Setup(Level.Invocation)
+    public void createBatch() {
+        batch = BenchmarkData.createVesBatch(nextEvent, EVENTS_PER_POLL, FILES_PER_EVENT);
+        nextEvent += EVENTS_PER_POLL;
+    }
+
+    @Benchmark
+    public void collectAndPublish() throws InterruptedException {
+        consumerTask.offer(batch);
+        if (!publisherTask.awaitPublished(FILES_PER_POLL, Duration.ofMinutes(1))) {
+            throw new IllegalStateException("The files of the poll were not published in time");
+        }
+    }
+
+    /**
+     * Message Router, which gives the offered batch at the next poll. Until then each poll is empty.
+     */
+    private static final class StubDmaapConsumerTask extends DmaapConsumerTask {
+        private final DmaapConsumerJsonParser parser = new DmaapConsumerJsonParser();
+        private final AtomicReference<String> offered = new AtomicReference<>();
+
+        void offer(String batch) {
+            offered.set(batch);
+        }
+
+        @Override
+        Flux<FileData> consume(Flux<byte[]> body) {
+            return parser.getJsonObjectFromStream(body);
+        }
+
+        @Override
+        DmaapConsumerReactiveHttpClient resolveClient() {
+            return null;
+        }
+
+        @Override
+        void initConfigs() {
+            // Nothing to configure, Message Router is not called
+        }
+
+        @Override
+        protected DmaapConsumerConfiguration resolveConfiguration() {
+            return null;
+        }
+
+        @Override
+        protected Flux<FileData> execute(String object) {
+            String batch = offered.getAndSet(null);
+            return batch == null ? Flux.error(new DmaapEmptyResponseException())
+                    : consume(Flux.just(batch.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * DataRouter, which takes each file at once. The description of the file is serialized, as in a real publish.
+     */
+    private static final class StubDmaapPublisherTask extends DmaapPublisherTask {
+        private final Semaphore published = new Semaphore(0);
+
+        boolean awaitPublished(int files, Duration timeout) throws InterruptedException {
+            return published.tryAcquire(files, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        protected DmaapPublisherConfiguration resolveConfiguration() {
+            return null;
+        }
+
+        @Override
+        protected DmaapProducerReactiveHttpClient resolveClient() {
+            return null;
+        }
+
+        @Override
+        protected Mono<String> execute(ConsumerDmaapModel consumerDmaapModel) {
+            return Mono.fromCallable(() -> {
+                CommonFunctions.createJsonBody(consumerDmaapModel);
+                published.release();
+                return "200";
+            });
+        }
+
+        @Override
+        protected Mono<String> execute(ConsumerDmaapModel consumerDmaapModel, StreamingFileEntity body) {
+            return execute(consumerDmaapModel);
+        }
+    }
+
+    private static final class StubAppConfig extends AppConfig {
+        @Override
+        public FtpesConfig getFtpesConfiguration() {
+            return new ImmutableFtpesConfig.Builder().keyCert("config/dfc.jks").keyPassword("secret")
+                    .trustedCA("config/ftp.jks").trustedCAPassword("secret").build();
+        }
+    }
+
+    /**
+     * An xNF reached with FTPES, which has the file at once.
+     */
+    private static final class StubFtpsClient extends FtpsClient {
+        StubFtpsClient() {
+            super(new SslContextCache());
+        }
+
+        @Override
+        public FileCollectResult collectFile(FileServerData fileServerData, String remoteFile, String localFile) {
+            return new FileCollectResult();
+        }
+    }
+
+    /**
+     * An xNF reached with SFTP, which has the file at once.
+     */
+    private static final class StubSftpClient extends SftpClient {
+        @Override
+        public FileCollectResult collectFile(FileServerData fileServerData, String remoteFile, String localFile) {
+            return new FileCollectResult();
+        }
+    }
+}
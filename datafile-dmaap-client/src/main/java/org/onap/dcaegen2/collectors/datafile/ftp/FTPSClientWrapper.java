@@ -19,27 +19,21 @@ package org.onap.dcaegen2.collectors.datafile.ftp;
 import java.io.IOException;
 import java.io.OutputStream;
 
-import javax.net.ssl.KeyManager;
-import javax.net.ssl.TrustManager;
+import javax.net.ssl.SSLContext;
 
+import org.apache.commons.net.ftp.FTPReply;
 import org.apache.commons.net.ftp.FTPSClient;
 
 public class FTPSClientWrapper implements IFTPSClient {
-    private FTPSClient ftpsClient = new FTPSClient();
+    private final FTPSClient ftpsClient;
 
-    @Override
-    public void setNeedClientAuth(boolean isNeedClientAuth) {
-        ftpsClient.setNeedClientAuth(isNeedClientAuth);
+    public FTPSClientWrapper(SSLContext sslContext) {
+        ftpsClient = new SessionReusingFTPSClient(sslContext);
     }
 
     @Override
-    public void setKeyManager(KeyManager keyManager) {
-        ftpsClient.setKeyManager(keyManager);
-    }
-
-    @Override
-    public void setTrustManager(TrustManager trustManager) {
-        ftpsClient.setTrustManager(trustManager);
+    public void setNeedClientAuth(boolean isNeedClientAuth) {
+        ftpsClient.setNeedClientAuth(isNeedClientAuth);
     }
 
     @Override
@@ -92,11 +86,37 @@ public class FTPSClientWrapper implements IFTPSClient {
         return ftpsClient.retrieveFile(remote, local);
     }
 
+    /**
+     * The size of the remote file from the SIZE command, or -1 if the xNF does not tell it.
+     */
+    @Override
+    public long getSize(String remote) throws IOException {
+        if (!FTPReply.isPositiveCompletion(ftpsClient.sendCommand("SIZE", remote))) {
+            return -1;
+        }
+        String[] reply = ftpsClient.getReplyString().trim().split(" ");
+        try {
+            return Long.parseLong(reply[reply.length - 1]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void setRestartOffset(long offset) {
+        ftpsClient.setRestartOffset(offset);
+    }
+
     @Override
     public void setTimeout(Integer t) {
         this.ftpsClient.setDefaultTimeout(t);
     }
 
+    @Override
+    public boolean sendNoOp() throws IOException {
+        return ftpsClient.sendNoOp();
+    }
+
     @Override
     public boolean isConnected() {
         return ftpsClient.isConnected();
@@ -16,6 +16,11 @@
 
 package org.onap.dcaegen2.collectors.datafile.ftp;
 
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,30 +28,95 @@ import org.slf4j.LoggerFactory;
  * @author <a href="mailto:henrik.b.andersson@est.tech">Henrik Andersson</a>
  */
 public abstract class FileCollectClient {
-    protected static final Logger logger = LoggerFactory.getLogger(FtpsClient.class);
+    protected static final Logger logger = LoggerFactory.getLogger(FileCollectClient.class);
+    private static final int MAX_PARTIAL_DOWNLOADS = 1000;
+
+    private final Map<String, PartialDownload> partialDownloads =
+            Collections.synchronizedMap(new LinkedHashMap<String, PartialDownload>() {
+                private static final long serialVersionUID = 1L;
 
-    protected FileServerData fileServerData;
-    protected String remoteFile;
-    protected String localFile;
-    protected ErrorData errorData;
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PartialDownload> eldest) {
+                    return size() > MAX_PARTIAL_DOWNLOADS;
+                }
+            });
 
+    /**
+     * Collects a file from an xNF. Safe to call from many threads at the same time.
+     *
+     * @param fileServerData - the xNF to collect from
+     * @param remoteFile - the path of the file on the xNF
+     * @param localFile - the path to store the file at
+     * @return the result of the download, with the errors of this download only if it failed
+     */
     public FileCollectResult collectFile(FileServerData fileServerData, String remoteFile, String localFile) {
         logger.trace("collectFile called with fileServerData: {}, remoteFile: {}, localFile: {}", fileServerData,
                 remoteFile, localFile);
 
-        this.fileServerData = fileServerData;
-        this.remoteFile = remoteFile;
-        this.localFile = localFile;
+        FileCollectResult result = collectFile(new FileCollectContext(fileServerData, remoteFile, localFile));
+        logger.trace("collectFile left with result: {}", result);
+        return result;
+    }
+
+    /**
+     * Collects a file from an xNF and writes it to a stream instead of storing it locally. The stream is not closed.
+     *
+     * @param fileServerData - the xNF to collect from
+     * @param remoteFile - the path of the file on the xNF
+     * @param outputStream - the stream to write the file to
+     * @return the result of the download, with the errors of this download only if it failed
+     */
+    public FileCollectResult collectFile(FileServerData fileServerData, String remoteFile,
+            OutputStream outputStream) {
+        logger.trace("collectFile called with fileServerData: {}, remoteFile: {}, to stream", fileServerData,
+                remoteFile);
+
+        FileCollectResult result = collectFile(new FileCollectContext(fileServerData, remoteFile, outputStream));
+        logger.trace("collectFile left with result: {}", result);
+        return result;
+    }
+
+    abstract FileCollectResult collectFile(FileCollectContext context);
 
-        return retryCollectFile();
+    /**
+     * Takes the partial download left at the local file of the context by a download that broke, if any.
+     */
+    PartialDownload takePartialDownload(FileCollectContext context) {
+        return partialDownloads.remove(context.getLocalFile());
     }
 
-    public abstract FileCollectResult retryCollectFile();
+    /**
+     * Tells that the download of the context broke, leaving a partial local file of the given size that a later
+     * download of the same file from the same xNF can continue from.
+     */
+    void keepPartialDownload(FileCollectContext context, long size) {
+        partialDownloads.put(context.getLocalFile(), new PartialDownload(context, size));
+    }
+
+    /**
+     * Tells if a local file of the given size was left by a broken download of the file of the context, so that the
+     * download can be continued from its end. Any other local file is to be downloaded again from the start.
+     */
+    static boolean isLeftBy(PartialDownload partialDownload, FileCollectContext context, long partialSize) {
+        return partialDownload != null && partialDownload.source.equals(PartialDownload.getSource(context))
+                && partialDownload.size == partialSize;
+    }
+
+    /**
+     * A local file left by a download that broke, and the xNF file that it is the start of.
+     */
+    static class PartialDownload {
+        private final String source;
+        private final long size;
+
+        PartialDownload(FileCollectContext context, long size) {
+            this.source = getSource(context);
+            this.size = size;
+        }
 
-    protected void addError(String errorMessage, Throwable errorCause) {
-        if (errorData == null) {
-            errorData = new ErrorData();
+        static String getSource(FileCollectContext context) {
+            FileServerData fileServerData = context.getFileServerData();
+            return fileServerData.serverAddress() + ":" + fileServerData.port() + context.getRemoteFile();
         }
-        errorData.addError(errorMessage, errorCause);
     }
 }
@@ -0,0 +1,87 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.ftp;
+
+import java.io.OutputStream;
+
+/**
+ * The state of one download. A new context is created for every call to
+ * {@link FileCollectClient#collectFile(FileServerData, String, String)}, so the clients themselves hold no state of
+ * a download and can be used for many downloads at the same time.
+ */
+class FileCollectContext {
+    private final FileServerData fileServerData;
+    private final String remoteFile;
+    private final String localFile;
+    private final OutputStream outputStream;
+    private final ErrorData errorData = new ErrorData();
+
+    FileCollectContext(FileServerData fileServerData, String remoteFile, String localFile) {
+        this(fileServerData, remoteFile, localFile, null);
+    }
+
+    FileCollectContext(FileServerData fileServerData, String remoteFile, OutputStream outputStream) {
+        this(fileServerData, remoteFile, null, outputStream);
+    }
+
+    private FileCollectContext(FileServerData fileServerData, String remoteFile, String localFile,
+            OutputStream outputStream) {
+        this.fileServerData = fileServerData;
+        this.remoteFile = remoteFile;
+        this.localFile = localFile;
+        this.outputStream = outputStream;
+    }
+
+    FileServerData getFileServerData() {
+        return fileServerData;
+    }
+
+    String getRemoteFile() {
+        return remoteFile;
+    }
+
+    String getLocalFile() {
+        return localFile;
+    }
+
+    /**
+     * The stream to write the file to instead of a local file, or null when the file is stored at the local file.
+     */
+    OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    boolean isStreaming() {
+        return outputStream != null;
+    }
+
+    void addError(String errorMessage, Throwable errorCause) {
+        errorData.addError(errorMessage, errorCause);
+    }
+
+    FileCollectResult success() {
+        return new FileCollectResult();
+    }
+
+    FileCollectResult failure() {
+        return new FileCollectResult(errorData);
+    }
+
+    FileCollectResult connectionFailure() {
+        return new FileCollectResult(errorData, true);
+    }
+}
@@ -19,13 +19,25 @@ package org.onap.dcaegen2.collectors.datafile.ftp;
 public class FileCollectResult {
     private boolean result;
     private ErrorData errorData;
+    private boolean connectionFailure;
 
     public FileCollectResult() {
         this.result = true;
     }
 
     public FileCollectResult(ErrorData errorData) {
+        this(errorData, false);
+    }
+
+    /**
+     * A failed download.
+     *
+     * @param errorData - the causes of the failure
+     * @param connectionFailure - true if no connection could be made to the xNF
+     */
+    public FileCollectResult(ErrorData errorData, boolean connectionFailure) {
         this.errorData = errorData;
+        this.connectionFailure = connectionFailure;
         result = false;
     }
 
@@ -33,6 +45,14 @@ public class FileCollectResult {
         return result;
     }
 
+    /**
+     * True if the download failed because no connection could be made to the xNF, as opposed to a failure on a
+     * connection that was made.
+     */
+    public boolean isConnectionFailure() {
+        return connectionFailure;
+    }
+
     public String getErrorData() {
         if (errorData != null) {
             return errorData.toString();
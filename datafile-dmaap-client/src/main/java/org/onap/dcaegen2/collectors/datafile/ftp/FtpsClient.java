@@ -17,134 +17,132 @@
 package org.onap.dcaegen2.collectors.datafile.ftp;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
 
 import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPReply;
-import org.onap.dcaegen2.collectors.datafile.io.FileSystemResourceWrapper;
 import org.onap.dcaegen2.collectors.datafile.io.FileWrapper;
 import org.onap.dcaegen2.collectors.datafile.io.IFile;
-import org.onap.dcaegen2.collectors.datafile.io.IFileSystemResource;
 import org.onap.dcaegen2.collectors.datafile.io.IOutputStream;
 import org.onap.dcaegen2.collectors.datafile.io.OutputStreamWrapper;
-import org.onap.dcaegen2.collectors.datafile.ssl.IKeyManagerUtils;
 import org.onap.dcaegen2.collectors.datafile.ssl.IKeyManagerUtils.KeyManagerException;
-import org.onap.dcaegen2.collectors.datafile.ssl.IKeyStore;
-import org.onap.dcaegen2.collectors.datafile.ssl.ITrustManagerFactory;
-import org.onap.dcaegen2.collectors.datafile.ssl.KeyManagerUtilsWrapper;
-import org.onap.dcaegen2.collectors.datafile.ssl.KeyStoreWrapper;
-import org.onap.dcaegen2.collectors.datafile.ssl.TrustManagerFactoryWrapper;
+import org.onap.dcaegen2.collectors.datafile.ssl.SslContextCache;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 /**
- * Gets file from xNF with FTPS protocol.
+ * Gets file from xNF with FTPS protocol. The logged in sessions are kept in a {@link FtpsConnectionPool} and reused
+ * for the following files from the same xNF. The key and trust stores are loaded once, by the
+ * {@link SslContextCache}, and all sessions share one TLS context so that new sessions to an xNF resume earlier TLS
+ * sessions from its session cache. The data channels resume the TLS session of their control channel, see
+ * {@link SessionReusingFTPSClient}.
  *
  * @author <a href="mailto:martin.c.yan@est.tech">Martin Yan</a>
  */
 @Component
 public class FtpsClient extends FileCollectClient {
+    private static final int DEFAULT_MAX_IDLE_PER_HOST = 4;
+    private static final Duration DEFAULT_MAX_IDLE_TIME = Duration.ofMinutes(1);
+
     private String keyCertPath;
     private String keyCertPassword;
     private String trustedCAPath;
     private String trustedCAPassword;
 
-    private IFTPSClient realFtpsClient;
-    private IKeyManagerUtils kmu;
-    private IKeyStore keyStore;
-    private ITrustManagerFactory trustManagerFactory;
-    private IFile lf;
-    private IFileSystemResource fileResource;
-    private IOutputStream os;
-    private boolean keyManagerSet = false;
-    private boolean trustManagerSet = false;
-
-    @Override
-    public FileCollectResult retryCollectFile() {
-        logger.trace("retryCollectFile called");
-
-        FileCollectResult fileCollectResult;
+    private final SslContextCache sslContextCache;
+    private Function<SSLContext, IFTPSClient> ftpsClientFactory = FTPSClientWrapper::new;
+    private FtpsConnectionPool connectionPool;
+    private Supplier<IFile> fileFactory = FileWrapper::new;
+    private Supplier<IOutputStream> outputStreamFactory = OutputStreamWrapper::new;
 
-        IFTPSClient ftps = getFtpsClient();
+    public FtpsClient(SslContextCache sslContextCache) {
+        this(sslContextCache, new FtpsConnectionPool(DEFAULT_MAX_IDLE_PER_HOST, DEFAULT_MAX_IDLE_TIME));
+    }
 
-        ftps.setNeedClientAuth(true);
+    @Autowired
+    public FtpsClient(SslContextCache sslContextCache, FtpsConnectionPool connectionPool) {
+        this.sslContextCache = sslContextCache;
+        this.connectionPool = connectionPool;
+    }
 
-        if (setUpKeyManager(ftps) && setUpTrustedCA(ftps) && setUpConnection(ftps)) {
-            if (getFileFromxNF(ftps)) {
-                fileCollectResult = new FileCollectResult();
-            } else {
-                fileCollectResult = new FileCollectResult(errorData);
+    @Override
+    FileCollectResult collectFile(FileCollectContext context) {
+        FileServerData fileServerData = context.getFileServerData();
+        IFTPSClient ftps = connectionPool.acquire(fileServerData);
+        if (ftps == null) {
+            SSLContext sslContext = getSslContext(context);
+            if (sslContext == null) {
+                return context.failure();
+            }
+            ftps = ftpsClientFactory.apply(sslContext);
+            ftps.setNeedClientAuth(true);
+            if (!setUpConnection(ftps, context)) {
+                closeDownConnection(ftps);
+                return context.connectionFailure();
             }
-        } else {
-            fileCollectResult = new FileCollectResult(errorData);
+        }
+
+        if (getFileFromxNF(ftps, context)) {
+            connectionPool.release(fileServerData, ftps);
+            return context.success();
         }
         closeDownConnection(ftps);
-        logger.trace("retryCollectFile left with result: {}", fileCollectResult);
-        return fileCollectResult;
+        return context.failure();
     }
 
-    private boolean setUpKeyManager(IFTPSClient ftps) {
-        boolean result = true;
-        if (keyManagerSet) {
-            logger.trace("keyManager already set!");
-            return result;
-        }
+    /**
+     * Closes the idle sessions to the xNFs.
+     */
+    @PreDestroy
+    public void close() {
+        connectionPool.close();
+    }
+
+    private synchronized SSLContext getSslContext(FileCollectContext context) {
+        KeyManager keyManager;
         try {
-            IKeyManagerUtils keyManagerUtils = getKeyManagerUtils();
-            keyManagerUtils.setCredentials(keyCertPath, keyCertPassword);
-            ftps.setKeyManager(keyManagerUtils.getClientKeyManager());
-            keyManagerSet = true;
+            keyManager = sslContextCache.getKeyManager(keyCertPath, keyCertPassword);
         } catch (KeyManagerException e) {
-            addError("Unable to use own key store " + keyCertPath, e);
-            result = false;
+            context.addError("Unable to use own key store " + keyCertPath, e);
+            return null;
         }
-        logger.trace("complete setUpKeyManager");
-        return result;
-    }
 
-    private boolean setUpTrustedCA(IFTPSClient ftps) {
-        boolean result = true;
-        if (trustManagerSet) {
-            logger.trace("trustManager already set!");
-            return result;
-        }
+        TrustManager trustManager;
         try {
-            IFileSystemResource fileSystemResource = getFileSystemResource();
-            fileSystemResource.setPath(trustedCAPath);
-            InputStream fis = fileSystemResource.getInputStream();
-            IKeyStore ks = getKeyStore();
-            ks.load(fis, trustedCAPassword.toCharArray());
-            fis.close();
-            ITrustManagerFactory tmf = getTrustManagerFactory();
-            tmf.init(ks.getKeyStore());
-            ftps.setTrustManager(tmf.getTrustManagers()[0]);
-            trustManagerSet = true;
-
+            trustManager = sslContextCache.getTrustManager(trustedCAPath, trustedCAPassword);
         } catch (Exception e) {
-            addError("Unable to trust xNF's CA, " + trustedCAPath, e);
-            result = false;
+            context.addError("Unable to trust xNF's CA, " + trustedCAPath, e);
+            return null;
+        }
+
+        try {
+            SSLContext sslContext = sslContextCache.getSslContext(keyManager, trustManager);
+            logger.trace("complete getSslContext");
+            return sslContext;
+        } catch (GeneralSecurityException e) {
+            context.addError("Unable to set up TLS with own key store " + keyCertPath, e);
+            return null;
         }
-        logger.trace("complete setUpTrustedCA");
-        return result;
     }
 
-    private boolean setUpConnection(IFTPSClient ftps) {
+    private boolean setUpConnection(IFTPSClient ftps, FileCollectContext context) {
+        FileServerData fileServerData = context.getFileServerData();
         boolean result = true;
         try {
-            if (ftps.isConnected()) {
-                addError(
-                        "Looks like previous ftp connection is still in use, will retry in 1 minute. " + fileServerData,
-                        null);
-                return false;
-            }
             ftps.connect(fileServerData.serverAddress(), fileServerData.port());
             logger.trace("after ftp connect");
             boolean loginSuccesful = ftps.login(fileServerData.userId(), fileServerData.password());
             if (!loginSuccesful) {
-                closeDownConnection(ftps);
-                addError("Unable to log in to xNF. " + fileServerData, null);
+                context.addError("Unable to log in to xNF. " + fileServerData, null);
                 return false;
             }
 
@@ -157,168 +155,154 @@ public class FtpsClient extends FileCollectClient {
                 ftps.execPROT("P");
                 ftps.setBufferSize(1024 * 1024);
             } else {
-                closeDownConnection(ftps);
-                addError("Unable to connect to xNF. " + fileServerData + " xNF reply code: " + ftps.getReplyCode(),
+                context.addError(
+                        "Unable to connect to xNF. " + fileServerData + " xNF reply code: " + ftps.getReplyCode(),
                         null);
                 return false;
             }
         } catch (Exception e) {
             logger.trace("connect to ftp server failed.", e);
-            addError("Unable to connect to xNF. Data: " + fileServerData, e);
-            closeDownConnection(ftps);
+            context.addError("Unable to connect to xNF. Data: " + fileServerData, e);
             return false;
         }
         logger.trace("setUpConnection successfully!");
         return result;
     }
 
-    private boolean getFileFromxNF(IFTPSClient ftps) {
+    /**
+     * Downloads the file to the local file. When an earlier download of the same file from the same xNF broke, the
+     * download continues from the end of the partial local file that it left. A local file that was not left by such a
+     * download is downloaded again from the start. If the xNF tells the size of the file, the size of the downloaded
+     * file is checked against it.
+     */
+    private boolean getFileFromxNF(IFTPSClient ftps, FileCollectContext context) {
+        if (context.isStreaming()) {
+            return streamFileFromxNF(ftps, context);
+        }
         logger.trace("starting to getFile");
+        String remoteFile = context.getRemoteFile();
+        String localFile = context.getLocalFile();
+        PartialDownload partialDownload = takePartialDownload(context);
         boolean result = true;
-        IFile outfile = getFile();
+        boolean transferStarted = false;
+        IFile outfile = fileFactory.get();
         try {
             outfile.setPath(localFile);
             outfile.createNewFile();
 
-            IOutputStream outputStream = getOutputStream();
-            OutputStream output = outputStream.getOutputStream(outfile.getFile());
+            long expectedSize = ftps.getSize(remoteFile);
+            long partialSize = outfile.getFile().length();
             logger.trace("Begin to retrieve from xNF.");
-            result = ftps.retrieveFile(remoteFile, output);
+            transferStarted = true;
+            if (partialSize > 0 && partialSize < expectedSize && isLeftBy(partialDownload, context, partialSize)) {
+                logger.debug("Resuming download of {} at byte {} of {}", remoteFile, partialSize, expectedSize);
+                ftps.setRestartOffset(partialSize);
+                result = retrieveFile(ftps, remoteFile, outfile, true);
+                if (!result) {
+                    logger.debug("Unable to resume download of {}, downloading it from the start", remoteFile);
+                    ftps.setRestartOffset(0);
+                    result = retrieveFile(ftps, remoteFile, outfile, false);
+                }
+            } else {
+                result = retrieveFile(ftps, remoteFile, outfile, false);
+            }
             logger.trace("End retrieve from xNF.");
             if (!result) {
-                output.close();
                 logger.debug("Unable to retrieve file from xNF. Cause unknown!");
-                addError("Unable to retrieve file from xNF. Cause unknown!", null);
+                context.addError("Unable to retrieve file from xNF. Cause unknown!", null);
                 return result;
             }
-            output.close();
+            long downloadedSize = outfile.getFile().length();
+            if (expectedSize >= 0 && downloadedSize != expectedSize) {
+                context.addError("Size of downloaded file " + remoteFile + " is " + downloadedSize + ", expected "
+                        + expectedSize + ". Data: " + context.getFileServerData(), null);
+                deleteLocalFile(outfile, localFile);
+                return false;
+            }
             logger.debug("File {} Download Successfull from xNF", localFile);
         } catch (IOException ex) {
-            addError("Unable to collect file from xNF. Data: " + fileServerData, ex);
-            try {
-                outfile.delete();
-            } catch (Exception e) {
-                logger.trace("Unable to delete file {}.", localFile, e);
+            context.addError("Unable to collect file from xNF. Data: " + context.getFileServerData(), ex);
+            if (transferStarted) {
+                keepPartialDownload(context, outfile.getFile().length());
+            } else {
+                deleteLocalFile(outfile, localFile);
             }
             return false;
         }
         return result;
     }
 
-    private void closeDownConnection(IFTPSClient ftps) {
-        logger.trace("starting to closeDownConnection");
-        if (ftps != null) {
-            if (ftps.isConnected()) {
-                try {
-                    boolean logOut = ftps.logout();
-                    logger.trace("logOut: {}", logOut);
-                } catch (Exception e) {
-                    logger.trace("Unable to logout connection.", e);
-                }
-                try {
-                    ftps.disconnect();
-                    logger.trace("disconnected!");
-                } catch (Exception e) {
-                    logger.trace("Unable to disconnect connection.", e);
-                }
-            }
+    private boolean retrieveFile(IFTPSClient ftps, String remoteFile, IFile outfile, boolean append)
+            throws IOException {
+        IOutputStream outputStream = outputStreamFactory.get();
+        OutputStream output = append ? outputStream.getOutputStream(outfile.getFile(), true)
+                : outputStream.getOutputStream(outfile.getFile());
+        try {
+            return ftps.retrieveFile(remoteFile, output);
+        } finally {
+            output.close();
         }
     }
 
-    public void setKeyCertPath(String keyCertPath) {
-        this.keyCertPath = keyCertPath;
-    }
-
-    public void setKeyCertPassword(String keyCertPassword) {
-        this.keyCertPassword = keyCertPassword;
-    }
-
-    public void setTrustedCAPath(String trustedCAPath) {
-        this.trustedCAPath = trustedCAPath;
-    }
-
-    public void setTrustedCAPassword(String trustedCAPassword) {
-        this.trustedCAPassword = trustedCAPassword;
-    }
-
-    private ITrustManagerFactory getTrustManagerFactory() throws NoSuchAlgorithmException {
-        if (trustManagerFactory == null) {
-            trustManagerFactory = new TrustManagerFactoryWrapper();
+    private void deleteLocalFile(IFile outfile, String localFile) {
+        try {
+            outfile.delete();
+        } catch (Exception e) {
+            logger.trace("Unable to delete file {}.", localFile, e);
         }
-        return trustManagerFactory;
     }
 
-    private IFTPSClient getFtpsClient() {
-        if (realFtpsClient == null) {
-            realFtpsClient = new FTPSClientWrapper();
+    private boolean streamFileFromxNF(IFTPSClient ftps, FileCollectContext context) {
+        try {
+            if (!ftps.retrieveFile(context.getRemoteFile(), context.getOutputStream())) {
+                context.addError("Unable to retrieve file from xNF. Cause unknown!", null);
+                return false;
+            }
+            logger.debug("File {} streamed from xNF", context.getRemoteFile());
+            return true;
+        } catch (IOException ex) {
+            context.addError("Unable to collect file from xNF. Data: " + context.getFileServerData(), ex);
+            return false;
         }
-        return realFtpsClient;
     }
 
-    private IKeyManagerUtils getKeyManagerUtils() {
-        if (kmu == null) {
-            kmu = new KeyManagerUtilsWrapper();
-        }
-
-        return kmu;
+    private void closeDownConnection(IFTPSClient ftps) {
+        connectionPool.invalidate(ftps);
     }
 
-    private IKeyStore getKeyStore() throws KeyStoreException {
-        if (keyStore == null) {
-            keyStore = new KeyStoreWrapper();
-        }
-
-        return keyStore;
+    public synchronized void setKeyCertPath(String keyCertPath) {
+        this.keyCertPath = keyCertPath;
     }
 
-    private IFile getFile() {
-        if (lf == null) {
-            lf = new FileWrapper();
-        }
-
-        return lf;
+    public synchronized void setKeyCertPassword(String keyCertPassword) {
+        this.keyCertPassword = keyCertPassword;
     }
 
-    private IOutputStream getOutputStream() {
-        if (os == null) {
-            os = new OutputStreamWrapper();
-        }
-
-        return os;
+    public synchronized void setTrustedCAPath(String trustedCAPath) {
+        this.trustedCAPath = trustedCAPath;
     }
 
-    private IFileSystemResource getFileSystemResource() {
-        if (fileResource == null) {
-            fileResource = new FileSystemResourceWrapper();
-        }
-        return fileResource;
+    public synchronized void setTrustedCAPassword(String trustedCAPassword) {
+        this.trustedCAPassword = trustedCAPassword;
     }
 
     protected void setFtpsClient(IFTPSClient ftpsClient) {
-        this.realFtpsClient = ftpsClient;
-    }
-
-    protected void setKeyManagerUtils(IKeyManagerUtils keyManagerUtils) {
-        this.kmu = keyManagerUtils;
+        this.ftpsClientFactory = sslContext -> ftpsClient;
     }
 
-    protected void setKeyStore(IKeyStore keyStore) {
-        this.keyStore = keyStore;
+    protected void setFtpsClientFactory(Function<SSLContext, IFTPSClient> ftpsClientFactory) {
+        this.ftpsClientFactory = ftpsClientFactory;
     }
 
-    protected void setTrustManagerFactory(ITrustManagerFactory tmf) {
-        trustManagerFactory = tmf;
+    protected void setConnectionPool(FtpsConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
     }
 
     protected void setFile(IFile file) {
-        lf = file;
+        fileFactory = () -> file;
     }
 
     protected void setOutputStream(IOutputStream outputStream) {
-        os = outputStream;
-    }
-
-    protected void setFileSystemResource(IFileSystemResource fileSystemResource) {
-        fileResource = fileSystemResource;
+        outputStreamFactory = () -> outputStream;
     }
 }
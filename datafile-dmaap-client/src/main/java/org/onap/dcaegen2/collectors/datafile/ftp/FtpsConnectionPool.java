@@ -0,0 +1,221 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.ftp;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Keeps logged in FTPS sessions to the xNFs, so that consecutive files from the same xNF are collected without a new
+ * TCP and TLS handshake and login. The sessions are keyed by {@link FileServerData}.
+ *
+ * <p>
+ * A session is checked with a NOOP before it is handed out again. Sessions that have been idle longer than the max
+ * idle time are closed, and at most max idle per host sessions are kept for each xNF. The idle sessions are checked
+ * on a timer, so that an xNF that no files are collected from is not left with open connections.
+ */
+public class FtpsConnectionPool {
+    private static final Logger logger = LoggerFactory.getLogger(FtpsConnectionPool.class);
+
+    private final int maxIdlePerHost;
+    private final long maxIdleMillis;
+    private final Map<FileServerData, Deque<IdleConnection>> idleConnections = new HashMap<>();
+    private final ScheduledExecutorService evictionTimer;
+
+    /**
+     * Constructor.
+     *
+     * @param maxIdlePerHost - the most idle sessions that are kept for one xNF
+     * @param maxIdleTime - how long a session is kept when it is not used, no sessions are kept when zero
+     */
+    public FtpsConnectionPool(int maxIdlePerHost, Duration maxIdleTime) {
+        this.maxIdlePerHost = maxIdlePerHost;
+        this.maxIdleMillis = maxIdleTime.toMillis();
+        this.evictionTimer = maxIdleMillis > 0 ? createEvictionTimer(Math.max(maxIdleMillis / 2, 1)) : null;
+    }
+
+    private ScheduledExecutorService createEvictionTimer(long periodMillis) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ftps-idle-eviction-");
+        threadFactory.setDaemon(true);
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        timer.scheduleWithFixedDelay(this::closeExpired, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return timer;
+    }
+
+    /**
+     * Gets an idle session to the xNF.
+     *
+     * @param fileServerData - the xNF
+     * @return a logged in session that has answered a NOOP, or <code>null</code> if there is none
+     */
+    public IFTPSClient acquire(FileServerData fileServerData) {
+        closeExpired();
+        IFTPSClient ftps;
+        while ((ftps = pollIdle(fileServerData)) != null) {
+            if (isAlive(ftps)) {
+                logger.trace("Reusing FTPS session to {}", fileServerData.serverAddress());
+                return ftps;
+            }
+            invalidate(ftps);
+        }
+        return null;
+    }
+
+    /**
+     * Returns a session that is no longer used, so that it can be reused for the next file from the same xNF.
+     *
+     * @param fileServerData - the xNF
+     * @param ftps - a logged in session to the xNF
+     */
+    public void release(FileServerData fileServerData, IFTPSClient ftps) {
+        IFTPSClient surplus = null;
+        synchronized (this) {
+            Deque<IdleConnection> idle = idleConnections.computeIfAbsent(fileServerData, key -> new ArrayDeque<>());
+            if (idle.size() >= maxIdlePerHost) {
+                surplus = idle.pollFirst().ftps;
+            }
+            if (maxIdlePerHost > 0 && maxIdleMillis > 0) {
+                idle.addLast(new IdleConnection(ftps, System.currentTimeMillis()));
+            } else {
+                surplus = ftps;
+            }
+        }
+        if (surplus != null) {
+            invalidate(surplus);
+        }
+    }
+
+    /**
+     * Logs out and disconnects a session.
+     *
+     * @param ftps - the session
+     */
+    public void invalidate(IFTPSClient ftps) {
+        logger.trace("starting to closeDownConnection");
+        if (ftps.isConnected()) {
+            try {
+                boolean logOut = ftps.logout();
+                logger.trace("logOut: {}", logOut);
+            } catch (Exception e) {
+                logger.trace("Unable to logout connection.", e);
+            }
+            try {
+                ftps.disconnect();
+                logger.trace("disconnected!");
+            } catch (Exception e) {
+                logger.trace("Unable to disconnect connection.", e);
+            }
+        }
+    }
+
+    /**
+     * Closes the sessions that have been idle longer than the max idle time.
+     */
+    public void closeExpired() {
+        closeAll(removeExpired());
+    }
+
+    /**
+     * Closes all idle sessions, and stops checking them.
+     */
+    public void close() {
+        if (evictionTimer != null) {
+            evictionTimer.shutdownNow();
+        }
+        List<IFTPSClient> all = new ArrayList<>();
+        synchronized (this) {
+            for (Deque<IdleConnection> idle : idleConnections.values()) {
+                for (IdleConnection connection : idle) {
+                    all.add(connection.ftps);
+                }
+            }
+            idleConnections.clear();
+        }
+        closeAll(all);
+    }
+
+    public synchronized int getIdleCount(FileServerData fileServerData) {
+        Deque<IdleConnection> idle = idleConnections.get(fileServerData);
+        return idle == null ? 0 : idle.size();
+    }
+
+    private synchronized IFTPSClient pollIdle(FileServerData fileServerData) {
+        Deque<IdleConnection> idle = idleConnections.get(fileServerData);
+        if (idle == null) {
+            return null;
+        }
+        IdleConnection connection = idle.pollLast();
+        if (idle.isEmpty()) {
+            idleConnections.remove(fileServerData);
+        }
+        return connection == null ? null : connection.ftps;
+    }
+
+    private synchronized List<IFTPSClient> removeExpired() {
+        List<IFTPSClient> expired = new ArrayList<>();
+        long oldestAllowed = System.currentTimeMillis() - maxIdleMillis;
+        Iterator<Deque<IdleConnection>> hosts = idleConnections.values().iterator();
+        while (hosts.hasNext()) {
+            Deque<IdleConnection> idle = hosts.next();
+            while (!idle.isEmpty() && idle.peekFirst().idleSince < oldestAllowed) {
+                expired.add(idle.pollFirst().ftps);
+            }
+            if (idle.isEmpty()) {
+                hosts.remove();
+            }
+        }
+        return expired;
+    }
+
+    private void closeAll(List<IFTPSClient> connections) {
+        for (IFTPSClient ftps : connections) {
+            invalidate(ftps);
+        }
+    }
+
+    private boolean isAlive(IFTPSClient ftps) {
+        try {
+            return ftps.isConnected() && ftps.sendNoOp();
+        } catch (Exception e) {
+            logger.trace("Idle FTPS session no longer usable.", e);
+            return false;
+        }
+    }
+
+    private static class IdleConnection {
+        private final IFTPSClient ftps;
+        private final long idleSince;
+
+        IdleConnection(IFTPSClient ftps, long idleSince) {
+            this.ftps = ftps;
+            this.idleSince = idleSince;
+        }
+    }
+}
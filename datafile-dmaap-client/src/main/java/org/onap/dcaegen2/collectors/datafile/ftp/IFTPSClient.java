@@ -19,16 +19,9 @@ package org.onap.dcaegen2.collectors.datafile.ftp;
 import java.io.IOException;
 import java.io.OutputStream;
 
-import javax.net.ssl.KeyManager;
-import javax.net.ssl.TrustManager;
-
 public interface IFTPSClient {
     public void setNeedClientAuth(boolean isNeedClientAuth);
 
-    public void setKeyManager(KeyManager keyManager);
-
-    public void setTrustManager(TrustManager trustManager);
-
     public void connect(String hostname, int port) throws IOException;
 
     public boolean login(String username, String password) throws IOException;
@@ -53,5 +46,11 @@ public interface IFTPSClient {
 
     public boolean retrieveFile(String remote, OutputStream local) throws IOException;
 
+    public long getSize(String remote) throws IOException;
+
+    public void setRestartOffset(long offset);
+
+    public boolean sendNoOp() throws IOException;
+
     void setTimeout(Integer t);
 }
@@ -0,0 +1,134 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.ftp;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import javax.net.SocketFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+import org.apache.commons.net.ftp.FTPSClient;
+
+/**
+ * FTPS client that resumes the TLS session of the control channel on the data channels. Some FTPS servers, like
+ * vsftpd with require_ssl_reuse, refuse data connections that do not. It also saves a full handshake per file.
+ *
+ * <p>JSSE resumes a client session that was made with the same host and port. So the data channels are opened as
+ * plain sockets and TLS is layered on top of them with the host of the control channel's session. JSSE takes the
+ * port from the plain socket, so that socket reports the port of the control channel.
+ */
+class SessionReusingFTPSClient extends FTPSClient {
+    private static final String PRIVATE_DATA_CHANNEL = "P";
+
+    private final SSLContext sslContext;
+    private boolean privateDataChannel = false;
+
+    SessionReusingFTPSClient(SSLContext sslContext) {
+        super(false, sslContext);
+        this.sslContext = sslContext;
+    }
+
+    @Override
+    public void execPROT(String prot) throws SSLException, IOException {
+        super.execPROT(prot);
+        privateDataChannel = PRIVATE_DATA_CHANNEL.equals(prot) && _socket_ instanceof SSLSocket;
+        if (privateDataChannel) {
+            // The data sockets are made plain here and get TLS in _openDataConnection_
+            setSocketFactory(new DataSocketFactory(controlSession().getPeerPort()));
+        }
+    }
+
+    @Override
+    protected Socket _openDataConnection_(String command, String arg) throws IOException {
+        Socket socket = super._openDataConnection_(command, arg);
+        if (!privateDataChannel || socket == null || socket instanceof SSLSocket) {
+            return socket;
+        }
+        SSLSession controlSession = controlSession();
+        SSLSocket sslSocket = (SSLSocket) sslContext.getSocketFactory().createSocket(socket,
+                controlSession.getPeerHost(), controlSession.getPeerPort(), true);
+        try {
+            sslSocket.setUseClientMode(true);
+            sslSocket.startHandshake();
+        } catch (IOException e) {
+            sslSocket.close();
+            throw e;
+        }
+        return sslSocket;
+    }
+
+    private SSLSession controlSession() {
+        return ((SSLSocket) _socket_).getSession();
+    }
+
+    /**
+     * Creates plain data sockets that report the port of the control channel instead of their own.
+     */
+    private static class DataSocketFactory extends SocketFactory {
+        private final int controlPort;
+
+        DataSocketFactory(int controlPort) {
+            this.controlPort = controlPort;
+        }
+
+        @Override
+        public Socket createSocket() {
+            return new Socket() {
+                @Override
+                public int getPort() {
+                    return controlPort;
+                }
+            };
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return createSocket(new InetSocketAddress(host, port), null);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return createSocket(new InetSocketAddress(host, port), new InetSocketAddress(localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return createSocket(new InetSocketAddress(host, port), null);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+                throws IOException {
+            return createSocket(new InetSocketAddress(address, port), new InetSocketAddress(localAddress, localPort));
+        }
+
+        private Socket createSocket(InetSocketAddress remote, InetSocketAddress local) throws IOException {
+            Socket socket = createSocket();
+            if (local != null) {
+                socket.bind(local);
+            }
+            socket.connect(remote);
+            return socket;
+        }
+    }
+}
@@ -23,65 +23,149 @@ import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 import com.jcraft.jsch.SftpException;
 
+import java.io.File;
+import java.time.Duration;
+
+import javax.annotation.PreDestroy;
+
 import org.apache.commons.io.FilenameUtils;
+import org.onap.dcaegen2.collectors.datafile.ftp.SftpSessionCache.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 /**
- * Gets file from xNF with SFTP protocol.
+ * Gets file from xNF with SFTP protocol. The SSH sessions are kept in a {@link SftpSessionCache}, and each file is
+ * fetched over its own channel on a shared session. A download that broke is resumed from the end of the partial
+ * local file that it left, any other local file is overwritten. The size of the downloaded file is checked against
+ * the size of the remote file.
  *
  * @author <a href="mailto:martin.c.yan@est.tech">Martin Yan</a>
  *
  */
 @Component
 public class SftpClient extends FileCollectClient {
+    private static final int DEFAULT_MAX_CHANNELS_PER_SESSION = 5;
+    private static final int DEFAULT_MAX_SESSIONS_PER_HOST = 4;
+    private static final Duration DEFAULT_MAX_IDLE_TIME = Duration.ofMinutes(1);
+
+    private final JSch jsch = new JSch();
+    private final SftpSessionCache sessionCache;
+    private SessionFactory sessionFactory = this::setUpSession;
+
+    public SftpClient() {
+        this(new SftpSessionCache(DEFAULT_MAX_CHANNELS_PER_SESSION, DEFAULT_MAX_SESSIONS_PER_HOST,
+                DEFAULT_MAX_IDLE_TIME));
+    }
+
+    @Autowired
+    public SftpClient(SftpSessionCache sessionCache) {
+        this.sessionCache = sessionCache;
+    }
+
     @Override
-    public FileCollectResult retryCollectFile() {
-        logger.trace("retryCollectFile called");
-
-        FileCollectResult result;
-        Session session = setUpSession(fileServerData);
-
-        if (session != null) {
-            ChannelSftp sftpChannel = getChannel(session, fileServerData);
-            if (sftpChannel != null) {
-                try {
-                    sftpChannel.get(remoteFile, localFile);
-                    result = new FileCollectResult();
-                    logger.debug("File {} Download Successfull from xNF", FilenameUtils.getName(localFile));
-                } catch (SftpException e) {
-                    addError("Unable to get file from xNF. Data: " + fileServerData, e);
-                    result = new FileCollectResult(errorData);
-                }
-
-                sftpChannel.exit();
-            } else {
-                result = new FileCollectResult(errorData);
+    FileCollectResult collectFile(FileCollectContext context) {
+        FileServerData fileServerData = context.getFileServerData();
+        Session session = getSession(context);
+        if (session == null) {
+            return context.connectionFailure();
+        }
+
+        ChannelSftp sftpChannel = getChannel(session, context);
+        if (sftpChannel == null) {
+            releaseSession(fileServerData, session);
+            return context.failure();
+        }
+
+        try {
+            if (context.isStreaming()) {
+                sftpChannel.get(context.getRemoteFile(), context.getOutputStream());
+                logger.debug("File {} streamed from xNF", context.getRemoteFile());
+                return context.success();
             }
-            session.disconnect();
+            return getFileFromxNF(sftpChannel, context);
+        } catch (SftpException e) {
+            context.addError("Unable to get file from xNF. Data: " + fileServerData, e);
+            return context.failure();
+        } finally {
+            sftpChannel.exit();
+            releaseSession(fileServerData, session);
+        }
+    }
+
+    /**
+     * A failed channel does not affect the other channels on the session, so the session is only removed when it
+     * has been disconnected.
+     */
+    private void releaseSession(FileServerData fileServerData, Session session) {
+        if (session.isConnected()) {
+            sessionCache.release(fileServerData, session);
         } else {
-            result = new FileCollectResult(errorData);
+            sessionCache.invalidate(fileServerData, session);
         }
-        logger.trace("retryCollectFile left with result: {}", result);
-        return result;
     }
 
-    private Session setUpSession(FileServerData fileServerData) {
-        JSch jsch = new JSch();
+    private FileCollectResult getFileFromxNF(ChannelSftp sftpChannel, FileCollectContext context)
+            throws SftpException {
+        String remoteFile = context.getRemoteFile();
+        File localFile = new File(context.getLocalFile());
+        long expectedSize = sftpChannel.stat(remoteFile).getSize();
+        PartialDownload partialDownload = takePartialDownload(context);
+        long partialSize = localFile.length();
+        try {
+            if (partialSize > 0 && partialSize < expectedSize && isLeftBy(partialDownload, context, partialSize)) {
+                logger.debug("Resuming download of {} at byte {} of {}", remoteFile, partialSize, expectedSize);
+                sftpChannel.get(remoteFile, context.getLocalFile(), null, ChannelSftp.RESUME);
+            } else {
+                sftpChannel.get(remoteFile, context.getLocalFile(), null, ChannelSftp.OVERWRITE);
+            }
+        } catch (SftpException e) {
+            keepPartialDownload(context, localFile.length());
+            throw e;
+        }
+
+        if (localFile.length() != expectedSize) {
+            context.addError("Size of downloaded file " + remoteFile + " is " + localFile.length() + ", expected "
+                    + expectedSize + ". Data: " + context.getFileServerData(), null);
+            deleteLocalFile(localFile);
+            return context.failure();
+        }
+        logger.debug("File {} Download Successfull from xNF", FilenameUtils.getName(context.getLocalFile()));
+        return context.success();
+    }
+
+    private void deleteLocalFile(File localFile) {
+        if (!localFile.delete()) {
+            logger.trace("Unable to delete file {}.", localFile);
+        }
+    }
+
+    /**
+     * Disconnects the sessions to the xNFs.
+     */
+    @PreDestroy
+    public void close() {
+        sessionCache.close();
+    }
 
-        Session session = null;
+    private Session getSession(FileCollectContext context) {
         try {
-            session = jsch.getSession(fileServerData.userId(), fileServerData.serverAddress(), fileServerData.port());
-            session.setConfig("StrictHostKeyChecking", "no");
-            session.setPassword(fileServerData.password());
-            session.connect();
+            return sessionCache.acquire(context.getFileServerData(), sessionFactory);
         } catch (JSchException e) {
-            addError("Unable to set up SFTP connection to xNF. Data: " + fileServerData, e);
-            session = null;
+            context.addError("Unable to set up SFTP connection to xNF. Data: " + context.getFileServerData(), e);
+            return null;
         }
+    }
+
+    private Session setUpSession(FileServerData fileServerData) throws JSchException {
+        Session session =
+                jsch.getSession(fileServerData.userId(), fileServerData.serverAddress(), fileServerData.port());
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.setPassword(fileServerData.password());
+        session.connect();
         return session;
     }
 
-    private ChannelSftp getChannel(Session session, FileServerData fileServerData) {
+    private ChannelSftp getChannel(Session session, FileCollectContext context) {
         ChannelSftp sftpChannel = null;
         try {
             Channel channel;
@@ -89,8 +173,12 @@ public class SftpClient extends FileCollectClient {
             channel.connect();
             sftpChannel = (ChannelSftp) channel;
         } catch (JSchException e) {
-            addError("Unable to get sftp channel to xNF. Data: " + fileServerData, e);
+            context.addError("Unable to get sftp channel to xNF. Data: " + context.getFileServerData(), e);
         }
         return sftpChannel;
     }
+
+    protected void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
 }
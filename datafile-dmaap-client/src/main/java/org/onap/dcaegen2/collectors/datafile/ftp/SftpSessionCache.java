@@ -0,0 +1,320 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.ftp;
+
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Keeps connected SSH sessions to the xNFs, keyed by {@link FileServerData}, so that the key exchange and
+ * authentication is done once for many files. Each download opens its own SFTP channel on a shared session, so up to
+ * max channels per session downloads run over one session at the same time. A new session is only connected when
+ * all sessions to the xNF are fully used, and at most max sessions per host sessions are connected to one xNF. When
+ * they are all fully used, a download waits until one of their channels is closed.
+ *
+ * <p>
+ * Sessions without open channels that have been idle longer than the max idle time are disconnected. The idle
+ * sessions are checked on a timer, so that an xNF that no files are collected from is not left with open
+ * connections.
+ */
+public class SftpSessionCache {
+    private static final Logger logger = LoggerFactory.getLogger(SftpSessionCache.class);
+
+    /**
+     * Connects a new session to an xNF.
+     */
+    @FunctionalInterface
+    public interface SessionFactory {
+        Session connect(FileServerData fileServerData) throws JSchException;
+    }
+
+    private final int maxChannelsPerSession;
+    private final int maxSessionsPerHost;
+    private final long maxIdleMillis;
+    private final Map<FileServerData, HostSessions> sessions = new HashMap<>();
+    private final ScheduledExecutorService evictionTimer;
+
+    /**
+     * Constructor.
+     *
+     * @param maxChannelsPerSession - the most files that are collected over one session at the same time
+     * @param maxSessionsPerHost - the most sessions that are connected to one xNF
+     * @param maxIdleTime - how long a session is kept when no file is collected over it, no sessions are kept when
+     *        zero
+     */
+    public SftpSessionCache(int maxChannelsPerSession, int maxSessionsPerHost, Duration maxIdleTime) {
+        this.maxChannelsPerSession = maxChannelsPerSession;
+        this.maxSessionsPerHost = maxSessionsPerHost;
+        this.maxIdleMillis = maxIdleTime.toMillis();
+        this.evictionTimer = maxIdleMillis > 0 ? createEvictionTimer(Math.max(maxIdleMillis / 2, 1)) : null;
+    }
+
+    private ScheduledExecutorService createEvictionTimer(long periodMillis) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sftp-idle-eviction-");
+        threadFactory.setDaemon(true);
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        timer.scheduleWithFixedDelay(this::closeExpired, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return timer;
+    }
+
+    /**
+     * Gets a session to the xNF with room for one more channel. Must be followed by {@link #release} or
+     * {@link #invalidate} when the channel is closed.
+     *
+     * @param fileServerData - the xNF
+     * @param sessionFactory - connects a new session when there is no session with room for one more channel
+     * @return a connected session
+     * @throws JSchException if a new session could not be connected
+     */
+    public Session acquire(FileServerData fileServerData, SessionFactory sessionFactory) throws JSchException {
+        List<Session> disconnected = new ArrayList<>();
+        Session reused;
+        try {
+            reused = reserveChannel(fileServerData, disconnected);
+        } finally {
+            disconnectAll(disconnected);
+        }
+        if (reused != null) {
+            logger.trace("Reusing SFTP session to {}", fileServerData.serverAddress());
+            return reused;
+        }
+
+        Session session;
+        try {
+            session = sessionFactory.connect(fileServerData);
+        } catch (JSchException | RuntimeException e) {
+            synchronized (this) {
+                HostSessions host = sessions.get(fileServerData);
+                host.connecting--;
+                removeIfUnused(fileServerData, host);
+                notifyAll();
+            }
+            throw e;
+        }
+        CachedSession cached = new CachedSession(session);
+        cached.openChannels++;
+        synchronized (this) {
+            HostSessions host = sessions.get(fileServerData);
+            host.connecting--;
+            host.sessions.add(cached);
+        }
+        return session;
+    }
+
+    /**
+     * Tells that a channel on the session is closed. The session stays connected for later files.
+     *
+     * @param fileServerData - the xNF
+     * @param session - the session returned by {@link #acquire}
+     */
+    public void release(FileServerData fileServerData, Session session) {
+        boolean disconnect = false;
+        synchronized (this) {
+            CachedSession cached = find(fileServerData, session);
+            if (cached != null) {
+                cached.openChannels--;
+                cached.idleSince = System.currentTimeMillis();
+                if (cached.openChannels == 0 && maxIdleMillis <= 0) {
+                    remove(fileServerData, cached);
+                    disconnect = true;
+                }
+            }
+            notifyAll();
+        }
+        if (disconnect) {
+            session.disconnect();
+        }
+    }
+
+    /**
+     * Removes a session that can no longer be used and disconnects it. Channels still open on it are closed.
+     *
+     * @param fileServerData - the xNF
+     * @param session - the session returned by {@link #acquire}
+     */
+    public void invalidate(FileServerData fileServerData, Session session) {
+        synchronized (this) {
+            CachedSession cached = find(fileServerData, session);
+            if (cached != null) {
+                remove(fileServerData, cached);
+            }
+            notifyAll();
+        }
+        session.disconnect();
+    }
+
+    /**
+     * Disconnects the sessions that have been idle longer than the max idle time, and the sessions that have been
+     * disconnected by the xNF.
+     */
+    public void closeExpired() {
+        disconnectAll(removeExpired());
+    }
+
+    /**
+     * Disconnects all sessions, and stops checking the idle sessions.
+     */
+    public void close() {
+        if (evictionTimer != null) {
+            evictionTimer.shutdownNow();
+        }
+        List<Session> all = new ArrayList<>();
+        synchronized (this) {
+            Iterator<HostSessions> hosts = sessions.values().iterator();
+            while (hosts.hasNext()) {
+                HostSessions host = hosts.next();
+                for (CachedSession cached : host.sessions) {
+                    all.add(cached.session);
+                }
+                host.sessions.clear();
+                if (host.connecting == 0) {
+                    hosts.remove();
+                }
+            }
+            notifyAll();
+        }
+        disconnectAll(all);
+    }
+
+    public synchronized int getSessionCount(FileServerData fileServerData) {
+        HostSessions host = sessions.get(fileServerData);
+        return host == null ? 0 : host.sessions.size();
+    }
+
+    /**
+     * Reserves a channel on a connected session to the xNF. When there is none, and fewer than max sessions per host
+     * are connected, a session is to be connected by the caller, and null is returned. Otherwise this waits until a
+     * channel is closed.
+     */
+    private synchronized Session reserveChannel(FileServerData fileServerData, List<Session> disconnected)
+            throws JSchException {
+        while (true) {
+            HostSessions host = sessions.computeIfAbsent(fileServerData, key -> new HostSessions());
+            Iterator<CachedSession> cachedSessions = host.sessions.iterator();
+            while (cachedSessions.hasNext()) {
+                CachedSession cached = cachedSessions.next();
+                if (!cached.session.isConnected()) {
+                    disconnected.add(cached.session);
+                    cachedSessions.remove();
+                } else if (cached.openChannels < maxChannelsPerSession) {
+                    cached.openChannels++;
+                    return cached.session;
+                }
+            }
+            if (host.sessions.size() + host.connecting < maxSessionsPerHost) {
+                host.connecting++;
+                return null;
+            }
+            logger.trace("All SFTP sessions to {} fully used, waiting for a channel", fileServerData.serverAddress());
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JSchException("Interrupted while waiting for an SFTP session to "
+                        + fileServerData.serverAddress());
+            }
+        }
+    }
+
+    private CachedSession find(FileServerData fileServerData, Session session) {
+        HostSessions host = sessions.get(fileServerData);
+        if (host == null) {
+            return null;
+        }
+        for (CachedSession cached : host.sessions) {
+            if (cached.session == session) {
+                return cached;
+            }
+        }
+        return null;
+    }
+
+    private void remove(FileServerData fileServerData, CachedSession cached) {
+        HostSessions host = sessions.get(fileServerData);
+        host.sessions.remove(cached);
+        removeIfUnused(fileServerData, host);
+    }
+
+    private void removeIfUnused(FileServerData fileServerData, HostSessions host) {
+        if (host.sessions.isEmpty() && host.connecting == 0) {
+            sessions.remove(fileServerData);
+        }
+    }
+
+    private synchronized List<Session> removeExpired() {
+        List<Session> expired = new ArrayList<>();
+        long oldestAllowed = System.currentTimeMillis() - maxIdleMillis;
+        Iterator<HostSessions> hosts = sessions.values().iterator();
+        while (hosts.hasNext()) {
+            HostSessions host = hosts.next();
+            Iterator<CachedSession> cachedSessions = host.sessions.iterator();
+            while (cachedSessions.hasNext()) {
+                CachedSession cached = cachedSessions.next();
+                boolean idleTooLong = cached.openChannels == 0 && cached.idleSince < oldestAllowed;
+                if (idleTooLong || !cached.session.isConnected()) {
+                    expired.add(cached.session);
+                    cachedSessions.remove();
+                }
+            }
+            if (host.sessions.isEmpty() && host.connecting == 0) {
+                hosts.remove();
+            }
+        }
+        if (!expired.isEmpty()) {
+            notifyAll();
+        }
+        return expired;
+    }
+
+    private static void disconnectAll(List<Session> toDisconnect) {
+        for (Session session : toDisconnect) {
+            session.disconnect();
+        }
+    }
+
+    /**
+     * The sessions to one xNF, and the number of sessions to it that are being connected.
+     */
+    private static class HostSessions {
+        private final List<CachedSession> sessions = new ArrayList<>();
+        private int connecting;
+    }
+
+    private static class CachedSession {
+        private final Session session;
+        private int openChannels;
+        private long idleSince = System.currentTimeMillis();
+
+        CachedSession(Session session) {
+            this.session = session;
+        }
+    }
+}
@@ -22,7 +22,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.OutputStream;
 
-@FunctionalInterface
 public interface IOutputStream {
     public OutputStream getOutputStream(File file) throws FileNotFoundException;
+
+    public OutputStream getOutputStream(File file, boolean append) throws FileNotFoundException;
 }
@@ -30,4 +30,9 @@ public class OutputStreamWrapper implements IOutputStream {
         return new FileOutputStream(file);
     }
 
+    @Override
+    public OutputStream getOutputStream(File file, boolean append) throws FileNotFoundException {
+        return new FileOutputStream(file, append);
+    }
+
 }
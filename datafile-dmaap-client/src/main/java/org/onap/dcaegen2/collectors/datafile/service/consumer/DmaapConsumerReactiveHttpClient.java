@@ -24,7 +24,9 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.util.UriBuilder;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -41,6 +43,8 @@ public class DmaapConsumerReactiveHttpClient {
     private final String consumerGroup;
     private final String consumerId;
     private final String contentType;
+    private final Integer timeoutMs;
+    private final Integer messageLimit;
 
     /**
      * Constructor of DmaapConsumerReactiveHttpClient.
@@ -55,18 +59,35 @@ public class DmaapConsumerReactiveHttpClient {
         this.consumerGroup = consumerConfiguration.consumerGroup();
         this.consumerId = consumerConfiguration.consumerId();
         this.contentType = consumerConfiguration.dmaapContentType();
+        this.timeoutMs = consumerConfiguration.timeoutMS();
+        this.messageLimit = consumerConfiguration.messageLimit();
     }
 
     /**
-     * Function for calling DMaaP HTTP consumer - consuming messages from Kafka/DMaaP from topic.
+     * Function for calling DMaaP HTTP consumer - consuming messages from Kafka/DMaaP from topic. When a timeout is
+     * configured, this is a long-poll, where DMaaP holds the request until there are messages or the timeout has
+     * passed.
      *
      * @return reactive response from DMaaP in string format
      */
     public Mono<String> getDmaapConsumerResponse() {
+        return retrieve().bodyToMono(String.class);
+    }
+
+    /**
+     * Function for calling DMaaP HTTP consumer, as {@link #getDmaapConsumerResponse()}, but the response body is
+     * given in the chunks it is received in, so that it can be read before all of it has been received.
+     *
+     * @return the chunks of the response body from DMaaP
+     */
+    public Flux<byte[]> getDmaapConsumerResponseBody() {
+        return retrieve().bodyToFlux(byte[].class);
+    }
+
+    private WebClient.ResponseSpec retrieve() {
         return webClient.get().uri(getUri()).headers(getHeaders()).retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> Mono.error(new Exception("HTTP 400")))
-                .onStatus(HttpStatus::is5xxServerError, clientResponse -> Mono.error(new Exception("HTTP 500")))
-                .bodyToMono(String.class);
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> Mono.error(new Exception("HTTP 500")));
     }
 
     private Consumer<HttpHeaders> getHeaders() {
@@ -83,7 +104,14 @@ public class DmaapConsumerReactiveHttpClient {
     }
 
     URI getUri() {
-        return new DefaultUriBuilderFactory().builder().scheme(dmaapProtocol).host(dmaapHostName).port(dmaapPortNumber)
-                .path(createRequestPath()).build();
+        UriBuilder uriBuilder = new DefaultUriBuilderFactory().builder().scheme(dmaapProtocol).host(dmaapHostName)
+                .port(dmaapPortNumber).path(createRequestPath());
+        if (timeoutMs != null && timeoutMs > 0) {
+            uriBuilder.queryParam("timeout", timeoutMs);
+        }
+        if (messageLimit != null && messageLimit > 0) {
+            uriBuilder.queryParam("limit", messageLimit);
+        }
+        return uriBuilder.build();
     }
 }
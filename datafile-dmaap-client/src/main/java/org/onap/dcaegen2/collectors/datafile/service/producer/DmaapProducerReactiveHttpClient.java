@@ -19,8 +19,8 @@ package org.onap.dcaegen2.collectors.datafile.service.producer;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.Future;
@@ -28,17 +28,17 @@ import java.util.concurrent.Future;
 import javax.net.ssl.SSLContext;
 
 import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.nio.entity.NFileEntity;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.onap.dcaegen2.collectors.datafile.config.DmaapPublisherConfiguration;
-import org.onap.dcaegen2.collectors.datafile.io.FileSystemResourceWrapper;
-import org.onap.dcaegen2.collectors.datafile.io.IFileSystemResource;
 import org.onap.dcaegen2.collectors.datafile.model.CommonFunctions;
 import org.onap.dcaegen2.collectors.datafile.model.ConsumerDmaapModel;
 import org.onap.dcaegen2.collectors.datafile.service.HttpUtils;
@@ -48,7 +48,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 
-import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
 
 /**
  * @author <a href="mailto:przemyslaw.wasala@nokia.com">Przemysław Wąsala</a> on 7/4/18
@@ -61,6 +62,8 @@ public class DmaapProducerReactiveHttpClient {
     private static final String INTERNAL_LOCATION_JSON_TAG = "internalLocation";
     private static final String URI_SEPARATOR = "/";
     private static final String DEFAULT_FEED_ID = "1";
+    private static final RequestConfig STREAMING_REQUEST_CONFIG =
+            RequestConfig.custom().setExpectContinueEnabled(true).build();
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
@@ -72,15 +75,16 @@ public class DmaapProducerReactiveHttpClient {
     private final String user;
     private final String pwd;
 
-    private IFileSystemResource fileResource;
-    private CloseableHttpAsyncClient webClient;
+    private final CloseableHttpAsyncClient webClient;
 
     /**
      * Constructor DmaapProducerReactiveHttpClient.
      *
      * @param dmaapPublisherConfiguration - DMaaP producer configuration object
+     * @param webClient - started HTTP client, shared by all publishing, see {@link #createWebClient}
      */
-    public DmaapProducerReactiveHttpClient(DmaapPublisherConfiguration dmaapPublisherConfiguration) {
+    public DmaapProducerReactiveHttpClient(DmaapPublisherConfiguration dmaapPublisherConfiguration,
+            CloseableHttpAsyncClient webClient) {
         this.dmaapHostName = dmaapPublisherConfiguration.dmaapHostName();
         this.dmaapPortNumber = dmaapPublisherConfiguration.dmaapPortNumber();
         this.dmaapTopicName = dmaapPublisherConfiguration.dmaapTopicName();
@@ -88,46 +92,123 @@ public class DmaapProducerReactiveHttpClient {
         this.dmaapContentType = dmaapPublisherConfiguration.dmaapContentType();
         this.user = dmaapPublisherConfiguration.dmaapUserName();
         this.pwd = dmaapPublisherConfiguration.dmaapUserPassword();
+        this.webClient = webClient;
     }
 
     /**
-     * Function for calling DMaaP HTTP producer - post request to DMaaP DataRouter.
+     * Creates an HTTP client for publishing to DataRouter. The client pools its connections, and since all
+     * connections use the same SSL context, TLS sessions are resumed instead of doing a full handshake for each new
+     * connection. The client is meant to be kept for the lifetime of the application and closed when it ends.
      *
-     * @param consumerDmaapModel - object which will be sent to DMaaP DataRouter
-     * @return status code of operation
+     * @param maxConnectionsPerRoute - the most connections to one DataRouter node
+     * @param maxConnectionsTotal - the most connections in total
+     * @return a started client
      */
-    public Flux<String> getDmaapProducerResponse(ConsumerDmaapModel consumerDmaapModel) {
-        logger.trace("Entering getDmaapProducerResponse with {}", consumerDmaapModel);
+    public static CloseableHttpAsyncClient createWebClient(int maxConnectionsPerRoute, int maxConnectionsTotal) {
+        SSLContext sslContext = null;
         try {
-            logger.trace("Starting to publish to DR");
-
-            webClient = getWebClient();
-            webClient.start();
-
-            HttpPut put = new HttpPut();
-            prepareHead(consumerDmaapModel, put);
-            prepareBody(consumerDmaapModel, put);
-            addUserCredentialsToHead(put);
-
-            Future<HttpResponse> future = webClient.execute(put, null);
-            HttpResponse response = future.get();
-            logger.trace(response.toString());
-            webClient.close();
-            handleHttpResponse(response);
-            return Flux.just(response.toString());
+            sslContext = new SSLContextBuilder().loadTrustMaterial(null, (certificate, authType) -> true).build();
         } catch (Exception e) {
-            logger.error("Unable to send file to DataRouter. Data: {}", consumerDmaapModel, e);
-            return Flux.empty();
+            LoggerFactory.getLogger(DmaapProducerReactiveHttpClient.class).trace("Unable to get sslContext.", e);
         }
+        //@formatter:off
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setSSLContext(sslContext)
+                .setSSLHostnameVerifier(new NoopHostnameVerifier())
+                .setRedirectStrategy(PublishRedirectStrategy.INSTANCE)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setMaxConnTotal(maxConnectionsTotal)
+                .build();
+        //@formatter:on
+        client.start();
+        return client;
     }
 
-    private void handleHttpResponse(HttpResponse response) {
-        int statusCode = response.getStatusLine().getStatusCode();
-        if (HttpUtils.isSuccessfulResponseCode(statusCode)) {
-            logger.trace("Publish to DR successful!");
-        } else {
-            logger.error("Publish to DR unsuccessful, response code: " + statusCode);
-        }
+    /**
+     * Function for calling DMaaP HTTP producer - post request to DMaaP DataRouter. The request is sent when the
+     * returned mono is subscribed to, and the mono completes from the response callback, so no thread waits for the
+     * response. A failed publish is signalled as an error, so that the caller can retry it. A collected file that is
+     * missing is not sent, and the mono completes empty.
+     *
+     * @param consumerDmaapModel - object which will be sent to DMaaP DataRouter
+     * @return status code of operation
+     */
+    public Mono<String> getDmaapProducerResponse(ConsumerDmaapModel consumerDmaapModel) {
+        logger.trace("Entering getDmaapProducerResponse with {}", consumerDmaapModel);
+        return Mono.create(sink -> {
+            try {
+                logger.trace("Starting to publish to DR");
+
+                HttpPut put = new HttpPut();
+                prepareHead(consumerDmaapModel, put);
+                prepareBody(consumerDmaapModel, put);
+                addUserCredentialsToHead(put);
+
+                Future<HttpResponse> future = webClient.execute(put, createCallback(consumerDmaapModel, sink));
+                sink.onCancel(() -> future.cancel(true));
+            } catch (FileNotFoundException e) {
+                logger.error("Unable to send file to DataRouter. Data: {}", consumerDmaapModel, e);
+                sink.success();
+            } catch (Exception e) {
+                sink.error(e);
+            }
+        });
+    }
+
+    /**
+     * Function for calling DMaaP HTTP producer with a body that is written while the request is sent, see
+     * {@link StreamingFileEntity}. A failed publish is signalled as an error, so that the caller can fall back to
+     * collecting the file to disk. The request expects 100-continue, so that a redirect from DataRouter is received
+     * before any of the body is sent.
+     *
+     * @param consumerDmaapModel - object which will be sent to DMaaP DataRouter
+     * @param body - the content of the file, written by the caller after subscribing
+     * @return status code of operation
+     */
+    public Mono<String> getDmaapProducerResponse(ConsumerDmaapModel consumerDmaapModel, StreamingFileEntity body) {
+        logger.trace("Entering getDmaapProducerResponse with streaming body, {}", consumerDmaapModel);
+        return Mono.create(sink -> {
+            try {
+                HttpPut put = new HttpPut();
+                prepareHead(consumerDmaapModel, put);
+                put.setEntity(body);
+                put.setConfig(STREAMING_REQUEST_CONFIG);
+                addUserCredentialsToHead(put);
+
+                Future<HttpResponse> future = webClient.execute(put, createCallback(consumerDmaapModel, sink));
+                sink.onCancel(() -> future.cancel(true));
+            } catch (Exception e) {
+                sink.error(e);
+            }
+        });
+    }
+
+    private FutureCallback<HttpResponse> createCallback(ConsumerDmaapModel consumerDmaapModel,
+            MonoSink<String> sink) {
+        return new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                logger.trace(response.toString());
+                int statusCode = response.getStatusLine().getStatusCode();
+                if (HttpUtils.isSuccessfulResponseCode(statusCode)) {
+                    logger.trace("Publish to DR successful!");
+                    sink.success(Integer.toString(statusCode));
+                } else {
+                    sink.error(new DataRouterStatusException(statusCode));
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                sink.error(e);
+            }
+
+            @Override
+            public void cancelled() {
+                logger.trace("Publish to DR cancelled. Data: {}", consumerDmaapModel);
+                sink.success();
+            }
+        };
     }
 
     private void addUserCredentialsToHead(HttpPut put) {
@@ -139,7 +220,7 @@ public class DmaapProducerReactiveHttpClient {
         put.addHeader("Authorization", "Basic " + base64Creds);
     }
 
-    private void prepareHead(ConsumerDmaapModel model, HttpPut put) {
+    void prepareHead(ConsumerDmaapModel model, HttpPut put) {
         put.addHeader(HttpHeaders.CONTENT_TYPE, dmaapContentType);
         JsonElement metaData = new JsonParser().parse(CommonFunctions.createJsonBody(model));
         String name = metaData.getAsJsonObject().remove(NAME_JSON_TAG).getAsString();
@@ -148,21 +229,17 @@ public class DmaapProducerReactiveHttpClient {
         put.setURI(getUri(name));
     }
 
-    private void prepareBody(ConsumerDmaapModel model, HttpPut put) {
-        String fileLocation = model.getInternalLocation();
-        IFileSystemResource fileSystemResource = getFileSystemResource();
-        fileSystemResource.setPath(fileLocation);
-        InputStream fileInputStream = null;
-        try {
-            fileInputStream = fileSystemResource.getInputStream();
-        } catch (IOException e) {
-            logger.error("Unable to get stream from filesystem.", e);
-        }
-        try {
-            put.setEntity(new ByteArrayEntity(IOUtils.toByteArray(fileInputStream)));
-        } catch (IOException e) {
-            logger.error("Unable to set put request body from ByteArray.", e);
+    /**
+     * The file is streamed from disk while the request is sent, so the memory used does not depend on the size of
+     * the file. On a plain connection the file is transferred with a file channel, without copying it through the
+     * heap.
+     */
+    private void prepareBody(ConsumerDmaapModel model, HttpPut put) throws FileNotFoundException {
+        File file = new File(model.getInternalLocation());
+        if (!file.isFile()) {
+            throw new FileNotFoundException("Collected file not found: " + file);
         }
+        put.setEntity(new NFileEntity(file, ContentType.APPLICATION_OCTET_STREAM));
     }
 
     private URI getUri(String fileName) {
@@ -171,38 +248,4 @@ public class DmaapProducerReactiveHttpClient {
                 .path(path).build();
     }
 
-    private IFileSystemResource getFileSystemResource() {
-        if (fileResource == null) {
-            fileResource = new FileSystemResourceWrapper();
-        }
-        return fileResource;
-    }
-
-    protected void setFileSystemResource(IFileSystemResource fileSystemResource) {
-        fileResource = fileSystemResource;
-    }
-
-    protected CloseableHttpAsyncClient getWebClient() {
-        if (webClient != null) {
-            return webClient;
-        }
-        SSLContext sslContext = null;
-        try {
-            sslContext = new SSLContextBuilder().loadTrustMaterial(null, (certificate, authType) -> true).build();
-        } catch (Exception e) {
-            logger.trace("Unable to get sslContext.", e);
-        }
-        //@formatter:off
-        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
-                .setSSLContext(sslContext)
-                .setSSLHostnameVerifier(new NoopHostnameVerifier())
-                .setRedirectStrategy(PublishRedirectStrategy.INSTANCE)
-                .build();
-        //@formatter:on
-        return client;
-    }
-
-    protected void setWebClient(CloseableHttpAsyncClient client) {
-        this.webClient = client;
-    }
 }
@@ -0,0 +1,294 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.service.producer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+/**
+ * A request body that is written by another thread while the request is sent, so that a file can be passed from the
+ * xNF to DataRouter without storing it on disk. The file is written to {@link #getOutputStream()} and passed to the
+ * HTTP client in chunks through a bounded buffer.
+ *
+ * <p>
+ * When the buffer is full, the writer waits until DataRouter has taken a chunk, but not longer than the write
+ * timeout. After that the transfer is aborted and {@link #isStalled()} tells that the file should be collected to
+ * disk instead. The body can only be sent once, so it can not be used for requests that are redirected.
+ *
+ * <p>
+ * Asynchronous HTTP clients send the body as a {@link HttpAsyncContentProducer}. Blocking HTTP clients send it with
+ * {@link #writeTo} or read it with {@link #getContent()}, which wait for the chunks as they are written.
+ */
+public class StreamingFileEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+    private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+    private static final long ABORT_CHECK_INTERVAL_MILLIS = 100;
+
+    private final BlockingQueue<ByteBuffer> chunks;
+    private final int chunkSize;
+    private final long writeTimeoutMillis;
+    private final OutputStream outputStream = new ChunkOutputStream();
+    private volatile IOControl ioControl;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean stalled;
+    private ByteBuffer currentChunk;
+
+    /**
+     * Constructor.
+     *
+     * @param maxBufferedChunks - the most chunks buffered before the writer has to wait
+     * @param chunkSize - the size in bytes of each chunk
+     * @param writeTimeout - the longest time the writer waits for room in the buffer
+     */
+    public StreamingFileEntity(int maxBufferedChunks, int chunkSize, Duration writeTimeout) {
+        this.chunks = new ArrayBlockingQueue<>(maxBufferedChunks);
+        this.chunkSize = chunkSize;
+        this.writeTimeoutMillis = writeTimeout.toMillis();
+        setChunked(true);
+        setContentType(ContentType.APPLICATION_OCTET_STREAM.toString());
+    }
+
+    /**
+     * The stream to write the file to. Closing it ends the request body.
+     */
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * Stops the transfer. The request fails, and further writes to the output stream fail.
+     *
+     * @param cause - why the transfer was stopped
+     */
+    public void abort(Throwable cause) {
+        failure.compareAndSet(null, cause);
+        chunks.clear();
+        requestOutput();
+    }
+
+    /**
+     * The error that the transfer was first aborted with, or null when it has not been aborted.
+     */
+    public Throwable getAbortCause() {
+        return failure.get();
+    }
+
+    /**
+     * Tells if the transfer was aborted because DataRouter did not take the file as fast as it was written.
+     */
+    public boolean isStalled() {
+        return stalled;
+    }
+
+    @Override
+    public void produceContent(ContentEncoder encoder, IOControl ioctrl) throws IOException {
+        ioControl = ioctrl;
+        while (true) {
+            if (failure.get() != null) {
+                throw new IOException("Transfer of file aborted", failure.get());
+            }
+            if (currentChunk == null) {
+                currentChunk = chunks.poll();
+                if (currentChunk == null) {
+                    ioctrl.suspendOutput();
+                    if (!chunks.isEmpty() || failure.get() != null) {
+                        ioctrl.requestOutput();
+                    }
+                    return;
+                }
+            }
+            if (currentChunk == END_OF_STREAM) {
+                encoder.complete();
+                return;
+            }
+            encoder.write(currentChunk);
+            if (currentChunk.hasRemaining()) {
+                return;
+            }
+            currentChunk = null;
+        }
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    @Override
+    public InputStream getContent() {
+        return new ChunkInputStream();
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+        ByteBuffer chunk;
+        while ((chunk = takeChunk()) != END_OF_STREAM) {
+            outstream.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+        }
+        outstream.flush();
+    }
+
+    @Override
+    public void close() {
+        // The writer ends the body by closing the output stream
+    }
+
+    /**
+     * Waits for the next chunk written to the output stream, and fails if the transfer is aborted meanwhile.
+     */
+    private ByteBuffer takeChunk() throws IOException {
+        try {
+            while (true) {
+                checkNotAborted();
+                ByteBuffer chunk = chunks.poll(ABORT_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (chunk != null) {
+                    return chunk;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the xNF");
+        }
+    }
+
+    private void checkNotAborted() throws IOException {
+        if (failure.get() != null) {
+            throw new IOException("Transfer of file aborted", failure.get());
+        }
+    }
+
+    private void requestOutput() {
+        IOControl control = ioControl;
+        if (control != null) {
+            control.requestOutput();
+        }
+    }
+
+    private class ChunkOutputStream extends OutputStream {
+        private ByteBuffer buffer;
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            int position = offset;
+            int remaining = length;
+            while (remaining > 0) {
+                checkNotAborted();
+                if (buffer == null) {
+                    buffer = ByteBuffer.allocate(chunkSize);
+                }
+                int count = Math.min(remaining, buffer.remaining());
+                buffer.put(bytes, position, count);
+                position += count;
+                remaining -= count;
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            checkNotAborted();
+            if (buffer != null && buffer.position() > 0) {
+                buffer.flip();
+                put(buffer);
+                buffer = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                flush();
+                put(END_OF_STREAM);
+                closed = true;
+            }
+        }
+
+        private void put(ByteBuffer chunk) throws IOException {
+            try {
+                if (!chunks.offer(chunk, writeTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    stalled = true;
+                    IOException timeout = new IOException(
+                            "DataRouter did not take the file in time, gave up after " + writeTimeoutMillis + " ms");
+                    abort(timeout);
+                    throw timeout;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort(e);
+                throw new InterruptedIOException("Interrupted while waiting for DataRouter");
+            }
+            requestOutput();
+        }
+    }
+
+    private class ChunkInputStream extends InputStream {
+        private ByteBuffer chunk;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (chunk == null || (chunk != END_OF_STREAM && !chunk.hasRemaining())) {
+                chunk = takeChunk();
+            }
+            if (chunk == END_OF_STREAM) {
+                return -1;
+            }
+            int count = Math.min(length, chunk.remaining());
+            chunk.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
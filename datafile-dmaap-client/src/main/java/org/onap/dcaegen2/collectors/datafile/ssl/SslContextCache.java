@@ -0,0 +1,274 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.ssl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+
+import org.onap.dcaegen2.collectors.datafile.io.FileSystemResourceWrapper;
+import org.onap.dcaegen2.collectors.datafile.io.IFileSystemResource;
+import org.onap.dcaegen2.collectors.datafile.ssl.IKeyManagerUtils.KeyManagerException;
+import org.onap.dcaegen2.collectors.datafile.ssl.IKeyStore.KeyStoreLoadException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the key and trust material loaded from the key stores, so that a store is read from disk once and not for
+ * every connection. The material is loaded again when the path or password of a store is changed by a new
+ * configuration, or when the store file is modified. A store file is checked for modification at most once every
+ * {@value #MODIFIED_CHECK_SECONDS} seconds, so that connections are not slowed down by file system calls.
+ *
+ * <p>The {@link SSLContext} made from the material is shared by all connections. Its session cache lets a new
+ * connection to an xNF resume an earlier TLS session instead of doing a full handshake.
+ */
+@Component
+public class SslContextCache {
+    private static final Logger logger = LoggerFactory.getLogger(SslContextCache.class);
+    static final long MODIFIED_CHECK_SECONDS = 10;
+    private static final long MODIFIED_CHECK_NANOS = TimeUnit.SECONDS.toNanos(MODIFIED_CHECK_SECONDS);
+
+    private final ToLongFunction<String> lastModified;
+    private final LongSupplier nanoTime;
+    private final Map<String, ModifiedCheck> modifiedChecks = new HashMap<>();
+
+    private IKeyManagerUtils kmu;
+    private IKeyStore keyStore;
+    private ITrustManagerFactory trustManagerFactory;
+    private IFileSystemResource fileResource;
+
+    private StoreKey keyManagerKey;
+    private KeyManager keyManager;
+    private StoreKey trustManagerKey;
+    private TrustManager trustManager;
+    private SSLContext sslContext;
+    private KeyManager sslContextKeyManager;
+    private TrustManager sslContextTrustManager;
+
+    public SslContextCache() {
+        this(path -> new File(path).lastModified(), System::nanoTime);
+    }
+
+    SslContextCache(ToLongFunction<String> lastModified, LongSupplier nanoTime) {
+        this.lastModified = lastModified;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Gets the key manager for the own certificate, loading it if it is not loaded or the key store has changed.
+     *
+     * @param keyCertPath - the path of the own key store
+     * @param keyCertPassword - the password of the own key store
+     * @return the key manager
+     * @throws KeyManagerException if the key store can not be loaded
+     */
+    public synchronized KeyManager getKeyManager(String keyCertPath, String keyCertPassword)
+            throws KeyManagerException {
+        StoreKey key = createKey(keyCertPath, keyCertPassword);
+        if (!key.equals(keyManagerKey)) {
+            keyManager = null;
+            keyManagerKey = null;
+            IKeyManagerUtils keyManagerUtils = getKeyManagerUtils();
+            keyManagerUtils.setCredentials(keyCertPath, keyCertPassword);
+            keyManager = keyManagerUtils.getClientKeyManager();
+            keyManagerKey = key;
+            logger.info("Loaded own key store {}", keyCertPath);
+        }
+        return keyManager;
+    }
+
+    /**
+     * Gets the trust manager for the CA of the xNFs, loading it if it is not loaded or the trust store has changed.
+     *
+     * @param trustedCAPath - the path of the trust store
+     * @param trustedCAPassword - the password of the trust store
+     * @return the trust manager
+     * @throws IOException if the trust store can not be read
+     * @throws KeyStoreLoadException if the trust store can not be loaded
+     * @throws GeneralSecurityException if no trust manager can be created from the trust store
+     */
+    public synchronized TrustManager getTrustManager(String trustedCAPath, String trustedCAPassword)
+            throws IOException, KeyStoreLoadException, GeneralSecurityException {
+        StoreKey key = createKey(trustedCAPath, trustedCAPassword);
+        if (!key.equals(trustManagerKey)) {
+            trustManager = null;
+            trustManagerKey = null;
+            IFileSystemResource fileSystemResource = getFileSystemResource();
+            fileSystemResource.setPath(trustedCAPath);
+            IKeyStore ks = getKeyStore();
+            try (InputStream fis = fileSystemResource.getInputStream()) {
+                ks.load(fis, trustedCAPassword.toCharArray());
+            }
+            ITrustManagerFactory tmf = getTrustManagerFactory();
+            tmf.init(ks.getKeyStore());
+            trustManager = tmf.getTrustManagers()[0];
+            trustManagerKey = key;
+            logger.info("Loaded trust store {}", trustedCAPath);
+        }
+        return trustManager;
+    }
+
+    /**
+     * Gets the TLS context for the given key and trust managers. The context, and the TLS sessions cached in it, are
+     * kept for as long as the same managers are used.
+     *
+     * @param keyManager - the key manager for the own certificate
+     * @param trustManager - the trust manager for the CA of the xNFs
+     * @return the TLS context
+     * @throws GeneralSecurityException if the TLS context can not be created
+     */
+    public synchronized SSLContext getSslContext(KeyManager keyManager, TrustManager trustManager)
+            throws GeneralSecurityException {
+        if (sslContext == null || keyManager != sslContextKeyManager || trustManager != sslContextTrustManager) {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(new KeyManager[] {keyManager}, new TrustManager[] {trustManager}, null);
+            sslContext = context;
+            sslContextKeyManager = keyManager;
+            sslContextTrustManager = trustManager;
+            logger.debug("Created a new TLS context, earlier TLS sessions are not resumed");
+        }
+        return sslContext;
+    }
+
+    private StoreKey createKey(String path, String password) {
+        long modified = path != null ? getLastModified(path) : 0;
+        return new StoreKey(path, modified, hash(password));
+    }
+
+    private long getLastModified(String path) {
+        long now = nanoTime.getAsLong();
+        ModifiedCheck check = modifiedChecks.get(path);
+        if (check == null || now - check.checkedNanos >= MODIFIED_CHECK_NANOS) {
+            check = new ModifiedCheck(lastModified.applyAsLong(path), now);
+            modifiedChecks.put(path, check);
+        }
+        return check.lastModified;
+    }
+
+    private static String hash(String password) {
+        if (password == null) {
+            return "";
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private ITrustManagerFactory getTrustManagerFactory() throws NoSuchAlgorithmException {
+        if (trustManagerFactory == null) {
+            trustManagerFactory = new TrustManagerFactoryWrapper();
+        }
+        return trustManagerFactory;
+    }
+
+    private IKeyManagerUtils getKeyManagerUtils() {
+        if (kmu == null) {
+            kmu = new KeyManagerUtilsWrapper();
+        }
+        return kmu;
+    }
+
+    private IKeyStore getKeyStore() throws KeyStoreException {
+        if (keyStore == null) {
+            keyStore = new KeyStoreWrapper();
+        }
+        return keyStore;
+    }
+
+    private IFileSystemResource getFileSystemResource() {
+        if (fileResource == null) {
+            fileResource = new FileSystemResourceWrapper();
+        }
+        return fileResource;
+    }
+
+    public void setKeyManagerUtils(IKeyManagerUtils keyManagerUtils) {
+        this.kmu = keyManagerUtils;
+    }
+
+    public void setKeyStore(IKeyStore keyStore) {
+        this.keyStore = keyStore;
+    }
+
+    public void setTrustManagerFactory(ITrustManagerFactory tmf) {
+        trustManagerFactory = tmf;
+    }
+
+    public void setFileSystemResource(IFileSystemResource fileSystemResource) {
+        fileResource = fileSystemResource;
+    }
+
+    private static class ModifiedCheck {
+        private final long lastModified;
+        private final long checkedNanos;
+
+        ModifiedCheck(long lastModified, long checkedNanos) {
+            this.lastModified = lastModified;
+            this.checkedNanos = checkedNanos;
+        }
+    }
+
+    private static class StoreKey {
+        private final String path;
+        private final long lastModified;
+        private final String passwordHash;
+
+        StoreKey(String path, long lastModified, String passwordHash) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.passwordHash = passwordHash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof StoreKey)) {
+                return false;
+            }
+            StoreKey key = (StoreKey) other;
+            return Objects.equals(path, key.path) && lastModified == key.lastModified
+                    && passwordHash.equals(key.passwordHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, lastModified, passwordHash);
+        }
+    }
+}
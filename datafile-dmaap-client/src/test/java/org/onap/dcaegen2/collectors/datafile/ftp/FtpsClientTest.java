@@ -16,10 +16,14 @@
 
 package org.onap.dcaegen2.collectors.datafile.ftp;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -32,8 +36,12 @@ import java.io.OutputStream;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 
 import org.apache.commons.net.ftp.FTP;
@@ -46,6 +54,7 @@ import org.onap.dcaegen2.collectors.datafile.io.IOutputStream;
 import org.onap.dcaegen2.collectors.datafile.ssl.IKeyManagerUtils;
 import org.onap.dcaegen2.collectors.datafile.ssl.IKeyStore;
 import org.onap.dcaegen2.collectors.datafile.ssl.ITrustManagerFactory;
+import org.onap.dcaegen2.collectors.datafile.ssl.SslContextCache;
 import org.springframework.http.HttpStatus;
 
 public class FtpsClientTest {
@@ -74,16 +83,21 @@ public class FtpsClientTest {
     private IOutputStream outputStreamMock = mock(IOutputStream.class);
     private InputStream inputStreamMock = mock(InputStream.class);
 
-    FtpsClient clientUnderTest = new FtpsClient();
+    private FtpsConnectionPool connectionPool = new FtpsConnectionPool(1, Duration.ofMinutes(1));
+
+    private SslContextCache sslContextCache = new SslContextCache();
+
+    FtpsClient clientUnderTest = new FtpsClient(sslContextCache);
 
     @BeforeEach
     protected void setUp() throws Exception {
         clientUnderTest.setFtpsClient(ftpsClientMock);
-        clientUnderTest.setKeyManagerUtils(keyManagerUtilsMock);
-        clientUnderTest.setKeyStore(keyStoreWrapperMock);
-        clientUnderTest.setTrustManagerFactory(trustManagerFactoryMock);
+        clientUnderTest.setConnectionPool(connectionPool);
+        sslContextCache.setKeyManagerUtils(keyManagerUtilsMock);
+        sslContextCache.setKeyStore(keyStoreWrapperMock);
+        sslContextCache.setTrustManagerFactory(trustManagerFactoryMock);
+        sslContextCache.setFileSystemResource(fileResourceMock);
         clientUnderTest.setFile(localFileMock);
-        clientUnderTest.setFileSystemResource(fileResourceMock);
         clientUnderTest.setOutputStream(outputStreamMock);
 
         clientUnderTest.setKeyCertPath(FTP_KEY_PATH);
@@ -105,7 +119,6 @@ public class FtpsClientTest {
         OutputStream osMock = mock(OutputStream.class);
         when(outputStreamMock.getOutputStream(fileMock)).thenReturn(osMock);
         when(ftpsClientMock.retrieveFile(REMOTE_FILE_PATH, osMock)).thenReturn(true);
-        when(ftpsClientMock.isConnected()).thenReturn(false,true);
 
         ImmutableFileServerData fileServerData = ImmutableFileServerData.builder().serverAddress(XNF_ADDRESS)
                 .userId(USERNAME).password(PASSWORD).port(PORT).build();
@@ -115,12 +128,10 @@ public class FtpsClientTest {
         assertTrue(result.downloadSuccessful());
         verify(ftpsClientMock).setNeedClientAuth(true);
         verify(keyManagerUtilsMock).setCredentials(FTP_KEY_PATH, FTP_KEY_PASSWORD);
-        verify(ftpsClientMock).setKeyManager(keyManagerMock);
         verify(fileResourceMock).setPath(TRUSTED_CA_PATH);
         verify(keyStoreWrapperMock).load(inputStreamMock, TRUSTED_CA_PASSWORD.toCharArray());
         verify(inputStreamMock, times(1)).close();
         verify(trustManagerFactoryMock).init(keyStoreMock);
-        verify(ftpsClientMock).setTrustManager(trustManagerMock);
         verify(ftpsClientMock).connect(XNF_ADDRESS, PORT);
         verify(ftpsClientMock).login(USERNAME, PASSWORD);
         verify(ftpsClientMock).getReplyCode();
@@ -131,12 +142,110 @@ public class FtpsClientTest {
         verify(ftpsClientMock).setBufferSize(1024*1024);
         verify(localFileMock).setPath(LOCAL_FILE_PATH);
         verify(localFileMock, times(1)).createNewFile();
+        verify(ftpsClientMock).getSize(REMOTE_FILE_PATH);
         verify(ftpsClientMock).retrieveFile(REMOTE_FILE_PATH, osMock);
         verify(osMock, times(1)).close();
+        verifyNoMoreInteractions(ftpsClientMock);
+        assertEquals(1, connectionPool.getIdleCount(fileServerData));
+    }
+
+    @Test
+    public void collectTwoFilesFromSameXnf_sessionReused() throws Exception {
+        when(keyManagerUtilsMock.getClientKeyManager()).thenReturn(keyManagerMock);
+        when(fileResourceMock.getInputStream()).thenReturn(inputStreamMock);
+        when(keyStoreWrapperMock.getKeyStore()).thenReturn(keyStoreMock);
+        when(trustManagerFactoryMock.getTrustManagers()).thenReturn(new TrustManager[] {trustManagerMock});
+        when(ftpsClientMock.login(USERNAME, PASSWORD)).thenReturn(true);
+        when(ftpsClientMock.getReplyCode()).thenReturn(HttpStatus.OK.value());
+        File fileMock = mock(File.class);
+        when(localFileMock.getFile()).thenReturn(fileMock);
+        OutputStream osMock = mock(OutputStream.class);
+        when(outputStreamMock.getOutputStream(fileMock)).thenReturn(osMock);
+        when(ftpsClientMock.retrieveFile(REMOTE_FILE_PATH, osMock)).thenReturn(true);
+        when(ftpsClientMock.isConnected()).thenReturn(true);
+        when(ftpsClientMock.sendNoOp()).thenReturn(true);
+
+        ImmutableFileServerData fileServerData = ImmutableFileServerData.builder().serverAddress(XNF_ADDRESS)
+                .userId(USERNAME).password(PASSWORD).port(PORT).build();
+
+        assertTrue(clientUnderTest.collectFile(fileServerData, REMOTE_FILE_PATH, LOCAL_FILE_PATH)
+                .downloadSuccessful());
+        assertTrue(clientUnderTest.collectFile(fileServerData, REMOTE_FILE_PATH, LOCAL_FILE_PATH)
+                .downloadSuccessful());
+
+        verify(keyManagerUtilsMock, times(1)).setCredentials(FTP_KEY_PATH, FTP_KEY_PASSWORD);
+        verify(trustManagerFactoryMock, times(1)).init(keyStoreMock);
+        verify(ftpsClientMock, times(1)).connect(XNF_ADDRESS, PORT);
+        verify(ftpsClientMock, times(1)).login(USERNAME, PASSWORD);
+        verify(ftpsClientMock, times(1)).sendNoOp();
+        verify(ftpsClientMock, times(2)).retrieveFile(REMOTE_FILE_PATH, osMock);
+        verify(ftpsClientMock, never()).logout();
+        verify(ftpsClientMock, never()).disconnect();
+        assertEquals(1, connectionPool.getIdleCount(fileServerData));
+    }
+
+    @Test
+    public void collectFileWhenPooledSessionDead_newSessionOpened() throws Exception {
+        when(keyManagerUtilsMock.getClientKeyManager()).thenReturn(keyManagerMock);
+        when(fileResourceMock.getInputStream()).thenReturn(inputStreamMock);
+        when(keyStoreWrapperMock.getKeyStore()).thenReturn(keyStoreMock);
+        when(trustManagerFactoryMock.getTrustManagers()).thenReturn(new TrustManager[] {trustManagerMock});
+        when(ftpsClientMock.login(USERNAME, PASSWORD)).thenReturn(true);
+        when(ftpsClientMock.getReplyCode()).thenReturn(HttpStatus.OK.value());
+        File fileMock = mock(File.class);
+        when(localFileMock.getFile()).thenReturn(fileMock);
+        OutputStream osMock = mock(OutputStream.class);
+        when(outputStreamMock.getOutputStream(fileMock)).thenReturn(osMock);
+        when(ftpsClientMock.retrieveFile(REMOTE_FILE_PATH, osMock)).thenReturn(true);
+        when(ftpsClientMock.isConnected()).thenReturn(true);
+        doThrow(new IOException()).when(ftpsClientMock).sendNoOp();
+
+        ImmutableFileServerData fileServerData = ImmutableFileServerData.builder().serverAddress(XNF_ADDRESS)
+                .userId(USERNAME).password(PASSWORD).port(PORT).build();
+
+        assertTrue(clientUnderTest.collectFile(fileServerData, REMOTE_FILE_PATH, LOCAL_FILE_PATH)
+                .downloadSuccessful());
+        assertTrue(clientUnderTest.collectFile(fileServerData, REMOTE_FILE_PATH, LOCAL_FILE_PATH)
+                .downloadSuccessful());
+
+        verify(ftpsClientMock, times(1)).sendNoOp();
         verify(ftpsClientMock, times(1)).logout();
         verify(ftpsClientMock, times(1)).disconnect();
-        verify(ftpsClientMock, times(2)).isConnected();
-        verifyNoMoreInteractions(ftpsClientMock);
+        verify(ftpsClientMock, times(2)).connect(XNF_ADDRESS, PORT);
+        verify(ftpsClientMock, times(2)).retrieveFile(REMOTE_FILE_PATH, osMock);
+    }
+
+    @Test
+    public void collectFileWithTwoNewSessions_sessionsShareTlsContext() throws Exception {
+        when(keyManagerUtilsMock.getClientKeyManager()).thenReturn(keyManagerMock);
+        when(fileResourceMock.getInputStream()).thenReturn(inputStreamMock);
+        when(keyStoreWrapperMock.getKeyStore()).thenReturn(keyStoreMock);
+        when(trustManagerFactoryMock.getTrustManagers()).thenReturn(new TrustManager[] {trustManagerMock});
+        when(ftpsClientMock.login(USERNAME, PASSWORD)).thenReturn(true);
+        when(ftpsClientMock.getReplyCode()).thenReturn(HttpStatus.OK.value());
+        File fileMock = mock(File.class);
+        when(localFileMock.getFile()).thenReturn(fileMock);
+        OutputStream osMock = mock(OutputStream.class);
+        when(outputStreamMock.getOutputStream(fileMock)).thenReturn(osMock);
+        when(ftpsClientMock.retrieveFile(REMOTE_FILE_PATH, osMock)).thenReturn(true);
+        List<SSLContext> sslContexts = new ArrayList<>();
+        clientUnderTest.setFtpsClientFactory(sslContext -> {
+            sslContexts.add(sslContext);
+            return ftpsClientMock;
+        });
+        clientUnderTest.setConnectionPool(new FtpsConnectionPool(0, Duration.ofMinutes(1)));
+
+        ImmutableFileServerData fileServerData = ImmutableFileServerData.builder().serverAddress(XNF_ADDRESS)
+                .userId(USERNAME).password(PASSWORD).port(PORT).build();
+
+        assertTrue(clientUnderTest.collectFile(fileServerData, REMOTE_FILE_PATH, LOCAL_FILE_PATH)
+                .downloadSuccessful());
+        assertTrue(clientUnderTest.collectFile(fileServerData, REMOTE_FILE_PATH, LOCAL_FILE_PATH)
+                .downloadSuccessful());
+
+        verify(ftpsClientMock, times(2)).connect(XNF_ADDRESS, PORT);
+        assertEquals(2, sslContexts.size());
+        assertSame(sslContexts.get(0), sslContexts.get(1));
     }
 
     @Test
@@ -150,9 +259,8 @@ public class FtpsClientTest {
         FileCollectResult result = clientUnderTest.collectFile(fileServerData, REMOTE_FILE_PATH, LOCAL_FILE_PATH);
 
         assertFalse(result.downloadSuccessful());
-        verify(ftpsClientMock).setNeedClientAuth(true);
+        assertFalse(result.isConnectionFailure());
         verify(keyManagerUtilsMock).setCredentials(FTP_KEY_PATH, FTP_KEY_PASSWORD);
-        verify(ftpsClientMock, times(1)).isConnected();
         verifyNoMoreInteractions(ftpsClientMock);
     }
 
@@ -170,14 +278,11 @@ public class FtpsClientTest {
         FileCollectResult result = clientUnderTest.collectFile(fileServerData, REMOTE_FILE_PATH, LOCAL_FILE_PATH);
 
         assertFalse(result.downloadSuccessful());
-        verify(ftpsClientMock).setNeedClientAuth(true);
         verify(keyManagerUtilsMock).setCredentials(FTP_KEY_PATH, FTP_KEY_PASSWORD);
-        verify(ftpsClientMock).setKeyManager(keyManagerMock);
         verify(fileResourceMock).setPath(TRUSTED_CA_PATH);
         verify(keyStoreWrapperMock).load(inputStreamMock, TRUSTED_CA_PASSWORD.toCharArray());
         verify(inputStreamMock, times(1)).close();
         verify(trustManagerFactoryMock).init(keyStoreMock);
-        verify(ftpsClientMock, times(1)).isConnected();
         verifyNoMoreInteractions(ftpsClientMock);
     }
 
@@ -197,15 +302,13 @@ public class FtpsClientTest {
         assertFalse(result.downloadSuccessful());
         verify(ftpsClientMock).setNeedClientAuth(true);
         verify(keyManagerUtilsMock).setCredentials(FTP_KEY_PATH, FTP_KEY_PASSWORD);
-        verify(ftpsClientMock).setKeyManager(keyManagerMock);
         verify(fileResourceMock).setPath(TRUSTED_CA_PATH);
         verify(keyStoreWrapperMock).load(inputStreamMock, TRUSTED_CA_PASSWORD.toCharArray());
         verify(inputStreamMock, times(1)).close();
         verify(trustManagerFactoryMock).init(keyStoreMock);
-        verify(ftpsClientMock).setTrustManager(trustManagerMock);
         verify(ftpsClientMock).connect(XNF_ADDRESS, PORT);
         verify(ftpsClientMock).login(USERNAME, PASSWORD);
-        verify(ftpsClientMock, times(3)).isConnected();
+        verify(ftpsClientMock, times(1)).isConnected();
         verifyNoMoreInteractions(ftpsClientMock);
     }
 
@@ -226,16 +329,14 @@ public class FtpsClientTest {
         assertFalse(result.downloadSuccessful());
         verify(ftpsClientMock).setNeedClientAuth(true);
         verify(keyManagerUtilsMock).setCredentials(FTP_KEY_PATH, FTP_KEY_PASSWORD);
-        verify(ftpsClientMock).setKeyManager(keyManagerMock);
         verify(fileResourceMock).setPath(TRUSTED_CA_PATH);
         verify(keyStoreWrapperMock).load(inputStreamMock, TRUSTED_CA_PASSWORD.toCharArray());
         verify(inputStreamMock, times(1)).close();
         verify(trustManagerFactoryMock).init(keyStoreMock);
-        verify(ftpsClientMock).setTrustManager(trustManagerMock);
         verify(ftpsClientMock).connect(XNF_ADDRESS, PORT);
         verify(ftpsClientMock).login(USERNAME, PASSWORD);
         verify(ftpsClientMock, times(2)).getReplyCode();
-        verify(ftpsClientMock, times(3)).isConnected();
+        verify(ftpsClientMock, times(1)).isConnected();
         verifyNoMoreInteractions(ftpsClientMock);
     }
 
@@ -254,16 +355,15 @@ public class FtpsClientTest {
         FileCollectResult result = clientUnderTest.collectFile(fileServerData, REMOTE_FILE_PATH, LOCAL_FILE_PATH);
 
         assertFalse(result.downloadSuccessful());
+        assertTrue(result.isConnectionFailure());
         verify(ftpsClientMock).setNeedClientAuth(true);
         verify(keyManagerUtilsMock).setCredentials(FTP_KEY_PATH, FTP_KEY_PASSWORD);
-        verify(ftpsClientMock).setKeyManager(keyManagerMock);
         verify(fileResourceMock).setPath(TRUSTED_CA_PATH);
         verify(keyStoreWrapperMock).load(inputStreamMock, TRUSTED_CA_PASSWORD.toCharArray());
         verify(inputStreamMock, times(1)).close();
         verify(trustManagerFactoryMock).init(keyStoreMock);
-        verify(ftpsClientMock).setTrustManager(trustManagerMock);
         verify(ftpsClientMock).connect(XNF_ADDRESS, PORT);
-        verify(ftpsClientMock, times(3)).isConnected();
+        verify(ftpsClientMock, times(1)).isConnected();
         verifyNoMoreInteractions(ftpsClientMock);
     }
 
@@ -287,12 +387,10 @@ public class FtpsClientTest {
         verify(localFileMock, times(1)).delete();
         verify(ftpsClientMock).setNeedClientAuth(true);
         verify(keyManagerUtilsMock).setCredentials(FTP_KEY_PATH, FTP_KEY_PASSWORD);
-        verify(ftpsClientMock).setKeyManager(keyManagerMock);
         verify(fileResourceMock).setPath(TRUSTED_CA_PATH);
         verify(keyStoreWrapperMock).load(inputStreamMock, TRUSTED_CA_PASSWORD.toCharArray());
         verify(inputStreamMock, times(1)).close();
         verify(trustManagerFactoryMock).init(keyStoreMock);
-        verify(ftpsClientMock).setTrustManager(trustManagerMock);
         verify(ftpsClientMock).connect(XNF_ADDRESS, PORT);
         verify(ftpsClientMock).login(USERNAME, PASSWORD);
         verify(ftpsClientMock).getReplyCode();
@@ -303,7 +401,7 @@ public class FtpsClientTest {
         verify(ftpsClientMock).setBufferSize(1024*1024);
         verify(localFileMock).setPath(LOCAL_FILE_PATH);
         verify(localFileMock, times(1)).createNewFile();
-        verify(ftpsClientMock, times(2)).isConnected();
+        verify(ftpsClientMock, times(1)).isConnected();
         verifyNoMoreInteractions(ftpsClientMock);
     }
 
@@ -329,12 +427,10 @@ public class FtpsClientTest {
         assertFalse(result.downloadSuccessful());
         verify(ftpsClientMock).setNeedClientAuth(true);
         verify(keyManagerUtilsMock).setCredentials(FTP_KEY_PATH, FTP_KEY_PASSWORD);
-        verify(ftpsClientMock).setKeyManager(keyManagerMock);
         verify(fileResourceMock).setPath(TRUSTED_CA_PATH);
         verify(keyStoreWrapperMock).load(inputStreamMock, TRUSTED_CA_PASSWORD.toCharArray());
         verify(inputStreamMock, times(1)).close();
         verify(trustManagerFactoryMock).init(keyStoreMock);
-        verify(ftpsClientMock).setTrustManager(trustManagerMock);
         verify(ftpsClientMock).connect(XNF_ADDRESS, PORT);
         verify(ftpsClientMock).login(USERNAME, PASSWORD);
         verify(ftpsClientMock).getReplyCode();
@@ -345,8 +441,183 @@ public class FtpsClientTest {
         verify(ftpsClientMock).setBufferSize(1024*1024);
         verify(localFileMock).setPath(LOCAL_FILE_PATH);
         verify(localFileMock, times(1)).createNewFile();
+        verify(ftpsClientMock).getSize(REMOTE_FILE_PATH);
         verify(ftpsClientMock).retrieveFile(REMOTE_FILE_PATH, osMock);
-        verify(ftpsClientMock, times(2)).isConnected();
+        verify(ftpsClientMock, times(1)).isConnected();
         verifyNoMoreInteractions(ftpsClientMock);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void collectFileWhenEarlierDownloadBroke_downloadResumed() throws Exception {
+        setUpSuccessfulLogin();
+        File fileMock = mock(File.class);
+        when(localFileMock.getFile()).thenReturn(fileMock);
+        when(fileMock.length()).thenReturn(0L, 5L, 5L, 10L);
+        when(ftpsClientMock.getSize(REMOTE_FILE_PATH)).thenReturn(10L);
+        OutputStream brokenOsMock = mock(OutputStream.class);
+        when(outputStreamMock.getOutputStream(fileMock)).thenReturn(brokenOsMock);
+        doThrow(new IOException()).when(ftpsClientMock).retrieveFile(REMOTE_FILE_PATH, brokenOsMock);
+        OutputStream osMock = mock(OutputStream.class);
+        when(outputStreamMock.getOutputStream(fileMock, true)).thenReturn(osMock);
+        when(ftpsClientMock.retrieveFile(REMOTE_FILE_PATH, osMock)).thenReturn(true);
+
+        assertFalse(clientUnderTest.collectFile(createFileServerData(), REMOTE_FILE_PATH, LOCAL_FILE_PATH)
+                .downloadSuccessful());
+        FileCollectResult result = clientUnderTest.collectFile(createFileServerData(), REMOTE_FILE_PATH,
+                LOCAL_FILE_PATH);
+
+        assertTrue(result.downloadSuccessful());
+        verify(ftpsClientMock).setRestartOffset(5L);
+        verify(ftpsClientMock).retrieveFile(REMOTE_FILE_PATH, osMock);
+        verify(osMock, times(1)).close();
+        verify(localFileMock, never()).delete();
+    }
+
+    @Test
+    public void collectFileWhenPartialFileNotLeftByDownload_downloadedFromStart() throws Exception {
+        setUpSuccessfulLogin();
+        File fileMock = mock(File.class);
+        when(localFileMock.getFile()).thenReturn(fileMock);
+        when(fileMock.length()).thenReturn(5L, 10L);
+        when(ftpsClientMock.getSize(REMOTE_FILE_PATH)).thenReturn(10L);
+        OutputStream osMock = mock(OutputStream.class);
+        when(outputStreamMock.getOutputStream(fileMock)).thenReturn(osMock);
+        when(ftpsClientMock.retrieveFile(REMOTE_FILE_PATH, osMock)).thenReturn(true);
+
+        FileCollectResult result = clientUnderTest.collectFile(createFileServerData(), REMOTE_FILE_PATH,
+                LOCAL_FILE_PATH);
+
+        assertTrue(result.downloadSuccessful());
+        verify(ftpsClientMock, never()).setRestartOffset(anyLong());
+        verify(ftpsClientMock).retrieveFile(REMOTE_FILE_PATH, osMock);
+    }
+
+    @Test
+    public void collectFileWhenPartialFileLeftByDownloadFromOtherXnf_downloadedFromStart() throws Exception {
+        setUpSuccessfulLogin();
+        File fileMock = mock(File.class);
+        when(localFileMock.getFile()).thenReturn(fileMock);
+        when(fileMock.length()).thenReturn(0L, 5L, 5L, 10L);
+        when(ftpsClientMock.getSize(REMOTE_FILE_PATH)).thenReturn(10L);
+        OutputStream brokenOsMock = mock(OutputStream.class);
+        OutputStream osMock = mock(OutputStream.class);
+        when(outputStreamMock.getOutputStream(fileMock)).thenReturn(brokenOsMock, osMock);
+        doThrow(new IOException()).when(ftpsClientMock).retrieveFile(REMOTE_FILE_PATH, brokenOsMock);
+        when(ftpsClientMock.retrieveFile(REMOTE_FILE_PATH, osMock)).thenReturn(true);
+        ImmutableFileServerData otherXnf = ImmutableFileServerData.builder().serverAddress("127.0.0.2")
+                .userId(USERNAME).password(PASSWORD).port(PORT).build();
+
+        assertFalse(clientUnderTest.collectFile(createFileServerData(), REMOTE_FILE_PATH, LOCAL_FILE_PATH)
+                .downloadSuccessful());
+        FileCollectResult result = clientUnderTest.collectFile(otherXnf, REMOTE_FILE_PATH, LOCAL_FILE_PATH);
+
+        assertTrue(result.downloadSuccessful());
+        verify(ftpsClientMock, never()).setRestartOffset(anyLong());
+        verify(ftpsClientMock).retrieveFile(REMOTE_FILE_PATH, osMock);
+    }
+
+    @Test
+    public void collectFileWhenXnfRejectsRestart_downloadedFromStart() throws Exception {
+        setUpSuccessfulLogin();
+        File fileMock = mock(File.class);
+        when(localFileMock.getFile()).thenReturn(fileMock);
+        when(fileMock.length()).thenReturn(0L, 5L, 5L, 10L);
+        when(ftpsClientMock.getSize(REMOTE_FILE_PATH)).thenReturn(10L);
+        OutputStream brokenOsMock = mock(OutputStream.class);
+        OutputStream osMock = mock(OutputStream.class);
+        when(outputStreamMock.getOutputStream(fileMock)).thenReturn(brokenOsMock, osMock);
+        doThrow(new IOException()).when(ftpsClientMock).retrieveFile(REMOTE_FILE_PATH, brokenOsMock);
+        when(ftpsClientMock.retrieveFile(REMOTE_FILE_PATH, osMock)).thenReturn(true);
+        OutputStream appendingOsMock = mock(OutputStream.class);
+        when(outputStreamMock.getOutputStream(fileMock, true)).thenReturn(appendingOsMock);
+        when(ftpsClientMock.retrieveFile(REMOTE_FILE_PATH, appendingOsMock)).thenReturn(false);
+
+        assertFalse(clientUnderTest.collectFile(createFileServerData(), REMOTE_FILE_PATH, LOCAL_FILE_PATH)
+                .downloadSuccessful());
+        FileCollectResult result = clientUnderTest.collectFile(createFileServerData(), REMOTE_FILE_PATH,
+                LOCAL_FILE_PATH);
+
+        assertTrue(result.downloadSuccessful());
+        verify(ftpsClientMock).setRestartOffset(5L);
+        verify(ftpsClientMock).setRestartOffset(0L);
+        verify(ftpsClientMock).retrieveFile(REMOTE_FILE_PATH, appendingOsMock);
+        verify(ftpsClientMock).retrieveFile(REMOTE_FILE_PATH, osMock);
+        verify(appendingOsMock, times(1)).close();
+        verify(osMock, times(1)).close();
+    }
+
+    @Test
+    public void collectFileWithWrongSize_shouldFailAndDeleteFile() throws Exception {
+        setUpSuccessfulLogin();
+        File fileMock = mock(File.class);
+        when(localFileMock.getFile()).thenReturn(fileMock);
+        when(fileMock.length()).thenReturn(0L, 7L);
+        when(ftpsClientMock.getSize(REMOTE_FILE_PATH)).thenReturn(10L);
+        OutputStream osMock = mock(OutputStream.class);
+        when(outputStreamMock.getOutputStream(fileMock)).thenReturn(osMock);
+        when(ftpsClientMock.retrieveFile(REMOTE_FILE_PATH, osMock)).thenReturn(true);
+
+        FileCollectResult result = clientUnderTest.collectFile(createFileServerData(), REMOTE_FILE_PATH,
+                LOCAL_FILE_PATH);
+
+        assertFalse(result.downloadSuccessful());
+        assertTrue(result.getErrorData().toString().contains("is 7, expected 10"));
+        verify(ftpsClientMock, never()).setRestartOffset(anyLong());
+        verify(localFileMock, times(1)).delete();
+    }
+
+    @Test
+    public void collectFileWhenTransferBreaks_partialFileKept() throws Exception {
+        setUpSuccessfulLogin();
+        File fileMock = mock(File.class);
+        when(localFileMock.getFile()).thenReturn(fileMock);
+        when(ftpsClientMock.getSize(REMOTE_FILE_PATH)).thenReturn(10L);
+        OutputStream osMock = mock(OutputStream.class);
+        when(outputStreamMock.getOutputStream(fileMock)).thenReturn(osMock);
+        doThrow(new IOException()).when(ftpsClientMock).retrieveFile(REMOTE_FILE_PATH, osMock);
+
+        FileCollectResult result = clientUnderTest.collectFile(createFileServerData(), REMOTE_FILE_PATH,
+                LOCAL_FILE_PATH);
+
+        assertFalse(result.downloadSuccessful());
+        verify(osMock, times(1)).close();
+        verify(localFileMock, never()).delete();
+    }
+
+    @Test
+    public void collectFileFailingTwice_onlyErrorsOfLastDownloadReturned() throws Exception {
+        when(keyManagerUtilsMock.getClientKeyManager()).thenReturn(keyManagerMock);
+        when(fileResourceMock.getInputStream()).thenReturn(inputStreamMock);
+        when(keyStoreWrapperMock.getKeyStore()).thenReturn(keyStoreMock);
+        when(trustManagerFactoryMock.getTrustManagers()).thenReturn(new TrustManager[] {trustManagerMock});
+
+        doThrow(new IOException()).when(ftpsClientMock).connect(XNF_ADDRESS, PORT);
+
+        ImmutableFileServerData fileServerData = ImmutableFileServerData.builder().serverAddress(XNF_ADDRESS)
+                .userId(USERNAME).password(PASSWORD).port(PORT).build();
+
+        FileCollectResult firstResult =
+                clientUnderTest.collectFile(fileServerData, REMOTE_FILE_PATH, LOCAL_FILE_PATH);
+        FileCollectResult secondResult =
+                clientUnderTest.collectFile(fileServerData, REMOTE_FILE_PATH, LOCAL_FILE_PATH);
+
+        assertFalse(firstResult.downloadSuccessful());
+        assertFalse(secondResult.downloadSuccessful());
+        assertEquals(firstResult.getErrorData(), secondResult.getErrorData());
+        assertFalse(secondResult.getErrorData().contains("\n"));
+    }
+
+    private void setUpSuccessfulLogin() throws Exception {
+        when(keyManagerUtilsMock.getClientKeyManager()).thenReturn(keyManagerMock);
+        when(fileResourceMock.getInputStream()).thenReturn(inputStreamMock);
+        when(keyStoreWrapperMock.getKeyStore()).thenReturn(keyStoreMock);
+        when(trustManagerFactoryMock.getTrustManagers()).thenReturn(new TrustManager[] {trustManagerMock});
+        when(ftpsClientMock.login(USERNAME, PASSWORD)).thenReturn(true);
+        when(ftpsClientMock.getReplyCode()).thenReturn(HttpStatus.OK.value());
+    }
+
+    private static ImmutableFileServerData createFileServerData() {
+        return ImmutableFileServerData.builder().serverAddress(XNF_ADDRESS).userId(USERNAME).password(PASSWORD)
+                .port(PORT).build();
+    }
+}
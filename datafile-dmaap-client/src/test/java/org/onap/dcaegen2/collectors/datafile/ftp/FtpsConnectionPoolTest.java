@@ -0,0 +1,129 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.ftp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class FtpsConnectionPoolTest {
+
+    private static final FileServerData XNF_1 = ImmutableFileServerData.builder().serverAddress("192.168.0.1")
+            .userId("bob").password("123").port(21).build();
+    private static final FileServerData XNF_2 = ImmutableFileServerData.builder().serverAddress("192.168.0.2")
+            .userId("bob").password("123").port(21).build();
+
+    @Test
+    public void acquireFromEmptyPool_returnNull() {
+        FtpsConnectionPool poolUnderTest = new FtpsConnectionPool(2, Duration.ofMinutes(1));
+
+        assertNull(poolUnderTest.acquire(XNF_1));
+    }
+
+    @Test
+    public void acquireAfterRelease_returnSameSessionForSameXnfOnly() throws Exception {
+        FtpsConnectionPool poolUnderTest = new FtpsConnectionPool(2, Duration.ofMinutes(1));
+        IFTPSClient ftpsMock = aliveSession();
+
+        poolUnderTest.release(XNF_1, ftpsMock);
+
+        assertNull(poolUnderTest.acquire(XNF_2));
+        assertSame(ftpsMock, poolUnderTest.acquire(XNF_1));
+        assertEquals(0, poolUnderTest.getIdleCount(XNF_1));
+    }
+
+    @Test
+    public void releaseMoreThanMaxIdle_oldestSessionClosed() throws Exception {
+        FtpsConnectionPool poolUnderTest = new FtpsConnectionPool(1, Duration.ofMinutes(1));
+        IFTPSClient firstMock = aliveSession();
+        IFTPSClient secondMock = aliveSession();
+
+        poolUnderTest.release(XNF_1, firstMock);
+        poolUnderTest.release(XNF_1, secondMock);
+
+        assertEquals(1, poolUnderTest.getIdleCount(XNF_1));
+        verify(firstMock).logout();
+        verify(firstMock).disconnect();
+        assertSame(secondMock, poolUnderTest.acquire(XNF_1));
+    }
+
+    @Test
+    public void acquireAfterMaxIdleTime_sessionClosed() throws Exception {
+        FtpsConnectionPool poolUnderTest = new FtpsConnectionPool(2, Duration.ZERO);
+        IFTPSClient ftpsMock = aliveSession();
+
+        poolUnderTest.release(XNF_1, ftpsMock);
+        Thread.sleep(5);
+
+        assertNull(poolUnderTest.acquire(XNF_1));
+        verify(ftpsMock).disconnect();
+    }
+
+    @Test
+    public void idleLongerThanMaxIdleTime_sessionClosedWithoutAcquire() throws Exception {
+        FtpsConnectionPool poolUnderTest = new FtpsConnectionPool(2, Duration.ofMillis(20));
+        IFTPSClient ftpsMock = aliveSession();
+
+        poolUnderTest.release(XNF_1, ftpsMock);
+
+        verify(ftpsMock, timeout(1000)).disconnect();
+        assertEquals(0, poolUnderTest.getIdleCount(XNF_1));
+        poolUnderTest.close();
+    }
+
+    @Test
+    public void acquireWhenNoopFails_sessionClosed() throws Exception {
+        FtpsConnectionPool poolUnderTest = new FtpsConnectionPool(2, Duration.ofMinutes(1));
+        IFTPSClient ftpsMock = aliveSession();
+        when(ftpsMock.sendNoOp()).thenReturn(false);
+
+        poolUnderTest.release(XNF_1, ftpsMock);
+
+        assertNull(poolUnderTest.acquire(XNF_1));
+        verify(ftpsMock).disconnect();
+    }
+
+    @Test
+    public void close_allIdleSessionsClosed() throws Exception {
+        FtpsConnectionPool poolUnderTest = new FtpsConnectionPool(2, Duration.ofMinutes(1));
+        IFTPSClient firstMock = aliveSession();
+        IFTPSClient secondMock = aliveSession();
+        poolUnderTest.release(XNF_1, firstMock);
+        poolUnderTest.release(XNF_2, secondMock);
+
+        poolUnderTest.close();
+
+        verify(firstMock).disconnect();
+        verify(secondMock).disconnect();
+        assertEquals(0, poolUnderTest.getIdleCount(XNF_1));
+    }
+
+    private IFTPSClient aliveSession() throws Exception {
+        IFTPSClient ftpsMock = mock(IFTPSClient.class);
+        when(ftpsMock.isConnected()).thenReturn(true);
+        when(ftpsMock.sendNoOp()).thenReturn(true);
+        return ftpsMock;
+    }
+}
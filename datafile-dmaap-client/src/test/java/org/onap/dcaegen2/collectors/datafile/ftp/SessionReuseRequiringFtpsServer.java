@@ -0,0 +1,188 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.ftp;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Explicit FTPS server for tests that, like vsftpd with require_ssl_reuse, refuses a data connection that does not
+ * resume the TLS session of its control connection. It serves the given files in passive mode.
+ */
+class SessionReuseRequiringFtpsServer implements Closeable {
+    private static final String[] PROTOCOLS = {"TLSv1.2"};
+
+    private final SSLContext sslContext;
+    private final Map<String, byte[]> files;
+    private final ServerSocket controlServerSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    SessionReuseRequiringFtpsServer(SSLContext sslContext, Map<String, byte[]> files) throws IOException {
+        this.sslContext = sslContext;
+        this.files = files;
+        this.controlServerSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        executor.execute(this::acceptSessions);
+    }
+
+    int getPort() {
+        return controlServerSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        controlServerSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void acceptSessions() {
+        try {
+            while (true) {
+                Socket socket = controlServerSocket.accept();
+                executor.execute(() -> serve(socket));
+            }
+        } catch (IOException e) {
+            // The server is closed
+        }
+    }
+
+    private void serve(Socket plainSocket) {
+        Socket socket = plainSocket;
+        ServerSocket passiveServerSocket = null;
+        SSLSession controlSession = null;
+        try {
+            BufferedReader in = reader(socket);
+            PrintWriter out = writer(socket);
+            reply(out, "220 Ready");
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                String[] command = line.split(" ", 2);
+                String arg = command.length > 1 ? command[1] : "";
+                switch (command[0].toUpperCase()) {
+                    case "AUTH":
+                        reply(out, "234 Proceed with negotiation");
+                        SSLSocket sslSocket = startTls(socket);
+                        controlSession = sslSocket.getSession();
+                        socket = sslSocket;
+                        in = reader(socket);
+                        out = writer(socket);
+                        break;
+                    case "USER":
+                        reply(out, "331 Password required");
+                        break;
+                    case "PASS":
+                        reply(out, "230 Logged in");
+                        break;
+                    case "PBSZ":
+                        reply(out, "200 PBSZ=0");
+                        break;
+                    case "PROT":
+                    case "TYPE":
+                        reply(out, "200 OK");
+                        break;
+                    case "PASV":
+                        passiveServerSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+                        int port = passiveServerSocket.getLocalPort();
+                        reply(out, "227 Entering Passive Mode (127,0,0,1," + port / 256 + "," + port % 256 + ")");
+                        break;
+                    case "RETR":
+                        retrieve(passiveServerSocket, controlSession, files.get(arg), out);
+                        passiveServerSocket = null;
+                        break;
+                    case "QUIT":
+                        reply(out, "221 Goodbye");
+                        return;
+                    default:
+                        reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            // The client is gone
+        } finally {
+            closeQuietly(passiveServerSocket);
+            closeQuietly(socket);
+        }
+    }
+
+    private void retrieve(ServerSocket passiveServerSocket, SSLSession controlSession, byte[] content,
+            PrintWriter out) throws IOException {
+        if (passiveServerSocket == null || content == null) {
+            closeQuietly(passiveServerSocket);
+            reply(out, "550 Failed to open file");
+            return;
+        }
+        boolean sessionReused;
+        try (ServerSocket passive = passiveServerSocket; Socket plainDataSocket = passive.accept()) {
+            reply(out, "150 Opening BINARY mode data connection");
+            try (SSLSocket dataSocket = startTls(plainDataSocket)) {
+                sessionReused = Arrays.equals(controlSession.getId(), dataSocket.getSession().getId());
+                if (sessionReused) {
+                    OutputStream dataOut = dataSocket.getOutputStream();
+                    dataOut.write(content);
+                    dataOut.flush();
+                }
+            }
+        }
+        reply(out, sessionReused ? "226 Transfer complete" : "522 SSL connection failed: session reuse required");
+    }
+
+    private SSLSocket startTls(Socket socket) throws IOException {
+        SSLSocket sslSocket = (SSLSocket) sslContext.getSocketFactory().createSocket(socket,
+                socket.getInetAddress().getHostAddress(), socket.getPort(), true);
+        sslSocket.setUseClientMode(false);
+        sslSocket.setEnabledProtocols(PROTOCOLS);
+        sslSocket.startHandshake();
+        return sslSocket;
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+    }
+
+    private static PrintWriter writer(Socket socket) throws IOException {
+        return new PrintWriter(socket.getOutputStream(), true);
+    }
+
+    private static void reply(PrintWriter out, String reply) {
+        out.print(reply + "\r\n");
+        out.flush();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing to do
+            }
+        }
+    }
+}
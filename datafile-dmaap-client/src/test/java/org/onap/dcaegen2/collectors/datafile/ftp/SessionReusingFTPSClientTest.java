@@ -0,0 +1,125 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.ftp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.Collections;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPSClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SessionReusingFTPSClientTest {
+
+    private static final String KEY_STORE = "/ftpsServerKeystore.jks";
+    private static final char[] KEY_STORE_PASSWORD = "secret".toCharArray();
+    private static final String REMOTE_FILE_PATH = "/dir/sample.txt";
+    private static final String CONTENT = "Sample file content";
+    private static final String USERNAME = "bob";
+    private static final String PASSWORD = "123";
+
+    private SessionReuseRequiringFtpsServer server;
+
+    @BeforeEach
+    protected void setUp() throws Exception {
+        server = new SessionReuseRequiringFtpsServer(serverContext(),
+                Collections.singletonMap(REMOTE_FILE_PATH, CONTENT.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @AfterEach
+    protected void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void retrieveFiles_whenServerRequiresSessionReuse_filesRetrieved() throws Exception {
+        FTPSClientWrapper clientUnderTest = new FTPSClientWrapper(clientContext());
+        openSession(clientUnderTest);
+
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream local = new ByteArrayOutputStream();
+            assertTrue(clientUnderTest.retrieveFile(REMOTE_FILE_PATH, local));
+            assertEquals(CONTENT, new String(local.toByteArray(), StandardCharsets.UTF_8));
+        }
+
+        clientUnderTest.logout();
+        clientUnderTest.disconnect();
+    }
+
+    @Test
+    public void retrieveFile_withoutSessionReuse_refusedByServer() throws Exception {
+        FTPSClient plainClient = new FTPSClient(false, clientContext());
+        plainClient.connect("127.0.0.1", server.getPort());
+        plainClient.login(USERNAME, PASSWORD);
+        plainClient.execPBSZ(0);
+        plainClient.execPROT("P");
+        plainClient.enterLocalPassiveMode();
+        plainClient.setFileType(FTP.BINARY_FILE_TYPE);
+
+        assertFalse(plainClient.retrieveFile(REMOTE_FILE_PATH, new ByteArrayOutputStream()));
+        assertEquals(522, plainClient.getReplyCode());
+
+        plainClient.disconnect();
+    }
+
+    private void openSession(IFTPSClient client) throws Exception {
+        client.connect("127.0.0.1", server.getPort());
+        assertTrue(client.login(USERNAME, PASSWORD));
+        client.execPBSZ(0);
+        client.execPROT("P");
+        client.enterLocalPassiveMode();
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+    }
+
+    private static SSLContext serverContext() throws Exception {
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore(), KEY_STORE_PASSWORD);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagerFactory.getKeyManagers(), null, null);
+        return context;
+    }
+
+    private static SSLContext clientContext() throws Exception {
+        TrustManagerFactory trustManagerFactory =
+                TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(keyStore());
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, trustManagerFactory.getTrustManagers(), null);
+        return context;
+    }
+
+    private static KeyStore keyStore() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream in = SessionReusingFTPSClientTest.class.getResourceAsStream(KEY_STORE)) {
+            keyStore.load(in, KEY_STORE_PASSWORD);
+        }
+        return keyStore;
+    }
+}
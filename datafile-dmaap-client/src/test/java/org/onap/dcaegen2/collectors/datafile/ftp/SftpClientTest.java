@@ -22,22 +22,37 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.commons.io.IOUtils.toByteArray;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.github.stefanbirkner.fakesftpserver.rule.FakeSftpServerRule;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpATTRS;
 import com.jcraft.jsch.SftpException;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.onap.dcaegen2.collectors.datafile.ftp.SftpSessionCache.SessionFactory;
 
 public class SftpClientTest {
     private static final String USERNAME = "bob";
@@ -97,6 +112,166 @@ public class SftpClientTest {
         assertTrue(actualResult.getErrorData().toString().startsWith(expectedErrorMessage));
     }
 
+    @Test
+    public void collectFile_whenDownloadBroke_downloadResumed() throws Exception {
+        Session brokenSession = mock(Session.class);
+        ChannelSftp brokenChannel = mock(ChannelSftp.class);
+        SftpATTRS attributes = mock(SftpATTRS.class);
+        when(brokenSession.isConnected()).thenReturn(true);
+        when(brokenSession.openChannel("sftp")).thenReturn(brokenChannel);
+        when(brokenChannel.stat(REMOTE_DUMMY_FILE)).thenReturn(attributes);
+        when(attributes.getSize()).thenReturn((long) DUMMY_CONTENT.length());
+        doAnswer(invocation -> {
+            Files.write(new File(LOCAL_DUMMY_FILE).toPath(), "DUMMY".getBytes(UTF_8));
+            throw new SftpException(ChannelSftp.SSH_FX_FAILURE, "Connection lost");
+        }).when(brokenChannel).get(REMOTE_DUMMY_FILE, LOCAL_DUMMY_FILE, null, ChannelSftp.OVERWRITE);
+        sftpServer.putFile(REMOTE_DUMMY_FILE, DUMMY_CONTENT, UTF_8);
+        FileServerData expectedFileServerData = ImmutableFileServerData.builder().serverAddress("127.0.0.1")
+                .userId(USERNAME).password(PASSWORD).port(sftpServer.getPort()).build();
+        SftpClient sftpClient = new SftpClient(new SftpSessionCache(5, 4, Duration.ZERO));
+
+        sftpClient.setSessionFactory(fileServerData -> brokenSession);
+        FileCollectResult brokenResult =
+                sftpClient.collectFile(expectedFileServerData, REMOTE_DUMMY_FILE, LOCAL_DUMMY_FILE);
+        sftpClient.setSessionFactory(fileServerData -> connectToServerAtPort(fileServerData.port()));
+        FileCollectResult result = sftpClient.collectFile(expectedFileServerData, REMOTE_DUMMY_FILE, LOCAL_DUMMY_FILE);
+
+        assertFalse(brokenResult.downloadSuccessful());
+        assertTrue(result.downloadSuccessful());
+        byte[] localFile = Files.readAllBytes(new File(LOCAL_DUMMY_FILE).toPath());
+        assertThat(new String(localFile, UTF_8)).isEqualTo("DUMMY" + DUMMY_CONTENT.substring(5));
+    }
+
+    @Test
+    public void collectFile_whenLocalFileShorterButNotLeftByDownload_fileDownloadedAgain() throws IOException {
+        SftpClient sftpClient = new SftpClient();
+        sftpServer.putFile(REMOTE_DUMMY_FILE, DUMMY_CONTENT, UTF_8);
+        Files.write(new File(LOCAL_DUMMY_FILE).toPath(), "DUMMY".getBytes(UTF_8));
+        FileServerData expectedFileServerData = ImmutableFileServerData.builder().serverAddress("127.0.0.1")
+                .userId(USERNAME).password(PASSWORD).port(sftpServer.getPort()).build();
+
+        FileCollectResult result = sftpClient.collectFile(expectedFileServerData, REMOTE_DUMMY_FILE,
+                LOCAL_DUMMY_FILE);
+
+        assertTrue(result.downloadSuccessful());
+        byte[] localFile = Files.readAllBytes(new File(LOCAL_DUMMY_FILE).toPath());
+        assertThat(new String(localFile, UTF_8)).isEqualTo(DUMMY_CONTENT);
+    }
+
+    @Test
+    public void collectFile_whenLocalFileLonger_fileDownloadedAgain() throws IOException {
+        SftpClient sftpClient = new SftpClient();
+        sftpServer.putFile(REMOTE_DUMMY_FILE, DUMMY_CONTENT, UTF_8);
+        Files.write(new File(LOCAL_DUMMY_FILE).toPath(), (DUMMY_CONTENT + " of an older file").getBytes(UTF_8));
+        FileServerData expectedFileServerData = ImmutableFileServerData.builder().serverAddress("127.0.0.1")
+                .userId(USERNAME).password(PASSWORD).port(sftpServer.getPort()).build();
+
+        FileCollectResult result = sftpClient.collectFile(expectedFileServerData, REMOTE_DUMMY_FILE,
+                LOCAL_DUMMY_FILE);
+
+        assertTrue(result.downloadSuccessful());
+        byte[] localFile = Files.readAllBytes(new File(LOCAL_DUMMY_FILE).toPath());
+        assertThat(new String(localFile, UTF_8)).isEqualTo(DUMMY_CONTENT);
+    }
+
+    @Test
+    public void collectTwoFiles_sessionReused() throws IOException, JSchException {
+        AtomicInteger connectedSessions = new AtomicInteger();
+        SftpClient sftpClient = new SftpClient();
+        sftpClient.setSessionFactory(fileServerData -> {
+            connectedSessions.incrementAndGet();
+            return connectToServerAtPort(fileServerData.port());
+        });
+        sftpServer.putFile(REMOTE_DUMMY_FILE, DUMMY_CONTENT, UTF_8);
+        FileServerData expectedFileServerData = ImmutableFileServerData.builder().serverAddress("127.0.0.1")
+                .userId(USERNAME).password(PASSWORD).port(sftpServer.getPort()).build();
+
+        FileCollectResult firstResult =
+                sftpClient.collectFile(expectedFileServerData, REMOTE_DUMMY_FILE, LOCAL_DUMMY_FILE);
+        FileCollectResult secondResult =
+                sftpClient.collectFile(expectedFileServerData, REMOTE_DUMMY_FILE, LOCAL_DUMMY_FILE);
+        sftpClient.close();
+
+        assertTrue(firstResult.downloadSuccessful());
+        assertTrue(secondResult.downloadSuccessful());
+        assertThat(connectedSessions.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void collectFilesConcurrently_allFilesCollected() throws Exception {
+        SftpClient sftpClient = new SftpClient();
+        FileServerData expectedFileServerData = ImmutableFileServerData.builder().serverAddress("127.0.0.1")
+                .userId(USERNAME).password(PASSWORD).port(sftpServer.getPort()).build();
+        int numberOfFiles = 8;
+        List<Future<FileCollectResult>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfFiles);
+        for (int i = 0; i < numberOfFiles; i++) {
+            String remoteFile = "/dummy_directory/dummy_file_" + i + ".txt";
+            String localFile = "target/dummy_" + i + ".txt";
+            sftpServer.putFile(remoteFile, DUMMY_CONTENT + i, UTF_8);
+            results.add(executor.submit(() -> sftpClient.collectFile(expectedFileServerData, remoteFile, localFile)));
+        }
+
+        for (int i = 0; i < numberOfFiles; i++) {
+            assertTrue(results.get(i).get().downloadSuccessful());
+            byte[] localFile = Files.readAllBytes(new File("target/dummy_" + i + ".txt").toPath());
+            assertThat(new String(localFile, UTF_8)).isEqualTo(DUMMY_CONTENT + i);
+        }
+        executor.shutdown();
+        sftpClient.close();
+    }
+
+    @Test
+    public void collectFile_whenChannelCannotBeOpened_sessionKeptForOtherChannels() throws Exception {
+        AtomicInteger connectedSessions = new AtomicInteger();
+        Session sessionMock = mock(Session.class);
+        when(sessionMock.isConnected()).thenReturn(true);
+        when(sessionMock.openChannel("sftp")).thenThrow(new JSchException("Channel refused"));
+        SessionFactory sessionFactory = fileServerData -> {
+            connectedSessions.incrementAndGet();
+            return sessionMock;
+        };
+        SftpSessionCache sessionCache = new SftpSessionCache(1, 4, Duration.ofMinutes(1));
+        SftpClient sftpClient = new SftpClient(sessionCache);
+        sftpClient.setSessionFactory(sessionFactory);
+        FileServerData expectedFileServerData = ImmutableFileServerData.builder().serverAddress("127.0.0.1")
+                .userId(USERNAME).password(PASSWORD).port(sftpServer.getPort()).build();
+
+        FileCollectResult result = sftpClient.collectFile(expectedFileServerData, REMOTE_DUMMY_FILE,
+                LOCAL_DUMMY_FILE);
+
+        assertFalse(result.downloadSuccessful());
+        verify(sessionMock, never()).disconnect();
+        sessionCache.acquire(expectedFileServerData, sessionFactory);
+        assertThat(connectedSessions.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void collectFile_whenDownloadThrowsUnexpectedly_channelReleased() throws Exception {
+        AtomicInteger connectedSessions = new AtomicInteger();
+        Session sessionMock = mock(Session.class);
+        ChannelSftp channelMock = mock(ChannelSftp.class);
+        when(sessionMock.isConnected()).thenReturn(true);
+        when(sessionMock.openChannel("sftp")).thenReturn(channelMock);
+        when(channelMock.stat(REMOTE_DUMMY_FILE)).thenThrow(new IllegalStateException("Broken channel"));
+        SessionFactory sessionFactory = fileServerData -> {
+            connectedSessions.incrementAndGet();
+            return sessionMock;
+        };
+        SftpSessionCache sessionCache = new SftpSessionCache(1, 4, Duration.ofMinutes(1));
+        SftpClient sftpClient = new SftpClient(sessionCache);
+        sftpClient.setSessionFactory(sessionFactory);
+        FileServerData expectedFileServerData = ImmutableFileServerData.builder().serverAddress("127.0.0.1")
+                .userId(USERNAME).password(PASSWORD).port(sftpServer.getPort()).build();
+
+        assertThrows(IllegalStateException.class,
+                () -> sftpClient.collectFile(expectedFileServerData, REMOTE_DUMMY_FILE, LOCAL_DUMMY_FILE));
+
+        verify(channelMock).exit();
+        sessionCache.acquire(expectedFileServerData, sessionFactory);
+        assertThat(connectedSessions.get()).isEqualTo(1);
+    }
+
     private static Session connectToServer(FakeSftpServerRule sftpServer) throws JSchException {
         return connectToServerAtPort(sftpServer.getPort());
     }
@@ -0,0 +1,163 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.ftp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.jcraft.jsch.Session;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.onap.dcaegen2.collectors.datafile.ftp.SftpSessionCache.SessionFactory;
+
+public class SftpSessionCacheTest {
+
+    private static final FileServerData XNF = ImmutableFileServerData.builder().serverAddress("192.168.0.1")
+            .userId("bob").password("123").port(22).build();
+    private static final SessionFactory SESSION_FACTORY = server -> connectedSession();
+
+    @Test
+    public void acquireAfterRelease_sameSessionReused() throws Exception {
+        SftpSessionCache cacheUnderTest = new SftpSessionCache(2, 4, Duration.ofMinutes(1));
+
+        Session first = cacheUnderTest.acquire(XNF, SESSION_FACTORY);
+        cacheUnderTest.release(XNF, first);
+        Session second = cacheUnderTest.acquire(XNF, SESSION_FACTORY);
+
+        assertSame(first, second);
+        assertEquals(1, cacheUnderTest.getSessionCount(XNF));
+    }
+
+    @Test
+    public void acquireMoreThanMaxChannels_newSessionConnected() throws Exception {
+        SftpSessionCache cacheUnderTest = new SftpSessionCache(2, 4, Duration.ofMinutes(1));
+
+        Session first = cacheUnderTest.acquire(XNF, SESSION_FACTORY);
+        Session second = cacheUnderTest.acquire(XNF, SESSION_FACTORY);
+        Session third = cacheUnderTest.acquire(XNF, SESSION_FACTORY);
+
+        assertSame(first, second);
+        assertNotSame(first, third);
+        assertEquals(2, cacheUnderTest.getSessionCount(XNF));
+    }
+
+    @Test
+    public void acquireAfterMaxIdleTime_idleSessionDisconnected() throws Exception {
+        SftpSessionCache cacheUnderTest = new SftpSessionCache(2, 4, Duration.ZERO);
+
+        Session first = cacheUnderTest.acquire(XNF, SESSION_FACTORY);
+        cacheUnderTest.release(XNF, first);
+        Thread.sleep(5);
+        Session second = cacheUnderTest.acquire(XNF, SESSION_FACTORY);
+
+        assertNotSame(first, second);
+        verify(first).disconnect();
+        assertEquals(1, cacheUnderTest.getSessionCount(XNF));
+    }
+
+    @Test
+    public void acquireWhenSessionLost_newSessionConnected() throws Exception {
+        SftpSessionCache cacheUnderTest = new SftpSessionCache(2, 4, Duration.ofMinutes(1));
+
+        Session first = cacheUnderTest.acquire(XNF, SESSION_FACTORY);
+        cacheUnderTest.release(XNF, first);
+        when(first.isConnected()).thenReturn(false);
+        Session second = cacheUnderTest.acquire(XNF, SESSION_FACTORY);
+
+        assertNotSame(first, second);
+        assertEquals(1, cacheUnderTest.getSessionCount(XNF));
+    }
+
+    @Test
+    public void invalidate_sessionRemovedAndDisconnected() throws Exception {
+        SftpSessionCache cacheUnderTest = new SftpSessionCache(2, 4, Duration.ofMinutes(1));
+
+        Session session = cacheUnderTest.acquire(XNF, SESSION_FACTORY);
+        cacheUnderTest.invalidate(XNF, session);
+
+        verify(session).disconnect();
+        assertEquals(0, cacheUnderTest.getSessionCount(XNF));
+    }
+
+    @Test
+    public void closeExpired_idleSessionsOfAllXnfsDisconnected() throws Exception {
+        SftpSessionCache cacheUnderTest = new SftpSessionCache(2, 4, Duration.ofMillis(1));
+        FileServerData otherXnf = ImmutableFileServerData.copyOf(XNF).withServerAddress("192.168.0.2");
+        Session first = cacheUnderTest.acquire(XNF, SESSION_FACTORY);
+        Session second = cacheUnderTest.acquire(otherXnf, SESSION_FACTORY);
+        cacheUnderTest.release(XNF, first);
+        cacheUnderTest.release(otherXnf, second);
+        Thread.sleep(5);
+
+        cacheUnderTest.closeExpired();
+
+        verify(first).disconnect();
+        verify(second).disconnect();
+        assertEquals(0, cacheUnderTest.getSessionCount(XNF));
+        assertEquals(0, cacheUnderTest.getSessionCount(otherXnf));
+        cacheUnderTest.close();
+    }
+
+    @Test
+    public void idleSessionNotUsedAgain_disconnectedByTimer() throws Exception {
+        SftpSessionCache cacheUnderTest = new SftpSessionCache(2, 4, Duration.ofMillis(20));
+
+        Session session = cacheUnderTest.acquire(XNF, SESSION_FACTORY);
+        cacheUnderTest.release(XNF, session);
+
+        verify(session, timeout(5000)).disconnect();
+        assertEquals(0, cacheUnderTest.getSessionCount(XNF));
+        cacheUnderTest.close();
+    }
+
+    @Test
+    public void acquireWhenMaxSessionsFullyUsed_waitsForChannel() throws Exception {
+        SftpSessionCache cacheUnderTest = new SftpSessionCache(1, 2, Duration.ofMinutes(1));
+        Session first = cacheUnderTest.acquire(XNF, SESSION_FACTORY);
+        Session second = cacheUnderTest.acquire(XNF, SESSION_FACTORY);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        Future<Session> third = executor.submit(() -> cacheUnderTest.acquire(XNF, SESSION_FACTORY));
+        Thread.sleep(100);
+        assertFalse(third.isDone());
+        cacheUnderTest.release(XNF, second);
+
+        assertSame(second, third.get(5, TimeUnit.SECONDS));
+        assertNotSame(first, second);
+        assertEquals(2, cacheUnderTest.getSessionCount(XNF));
+        executor.shutdown();
+        cacheUnderTest.close();
+    }
+
+    private static Session connectedSession() {
+        Session session = mock(Session.class);
+        when(session.isConnected()).thenReturn(true);
+        return session;
+    }
+}
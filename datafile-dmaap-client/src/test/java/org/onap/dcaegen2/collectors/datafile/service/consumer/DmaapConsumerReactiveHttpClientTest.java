@@ -37,6 +37,7 @@ import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClient.RequestHeadersUriSpec;
 import org.springframework.web.reactive.function.client.WebClient.ResponseSpec;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
@@ -98,12 +99,35 @@ class DmaapConsumerReactiveHttpClientTest {
             }).verifyComplete();
     }
 
+    @Test
+    void getHttpResponseBody_Success() {
+        byte[] firstChunk = JSON_MESSAGE.substring(0, 10).getBytes();
+        byte[] secondChunk = JSON_MESSAGE.substring(10).getBytes();
+
+        mockDependantObjects();
+        doReturn(Flux.just(firstChunk, secondChunk)).when(responseSpecMock).bodyToFlux(byte[].class);
+        dmaapConsumerReactiveHttpClient.createDmaapWebClient(webClient);
+
+        StepVerifier.create(dmaapConsumerReactiveHttpClient.getDmaapConsumerResponseBody())
+                .expectNext(firstChunk, secondChunk).verifyComplete();
+    }
+
     @Test
     void getAppropriateUri_whenPassingCorrectedUriData() throws URISyntaxException {
         Assertions.assertEquals(dmaapConsumerReactiveHttpClient.getUri(),
             URI.create("https://54.45.33.2:1234/unauthenticated.VES_NOTIFICATION_OUTPUT/OpenDCAE-c12/c12"));
     }
 
+    @Test
+    void getAppropriateUri_whenTimeoutAndLimitConfigured_longPollUri() {
+        when(consumerConfigurationMock.timeoutMS()).thenReturn(10000);
+        when(consumerConfigurationMock.messageLimit()).thenReturn(1000);
+        DmaapConsumerReactiveHttpClient longPollClient = new DmaapConsumerReactiveHttpClient(consumerConfigurationMock);
+
+        Assertions.assertEquals(URI.create("https://54.45.33.2:1234/unauthenticated.VES_NOTIFICATION_OUTPUT/"
+            + "OpenDCAE-c12/c12?timeout=10000&limit=1000"), longPollClient.getUri());
+    }
+
     private void mockDependantObjects() {
         when(webClient.get()).thenReturn(requestHeadersSpecMock);
         when(requestHeadersSpecMock.uri((URI) any())).thenReturn(requestHeadersSpecMock);
@@ -16,33 +16,37 @@
 
 package org.onap.dcaegen2.collectors.datafile.service.producer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.ExecutionException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.concurrent.Future;
 
 import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.entity.NFileEntity;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.onap.dcaegen2.collectors.datafile.config.DmaapPublisherConfiguration;
-import org.onap.dcaegen2.collectors.datafile.io.IFileSystemResource;
 import org.onap.dcaegen2.collectors.datafile.model.CommonFunctions;
 import org.onap.dcaegen2.collectors.datafile.model.ConsumerDmaapModel;
 import org.onap.dcaegen2.collectors.datafile.model.ImmutableConsumerDmaapModel;
@@ -71,18 +75,17 @@ class DmaapProducerReactiveHttpClientTest {
     private static final String PUBLISH_TOPIC = "publish";
     private static final String DEFAULT_FEED_ID = "1";
     private static final String FILE_CONTENT = "Just a string.";
+    private static final String LOCAL_FILE_PATH = "target/" + FILE_NAME;
 
     private DmaapProducerReactiveHttpClient dmaapProducerReactiveHttpClient;
 
     private DmaapPublisherConfiguration dmaapPublisherConfigurationMock = mock(DmaapPublisherConfiguration.class);
     private ConsumerDmaapModel consumerDmaapModel;
 
-    private IFileSystemResource fileSystemResourceMock = mock(IFileSystemResource.class);
     private CloseableHttpAsyncClient clientMock;
     private HttpResponse responseMock = mock(HttpResponse.class);
     private Future<HttpResponse> futureMock = mock(Future.class);
     private StatusLine statusLine = mock(StatusLine.class);
-    private InputStream fileStream;
 
     @BeforeEach
     void setUp() {
@@ -111,10 +114,10 @@ class DmaapProducerReactiveHttpClientTest {
                 .build();
         //formatter:on
 
-        dmaapProducerReactiveHttpClient = new DmaapProducerReactiveHttpClient(dmaapPublisherConfigurationMock);
-        dmaapProducerReactiveHttpClient.setFileSystemResource(fileSystemResourceMock);
         clientMock = mock(CloseableHttpAsyncClient.class);
-        dmaapProducerReactiveHttpClient.setWebClient(clientMock);
+        dmaapProducerReactiveHttpClient =
+                new DmaapProducerReactiveHttpClient(dmaapPublisherConfigurationMock, clientMock);
+        Files.write(Paths.get(LOCAL_FILE_PATH), FILE_CONTENT.getBytes());
     }
 
     @Test
@@ -139,39 +142,115 @@ class DmaapProducerReactiveHttpClientTest {
         String base64Creds = new String(base64CredsBytes);
         httpPut.addHeader("Authorization", "Basic " + base64Creds);
 
-        fileStream.reset();
         StepVerifier.create(dmaapProducerReactiveHttpClient.getDmaapProducerResponse(consumerDmaapModel))
-        .expectNext(responseMock.toString()).verifyComplete();
-
-        verify(fileSystemResourceMock).setPath("target/" + FILE_NAME);
-        InputStream fileInputStream = fileSystemResourceMock.getInputStream();
-        httpPut.setEntity(new ByteArrayEntity(IOUtils.toByteArray(fileInputStream)));
-        /*
-         * perhaps need to do more check here, eg:
-         * verify(clientMock).execute(httpPut, null).get();
-         * verifyNoMoreInteractions(clientMock);
-        */
+        .expectNext(Integer.toString(HttpUtils.SC_OK)).verifyComplete();
+
+        ArgumentCaptor<HttpPut> putCaptor = ArgumentCaptor.forClass(HttpPut.class);
+        verify(clientMock).execute(putCaptor.capture(), any());
+        HttpPut actualPut = putCaptor.getValue();
+        assertEquals(expectedUri, actualPut.getURI());
+        assertEquals(httpPut.getFirstHeader(X_ATT_DR_META).getValue(),
+                actualPut.getFirstHeader(X_ATT_DR_META).getValue());
+        assertEquals(httpPut.getFirstHeader("Authorization").getValue(),
+                actualPut.getFirstHeader("Authorization").getValue());
+        assertTrue(actualPut.getEntity() instanceof NFileEntity);
+        assertEquals(FILE_CONTENT.length(), actualPut.getEntity().getContentLength());
+    }
+
+    @Test
+    void getHttpResponse_fileMissing_nothingSent() throws Exception {
+        mockWebClientDependantObject(true);
+        Files.delete(Paths.get(LOCAL_FILE_PATH));
+
+        StepVerifier.create(dmaapProducerReactiveHttpClient.getDmaapProducerResponse(consumerDmaapModel))
+                .verifyComplete();
+
+        verify(clientMock, never()).execute(any(HttpPut.class), any());
     }
 
     @Test
     void getHttpResponse_Fail() throws Exception {
         mockWebClientDependantObject(false);
         StepVerifier.create(dmaapProducerReactiveHttpClient.getDmaapProducerResponse(consumerDmaapModel))
-                .verifyComplete();
+                .expectError(IOException.class).verify();
+    }
+
+    @Test
+    void getHttpResponse_unsuccessfulResponse_error() throws Exception {
+        mockWebClientDependantObject(true);
+        when(statusLine.getStatusCode()).thenReturn(503);
+
+        StepVerifier.create(dmaapProducerReactiveHttpClient.getDmaapProducerResponse(consumerDmaapModel))
+                .expectErrorMessage("Publish to DR unsuccessful, response code: 503").verify();
+    }
+
+    @Test
+    void getHttpResponse_notSubscribed_nothingSent() throws Exception {
+        mockWebClientDependantObject(true);
+
+        dmaapProducerReactiveHttpClient.getDmaapProducerResponse(consumerDmaapModel);
+
+        verify(clientMock, never()).execute(any(HttpPut.class), any());
+    }
+
+    @Test
+    void getHttpResponse_cancelled_requestCancelled() throws Exception {
+        when(clientMock.execute(any(HttpPut.class), any())).thenReturn(futureMock);
+
+        StepVerifier.create(dmaapProducerReactiveHttpClient.getDmaapProducerResponse(consumerDmaapModel))
+                .thenCancel().verify();
+
+        verify(futureMock).cancel(true);
+        verify(clientMock, never()).close();
+    }
+
+    @Test
+    void getHttpResponse_streamingBody_sentWithExpectContinue() throws Exception {
+        mockWebClientDependantObject(true);
+        StreamingFileEntity body = new StreamingFileEntity(1, 1024, Duration.ofSeconds(1));
+
+        StepVerifier.create(dmaapProducerReactiveHttpClient.getDmaapProducerResponse(consumerDmaapModel, body))
+                .expectNext(Integer.toString(HttpUtils.SC_OK)).verifyComplete();
+
+        ArgumentCaptor<HttpPut> putCaptor = ArgumentCaptor.forClass(HttpPut.class);
+        verify(clientMock).execute(putCaptor.capture(), any());
+        assertSame(body, putCaptor.getValue().getEntity());
+        assertTrue(putCaptor.getValue().getConfig().isExpectContinueEnabled());
+    }
+
+    @Test
+    void getHttpResponse_streamingBodyAndFail_error() throws Exception {
+        mockWebClientDependantObject(false);
+        StreamingFileEntity body = new StreamingFileEntity(1, 1024, Duration.ofSeconds(1));
+
+        StepVerifier.create(dmaapProducerReactiveHttpClient.getDmaapProducerResponse(consumerDmaapModel, body))
+                .expectError(IOException.class).verify();
+    }
+
+    @Test
+    void getHttpResponse_streamingBodyAndUnsuccessfulResponse_error() throws Exception {
+        mockWebClientDependantObject(true);
+        when(statusLine.getStatusCode()).thenReturn(503);
+        StreamingFileEntity body = new StreamingFileEntity(1, 1024, Duration.ofSeconds(1));
+
+        StepVerifier.create(dmaapProducerReactiveHttpClient.getDmaapProducerResponse(consumerDmaapModel, body))
+                .expectErrorMessage("Publish to DR unsuccessful, response code: 503").verify();
     }
 
-    private void mockWebClientDependantObject(boolean success)
-            throws IOException, InterruptedException, ExecutionException {
-        fileStream = new ByteArrayInputStream(FILE_CONTENT.getBytes());
-        when(fileSystemResourceMock.getInputStream()).thenReturn(fileStream);
+    @SuppressWarnings("unchecked")
+    private void mockWebClientDependantObject(boolean success) {
         if (success) {
-            when(clientMock.execute(any(HttpPut.class), any())).thenReturn(futureMock);
-            when(futureMock.get()).thenReturn(responseMock);
             when(responseMock.getStatusLine()).thenReturn(statusLine);
             when(statusLine.getStatusCode()).thenReturn(HttpUtils.SC_OK);
-        } else {
-            when(clientMock.execute(any(HttpPut.class), any())).thenReturn(futureMock);
-            when(futureMock.get()).thenThrow(new InterruptedException());
         }
+        when(clientMock.execute(any(HttpPut.class), any())).thenAnswer(invocation -> {
+            FutureCallback<HttpResponse> callback = invocation.getArgument(1);
+            if (success) {
+                callback.completed(responseMock);
+            } else {
+                callback.failed(new IOException("Connection refused"));
+            }
+            return futureMock;
+        });
     }
 }
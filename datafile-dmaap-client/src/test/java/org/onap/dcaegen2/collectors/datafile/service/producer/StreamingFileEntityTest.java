@@ -0,0 +1,160 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.service.producer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.commons.io.IOUtils;
+
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.junit.jupiter.api.Test;
+
+public class StreamingFileEntityTest {
+    private static final int CHUNK_SIZE = 4;
+
+    private ContentEncoder encoderMock = mock(ContentEncoder.class);
+    private IOControl ioControlMock = mock(IOControl.class);
+    private ByteArrayOutputStream sent = new ByteArrayOutputStream();
+
+    @Test
+    public void whenFileWrittenAndClosed_allContentSentAndCompleted() throws IOException {
+        StreamingFileEntity entityUnderTest = new StreamingFileEntity(4, CHUNK_SIZE, Duration.ofSeconds(1));
+        setUpEncoder();
+        byte[] content = "0123456789".getBytes();
+
+        OutputStream output = entityUnderTest.getOutputStream();
+        output.write(content);
+        output.close();
+        entityUnderTest.produceContent(encoderMock, ioControlMock);
+
+        assertArrayEquals(content, sent.toByteArray());
+        verify(encoderMock).complete();
+        assertTrue(entityUnderTest.isChunked());
+        assertFalse(entityUnderTest.isRepeatable());
+    }
+
+    @Test
+    public void whenNothingWritten_outputSuspendedUntilWritten() throws IOException {
+        StreamingFileEntity entityUnderTest = new StreamingFileEntity(4, CHUNK_SIZE, Duration.ofSeconds(1));
+        setUpEncoder();
+
+        entityUnderTest.produceContent(encoderMock, ioControlMock);
+        verify(ioControlMock).suspendOutput();
+        verify(ioControlMock, never()).requestOutput();
+
+        entityUnderTest.getOutputStream().write("0123".getBytes());
+        verify(ioControlMock).requestOutput();
+        verify(encoderMock, never()).complete();
+    }
+
+    @Test
+    public void whenBufferFull_writeTimesOutAndStalled() throws IOException {
+        StreamingFileEntity entityUnderTest = new StreamingFileEntity(1, CHUNK_SIZE, Duration.ofMillis(10));
+        OutputStream output = entityUnderTest.getOutputStream();
+
+        assertThrows(IOException.class, () -> output.write("012345678".getBytes()));
+
+        assertTrue(entityUnderTest.isStalled());
+        assertThrows(IOException.class, () -> entityUnderTest.produceContent(encoderMock, ioControlMock));
+        assertThrows(IOException.class, () -> output.write('0'));
+    }
+
+    @Test
+    public void whenAborted_produceContentFailsAndNotStalled() throws IOException {
+        StreamingFileEntity entityUnderTest = new StreamingFileEntity(4, CHUNK_SIZE, Duration.ofSeconds(1));
+        IOException cause = new IOException("Unable to collect file");
+
+        entityUnderTest.getOutputStream().write("0123".getBytes());
+        entityUnderTest.abort(cause);
+        entityUnderTest.abort(new IOException("Publish failed"));
+
+        assertThrows(IOException.class, () -> entityUnderTest.produceContent(encoderMock, ioControlMock));
+        assertTrue(entityUnderTest.getAbortCause() == cause);
+        assertFalse(entityUnderTest.isStalled());
+    }
+
+    @Test
+    public void whenWrittenByAnotherThread_writeToWritesAllContent() throws Exception {
+        StreamingFileEntity entityUnderTest = new StreamingFileEntity(1, CHUNK_SIZE, Duration.ofSeconds(1));
+        byte[] content = "0123456789".getBytes();
+
+        CompletableFuture<Void> writer = writeInBackground(entityUnderTest, content);
+        entityUnderTest.writeTo(sent);
+        writer.get();
+
+        assertArrayEquals(content, sent.toByteArray());
+    }
+
+    @Test
+    public void whenWrittenByAnotherThread_getContentReadsAllContent() throws Exception {
+        StreamingFileEntity entityUnderTest = new StreamingFileEntity(1, CHUNK_SIZE, Duration.ofSeconds(1));
+        byte[] content = "0123456789".getBytes();
+
+        CompletableFuture<Void> writer = writeInBackground(entityUnderTest, content);
+        byte[] read = IOUtils.toByteArray(entityUnderTest.getContent());
+        writer.get();
+
+        assertArrayEquals(content, read);
+    }
+
+    @Test
+    public void whenAborted_writeToFails() throws IOException {
+        StreamingFileEntity entityUnderTest = new StreamingFileEntity(4, CHUNK_SIZE, Duration.ofSeconds(1));
+
+        entityUnderTest.getOutputStream().write("0123".getBytes());
+        entityUnderTest.abort(new IOException("Unable to collect file"));
+
+        assertThrows(IOException.class, () -> entityUnderTest.writeTo(sent));
+    }
+
+    private static CompletableFuture<Void> writeInBackground(StreamingFileEntity entity, byte[] content) {
+        return CompletableFuture.runAsync(() -> {
+            try (OutputStream output = entity.getOutputStream()) {
+                output.write(content);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private void setUpEncoder() throws IOException {
+        when(encoderMock.write(any(ByteBuffer.class))).thenAnswer(invocation -> {
+            ByteBuffer buffer = invocation.getArgument(0);
+            int count = buffer.remaining();
+            byte[] bytes = new byte[count];
+            buffer.get(bytes);
+            sent.write(bytes);
+            return count;
+        });
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+package org.onap.dcaegen2.collectors.datafile.ssl;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.onap.dcaegen2.collectors.datafile.io.IFileSystemResource;
+import org.onap.dcaegen2.collectors.datafile.ssl.IKeyManagerUtils.KeyManagerException;
+
+public class SslContextCacheTest {
+    private static final String KEY_PATH = "ftpKeyPath";
+    private static final String KEY_PASSWORD = "ftpKeyPassword";
+    private static final String TRUSTED_CA_PATH = "trustedCAPath";
+    private static final String TRUSTED_CA_PASSWORD = "trustedCAPassword";
+
+    private IKeyManagerUtils keyManagerUtilsMock = mock(IKeyManagerUtils.class);
+    private KeyManager keyManagerMock = mock(KeyManager.class);
+    private IKeyStore keyStoreWrapperMock = mock(IKeyStore.class);
+    private KeyStore keyStoreMock = mock(KeyStore.class);
+    private ITrustManagerFactory trustManagerFactoryMock = mock(ITrustManagerFactory.class);
+    private TrustManager trustManagerMock = mock(TrustManager.class);
+    private IFileSystemResource fileResourceMock = mock(IFileSystemResource.class);
+    private InputStream inputStreamMock = mock(InputStream.class);
+
+    private AtomicLong lastModified = new AtomicLong(1);
+    private AtomicInteger modifiedChecks = new AtomicInteger();
+    private AtomicLong nanoTime = new AtomicLong();
+    private SslContextCache cacheUnderTest = new SslContextCache(path -> {
+        modifiedChecks.incrementAndGet();
+        return lastModified.get();
+    }, nanoTime::get);
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        cacheUnderTest.setKeyManagerUtils(keyManagerUtilsMock);
+        cacheUnderTest.setKeyStore(keyStoreWrapperMock);
+        cacheUnderTest.setTrustManagerFactory(trustManagerFactoryMock);
+        cacheUnderTest.setFileSystemResource(fileResourceMock);
+
+        when(keyManagerUtilsMock.getClientKeyManager()).thenReturn(keyManagerMock);
+        when(fileResourceMock.getInputStream()).thenReturn(inputStreamMock);
+        when(keyStoreWrapperMock.getKeyStore()).thenReturn(keyStoreMock);
+        when(trustManagerFactoryMock.getTrustManagers()).thenReturn(new TrustManager[] {trustManagerMock});
+    }
+
+    @Test
+    public void getKeyManagerTwice_keyStoreLoadedOnce() throws Exception {
+        assertSame(keyManagerMock, cacheUnderTest.getKeyManager(KEY_PATH, KEY_PASSWORD));
+        assertSame(keyManagerMock, cacheUnderTest.getKeyManager(KEY_PATH, KEY_PASSWORD));
+
+        verify(keyManagerUtilsMock, times(1)).setCredentials(KEY_PATH, KEY_PASSWORD);
+    }
+
+    @Test
+    public void getKeyManagerWhenKeyStoreModified_keyStoreLoadedAgain() throws Exception {
+        cacheUnderTest.getKeyManager(KEY_PATH, KEY_PASSWORD);
+        lastModified.incrementAndGet();
+        passModifiedCheckInterval();
+        cacheUnderTest.getKeyManager(KEY_PATH, KEY_PASSWORD);
+
+        verify(keyManagerUtilsMock, times(2)).setCredentials(KEY_PATH, KEY_PASSWORD);
+    }
+
+    @Test
+    public void getKeyManagerWithinModifiedCheckInterval_keyStoreFileCheckedOnce() throws Exception {
+        cacheUnderTest.getKeyManager(KEY_PATH, KEY_PASSWORD);
+        lastModified.incrementAndGet();
+        cacheUnderTest.getKeyManager(KEY_PATH, KEY_PASSWORD);
+
+        assertEquals(1, modifiedChecks.get());
+        verify(keyManagerUtilsMock, times(1)).setCredentials(KEY_PATH, KEY_PASSWORD);
+    }
+
+    @Test
+    public void getKeyManagerWithNewConfiguration_keyStoreLoadedAgain() throws Exception {
+        cacheUnderTest.getKeyManager(KEY_PATH, KEY_PASSWORD);
+        cacheUnderTest.getKeyManager(KEY_PATH, "newPassword");
+        cacheUnderTest.getKeyManager("newPath", "newPassword");
+
+        verify(keyManagerUtilsMock, times(1)).setCredentials(KEY_PATH, KEY_PASSWORD);
+        verify(keyManagerUtilsMock, times(1)).setCredentials(KEY_PATH, "newPassword");
+        verify(keyManagerUtilsMock, times(1)).setCredentials("newPath", "newPassword");
+    }
+
+    @Test
+    public void getKeyManagerFailing_triedAgainNextTime() throws Exception {
+        doThrow(new KeyManagerException(new GeneralSecurityException())).doNothing().when(keyManagerUtilsMock)
+                .setCredentials(KEY_PATH, KEY_PASSWORD);
+
+        assertThrows(KeyManagerException.class, () -> cacheUnderTest.getKeyManager(KEY_PATH, KEY_PASSWORD));
+        assertSame(keyManagerMock, cacheUnderTest.getKeyManager(KEY_PATH, KEY_PASSWORD));
+
+        verify(keyManagerUtilsMock, times(2)).setCredentials(KEY_PATH, KEY_PASSWORD);
+    }
+
+    @Test
+    public void getTrustManagerTwice_trustStoreLoadedOnce() throws Exception {
+        assertSame(trustManagerMock, cacheUnderTest.getTrustManager(TRUSTED_CA_PATH, TRUSTED_CA_PASSWORD));
+        assertSame(trustManagerMock, cacheUnderTest.getTrustManager(TRUSTED_CA_PATH, TRUSTED_CA_PASSWORD));
+
+        verify(fileResourceMock, times(1)).setPath(TRUSTED_CA_PATH);
+        verify(keyStoreWrapperMock, times(1)).load(inputStreamMock, TRUSTED_CA_PASSWORD.toCharArray());
+        verify(inputStreamMock, times(1)).close();
+        verify(trustManagerFactoryMock, times(1)).init(keyStoreMock);
+    }
+
+    @Test
+    public void getTrustManagerWhenTrustStoreModified_trustStoreLoadedAgain() throws Exception {
+        cacheUnderTest.getTrustManager(TRUSTED_CA_PATH, TRUSTED_CA_PASSWORD);
+        lastModified.incrementAndGet();
+        passModifiedCheckInterval();
+        cacheUnderTest.getTrustManager(TRUSTED_CA_PATH, TRUSTED_CA_PASSWORD);
+
+        verify(keyStoreWrapperMock, times(2)).load(inputStreamMock, TRUSTED_CA_PASSWORD.toCharArray());
+        verify(trustManagerFactoryMock, times(2)).init(keyStoreMock);
+    }
+
+    @Test
+    public void getSslContextWithSameMaterial_sameContextReturned() throws Exception {
+        SSLContext first = cacheUnderTest.getSslContext(keyManagerMock, trustManagerMock);
+
+        assertSame(first, cacheUnderTest.getSslContext(keyManagerMock, trustManagerMock));
+    }
+
+    @Test
+    public void getSslContextWithReloadedMaterial_newContextReturned() throws Exception {
+        SSLContext first = cacheUnderTest.getSslContext(keyManagerMock, trustManagerMock);
+
+        assertNotSame(first, cacheUnderTest.getSslContext(mock(KeyManager.class), trustManagerMock));
+    }
+
+    private void passModifiedCheckInterval() {
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(SslContextCache.MODIFIED_CHECK_SECONDS));
+    }
+}
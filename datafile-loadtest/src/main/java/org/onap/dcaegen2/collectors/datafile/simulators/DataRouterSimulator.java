@@ -0,0 +1,92 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+
+package org.onap.dcaegen2.collectors.datafile.simulators;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * DataRouter, which takes each published file after a given latency. The file is read and thrown away, only its name
+ * and size are kept. A request that expects 100-continue is answered with 100 Continue before the file is read.
+ */
+public class DataRouterSimulator implements AutoCloseable {
+
+    private static final int THREADS = 64;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    private final Duration latency;
+    private final ObjLongConsumer<String> receiver;
+
+    /**
+     * Constructor, the simulator is started on a free port on the loopback address.
+     *
+     * @param latency - how long DataRouter takes to answer, after the file has been received
+     * @param receiver - is given the name and the size of each received file
+     */
+    public DataRouterSimulator(Duration latency, ObjLongConsumer<String> receiver) throws IOException {
+        this.latency = latency;
+        this.receiver = receiver;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::publish);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void publish(HttpExchange exchange) throws IOException {
+        try {
+            if (!"PUT".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                return;
+            }
+            long bytes = 0;
+            try (InputStream body = exchange.getRequestBody()) {
+                byte[] buffer = new byte[64 * 1024];
+                for (int read = body.read(buffer); read >= 0; read = body.read(buffer)) {
+                    bytes += read;
+                }
+            }
+            Latency.simulate(latency);
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_NO_CONTENT, -1);
+            String path = exchange.getRequestURI().getPath();
+            receiver.accept(path.substring(path.lastIndexOf('/') + 1), bytes);
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+
+package org.onap.dcaegen2.collectors.datafile.simulators;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.function.IntFunction;
+
+/**
+ * Produces the fileReady events that the simulated xNFs send to Message Router. The events are numbered, and each
+ * event is from one of a number of xNFs, in turn. The files of each event have their own names, so that they are not
+ * skipped as duplicates, but they are all downloaded from the same location on the xNF.
+ */
+public class FileReadyEvents {
+
+    private static final String PRODUCT_NAME = "NrRadio";
+    private static final String VENDOR_NAME = "Ericsson";
+    private static final String EPOCH_MICROSEC = "1519837825682";
+    private static final String TIME_ZONE_OFFSET = "UTC+05:00";
+    private static final String GZIP_COMPRESSION = "gzip";
+    private static final String FILE_FORMAT_TYPE = "org.3GPP.32.435#measCollec";
+    private static final String FILE_FORMAT_VERSION = "V10";
+
+    private final int xnfs;
+    private final int filesPerEvent;
+    private final IntFunction<String> xnfLocations;
+
+    /**
+     * Constructor.
+     *
+     * @param xnfs - the number of xNFs that send events
+     * @param filesPerEvent - the number of files announced by each event
+     * @param xnfLocations - the location of the files of each xNF, by the number of the xNF
+     */
+    public FileReadyEvents(int xnfs, int filesPerEvent, IntFunction<String> xnfLocations) {
+        this.xnfs = xnfs;
+        this.filesPerEvent = filesPerEvent;
+        this.xnfLocations = xnfLocations;
+    }
+
+    public int getFilesPerEvent() {
+        return filesPerEvent;
+    }
+
+    /**
+     * A poll result from Message Router, which is an array with each event as a string.
+     *
+     * @param firstEvent - the number of the first event in the batch
+     * @param events - the number of events in the batch
+     * @return the batch in the format Message Router sends it in
+     */
+    public String createBatch(int firstEvent, int events) {
+        JsonArray batch = new JsonArray();
+        for (int event = firstEvent; event < firstEvent + events; event++) {
+            batch.add(new JsonPrimitive(createEvent(event).toString()));
+        }
+        return batch.toString();
+    }
+
+    public static String getFileName(int event, int file) {
+        return "A20181024.1030+0200-1045+0200_" + event + "_" + file + ".bin.gz";
+    }
+
+    private JsonObject createEvent(int event) {
+        int xnf = event % xnfs;
+        String sourceName = "5GRAN_DU_" + xnf;
+        JsonObject commonEventHeader = new JsonObject();
+        commonEventHeader.addProperty("domain", "notification");
+        commonEventHeader.addProperty("eventId", sourceName + "-" + event);
+        commonEventHeader.addProperty("eventName", "Noti_" + PRODUCT_NAME + "-" + VENDOR_NAME + "_FileReady");
+        commonEventHeader.addProperty("eventType", "fileReady");
+        commonEventHeader.add("internalHeaderFields", new JsonObject());
+        commonEventHeader.addProperty("lastEpochMicrosec", Long.parseLong(EPOCH_MICROSEC));
+        commonEventHeader.addProperty("nfNamingCode", "5GRAN");
+        commonEventHeader.addProperty("nfcNamingCode", "5DU");
+        commonEventHeader.addProperty("priority", "Normal");
+        commonEventHeader.addProperty("reportingEntityName", sourceName);
+        commonEventHeader.addProperty("sequence", event);
+        commonEventHeader.addProperty("sourceId", sourceName);
+        commonEventHeader.addProperty("sourceName", sourceName);
+        commonEventHeader.addProperty("timeZoneOffset", TIME_ZONE_OFFSET);
+        commonEventHeader.addProperty("startEpochMicrosec", EPOCH_MICROSEC);
+        commonEventHeader.addProperty("version", 3);
+
+        String location = xnfLocations.apply(xnf);
+        JsonArray arrayOfNamedHashMap = new JsonArray();
+        for (int file = 0; file < filesPerEvent; file++) {
+            JsonObject hashMap = new JsonObject();
+            hashMap.addProperty("location", location);
+            hashMap.addProperty("compression", GZIP_COMPRESSION);
+            hashMap.addProperty("fileFormatType", FILE_FORMAT_TYPE);
+            hashMap.addProperty("fileFormatVersion", FILE_FORMAT_VERSION);
+            JsonObject namedHashMap = new JsonObject();
+            namedHashMap.addProperty("name", getFileName(event, file));
+            namedHashMap.add("hashMap", hashMap);
+            arrayOfNamedHashMap.add(namedHashMap);
+        }
+
+        JsonObject notificationFields = new JsonObject();
+        notificationFields.addProperty("changeIdentifier", "PM_MEAS_FILES");
+        notificationFields.addProperty("changeType", "FileReady");
+        notificationFields.addProperty("notificationFieldsVersion", "1.0");
+        notificationFields.add("arrayOfNamedHashMap", arrayOfNamedHashMap);
+
+        JsonObject body = new JsonObject();
+        body.add("commonEventHeader", commonEventHeader);
+        body.add("notificationFields", notificationFields);
+        JsonObject fileReadyEvent = new JsonObject();
+        fileReadyEvent.add("event", body);
+        return fileReadyEvent;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+
+package org.onap.dcaegen2.collectors.datafile.simulators;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows each file from when Message Router gives its event to DFC until DataRouter receives the file. The end to
+ * end latency of each file is kept, so that exact percentiles can be reported when the load test ends.
+ */
+public class FileTracker {
+
+    private final int expectedFiles;
+    private final long expectedBytes;
+    private final Map<String, Long> announcedNanos = new HashMap<>();
+    private final long[] latencyNanos;
+    private final CountDownLatch remainingFiles;
+    private long firstAnnouncedNanos;
+    private long lastPublishedNanos;
+    private int publishedFiles;
+    private int duplicateFiles;
+    private int wrongSizeFiles;
+
+    /**
+     * Constructor.
+     *
+     * @param expectedFiles - the number of files in the load test
+     * @param expectedBytes - the size of each file
+     */
+    public FileTracker(int expectedFiles, long expectedBytes) {
+        this.expectedFiles = expectedFiles;
+        this.expectedBytes = expectedBytes;
+        this.latencyNanos = new long[expectedFiles];
+        this.remainingFiles = new CountDownLatch(expectedFiles);
+    }
+
+    /**
+     * The event of the file has been given to DFC.
+     */
+    public synchronized void announced(String fileName) {
+        long now = System.nanoTime();
+        if (announcedNanos.isEmpty() && publishedFiles == 0) {
+            firstAnnouncedNanos = now;
+        }
+        announcedNanos.put(fileName, now);
+    }
+
+    /**
+     * The file has been received by DataRouter. A file that is published again, after a publish that DFC did not get
+     * the answer to, is only counted once.
+     */
+    public synchronized void published(String fileName, long bytes) {
+        Long announced = announcedNanos.remove(fileName);
+        if (announced == null) {
+            duplicateFiles++;
+            return;
+        }
+        if (bytes != expectedBytes) {
+            wrongSizeFiles++;
+        }
+        lastPublishedNanos = System.nanoTime();
+        latencyNanos[publishedFiles++] = lastPublishedNanos - announced;
+        remainingFiles.countDown();
+    }
+
+    /**
+     * Waits until all files have been received by DataRouter.
+     *
+     * @return false if the timeout passed first
+     */
+    public boolean awaitPublished(Duration timeout) throws InterruptedException {
+        return remainingFiles.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The throughput and the latency percentiles of the files received by DataRouter so far.
+     */
+    public synchronized String getReport() {
+        long[] sorted = Arrays.copyOf(latencyNanos, publishedFiles);
+        Arrays.sort(sorted);
+        double seconds = (lastPublishedNanos - firstAnnouncedNanos) / 1e9;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Published %d of %d files", publishedFiles, expectedFiles));
+        if (publishedFiles > 0) {
+            report.append(String.format(" in %.1f s, %.1f files/s%n", seconds, publishedFiles / seconds));
+            report.append(String.format("End to end latency p50 %d ms, p99 %d ms, max %d ms", percentile(sorted, 0.50),
+                    percentile(sorted, 0.99), TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length - 1])));
+        }
+        report.append(String.format("%n%d files not published, %d published more than once, %d with wrong size",
+                announcedNanos.size(), duplicateFiles, wrongSizeFiles));
+        return report.toString();
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(index, 0)]);
+    }
+}
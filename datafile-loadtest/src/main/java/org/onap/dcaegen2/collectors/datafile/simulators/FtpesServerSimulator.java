@@ -0,0 +1,155 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+
+package org.onap.dcaegen2.collectors.datafile.simulators;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+
+import org.apache.ftpserver.ConnectionConfigFactory;
+import org.apache.ftpserver.FtpServer;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.DefaultFtplet;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.ftplet.FtpSession;
+import org.apache.ftpserver.ftplet.FtpletResult;
+import org.apache.ftpserver.listener.ListenerFactory;
+import org.apache.ftpserver.ssl.SslConfigurationFactory;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.ConcurrentLoginPermission;
+
+/**
+ * The FTPES servers of the xNFs. One server listens on all addresses, so each loopback address, 127.0.0.1 to
+ * 127.0.0.254, can be used as the address of its own xNF. The control and data connections are protected with TLS
+ * after AUTH TLS, as on the xNFs.
+ */
+public class FtpesServerSimulator implements AutoCloseable {
+
+    private static final String LISTENER = "default";
+    private static final int MAX_LOGINS = 10000;
+
+    private final FtpServer server;
+    private final int port;
+    private final String user;
+    private final String password;
+
+    /**
+     * Constructor, the server is started.
+     *
+     * @param home - the directory with the files of the xNFs
+     * @param port - the port to listen on
+     * @param keyStore - the key store with the key of the xNFs
+     * @param keyStorePassword - the password of the key store and the key
+     * @param user - the user DFC logs in as
+     * @param password - the password of the user
+     * @param latency - how long an xNF takes to start sending a file
+     */
+    public FtpesServerSimulator(Path home, int port, Path keyStore, String keyStorePassword, String user,
+            String password, Duration latency) throws FtpException {
+        this.port = port;
+        this.user = user;
+        this.password = password;
+
+        SslConfigurationFactory ssl = new SslConfigurationFactory();
+        ssl.setKeystoreFile(keyStore.toFile());
+        ssl.setKeystoreType("JKS");
+        ssl.setKeystorePassword(keyStorePassword);
+        ssl.setKeyPassword(keyStorePassword);
+        ListenerFactory listenerFactory = new ListenerFactory();
+        listenerFactory.setPort(port);
+        listenerFactory.setSslConfiguration(ssl.createSslConfiguration());
+        listenerFactory.setImplicitSsl(false);
+
+        ConnectionConfigFactory connectionConfig = new ConnectionConfigFactory();
+        connectionConfig.setMaxLogins(MAX_LOGINS);
+        connectionConfig.setAnonymousLoginEnabled(false);
+
+        FtpServerFactory serverFactory = new FtpServerFactory();
+        serverFactory.addListener(LISTENER, listenerFactory.createListener());
+        serverFactory.setConnectionConfig(connectionConfig.createConnectionConfig());
+        serverFactory.getUserManager().save(createUser(home, user, password));
+        serverFactory.setFtplets(Collections.singletonMap("latency", new DefaultFtplet() {
+            @Override
+            public FtpletResult onDownloadStart(FtpSession session, FtpRequest request)
+                    throws FtpException, IOException {
+                Latency.simulate(latency);
+                return super.onDownloadStart(session, request);
+            }
+        }));
+        server = serverFactory.createServer();
+        server.start();
+    }
+
+    /**
+     * Creates a key store with a self-signed key, which is used both by the xNFs and by DFC. As the key is trusted
+     * by DFC, the same key store is its trust store as well.
+     *
+     * @param keyStore - the key store to create
+     * @param password - the password of the key store and the key
+     */
+    public static void createKeyStore(Path keyStore, String password) throws IOException, InterruptedException {
+        String keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+        //@formatter:off
+        Process process = new ProcessBuilder(keytool, "-genkeypair",
+                "-alias", "xnf",
+                "-keyalg", "RSA",
+                "-keysize", "2048",
+                "-dname", "CN=localhost",
+                "-validity", "7",
+                "-storetype", "JKS",
+                "-keystore", keyStore.toString(),
+                "-storepass", password,
+                "-keypass", password)
+                .redirectErrorStream(true)
+                .redirectOutput(new File(keyStore + ".log"))
+                .start();
+        //@formatter:on
+        if (process.waitFor() != 0) {
+            throw new IOException("Unable to create the key store " + keyStore + ", see " + keyStore + ".log");
+        }
+    }
+
+    /**
+     * The location of the file on an xNF.
+     *
+     * @param host - the address of the xNF
+     * @param fileName - the name of the file in the home directory
+     */
+    public String getLocation(String host, String fileName) {
+        return "ftpes://" + user + ":" + password + "@" + host + ":" + port + "/" + fileName;
+    }
+
+    @Override
+    public void close() {
+        server.stop();
+    }
+
+    private static BaseUser createUser(Path home, String name, String password) {
+        BaseUser user = new BaseUser();
+        user.setName(name);
+        user.setPassword(password);
+        user.setHomeDirectory(home.toString());
+        user.setAuthorities(Collections.<Authority>singletonList(new ConcurrentLoginPermission(0, 0)));
+        return user;
+    }
+}
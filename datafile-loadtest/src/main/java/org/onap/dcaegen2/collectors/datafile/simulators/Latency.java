@@ -14,12 +14,24 @@
  * ============LICENSE_END========================================================================
  */
 
-package org.onap.dcaegen2.collectors.datafile.tasks;
 
-public class RetryTimer {
-    public void waitRetryTime() {
+package org.onap.dcaegen2.collectors.datafile.simulators;
+
+import java.time.Duration;
+
+/**
+ * The time a simulated node takes to answer, on top of the time the transfer itself takes.
+ */
+final class Latency {
+
+    private Latency() {}
+
+    static void simulate(Duration latency) {
+        if (latency.isZero()) {
+            return;
+        }
         try {
-            Thread.sleep(60000);
+            Thread.sleep(latency.toMillis());
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
@@ -0,0 +1,159 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+
+package org.onap.dcaegen2.collectors.datafile.simulators;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message Router, which gives the fileReady events to DFC at a given rate, or as fast as DFC polls for them. Like
+ * Message Router, a poll is held until there are events, or until the timeout of the poll has passed, and gives at
+ * most the limit of the poll.
+ */
+public class MessageRouterSimulator implements AutoCloseable {
+
+    private static final int THREADS = 4;
+    private static final String EMPTY_BATCH = "[]";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    private final FileReadyEvents events;
+    private final FileTracker tracker;
+    private final int totalEvents;
+    private final double eventsPerSecond;
+    private boolean started;
+    private long startNanos;
+    private int servedEvents;
+
+    /**
+     * Constructor, the simulator is started on a free port on the loopback address.
+     *
+     * @param events - creates the events
+     * @param tracker - is told about the files of each event given to DFC
+     * @param totalEvents - the number of events to give
+     * @param eventsPerSecond - the rate the events arrive at, or 0 to give them as fast as DFC polls for them
+     */
+    public MessageRouterSimulator(FileReadyEvents events, FileTracker tracker, int totalEvents,
+            double eventsPerSecond) throws IOException {
+        this.events = events;
+        this.tracker = tracker;
+        this.totalEvents = totalEvents;
+        this.eventsPerSecond = eventsPerSecond;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::poll);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void poll(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, String> parameters = getQueryParameters(exchange.getRequestURI().getQuery());
+            int limit = Integer.parseInt(parameters.getOrDefault("limit", Integer.toString(Integer.MAX_VALUE)));
+            long timeoutMs = Long.parseLong(parameters.getOrDefault("timeout", "0"));
+            byte[] batch = takeBatch(limit, timeoutMs).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, batch.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private synchronized String takeBatch(int limit, long timeoutMs) throws InterruptedException {
+        long now = System.nanoTime();
+        long deadlineNanos = now + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        if (!started) {
+            started = true;
+            startNanos = now;
+        }
+        while (servedEvents < totalEvents) {
+            int dueEvents = Math.min(getDueEvents(now) - servedEvents, limit);
+            if (dueEvents > 0) {
+                String batch = events.createBatch(servedEvents, dueEvents);
+                announce(servedEvents, dueEvents);
+                servedEvents += dueEvents;
+                return batch;
+            }
+            long waitNanos = Math.min(getNextEventNanos() - now, deadlineNanos - now);
+            if (waitNanos <= 0) {
+                break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+            now = System.nanoTime();
+        }
+        return EMPTY_BATCH;
+    }
+
+    private int getDueEvents(long now) {
+        if (eventsPerSecond <= 0) {
+            return totalEvents;
+        }
+        return (int) Math.min(totalEvents, (now - startNanos) / 1e9 * eventsPerSecond);
+    }
+
+    private long getNextEventNanos() {
+        return startNanos + (long) ((servedEvents + 1) / eventsPerSecond * 1e9);
+    }
+
+    private void announce(int firstEvent, int eventCount) {
+        for (int event = firstEvent; event < firstEvent + eventCount; event++) {
+            for (int file = 0; file < events.getFilesPerEvent(); file++) {
+                tracker.announced(FileReadyEvents.getFileName(event, file));
+            }
+        }
+    }
+
+    private static Map<String, String> getQueryParameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    parameters.put(parameter.substring(0, separator), parameter.substring(separator + 1));
+                }
+            }
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+
+package org.onap.dcaegen2.collectors.datafile.simulators;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.subsystem.sftp.AbstractSftpEventListenerAdapter;
+import org.apache.sshd.server.subsystem.sftp.Handle;
+import org.apache.sshd.server.subsystem.sftp.SftpSubsystemFactory;
+
+/**
+ * The SFTP servers of the xNFs. One server listens on all addresses, so each loopback address, 127.0.0.1 to
+ * 127.0.0.254, can be used as the address of its own xNF. The host key is generated when the server starts.
+ */
+public class SftpServerSimulator implements AutoCloseable {
+
+    private final SshServer server;
+    private final int port;
+    private final String user;
+    private final String password;
+
+    /**
+     * Constructor, the server is started.
+     *
+     * @param home - the directory with the files of the xNFs
+     * @param port - the port to listen on
+     * @param user - the user DFC logs in as
+     * @param password - the password of the user
+     * @param latency - how long an xNF takes to open a file
+     */
+    public SftpServerSimulator(Path home, int port, String user, String password, Duration latency)
+            throws IOException {
+        this.port = port;
+        this.user = user;
+        this.password = password;
+
+        SimpleGeneratorHostKeyProvider hostKeyProvider = new SimpleGeneratorHostKeyProvider();
+        hostKeyProvider.setAlgorithm("RSA");
+        SftpSubsystemFactory sftp = new SftpSubsystemFactory();
+        sftp.addSftpEventListener(new AbstractSftpEventListenerAdapter() {
+            @Override
+            public void open(ServerSession session, String remoteHandle, Handle localHandle) {
+                Latency.simulate(latency);
+            }
+        });
+
+        server = SshServer.setUpDefaultServer();
+        server.setPort(port);
+        server.setKeyPairProvider(hostKeyProvider);
+        server.setPasswordAuthenticator(
+                (userName, userPassword, session) -> user.equals(userName) && password.equals(userPassword));
+        server.setSubsystemFactories(Collections.singletonList(sftp));
+        server.setFileSystemFactory(new VirtualFileSystemFactory(home));
+        server.start();
+    }
+
+    /**
+     * The location of the file on an xNF.
+     *
+     * @param host - the address of the xNF
+     * @param fileName - the name of the file in the home directory
+     */
+    public String getLocation(String host, String fileName) {
+        return "sftp://" + user + ":" + password + "@" + host + ":" + port + "/" + fileName;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.stop();
+    }
+}
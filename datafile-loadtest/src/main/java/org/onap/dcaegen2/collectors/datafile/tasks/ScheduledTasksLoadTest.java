@@ -0,0 +1,256 @@
+/*
+ * ============LICENSE_START======================================================================
+ * Copyright (C) 2018 Nordix Foundation. All rights reserved.
+ * ===============================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * ============LICENSE_END========================================================================
+ */
+
+
+package org.onap.dcaegen2.collectors.datafile.tasks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Random;
+
+import org.onap.dcaegen2.collectors.datafile.config.DmaapConsumerConfiguration;
+import org.onap.dcaegen2.collectors.datafile.config.DmaapPublisherConfiguration;
+import org.onap.dcaegen2.collectors.datafile.config.ImmutableDmaapConsumerConfiguration;
+import org.onap.dcaegen2.collectors.datafile.config.ImmutableDmaapPublisherConfiguration;
+import org.onap.dcaegen2.collectors.datafile.configuration.AppConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.ClusterConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.CollectorConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.ConsumerConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.FtpesConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.ImmutableFtpesConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.JournalConfig;
+import org.onap.dcaegen2.collectors.datafile.configuration.PublisherConfig;
+import org.onap.dcaegen2.collectors.datafile.ftp.FtpsClient;
+import org.onap.dcaegen2.collectors.datafile.ftp.SftpClient;
+import org.onap.dcaegen2.collectors.datafile.simulators.DataRouterSimulator;
+import org.onap.dcaegen2.collectors.datafile.simulators.FileReadyEvents;
+import org.onap.dcaegen2.collectors.datafile.simulators.FileTracker;
+import org.onap.dcaegen2.collectors.datafile.simulators.FtpesServerSimulator;
+import org.onap.dcaegen2.collectors.datafile.simulators.MessageRouterSimulator;
+import org.onap.dcaegen2.collectors.datafile.simulators.SftpServerSimulator;
+import org.onap.dcaegen2.collectors.datafile.ssl.SslContextCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Load test of the whole Datafile workflow on one Linux host. Message Router, DataRouter and the FTPES and SFTP
+ * servers of the xNFs are simulated in-process, and DFC reaches them over real connections with its real clients.
+ * Each xNF has its own loopback address, so the limits per xNF apply as they do in a real network. Half of the xNFs
+ * are collected from with FTPES and half with SFTP.
+ *
+ * <p>When all files have been published, or the timeout has passed, the files per second and the end to end latency
+ * percentiles are reported. The latency of a file is the time from when Message Router gives its event to DFC until
+ * DataRouter has received the file.
+ *
+ * <p>The load is set with system properties, for example
+ * {@code java -Dloadtest.files=100000 -Dloadtest.xnfLatencyMs=20 -jar loadtest.jar}:
+ * <ul>
+ * <li>loadtest.files - the number of files, default 100000</li>
+ * <li>loadtest.filesPerEvent - the files announced by each event, default 10</li>
+ * <li>loadtest.eventsPerPoll - the most events Message Router gives in one poll, default 100</li>
+ * <li>loadtest.filesPerSecond - the rate the files arrive at Message Router, default 0, as fast as DFC takes them</li>
+ * <li>loadtest.xnfs - the number of xNFs, at most 254, default 50</li>
+ * <li>loadtest.fileSize - the size of each file in bytes, default 100000</li>
+ * <li>loadtest.xnfLatencyMs - how long an xNF takes to start sending a file, default 0</li>
+ * <li>loadtest.drLatencyMs - how long DataRouter takes to answer a publish, default 0</li>
+ * <li>loadtest.passThrough - true to pass the files from the xNFs to DataRouter without storing them, default false
+ * </li>
+ * <li>loadtest.ftpesPort and loadtest.sftpPort - the ports of the xNFs, default 2021 and 2022</li>
+ * <li>loadtest.timeoutMinutes - how long to wait for the files to be published, default 30</li>
+ * </ul>
+ */
+public final class ScheduledTasksLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledTasksLoadTest.class);
+
+    private static final String USER = "dfc";
+    private static final String PASSWORD = "secret";
+    private static final String XNF_FILE = "A20181024.1030+0200-1045+0200.bin.gz";
+    private static final int MAX_XNFS = 254;
+
+    private ScheduledTasksLoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        int files = Integer.getInteger("loadtest.files", 100000);
+        int filesPerEvent = Integer.getInteger("loadtest.filesPerEvent", 10);
+        int eventsPerPoll = Integer.getInteger("loadtest.eventsPerPoll", 100);
+        double filesPerSecond = Double.parseDouble(System.getProperty("loadtest.filesPerSecond", "0"));
+        int xnfs = Integer.getInteger("loadtest.xnfs", 50);
+        long fileSize = Long.getLong("loadtest.fileSize", 100000);
+        Duration xnfLatency = Duration.ofMillis(Long.getLong("loadtest.xnfLatencyMs", 0));
+        Duration drLatency = Duration.ofMillis(Long.getLong("loadtest.drLatencyMs", 0));
+        boolean passThrough = Boolean.getBoolean("loadtest.passThrough");
+        int ftpesPort = Integer.getInteger("loadtest.ftpesPort", 2021);
+        int sftpPort = Integer.getInteger("loadtest.sftpPort", 2022);
+        Duration timeout = Duration.ofMinutes(Long.getLong("loadtest.timeoutMinutes", 30));
+        if (xnfs < 1 || xnfs > MAX_XNFS) {
+            throw new IllegalArgumentException("loadtest.xnfs must be 1 to " + MAX_XNFS + ", was " + xnfs);
+        }
+
+        int events = (files + filesPerEvent - 1) / filesPerEvent;
+        Path workDirectory = Files.createTempDirectory("dfc-loadtest");
+        Path home = Files.createDirectories(workDirectory.resolve("xnf"));
+        createFile(home.resolve(XNF_FILE), fileSize);
+        Path keyStore = workDirectory.resolve("xnf.jks");
+        FtpesServerSimulator.createKeyStore(keyStore, PASSWORD);
+        Files.createDirectories(Paths.get("target"));
+
+        FileTracker tracker = new FileTracker(events * filesPerEvent, fileSize);
+        //@formatter:off
+        try (FtpesServerSimulator ftpes =
+                     new FtpesServerSimulator(home, ftpesPort, keyStore, PASSWORD, USER, PASSWORD, xnfLatency);
+             SftpServerSimulator sftp = new SftpServerSimulator(home, sftpPort, USER, PASSWORD, xnfLatency);
+             DataRouterSimulator dataRouter = new DataRouterSimulator(drLatency, (name, bytes) -> {
+                 tracker.published(name, bytes);
+                 deleteCollectedFile(name);
+             });
+             MessageRouterSimulator messageRouter = new MessageRouterSimulator(
+                     new FileReadyEvents(xnfs, filesPerEvent, xnf -> xnf % 2 == 0
+                             ? ftpes.getLocation(getXnfAddress(xnf), XNF_FILE)
+                             : sftp.getLocation(getXnfAddress(xnf), XNF_FILE)),
+                     tracker, events, filesPerSecond / filesPerEvent)) {
+            //@formatter:on
+            LoadTestAppConfig appConfig = new LoadTestAppConfig(messageRouter.getPort(), eventsPerPoll,
+                    dataRouter.getPort(), keyStore.toString());
+            runDatafileCollector(appConfig, passThrough, tracker, timeout);
+        }
+        System.out.println(tracker.getReport());
+    }
+
+    /**
+     * Runs DFC, wired as in the application, until all files have been published or the timeout has passed.
+     */
+    private static void runDatafileCollector(AppConfig appConfig, boolean passThrough, FileTracker tracker,
+            Duration timeout) throws InterruptedException {
+        DatafileMetrics metrics = new DatafileMetrics(new SimpleMeterRegistry());
+        FtpsClient ftpsClient = new FtpsClient(new SslContextCache());
+        SftpClient sftpClient = new SftpClient();
+        CollectorConfig collectorConfig = new CollectorConfig();
+        collectorConfig.setPassThrough(passThrough);
+        PublisherConfig publisherConfig = new PublisherConfig();
+        JournalConfig journalConfig = new JournalConfig();
+        journalConfig.setEnabled(false);
+        XnfCollectorTask xnfCollectorTask = new XnfCollectorTaskImpl(appConfig, ftpsClient, sftpClient, metrics);
+        DmaapPublisherTaskImpl publisherTask = new DmaapPublisherTaskImpl(appConfig, publisherConfig, metrics);
+        ScheduledTasks scheduledTasks = new ScheduledTasks(new DmaapConsumerTaskImpl(appConfig, metrics),
+                xnfCollectorTask, publisherTask, new PassThroughTask(xnfCollectorTask, publisherTask, collectorConfig),
+                collectorConfig, new ConsumerConfig(), publisherConfig, journalConfig, new ClusterConfig(), metrics);
+        scheduledTasks.scheduleMainDatafileEventTask();
+        try {
+            if (!tracker.awaitPublished(timeout)) {
+                logger.warn("Not all files were published within {}", timeout);
+            }
+        } finally {
+            scheduledTasks.shutdown();
+            publisherTask.close();
+            ftpsClient.close();
+            sftpClient.close();
+        }
+    }
+
+    private static String getXnfAddress(int xnf) {
+        return "127.0.0." + (xnf % MAX_XNFS + 1);
+    }
+
+    private static void createFile(Path file, long size) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        new Random(0).nextBytes(buffer);
+        try (OutputStream output = Files.newOutputStream(file)) {
+            for (long left = size; left > 0; left -= buffer.length) {
+                output.write(buffer, 0, (int) Math.min(left, buffer.length));
+            }
+        }
+    }
+
+    /**
+     * A file collected to disk is not needed once DataRouter has it, so a long load test does not fill the disk.
+     */
+    private static void deleteCollectedFile(String name) {
+        try {
+            Files.deleteIfExists(Paths.get("target", name));
+        } catch (IOException e) {
+            logger.warn("Unable to delete {}", name, e);
+        }
+    }
+
+    /**
+     * DFC's configuration, which points at the simulators. DFC trusts the xNFs' key, and uses it as its own key too.
+     */
+    private static final class LoadTestAppConfig extends AppConfig {
+        private final DmaapConsumerConfiguration consumerConfiguration;
+        private final DmaapPublisherConfiguration publisherConfiguration;
+        private final FtpesConfig ftpesConfiguration;
+
+        LoadTestAppConfig(int messageRouterPort, int eventsPerPoll, int dataRouterPort, String keyStore) {
+            // @formatter:off
+            consumerConfiguration = new ImmutableDmaapConsumerConfiguration.Builder()
+                    .dmaapHostName("localhost")
+                    .dmaapPortNumber(messageRouterPort)
+                    .dmaapTopicName("events/unauthenticated.VES_NOTIFICATION_OUTPUT")
+                    .dmaapProtocol("http")
+                    .dmaapUserName(USER)
+                    .dmaapUserPassword(PASSWORD)
+                    .dmaapContentType("application/json")
+                    .consumerId("C12")
+                    .consumerGroup("OpenDcae-c12")
+                    .timeoutMS(1000)
+                    .messageLimit(eventsPerPoll)
+                    .build();
+            publisherConfiguration = new ImmutableDmaapPublisherConfiguration.Builder()
+                    .dmaapHostName("localhost")
+                    .dmaapPortNumber(dataRouterPort)
+                    .dmaapTopicName("publish")
+                    .dmaapProtocol("http")
+                    .dmaapUserName(USER)
+                    .dmaapUserPassword(PASSWORD)
+                    .dmaapContentType("application/octet-stream")
+                    .build();
+            ftpesConfiguration = new ImmutableFtpesConfig.Builder()
+                    .keyCert(keyStore)
+                    .keyPassword(PASSWORD)
+                    .trustedCA(keyStore)
+                    .trustedCAPassword(PASSWORD)
+                    .build();
+            // @formatter:on
+        }
+
+        @Override
+        public void initFileStreamReader() {
+            // Nothing to read, the configuration is given
+        }
+
+        @Override
+        public DmaapConsumerConfiguration getDmaapConsumerConfiguration() {
+            return consumerConfiguration;
+        }
+
+        @Override
+        public DmaapPublisherConfiguration getDmaapPublisherConfiguration() {
+            return publisherConfiguration;
+        }
+
+        @Override
+        public FtpesConfig getFtpesConfiguration() {
+            return ftpesConfiguration;
+        }
+    }
+}